@@ -0,0 +1,39 @@
+-- 従業員名検索のベンチマーク
+-- sql.txtを流したデータベースに100万件の従業員を追加し、名前検索とオートコンプリートの実行計画と実行時間を確認する.
+-- 実行方法: psql -d student -f bench_name_search.sql
+-- 確認後はsql.txtを流し直してデータを元に戻すこと.
+
+\timing on
+
+-- 100万件の従業員を追加(名前は姓と名の組み合わせ+連番)
+insert into employees(id,name,image,gender,hire_date,mail_address,zip_code,address,telephone,salary,characteristics,dependents_count)
+select nextval('employees_id_seq'),
+       (array['山田','鈴木','佐藤','渡辺','吉田','高橋','田中','伊藤','山本','小林','加藤','中村'])[1 + g % 12]
+         || (array['太郎','花子','一朗','一子','次郎','次子','三郎','三子','四郎','四子'])[1 + (g / 12) % 10]
+         || g,
+       'e1.png', '男性', timestamp '2000-01-01' + (g % 8000) * interval '1 day',
+       'bench' || g || '@sample.com', '000-0000', '東京都新宿区1-1-1', '090-0000-0000', 300000, 'ベンチマーク用', g % 5
+from generate_series(1, 1000000) as g;
+select setval('employees_id_seq', (select max(id) + 1 from employees), false);
+analyze employees;
+
+-- 曖昧検索(トライグラムインデックスを使う. Bitmap Index Scan on employees_name_trgm_idxになっていること)
+explain (analyze, buffers)
+select id,name,hire_date,dependents_count from employees where name like '%花子1234%'
+order by similarity(name, '花子1234') desc, hire_date desc, id desc limit 10;
+
+-- オートコンプリート(前方一致インデックスを使う. Index Only Scan using employees_name_prefix_idxになっていること)
+explain (analyze, buffers)
+select distinct name from (select name from employees where name like '山田太郎12%' order by name using ~<~ limit 40) as names
+order by name limit 10;
+
+-- 比較用: インデックスを使わない場合(Seq Scan)
+set enable_bitmapscan = off;
+set enable_indexscan = off;
+set enable_indexonlyscan = off;
+explain (analyze, buffers)
+select id,name,hire_date,dependents_count from employees where name like '%花子1234%'
+order by similarity(name, '花子1234') desc, hire_date desc, id desc limit 10;
+reset enable_bitmapscan;
+reset enable_indexscan;
+reset enable_indexonlyscan;
@@ -0,0 +1,52 @@
+package jp.co.sample.emp_management;
+
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+
+/**
+ * ベンチマーク用の組み込みH2(PostgreSQLモード)に従業員テーブルを作成するクラス.
+ *
+ * @author naramasato
+ *
+ */
+public final class BenchmarkDatabase {
+
+	private BenchmarkDatabase() {
+	}
+
+	/**
+	 * インメモリのH2データベースに接続します.
+	 *
+	 * @param name データベース名
+	 * @return データソース
+	 */
+	public static SingleConnectionDataSource open(String name) {
+		return new SingleConnectionDataSource(
+				"jdbc:h2:mem:" + name + ";MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1", true);
+	}
+
+	/**
+	 * employeesテーブルを作成し、指定件数の従業員を登録します. IDは1から連番です.
+	 *
+	 * @param template 登録先
+	 * @param rows     登録する従業員数
+	 */
+	public static void createEmployees(NamedParameterJdbcTemplate template, int rows) {
+		template.getJdbcTemplate().execute("DROP TABLE IF EXISTS employees");
+		template.getJdbcTemplate().execute("CREATE TABLE employees (id INTEGER PRIMARY KEY, name VARCHAR NOT NULL, "
+				+ "image VARCHAR NOT NULL, gender VARCHAR NOT NULL, hire_date TIMESTAMP NOT NULL, "
+				+ "mail_address VARCHAR NOT NULL UNIQUE, zip_code VARCHAR NOT NULL, address VARCHAR NOT NULL, "
+				+ "telephone VARCHAR NOT NULL, salary INTEGER NOT NULL, characteristics VARCHAR NOT NULL, "
+				+ "dependents_count INTEGER NOT NULL DEFAULT 0, version INTEGER NOT NULL DEFAULT 1)");
+		template.update("INSERT INTO employees(id, name, image, gender, hire_date, mail_address, zip_code, address, "
+				+ "telephone, salary, characteristics, dependents_count) "
+				+ "SELECT x, CONCAT('従業員', x), 'e1.png', '男性', DATEADD('DAY', -MOD(x, 7300), TIMESTAMP '2020-01-01 00:00:00'), "
+				+ "CONCAT('employee', x, '@sample.com'), '000-0000', '東京都新宿区1-1-1', '090-0000-0000', 300000, "
+				+ "'明るく素直な性格です。', MOD(x, 5) FROM SYSTEM_RANGE(1, :rows)",
+				new MapSqlParameterSource().addValue("rows", rows));
+		// 本番と同じ(入社日, ID)のインデックス
+		template.getJdbcTemplate()
+				.execute("CREATE INDEX employees_hire_date_id_idx ON employees (hire_date DESC, id DESC)");
+	}
+}
@@ -0,0 +1,136 @@
+package jp.co.sample.emp_management.controller;
+
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.mock.web.MockServletContext;
+import org.thymeleaf.context.WebContext;
+import org.thymeleaf.spring5.SpringTemplateEngine;
+import org.thymeleaf.templatemode.TemplateMode;
+import org.thymeleaf.templateresolver.ClassLoaderTemplateResolver;
+
+import jp.co.sample.emp_management.common.Pagination;
+import jp.co.sample.emp_management.domain.EmployeeSummary;
+import jp.co.sample.emp_management.form.SearchByNameForm;
+
+/**
+ * 従業員一覧画面(employee/list)のThymeleafによる描画時間を計測するベンチマーク.
+ *
+ * テンプレートはアプリケーションと同じくキャッシュした状態で、1ページ分の従業員一覧を描画します.
+ * renderListWithCachedRowsは表の行を描画済みのHTML({@link EmployeeRowRenderer}のキャッシュ)で埋める場合で、
+ * renderListとの差が行のキャッシュで削減できる描画時間です.
+ *
+ * @author naramasato
+ *
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ListTemplateBenchmark {
+
+	/** EmployeeControllerと同じく表示中のページの前後2ページ分のリンクを表示する */
+	private static final int PAGE_LINK_RADIUS = 2;
+
+	/** 1ページに表示する従業員数 */
+	@Param({ "10", "100" })
+	public int pageSize;
+
+	private SpringTemplateEngine templateEngine;
+
+	private WebContext context;
+
+	private WebContext cachedRowsContext;
+
+	@Setup
+	public void setUp() {
+		ClassLoaderTemplateResolver resolver = new ClassLoaderTemplateResolver();
+		resolver.setPrefix("templates/");
+		resolver.setSuffix(".html");
+		resolver.setTemplateMode(TemplateMode.HTML);
+		resolver.setCharacterEncoding(StandardCharsets.UTF_8.name());
+		resolver.setCacheable(true);
+		templateEngine = new SpringTemplateEngine();
+		templateEngine.setTemplateResolver(resolver);
+
+		List<EmployeeSummary> employeeList = new ArrayList<>(pageSize);
+		for (int i = 0; i < pageSize; i++) {
+			EmployeeSummary employee = new EmployeeSummary();
+			employee.setId(1000 - i);
+			employee.setName("従業員" + i);
+			employee.setImage(String.format("%064x", i));
+			employee.setHireDate(new Date(1_500_000_000_000L - i * 86_400_000L));
+			employee.setDependentsCount(i % 5);
+			employeeList.add(employee);
+		}
+		// 全1000ページ中の12ページ目
+		Page<EmployeeSummary> employeePage = new PageImpl<>(employeeList, PageRequest.of(11, pageSize),
+				1000L * pageSize);
+
+		Map<String, Object> variables = new HashMap<>();
+		variables.put("searchByNameForm", new SearchByNameForm());
+		variables.put("employeePage", employeePage);
+		variables.put("pagination", Pagination.of(employeePage, PAGE_LINK_RADIUS));
+		variables.put("lastEmployee", employeeList.get(employeeList.size() - 1));
+
+		MockServletContext servletContext = new MockServletContext();
+		MockHttpServletRequest request = new MockHttpServletRequest(servletContext, "GET", "/employee/showList");
+		request.getSession().setAttribute("name", "山田太郎");
+		context = new WebContext(request, new MockHttpServletResponse(), servletContext, Locale.JAPAN, variables);
+
+		StringBuilder rows = new StringBuilder();
+		for (EmployeeSummary employee : employeeList) {
+			WebContext rowContext = new WebContext(request, new MockHttpServletResponse(), servletContext,
+					Locale.JAPAN, Map.of("employee", employee));
+			rows.append(templateEngine.process("employee/row", Set.of("row"), rowContext));
+		}
+		Map<String, Object> cachedRowsVariables = new HashMap<>(variables);
+		cachedRowsVariables.put("employeeRows", rows.toString());
+		cachedRowsContext = new WebContext(request, new MockHttpServletResponse(), servletContext, Locale.JAPAN,
+				cachedRowsVariables);
+
+		// テンプレートの読み込みとパースを計測に含めない
+		templateEngine.process("employee/list", context);
+		templateEngine.process("employee/list", cachedRowsContext);
+	}
+
+	@Benchmark
+	public String renderList() {
+		StringWriter writer = new StringWriter(16 * 1024);
+		templateEngine.process("employee/list", context, writer);
+		return writer.toString();
+	}
+
+	@Benchmark
+	public String renderListWithCachedRows() {
+		StringWriter writer = new StringWriter(16 * 1024);
+		templateEngine.process("employee/list", cachedRowsContext, writer);
+		return writer.toString();
+	}
+}
@@ -0,0 +1,110 @@
+package jp.co.sample.emp_management.metrics;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.prometheus.PrometheusConfig;
+import io.micrometer.prometheus.PrometheusMeterRegistry;
+import jp.co.sample.emp_management.BenchmarkDatabase;
+import jp.co.sample.emp_management.domain.Employee;
+import jp.co.sample.emp_management.domain.EmployeeSummary;
+import jp.co.sample.emp_management.repository.EmployeeRepository;
+
+/**
+ * メトリクス計測のオーバーヘッドを計測するベンチマーク.
+ *
+ * 計測なしのリポジトリと、アプリケーションと同じく{@link MetricsInterceptor}のプロキシと
+ * {@link InstrumentedDataSource}(SQLの実行統計を含む)を通したリポジトリで同じクエリを実行し、処理時間を比較します.
+ * instrumentedXxxがplainXxxの1%以内に収まっていること.
+ * (インメモリのH2はネットワーク越しのPostgreSQLよりクエリが速いため、実環境での割合はこれより小さくなります)
+ *
+ * @author naramasato
+ *
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(2)
+@State(Scope.Benchmark)
+public class MetricsOverheadBenchmark {
+
+	private static final int ROWS = 10000;
+
+	private static final int PAGE_SIZE = 10;
+
+	private SingleConnectionDataSource dataSource;
+
+	private EmployeeRepository plainRepository;
+
+	private EmployeeRepository instrumentedRepository;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		dataSource = BenchmarkDatabase.open("metrics");
+		BenchmarkDatabase.createEmployees(new NamedParameterJdbcTemplate(dataSource), ROWS);
+
+		plainRepository = new EmployeeRepository();
+		ReflectionTestUtils.setField(plainRepository, "template", new NamedParameterJdbcTemplate(dataSource));
+		plainRepository.init();
+
+		MeterRegistry registry = new PrometheusMeterRegistry(PrometheusConfig.DEFAULT);
+		StaticListableBeanFactory beanFactory = new StaticListableBeanFactory(Map.of("meterRegistry", registry));
+		SqlStatistics statistics = new SqlStatistics();
+		ReflectionTestUtils.setField(statistics, "slowThresholdMillis", 200L);
+		ReflectionTestUtils.setField(statistics, "nPlusOneThreshold", 10);
+		EmployeeRepository target = new EmployeeRepository();
+		ReflectionTestUtils.setField(target, "template",
+				new NamedParameterJdbcTemplate(new InstrumentedDataSource(dataSource, statistics)));
+		target.init();
+		ProxyFactory proxyFactory = new ProxyFactory(target);
+		proxyFactory.setProxyTargetClass(true);
+		proxyFactory.addAdvisor(MetricsConfig.metricsAdvisor(beanFactory.getBeanProvider(MeterRegistry.class)));
+		instrumentedRepository = (EmployeeRepository) proxyFactory.getProxy();
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		dataSource.destroy();
+	}
+
+	@Benchmark
+	public List<EmployeeSummary> plainFindPage() {
+		return plainRepository.findPage(ROWS / 2, PAGE_SIZE);
+	}
+
+	@Benchmark
+	public List<EmployeeSummary> instrumentedFindPage() {
+		return instrumentedRepository.findPage(ROWS / 2, PAGE_SIZE);
+	}
+
+	@Benchmark
+	public Employee plainLoad() {
+		return plainRepository.load(ROWS / 2);
+	}
+
+	@Benchmark
+	public Employee instrumentedLoad() {
+		return instrumentedRepository.load(ROWS / 2);
+	}
+}
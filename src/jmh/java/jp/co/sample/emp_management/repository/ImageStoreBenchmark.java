@@ -0,0 +1,83 @@
+package jp.co.sample.emp_management.repository;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Base64;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.FileSystemUtils;
+
+/**
+ * 従業員登録時の画像の保存にかかる時間を計測するベンチマーク.
+ *
+ * 以前のinsertEmployeeで行っていたBase64エンコード(data URIにしてimage列に保存)と、
+ * 現在の{@link ImageRepository#store(java.io.InputStream)}(SHA-256を計算しながらファイルに保存)を比較します.
+ * Base64の方はDBへの書き込みを含まないため、実際の差はこれより大きくなります.
+ *
+ * @author naramasato
+ *
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ImageStoreBenchmark {
+
+	/** 画像のサイズ(バイト) */
+	@Param({ "65536", "1048576" })
+	public int imageSize;
+
+	private byte[] image;
+
+	private Path imageDir;
+
+	private ImageRepository imageRepository;
+
+	@Setup(Level.Trial)
+	public void setUp() throws IOException {
+		image = new byte[imageSize];
+		new Random(42).nextBytes(image);
+
+		imageDir = Files.createTempDirectory("image-store-bench");
+		imageRepository = new ImageRepository();
+		ReflectionTestUtils.setField(imageRepository, "imageDir", imageDir.toString());
+		imageRepository.init();
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws IOException {
+		FileSystemUtils.deleteRecursively(imageDir);
+	}
+
+	/**
+	 * 以前のinsertEmployeeと同じ処理.
+	 */
+	@Benchmark
+	public String base64DataUri() {
+		return "data:image/png;base64," + Base64.getEncoder().encodeToString(image);
+	}
+
+	@Benchmark
+	public String contentAddressedStore() throws IOException {
+		return imageRepository.store(new ByteArrayInputStream(image));
+	}
+}
@@ -0,0 +1,96 @@
+package jp.co.sample.emp_management.repository;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.concurrent.TimeUnit;
+
+import org.h2.tools.SimpleResultSet;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.jdbc.core.BeanPropertyRowMapper;
+import org.springframework.jdbc.core.RowMapper;
+
+import jp.co.sample.emp_management.domain.Administrator;
+import jp.co.sample.emp_management.domain.Employee;
+
+/**
+ * ローマッパーで1行分のオブジェクトを生成する時間を計測するベンチマーク.
+ *
+ * DBへのアクセスを含めないよう、メモリ上のResultSet(H2のSimpleResultSet)の同じ行を繰り返し変換します.
+ * 比較用にBeanPropertyRowMapperでも計測します.
+ *
+ * @author naramasato
+ *
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class RowMapperBenchmark {
+
+	private static final RowMapper<Employee> EMPLOYEE_BEAN_PROPERTY_ROW_MAPPER = new BeanPropertyRowMapper<>(
+			Employee.class);
+
+	private ResultSet employeeResultSet;
+
+	private ResultSet administratorResultSet;
+
+	@Setup
+	public void setUp() throws SQLException {
+		SimpleResultSet employees = new SimpleResultSet();
+		employees.addColumn("id", Types.INTEGER, 10, 0);
+		employees.addColumn("name", Types.VARCHAR, 255, 0);
+		employees.addColumn("image", Types.VARCHAR, 255, 0);
+		employees.addColumn("gender", Types.VARCHAR, 255, 0);
+		employees.addColumn("hire_date", Types.TIMESTAMP, 0, 0);
+		employees.addColumn("mail_address", Types.VARCHAR, 255, 0);
+		employees.addColumn("zip_code", Types.VARCHAR, 255, 0);
+		employees.addColumn("address", Types.VARCHAR, 255, 0);
+		employees.addColumn("telephone", Types.VARCHAR, 255, 0);
+		employees.addColumn("salary", Types.INTEGER, 10, 0);
+		employees.addColumn("characteristics", Types.VARCHAR, 1024, 0);
+		employees.addColumn("dependents_count", Types.INTEGER, 10, 0);
+		employees.addColumn("version", Types.INTEGER, 10, 0);
+		employees.addRow(1, "山田太郎", "e1.png", "男性", Timestamp.valueOf("2012-11-29 00:00:00"),
+				"taro.yamada@sample.com", "000-0000", "北海道札幌市1-1-1", "090-0000-0000", 400000,
+				"山田太郎さんは明るく素直な性格です。リーダーシップを発揮します。", 3, 1);
+		employees.next();
+		employeeResultSet = employees;
+
+		SimpleResultSet administrators = new SimpleResultSet();
+		administrators.addColumn("id", Types.INTEGER, 10, 0);
+		administrators.addColumn("name", Types.VARCHAR, 255, 0);
+		administrators.addColumn("mail_address", Types.VARCHAR, 255, 0);
+		administrators.addColumn("password", Types.VARCHAR, 255, 0);
+		administrators.addRow(1, "管理者", "admin@sample.com", "password");
+		administrators.next();
+		administratorResultSet = administrators;
+	}
+
+	@Benchmark
+	public Employee employeeRowMapper() throws SQLException {
+		return EmployeeRepository.EMPLOYEE_ROW_MAPPER.mapRow(employeeResultSet, 0);
+	}
+
+	@Benchmark
+	public Employee employeeBeanPropertyRowMapper() throws SQLException {
+		return EMPLOYEE_BEAN_PROPERTY_ROW_MAPPER.mapRow(employeeResultSet, 0);
+	}
+
+	@Benchmark
+	public Administrator administratorRowMapper() throws SQLException {
+		return AdministratorRepository.ADMINISTRATOR_ROW_MAPPER.mapRow(administratorResultSet, 0);
+	}
+}
@@ -0,0 +1,125 @@
+package jp.co.sample.emp_management.service;
+
+import java.sql.Timestamp;
+import java.util.Date;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.domain.Page;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import jp.co.sample.emp_management.BenchmarkDatabase;
+import jp.co.sample.emp_management.domain.EmployeeSummary;
+import jp.co.sample.emp_management.repository.EmployeeRepository;
+
+/**
+ * 従業員一覧のページング({@link EmployeeService#showListPaging(int, int, Date, Integer)})のベンチマーク.
+ *
+ * 組み込みのH2(PostgreSQLモード)に指定件数の従業員を登録し、
+ * 先頭ページ・中央のページ(OFFSET)・中央のページ(直前のページの最後の従業員から続けて取得)の取得時間を計測します.
+ * 従業員数はEmployeeCountServiceがメモリ上に保持しているため、ここでは固定値を返します.
+ *
+ * @author naramasato
+ *
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@State(Scope.Benchmark)
+public class ShowListPagingBenchmark {
+
+	private static final int PAGE_SIZE = 10;
+
+	/** 登録する従業員数 */
+	@Param({ "1000", "100000", "1000000" })
+	public int rows;
+
+	private SingleConnectionDataSource dataSource;
+
+	private EmployeeService employeeService;
+
+	private EmployeeRepository employeeRepository;
+
+	/** 中央のページの番号(1始まり) */
+	private int middlePage;
+
+	/** 中央のページの直前のページの最後の従業員の入社日 */
+	private Date middleLastHireDate;
+
+	/** 中央のページの直前のページの最後の従業員のID */
+	private Integer middleLastId;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		dataSource = BenchmarkDatabase.open("paging");
+		NamedParameterJdbcTemplate template = new NamedParameterJdbcTemplate(dataSource);
+		BenchmarkDatabase.createEmployees(template, rows);
+
+		employeeRepository = new EmployeeRepository();
+		ReflectionTestUtils.setField(employeeRepository, "template", template);
+		employeeRepository.init();
+		long count = rows;
+		EmployeeCountService employeeCountService = new EmployeeCountService() {
+			@Override
+			public long count() {
+				return count;
+			}
+		};
+		employeeService = new EmployeeService();
+		ReflectionTestUtils.setField(employeeService, "employeeRepository", employeeRepository);
+		ReflectionTestUtils.setField(employeeService, "employeeCountService", employeeCountService);
+
+		middlePage = rows / PAGE_SIZE / 2;
+		Map<String, Object> last = template.queryForMap(
+				"SELECT id, hire_date FROM employees ORDER BY hire_date DESC, id DESC LIMIT 1 OFFSET :offset",
+				new MapSqlParameterSource().addValue("offset", (middlePage - 1) * PAGE_SIZE - 1));
+		middleLastId = ((Number) last.get("id")).intValue();
+		middleLastHireDate = new Date(((Timestamp) last.get("hire_date")).getTime());
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		dataSource.destroy();
+	}
+
+	@Benchmark
+	public Page<EmployeeSummary> firstPage() {
+		return employeeService.showListPaging(1, PAGE_SIZE, null, null);
+	}
+
+	@Benchmark
+	public Page<EmployeeSummary> middlePageByOffset() {
+		return employeeService.showListPaging(middlePage, PAGE_SIZE, null, null);
+	}
+
+	@Benchmark
+	public Page<EmployeeSummary> middlePageByKeyset() {
+		return employeeService.showListPaging(middlePage, PAGE_SIZE, middleLastHireDate, middleLastId);
+	}
+
+	/**
+	 * 比較用: ページングのたびにcount(*)した場合にかかる時間.
+	 */
+	@Benchmark
+	public long exactCount() {
+		return employeeRepository.count();
+	}
+}
@@ -0,0 +1,120 @@
+package jp.co.sample.emp_management.session;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import javax.servlet.http.HttpSession;
+
+import org.apache.catalina.Session;
+import org.apache.catalina.core.StandardContext;
+import org.apache.catalina.session.StandardManager;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * 署名付きCookieのセッションとHttpSession(TomcatのStandardManager)を比較するベンチマーク.
+ *
+ * リクエストごとにかかる時間として、Cookieの検証(verifyCookie)・署名(signCookie)と、
+ * HttpSessionの検索と属性の取得(lookupServletSession)を計測します.
+ * また、セットアップ時に10万件のHttpSession(管理者IDと名前を保持)が使うヒープを計測して出力します.
+ * Cookieのセッションはサーバーにセッションを保持しないため、この分のヒープが不要になります.
+ *
+ * @author naramasato
+ *
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SessionCookieBenchmark {
+
+	/** 保持するセッション数 */
+	private static final int SESSIONS = 100_000;
+
+	private SignedCookieCodec codec;
+
+	private Map<String, String> attributes;
+
+	private String cookieValue;
+
+	private long issuedAt;
+
+	private StandardManager manager;
+
+	private String[] sessionIds;
+
+	private int next;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		Random random = new Random(42);
+		byte[] currentKey = new byte[32];
+		byte[] previousKey = new byte[32];
+		random.nextBytes(currentKey);
+		random.nextBytes(previousKey);
+		codec = new SignedCookieCodec("k2:" + Base64.getEncoder().encodeToString(currentKey) + ",k1:"
+				+ Base64.getEncoder().encodeToString(previousKey));
+		attributes = new LinkedHashMap<>();
+		attributes.put(CookieSession.ID_ATTRIBUTE, "0123456789abcdef0123456789abcdef");
+		attributes.put("administratorId", "1");
+		attributes.put("name", "山田太郎");
+		issuedAt = System.currentTimeMillis() / 1000;
+		cookieValue = codec.encode(attributes, issuedAt);
+
+		manager = new StandardManager();
+		manager.setContext(new StandardContext());
+		sessionIds = new String[SESSIONS];
+		long before = usedHeapAfterGc();
+		for (int i = 0; i < SESSIONS; i++) {
+			sessionIds[i] = String.format("%032X", i);
+			HttpSession session = manager.createSession(sessionIds[i]).getSession();
+			session.setAttribute("administratorId", String.valueOf(i));
+			session.setAttribute("name", "山田太郎" + i);
+		}
+		long retained = usedHeapAfterGc() - before;
+		System.out.printf("%nHttpSession %,d件のヒープ使用量: %.1fMiB (1件あたり%,dバイト), Cookieの長さ: %dバイト%n", SESSIONS,
+				retained / (1024.0 * 1024.0), retained / SESSIONS, cookieValue.length());
+	}
+
+	private static long usedHeapAfterGc() {
+		MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+		for (int i = 0; i < 3; i++) {
+			System.gc();
+		}
+		return memory.getHeapMemoryUsage().getUsed();
+	}
+
+	@Benchmark
+	public SignedCookieCodec.Decoded verifyCookie() {
+		return codec.decode(cookieValue);
+	}
+
+	@Benchmark
+	public String signCookie() {
+		return codec.encode(attributes, issuedAt);
+	}
+
+	@Benchmark
+	public Object lookupServletSession() throws IOException {
+		next = (next + 1) % SESSIONS;
+		Session session = manager.findSession(sessionIds[next]);
+		return session.getSession().getAttribute("name");
+	}
+}
@@ -0,0 +1,117 @@
+package jp.co.sample.emp_management.loadtest;
+
+/**
+ * 1つのエンドポイントの負荷試験の集計結果.
+ *
+ * @author naramasato
+ *
+ */
+public class EndpointStats {
+	/** エンドポイント名 */
+	private String endpoint;
+	/** 成功したリクエスト数 */
+	private long requests;
+	/** 失敗したリクエスト数 */
+	private long errors;
+	/** 成功したリクエストのうち304(変更なし)が返った数 */
+	private long notModified;
+	/** 1秒あたりの成功したリクエスト数 */
+	private double throughput;
+	/** 平均応答時間(ミリ秒) */
+	private double meanMillis;
+	/** 50パーセンタイルの応答時間(ミリ秒) */
+	private double p50Millis;
+	/** 95パーセンタイルの応答時間(ミリ秒) */
+	private double p95Millis;
+	/** 99パーセンタイルの応答時間(ミリ秒) */
+	private double p99Millis;
+	/** 最大の応答時間(ミリ秒) */
+	private double maxMillis;
+
+	public String getEndpoint() {
+		return endpoint;
+	}
+
+	public void setEndpoint(String endpoint) {
+		this.endpoint = endpoint;
+	}
+
+	public long getRequests() {
+		return requests;
+	}
+
+	public void setRequests(long requests) {
+		this.requests = requests;
+	}
+
+	public long getErrors() {
+		return errors;
+	}
+
+	public void setErrors(long errors) {
+		this.errors = errors;
+	}
+
+	public long getNotModified() {
+		return notModified;
+	}
+
+	public void setNotModified(long notModified) {
+		this.notModified = notModified;
+	}
+
+	public double getThroughput() {
+		return throughput;
+	}
+
+	public void setThroughput(double throughput) {
+		this.throughput = throughput;
+	}
+
+	public double getMeanMillis() {
+		return meanMillis;
+	}
+
+	public void setMeanMillis(double meanMillis) {
+		this.meanMillis = meanMillis;
+	}
+
+	public double getP50Millis() {
+		return p50Millis;
+	}
+
+	public void setP50Millis(double p50Millis) {
+		this.p50Millis = p50Millis;
+	}
+
+	public double getP95Millis() {
+		return p95Millis;
+	}
+
+	public void setP95Millis(double p95Millis) {
+		this.p95Millis = p95Millis;
+	}
+
+	public double getP99Millis() {
+		return p99Millis;
+	}
+
+	public void setP99Millis(double p99Millis) {
+		this.p99Millis = p99Millis;
+	}
+
+	public double getMaxMillis() {
+		return maxMillis;
+	}
+
+	public void setMaxMillis(double maxMillis) {
+		this.maxMillis = maxMillis;
+	}
+
+	@Override
+	public String toString() {
+		return "EndpointStats [endpoint=" + endpoint + ", requests=" + requests + ", errors=" + errors
+				+ ", notModified=" + notModified + ", throughput=" + throughput + ", meanMillis=" + meanMillis
+				+ ", p50Millis=" + p50Millis + ", p95Millis=" + p95Millis + ", p99Millis=" + p99Millis + ", maxMillis=" + maxMillis + "]";
+	}
+}
@@ -0,0 +1,100 @@
+package jp.co.sample.emp_management.loadtest;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 1つのエンドポイントの応答時間を記録するクラス.
+ *
+ * 計測中は応答時間(ナノ秒)をすべて保持し、集計時にソートしてパーセンタイルを求めます.
+ *
+ * @author naramasato
+ *
+ */
+public class LatencyRecorder {
+
+	private final String endpoint;
+
+	private long[] latencies = new long[1024];
+
+	private int size;
+
+	private final LongAdder errorCount = new LongAdder();
+
+	private final LongAdder notModifiedCount = new LongAdder();
+
+	/**
+	 * @param endpoint エンドポイント名
+	 */
+	public LatencyRecorder(String endpoint) {
+		this.endpoint = endpoint;
+	}
+
+	/**
+	 * 成功したリクエストの応答時間を記録します.
+	 *
+	 * @param nanos 応答時間(ナノ秒)
+	 */
+	public synchronized void record(long nanos) {
+		if (size == latencies.length) {
+			latencies = Arrays.copyOf(latencies, size * 2);
+		}
+		latencies[size++] = nanos;
+	}
+
+	/**
+	 * 成功したリクエストのうち、304(変更なし)が返ったことを記録します. 応答時間は{@link #record(long)}で記録してください.
+	 */
+	public void recordNotModified() {
+		notModifiedCount.increment();
+	}
+
+	/**
+	 * 失敗したリクエストを記録します.
+	 */
+	public void recordError() {
+		errorCount.increment();
+	}
+
+	/**
+	 * 記録した応答時間を集計します.
+	 *
+	 * @param elapsedSeconds 計測時間(秒) スループットの計算に使います
+	 * @return 集計結果
+	 */
+	public synchronized EndpointStats toStats(double elapsedSeconds) {
+		long[] sorted = Arrays.copyOf(latencies, size);
+		Arrays.sort(sorted);
+		long total = 0;
+		for (long latency : sorted) {
+			total += latency;
+		}
+		EndpointStats stats = new EndpointStats();
+		stats.setEndpoint(endpoint);
+		stats.setRequests(size);
+		stats.setErrors(errorCount.sum());
+		stats.setNotModified(notModifiedCount.sum());
+		stats.setThroughput(elapsedSeconds > 0 ? size / elapsedSeconds : 0);
+		stats.setMeanMillis(size > 0 ? toMillis(total / size) : 0);
+		stats.setP50Millis(toMillis(percentile(sorted, 50)));
+		stats.setP95Millis(toMillis(percentile(sorted, 95)));
+		stats.setP99Millis(toMillis(percentile(sorted, 99)));
+		stats.setMaxMillis(size > 0 ? toMillis(sorted[size - 1]) : 0);
+		return stats;
+	}
+
+	/**
+	 * ソート済みの応答時間からパーセンタイルを求めます(nearest-rank法).
+	 */
+	private static long percentile(long[] sorted, int percent) {
+		if (sorted.length == 0) {
+			return 0;
+		}
+		int rank = (int) Math.ceil(percent / 100.0 * sorted.length);
+		return sorted[Math.max(rank - 1, 0)];
+	}
+
+	private static double toMillis(long nanos) {
+		return nanos / 1_000_000.0;
+	}
+}
@@ -0,0 +1,249 @@
+package jp.co.sample.emp_management.loadtest;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import jp.co.sample.emp_management.common.VirtualThreads;
+
+/**
+ * 複数のセッションから同時にアプリケーションへアクセスし、エンドポイントごとの応答時間を記録するクラス.
+ *
+ * 各セッションはログインした後、従業員一覧・名前検索・従業員詳細を順に繰り返し、
+ * 設定されたリクエスト数ごとに新しいセッションとしてログインし直します.
+ * シナリオがbrowseの場合は、ログインし直さずに従業員一覧と従業員詳細だけを繰り返します.
+ * シナリオがpollの場合は、ダッシュボードのようにセッションごとに決まった従業員一覧の1ページ目と従業員詳細を繰り返し取得します.
+ * 条件付きGETを有効にすると、前回のレスポンスのETagをIf-None-Matchで送り、304も成功として記録します.
+ * セッションは仮想スレッドを使えるJDKでは仮想スレッドで動かし、1000を超えるセッションでもOSのスレッドを消費しないようにします.
+ * ウォームアップ中の応答時間は記録しません.
+ *
+ * @author naramasato
+ *
+ */
+public class LoadGenerator {
+
+	private static final String LOGIN = "/login";
+	private static final String SHOW_LIST = "/employee/showList";
+	private static final String SEARCH = "/employee/search";
+	private static final String SHOW_DETAIL = "/employee/showDetail";
+
+	/** ログインに失敗した場合に表示されるメッセージ */
+	private static final String LOGIN_ERROR_MESSAGE = "メールアドレスまたはパスワードが不正です。";
+
+	/** 1ページに表示する従業員数(EmployeeControllerと同じ) */
+	private static final int PAGE_SIZE = 10;
+
+	private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(30);
+
+	private final String baseUrl;
+
+	private final LoadTestConfig config;
+
+	/** 従業員の最大ID(IDは1から連番) */
+	private final int maxEmployeeId;
+
+	private final HttpClient client;
+
+	private final Map<String, LatencyRecorder> recorders = new LinkedHashMap<>();
+
+	/** 計測を開始する時刻(System.nanoTime) */
+	private volatile long measureFrom;
+
+	/** 計測を終了する時刻(System.nanoTime) */
+	private volatile long measureUntil;
+
+	/**
+	 * @param baseUrl       アプリケーションのURL(例: http://localhost:8080)
+	 * @param config        負荷試験の設定
+	 * @param maxEmployeeId 従業員の最大ID
+	 */
+	public LoadGenerator(String baseUrl, LoadTestConfig config, int maxEmployeeId) {
+		this.baseUrl = baseUrl;
+		this.config = config;
+		this.maxEmployeeId = maxEmployeeId;
+		this.client = HttpClient.newBuilder().followRedirects(HttpClient.Redirect.NEVER)
+				.connectTimeout(Duration.ofSeconds(10)).build();
+		for (String endpoint : List.of(LOGIN, SHOW_LIST, SEARCH, SHOW_DETAIL)) {
+			recorders.put(endpoint, new LatencyRecorder(endpoint));
+		}
+	}
+
+	/**
+	 * 負荷をかけ、終了したらエンドポイントごとの集計結果を返します.
+	 *
+	 * @return エンドポイントごとの集計結果
+	 * @throws InterruptedException 待機中に割り込まれた場合
+	 */
+	public List<EndpointStats> run() throws InterruptedException {
+		long start = System.nanoTime();
+		measureFrom = start + TimeUnit.SECONDS.toNanos(config.getWarmupSeconds());
+		measureUntil = measureFrom + TimeUnit.SECONDS.toNanos(config.getDurationSeconds());
+
+		ExecutorService executor = VirtualThreads.isSupported()
+				? VirtualThreads.newThreadPerTaskExecutor("loadtest-session-")
+				: Executors.newFixedThreadPool(config.getSessions());
+		for (int i = 0; i < config.getSessions(); i++) {
+			executor.execute(this::runSession);
+		}
+		executor.shutdown();
+		executor.awaitTermination(config.getWarmupSeconds() + config.getDurationSeconds() + 60L, TimeUnit.SECONDS);
+		executor.shutdownNow();
+
+		List<EndpointStats> statsList = new ArrayList<>();
+		for (LatencyRecorder recorder : recorders.values()) {
+			statsList.add(recorder.toStats(config.getDurationSeconds()));
+		}
+		return statsList;
+	}
+
+	/**
+	 * 1つのセッションとして、計測終了時刻までアクセスを繰り返します.
+	 */
+	private void runSession() {
+		int maxPage = Math.max((maxEmployeeId + PAGE_SIZE - 1) / PAGE_SIZE, 1);
+		boolean poll = LoadTestConfig.SCENARIO_POLL.equals(config.getScenario());
+		boolean browse = poll || LoadTestConfig.SCENARIO_BROWSE.equals(config.getScenario());
+		// pollの場合にこのセッションが見続ける従業員
+		int pollEmployeeId = ThreadLocalRandom.current().nextInt(maxEmployeeId) + 1;
+		// URLごとの前回のETag
+		Map<String, String> etags = new HashMap<>();
+		String cookie = null;
+		int requests = 0;
+		while (System.nanoTime() < measureUntil && !Thread.currentThread().isInterrupted()) {
+			ThreadLocalRandom random = ThreadLocalRandom.current();
+			if (cookie == null || (!browse && requests >= config.getRequestsPerLogin())) {
+				cookie = login();
+				requests = 0;
+				etags.clear();
+				if (cookie == null) {
+					continue;
+				}
+			}
+			if (browse) {
+				if (requests % 2 == 0) {
+					get(SHOW_LIST, "?page=" + (poll ? 1 : random.nextInt(maxPage) + 1), cookie, etags);
+				} else {
+					get(SHOW_DETAIL, "?id=" + (poll ? pollEmployeeId : random.nextInt(maxEmployeeId) + 1), cookie,
+							etags);
+				}
+				requests++;
+				thinkTime();
+				continue;
+			}
+			switch (requests % 3) {
+			case 0:
+				get(SHOW_LIST, "?page=" + (random.nextInt(maxPage) + 1), cookie, etags);
+				break;
+			case 1:
+				String name = LoadTestDatabase.GIVEN_NAMES[random.nextInt(LoadTestDatabase.GIVEN_NAMES.length)]
+						+ random.nextInt(1000);
+				get(SEARCH, "?name=" + URLEncoder.encode(name, StandardCharsets.UTF_8), cookie, etags);
+				break;
+			default:
+				get(SHOW_DETAIL, "?id=" + (random.nextInt(maxEmployeeId) + 1), cookie, etags);
+				break;
+			}
+			requests++;
+			thinkTime();
+		}
+	}
+
+	/**
+	 * ログインし、セッションのCookieを返します.
+	 *
+	 * @return セッションのCookie ログインに失敗した場合はnull
+	 */
+	private String login() {
+		String form = "mailAddress=" + URLEncoder.encode(LoadTestDatabase.ADMIN_MAIL_ADDRESS, StandardCharsets.UTF_8)
+				+ "&password=" + URLEncoder.encode(LoadTestDatabase.ADMIN_PASSWORD, StandardCharsets.UTF_8);
+		HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + LOGIN)).timeout(REQUEST_TIMEOUT)
+				.header("Content-Type", "application/x-www-form-urlencoded")
+				.POST(HttpRequest.BodyPublishers.ofString(form)).build();
+		HttpResponse<String> response = send(LOGIN, request);
+		if (response == null || response.body().contains(LOGIN_ERROR_MESSAGE)) {
+			return null;
+		}
+		return response.headers().firstValue("Set-Cookie").map(value -> value.split(";", 2)[0]).orElse(null);
+	}
+
+	/**
+	 * GETリクエストを送信します. 条件付きGETが有効な場合は、同じURLの前回のETagをIf-None-Matchで送ります.
+	 *
+	 * @param etags URLごとの前回のETag
+	 */
+	private void get(String endpoint, String query, String cookie, Map<String, String> etags) {
+		String url = baseUrl + endpoint + query;
+		HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(url)).timeout(REQUEST_TIMEOUT)
+				.header("Cookie", cookie).GET();
+		String etag = config.isConditional() ? etags.get(url) : null;
+		if (etag != null) {
+			builder.header("If-None-Match", etag);
+		}
+		HttpResponse<String> response = send(endpoint, builder.build());
+		if (config.isConditional() && response != null) {
+			response.headers().firstValue("ETag").ifPresent(value -> etags.put(url, value));
+		}
+	}
+
+	/**
+	 * リクエストを送信し、応答時間を記録します. ステータスが200・304以外の場合は失敗として記録します.
+	 *
+	 * @return レスポンス 失敗した場合はnull
+	 */
+	private HttpResponse<String> send(String endpoint, HttpRequest request) {
+		LatencyRecorder recorder = recorders.get(endpoint);
+		long start = System.nanoTime();
+		try {
+			HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+			long end = System.nanoTime();
+			boolean measuring = start >= measureFrom && end <= measureUntil;
+			int status = response.statusCode();
+			if (status != 200 && status != 304) {
+				if (measuring) {
+					recorder.recordError();
+				}
+				return null;
+			}
+			if (measuring) {
+				recorder.record(end - start);
+				if (status == 304) {
+					recorder.recordNotModified();
+				}
+			}
+			return response;
+		} catch (IOException e) {
+			if (start >= measureFrom && System.nanoTime() <= measureUntil) {
+				recorder.recordError();
+			}
+			return null;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return null;
+		}
+	}
+
+	private void thinkTime() {
+		if (config.getThinkTimeMillis() <= 0) {
+			return;
+		}
+		try {
+			Thread.sleep(config.getThinkTimeMillis());
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
@@ -0,0 +1,146 @@
+package jp.co.sample.emp_management.loadtest;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+
+/**
+ * 負荷試験の設定. システムプロパティ(-Dloadtest.xxx)から読み込みます.
+ *
+ * @author naramasato
+ *
+ */
+public class LoadTestConfig {
+	/** Tomcatのスレッドプールでリクエストを処理する */
+	public static final String PLATFORM = "platform";
+	/** 仮想スレッドでリクエストを処理する */
+	public static final String VIRTUAL = "virtual";
+	/** platformとvirtualを順に実行して比較する */
+	public static final String COMPARE = "compare";
+
+	/** ログイン・一覧・検索・詳細を繰り返す */
+	public static final String SCENARIO_MIXED = "mixed";
+	/** ログイン後は一覧と詳細だけを繰り返す */
+	public static final String SCENARIO_BROWSE = "browse";
+	/** ダッシュボードのように、ログイン後は同じ一覧と詳細を繰り返し取得する */
+	public static final String SCENARIO_POLL = "poll";
+
+	/** 登録する従業員数 */
+	private final int employees;
+	/** 同時にアクセスするセッション数 */
+	private final int sessions;
+	/** 計測前のウォームアップ時間(秒) */
+	private final int warmupSeconds;
+	/** 計測時間(秒) */
+	private final int durationSeconds;
+	/** 1セッションがログインし直すまでのリクエスト数 */
+	private final int requestsPerLogin;
+	/** リクエストの間隔(ミリ秒) */
+	private final long thinkTimeMillis;
+	/** アプリケーションの最大プールサイズ(0の場合はapplication.ymlの設定を使う) */
+	private final int poolSize;
+	/** リクエストを処理するスレッド(platform, virtual, compare) */
+	private final String threadMode;
+	/** アクセスの内容(mixed, browse, poll) */
+	private final String scenario;
+	/** 前回のETagをIf-None-Matchで送る(条件付きGET) */
+	private final boolean conditional;
+	/** 結果の出力先ディレクトリ */
+	private final Path outputDir;
+
+	private LoadTestConfig(int employees, int sessions, int warmupSeconds, int durationSeconds,
+			int requestsPerLogin, long thinkTimeMillis, int poolSize, String threadMode, String scenario,
+			boolean conditional, Path outputDir) {
+		this.employees = employees;
+		this.sessions = sessions;
+		this.warmupSeconds = warmupSeconds;
+		this.durationSeconds = durationSeconds;
+		this.requestsPerLogin = requestsPerLogin;
+		this.thinkTimeMillis = thinkTimeMillis;
+		this.poolSize = poolSize;
+		this.threadMode = threadMode;
+		this.scenario = scenario;
+		this.conditional = conditional;
+		this.outputDir = outputDir;
+	}
+
+	/**
+	 * システムプロパティから設定を読み込みます. 指定されていない項目は既定値を使います.
+	 *
+	 * @return 設定
+	 */
+	public static LoadTestConfig fromSystemProperties() {
+		return new LoadTestConfig(
+				Integer.getInteger("loadtest.employees", 10000),
+				Integer.getInteger("loadtest.sessions", 20),
+				Integer.getInteger("loadtest.warmup-seconds", 10),
+				Integer.getInteger("loadtest.duration-seconds", 60),
+				Integer.getInteger("loadtest.requests-per-login", 20),
+				Long.getLong("loadtest.think-time-millis", 0),
+				Integer.getInteger("loadtest.pool-size", 0),
+				System.getProperty("loadtest.thread-mode", PLATFORM),
+				System.getProperty("loadtest.scenario", SCENARIO_MIXED),
+				Boolean.getBoolean("loadtest.conditional"),
+				Paths.get(System.getProperty("loadtest.output", "target/loadtest")));
+	}
+
+	public int getEmployees() {
+		return employees;
+	}
+
+	public int getSessions() {
+		return sessions;
+	}
+
+	public int getWarmupSeconds() {
+		return warmupSeconds;
+	}
+
+	public int getDurationSeconds() {
+		return durationSeconds;
+	}
+
+	public int getRequestsPerLogin() {
+		return requestsPerLogin;
+	}
+
+	public long getThinkTimeMillis() {
+		return thinkTimeMillis;
+	}
+
+	public int getPoolSize() {
+		return poolSize;
+	}
+
+	public String getThreadMode() {
+		return threadMode;
+	}
+
+	/**
+	 * 実行するスレッドのモードを返します. compareの場合はplatformとvirtualの両方を返します.
+	 *
+	 * @return 実行するスレッドのモード
+	 */
+	public List<String> getThreadModes() {
+		return COMPARE.equals(threadMode) ? List.of(PLATFORM, VIRTUAL) : List.of(threadMode);
+	}
+
+	public String getScenario() {
+		return scenario;
+	}
+
+	public boolean isConditional() {
+		return conditional;
+	}
+
+	public Path getOutputDir() {
+		return outputDir;
+	}
+
+	@Override
+	public String toString() {
+		return "LoadTestConfig [employees=" + employees + ", sessions=" + sessions + ", warmupSeconds="
+				+ warmupSeconds + ", durationSeconds=" + durationSeconds + ", requestsPerLogin=" + requestsPerLogin
+				+ ", thinkTimeMillis=" + thinkTimeMillis + ", poolSize=" + poolSize + ", threadMode=" + threadMode + ", scenario=" + scenario + ", conditional=" + conditional + ", outputDir=" + outputDir + "]";
+	}
+}
@@ -0,0 +1,100 @@
+package jp.co.sample.emp_management.loadtest;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+import javax.sql.DataSource;
+
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.support.EncodedResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.init.ScriptUtils;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+
+/**
+ * 負荷試験用の組み込みPostgreSQL.
+ *
+ * PostgreSQLのバイナリはMavenの依存関係として取得済みのものを使うため、実行時にネットワークは不要です.
+ * documents/sql/sql.txtでテーブルを作成し、指定件数の従業員と負荷試験用の管理者を登録します.
+ *
+ * @author naramasato
+ *
+ */
+public class LoadTestDatabase implements AutoCloseable {
+
+	/** 負荷試験用の管理者のメールアドレス */
+	public static final String ADMIN_MAIL_ADDRESS = "loadtest@sample.com";
+
+	/** 負荷試験用の管理者のパスワード */
+	public static final String ADMIN_PASSWORD = "loadtest";
+
+	/** 登録する従業員の名(検索条件にも使う) */
+	static final String[] GIVEN_NAMES = { "太郎", "花子", "一朗", "一子", "次郎", "次子", "三郎", "三子", "四郎", "四子" };
+
+	private final EmbeddedPostgres postgres;
+
+	private LoadTestDatabase(EmbeddedPostgres postgres) {
+		this.postgres = postgres;
+	}
+
+	/**
+	 * 組み込みPostgreSQLを起動します.
+	 *
+	 * @return 起動したデータベース
+	 * @throws IOException 起動に失敗した場合
+	 */
+	public static LoadTestDatabase start() throws IOException {
+		return new LoadTestDatabase(EmbeddedPostgres.builder().start());
+	}
+
+	/**
+	 * テーブルを作成し、従業員と負荷試験用の管理者を登録します.
+	 *
+	 * @param employees 追加する従業員数(sql.txtの初期データとは別)
+	 * @return 登録後の従業員の最大ID(IDは1から連番)
+	 * @throws SQLException 登録に失敗した場合
+	 */
+	public int seed(int employees) throws SQLException {
+		DataSource dataSource = postgres.getPostgresDatabase();
+		try (Connection connection = dataSource.getConnection()) {
+			ScriptUtils.executeSqlScript(connection,
+					new EncodedResource(new FileSystemResource(Paths.get("documents", "sql", "sql.txt")),
+							StandardCharsets.UTF_8));
+		}
+
+		JdbcTemplate template = new JdbcTemplate(dataSource);
+		// 初期データの後ろに連番で追加する(名前は姓と名の組み合わせ+連番)
+		template.update("insert into employees(id,name,image,gender,hire_date,mail_address,zip_code,address,telephone,salary,characteristics,dependents_count) "
+				+ "select base.max_id + g, "
+				+ "(array['山田','鈴木','佐藤','渡辺','吉田','高橋','田中','伊藤','山本','小林','加藤','中村'])[1 + g % 12] "
+				+ "|| (array['" + String.join("','", GIVEN_NAMES) + "'])[1 + (g / 12) % 10] || g, "
+				+ "'e1.png', '男性', timestamp '2000-01-01' + (g % 8000) * interval '1 day', "
+				+ "'loadtest' || g || '@sample.com', '000-0000', '東京都新宿区1-1-1', '090-0000-0000', 300000, '負荷試験用', g % 5 "
+				+ "from (select max(id) as max_id from employees) as base, generate_series(1, ?) as g", employees);
+		template.queryForObject("select setval('employees_id_seq', (select max(id) + 1 from employees), false)",
+				Long.class);
+		template.execute("analyze employees");
+
+		template.update("insert into administrators(name,mail_address,password) values (?, ?, ?)", "負荷試験",
+				ADMIN_MAIL_ADDRESS, new BCryptPasswordEncoder().encode(ADMIN_PASSWORD));
+
+		return template.queryForObject("select max(id) from employees", Integer.class);
+	}
+
+	/**
+	 * @return JDBCのURL
+	 */
+	public String getJdbcUrl() {
+		return postgres.getJdbcUrl("postgres", "postgres");
+	}
+
+	@Override
+	public void close() throws IOException {
+		postgres.close();
+	}
+}
@@ -0,0 +1,110 @@
+package jp.co.sample.emp_management.loadtest;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.util.FileSystemUtils;
+
+import jp.co.sample.emp_management.ExEmpManagementBugfixApplication;
+import jp.co.sample.emp_management.metrics.ConnectionPoolMonitor;
+
+/**
+ * 負荷試験を実行するメインクラス.
+ *
+ * 組み込みPostgreSQLを起動して従業員を登録し、アプリケーションを空いているポートで起動してから負荷をかけます.
+ * 結果はエンドポイントごとのp50/p95/p99/最大の応答時間とスループットをJSONとHTMLで出力します.
+ * thread-modeがcompareの場合は、Tomcatのスレッドプールと仮想スレッドでそれぞれアプリケーションを起動して同じ負荷をかけ、
+ * 出力先のplatform/とvirtual/に結果を出力します.
+ * 設定は{@link LoadTestConfig}を参照してください.
+ *
+ * 実行方法: mvn -Ploadtest -DskipTests verify -Dloadtest.employees=100000 -Dloadtest.sessions=50
+ * 比較: mvn -Ploadtest -DskipTests verify -Dloadtest.thread-mode=compare -Dloadtest.scenario=browse -Dloadtest.sessions=1000
+ *
+ * @author naramasato
+ *
+ */
+public class LoadTestMain {
+
+	public static void main(String[] args) throws Exception {
+		LoadTestConfig config = LoadTestConfig.fromSystemProperties();
+		System.out.println("負荷試験の設定: " + config);
+
+		Path imageDir = Files.createTempDirectory("loadtest-image-store");
+		try (LoadTestDatabase database = LoadTestDatabase.start()) {
+			int maxEmployeeId = database.seed(config.getEmployees());
+			System.out.println("従業員を登録しました(最大ID: " + maxEmployeeId + ")");
+
+			Map<String, List<EndpointStats>> results = new LinkedHashMap<>();
+			for (String threadMode : config.getThreadModes()) {
+				Path outputDir = config.getThreadModes().size() == 1 ? config.getOutputDir()
+						: config.getOutputDir().resolve(threadMode);
+				results.put(threadMode, run(config, threadMode, database, maxEmployeeId, imageDir, outputDir, args));
+			}
+			if (results.size() > 1) {
+				printComparison(results);
+			}
+		} finally {
+			FileSystemUtils.deleteRecursively(imageDir);
+		}
+	}
+
+	/**
+	 * アプリケーションを起動して負荷をかけ、結果を出力します.
+	 */
+	private static List<EndpointStats> run(LoadTestConfig config, String threadMode, LoadTestDatabase database,
+			int maxEmployeeId, Path imageDir, Path outputDir, String[] args) throws Exception {
+		List<String> properties = new ArrayList<>(List.of("spring.datasource.url=" + database.getJdbcUrl(),
+				"spring.datasource.username=postgres",
+				"spring.datasource.password=postgres",
+				"server.port=0",
+				"spring.devtools.restart.enabled=false",
+				"employee.image.dir=" + imageDir,
+				"employee.virtual-threads.enabled=" + LoadTestConfig.VIRTUAL.equals(threadMode)));
+		if (config.getPoolSize() > 0) {
+			properties.add("spring.datasource.hikari.maximum-pool-size=" + config.getPoolSize());
+			properties.add("spring.datasource.hikari.minimum-idle=" + config.getPoolSize());
+		}
+		System.out.println("スレッド: " + threadMode);
+		try (ConfigurableApplicationContext context = new SpringApplicationBuilder(
+				ExEmpManagementBugfixApplication.class)
+				.properties(properties.toArray(new String[0]))
+				.run(args);
+				ResourceSampler sampler = new ResourceSampler(context.getBean(ConnectionPoolMonitor.class))) {
+			String port = context.getEnvironment().getProperty("local.server.port");
+			LoadGenerator generator = new LoadGenerator("http://localhost:" + port, config, maxEmployeeId);
+			sampler.start();
+			List<EndpointStats> statsList = generator.run();
+			sampler.close();
+
+			new LoadTestReport(config, threadMode, statsList, sampler).write(outputDir);
+			statsList.forEach(System.out::println);
+			System.out.println("コネクションプール: 最大プールサイズ " + sampler.getMaximumPoolSize() + " / 使用中の最大 "
+					+ sampler.getPeakActive() + " / 待ちスレッドの最大 " + sampler.getPeakWaiting());
+			System.out.println("JVM: ヒープ使用量の最大 " + Math.round(sampler.getPeakHeapUsedMiB())
+					+ "MiB / プラットフォームスレッド数の最大 " + sampler.getPeakPlatformThreads());
+			System.out.println("結果を出力しました: " + outputDir.toAbsolutePath());
+			return statsList;
+		}
+	}
+
+	/**
+	 * エンドポイントごとのスループットとp99をスレッドのモードごとに並べて出力します.
+	 */
+	private static void printComparison(Map<String, List<EndpointStats>> results) {
+		System.out.println("比較(スループット件/秒, p99ミリ秒):");
+		results.forEach((threadMode, statsList) -> {
+			for (EndpointStats stats : statsList) {
+				if (stats.getRequests() > 0) {
+					System.out.printf("  %-8s %-22s %10.1f %10.1f%n", threadMode, stats.getEndpoint(),
+							stats.getThroughput(), stats.getP99Millis());
+				}
+			}
+		});
+	}
+}
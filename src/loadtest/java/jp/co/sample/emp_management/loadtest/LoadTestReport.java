@@ -0,0 +1,133 @@
+package jp.co.sample.emp_management.loadtest;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.OffsetDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import org.springframework.web.util.HtmlUtils;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+/**
+ * 負荷試験の結果をJSONとHTMLに出力するクラス.
+ *
+ * JSONはビルド間で結果を比較するため、HTMLは人が確認するために出力します.
+ *
+ * @author naramasato
+ *
+ */
+public class LoadTestReport {
+
+	private final LoadTestConfig config;
+
+	private final String threadMode;
+
+	private final List<EndpointStats> statsList;
+
+	private final ResourceSampler sampler;
+
+	private final OffsetDateTime executedAt = OffsetDateTime.now();
+
+	/**
+	 * @param config     負荷試験の設定
+	 * @param threadMode リクエストを処理したスレッド(platform, virtual)
+	 * @param statsList  エンドポイントごとの集計結果
+	 * @param sampler    負荷をかけている間のコネクションプールとJVMの状態
+	 */
+	public LoadTestReport(LoadTestConfig config, String threadMode, List<EndpointStats> statsList,
+			ResourceSampler sampler) {
+		this.config = config;
+		this.threadMode = threadMode;
+		this.statsList = statsList;
+		this.sampler = sampler;
+	}
+
+	/**
+	 * 出力先ディレクトリにloadtest-result.jsonとloadtest-result.htmlを出力します.
+	 *
+	 * @param outputDir 出力先ディレクトリ
+	 * @throws IOException 書き込みに失敗した場合
+	 */
+	public void write(Path outputDir) throws IOException {
+		Files.createDirectories(outputDir);
+		writeJson(outputDir.resolve("loadtest-result.json"));
+		writeHtml(outputDir.resolve("loadtest-result.html"));
+	}
+
+	private void writeJson(Path file) throws IOException {
+		Map<String, Object> settings = new LinkedHashMap<>();
+		settings.put("employees", config.getEmployees());
+		settings.put("sessions", config.getSessions());
+		settings.put("warmupSeconds", config.getWarmupSeconds());
+		settings.put("durationSeconds", config.getDurationSeconds());
+		settings.put("requestsPerLogin", config.getRequestsPerLogin());
+		settings.put("thinkTimeMillis", config.getThinkTimeMillis());
+		settings.put("threadMode", threadMode);
+		settings.put("scenario", config.getScenario());
+		settings.put("conditional", config.isConditional());
+
+		Map<String, Object> pool = new LinkedHashMap<>();
+		pool.put("maximumPoolSize", sampler.getMaximumPoolSize());
+		pool.put("peakActive", sampler.getPeakActive());
+		pool.put("peakWaiting", sampler.getPeakWaiting());
+		pool.put("exhaustedRatio", sampler.getExhaustedRatio());
+
+		Map<String, Object> jvm = new LinkedHashMap<>();
+		jvm.put("peakHeapUsedMiB", sampler.getPeakHeapUsedMiB());
+		jvm.put("peakPlatformThreads", sampler.getPeakPlatformThreads());
+
+		Map<String, Object> result = new LinkedHashMap<>();
+		result.put("executedAt", executedAt.toString());
+		result.put("config", settings);
+		result.put("endpoints", statsList);
+		result.put("pool", pool);
+		result.put("jvm", jvm);
+
+		new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT).writeValue(file.toFile(), result);
+	}
+
+	private void writeHtml(Path file) throws IOException {
+		try (Writer writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+			writer.write("<!DOCTYPE html>\n<html lang=\"ja\">\n<head>\n<meta charset=\"utf-8\">\n");
+			writer.write("<title>負荷試験結果</title>\n");
+			writer.write("<style>table{border-collapse:collapse}th,td{border:1px solid #999;padding:4px 8px}"
+					+ "td{text-align:right}td:first-child{text-align:left}</style>\n</head>\n<body>\n");
+			writer.write("<h1>負荷試験結果</h1>\n");
+			writer.write("<p>" + HtmlUtils.htmlEscape(executedAt.toString()) + "</p>\n");
+			writer.write("<p>従業員数: " + config.getEmployees() + " / セッション数: " + config.getSessions()
+					+ " / ウォームアップ: " + config.getWarmupSeconds() + "秒 / 計測時間: " + config.getDurationSeconds()
+					+ "秒 / ログインし直すまでのリクエスト数: " + config.getRequestsPerLogin() + " / リクエスト間隔: "
+					+ config.getThinkTimeMillis() + "ミリ秒 / スレッド: " + HtmlUtils.htmlEscape(threadMode) + " / シナリオ: "
+					+ HtmlUtils.htmlEscape(config.getScenario()) + " / 条件付きGET: " + config.isConditional() + "</p>\n");
+			writer.write("<table>\n<tr><th>エンドポイント</th><th>リクエスト数</th><th>エラー数</th><th>304の数</th><th>スループット(件/秒)</th>"
+					+ "<th>平均(ms)</th><th>p50(ms)</th><th>p95(ms)</th><th>p99(ms)</th><th>最大(ms)</th></tr>\n");
+			for (EndpointStats stats : statsList) {
+				writer.write("<tr><td>" + HtmlUtils.htmlEscape(stats.getEndpoint()) + "</td><td>" + stats.getRequests()
+						+ "</td><td>" + stats.getErrors() + "</td><td>" + stats.getNotModified() + "</td><td>"
+						+ format(stats.getThroughput()) + "</td><td>"
+						+ format(stats.getMeanMillis()) + "</td><td>" + format(stats.getP50Millis()) + "</td><td>"
+						+ format(stats.getP95Millis()) + "</td><td>" + format(stats.getP99Millis()) + "</td><td>"
+						+ format(stats.getMaxMillis()) + "</td></tr>\n");
+			}
+			writer.write("</table>\n");
+			writer.write("<p>コネクションプール: 最大プールサイズ " + sampler.getMaximumPoolSize() + " / 使用中の最大 "
+					+ sampler.getPeakActive() + " / 待ちスレッドの最大 " + sampler.getPeakWaiting() + " / 枯渇していた割合 "
+					+ format(sampler.getExhaustedRatio() * 100) + "%</p>\n");
+			writer.write("<p>JVM: ヒープ使用量の最大 " + format(sampler.getPeakHeapUsedMiB()) + "MiB / プラットフォームスレッド数の最大 "
+					+ sampler.getPeakPlatformThreads() + "</p>\n");
+			writer.write("</body>\n</html>\n");
+		}
+	}
+
+	private static String format(double value) {
+		return String.format(Locale.ROOT, "%.2f", value);
+	}
+}
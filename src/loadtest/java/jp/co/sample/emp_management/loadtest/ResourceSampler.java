@@ -0,0 +1,119 @@
+package jp.co.sample.emp_management.loadtest;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.ThreadMXBean;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import jp.co.sample.emp_management.metrics.ConnectionPoolMonitor;
+import jp.co.sample.emp_management.metrics.PoolStats;
+
+/**
+ * 負荷をかけている間のコネクションプールとJVMの状態を一定間隔で記録するクラス.
+ *
+ * 使用中のコネクション数と待っているスレッド数の最大値、プールが枯渇していた割合を集計し、
+ * 最大プールサイズがセッション数(同時リクエスト数)に対して足りているかの判断に使います.
+ * また、ヒープの使用量とOSのスレッド(プラットフォームスレッド)数の最大値を記録し、
+ * Tomcatのスレッドプールと仮想スレッドのメモリ使用量の比較に使います.
+ * (負荷をかける側も同じJVMで動いているため、値はその分を含みます)
+ *
+ * @author naramasato
+ *
+ */
+public class ResourceSampler implements AutoCloseable {
+
+	/** 記録する間隔(ミリ秒) */
+	private static final long INTERVAL_MILLIS = 100;
+
+	private final ConnectionPoolMonitor monitor;
+
+	private final MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+
+	private final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+
+	private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+		Thread thread = new Thread(runnable, "loadtest-resource-sampler");
+		thread.setDaemon(true);
+		return thread;
+	});
+
+	private int maximumPoolSize;
+	private int peakActive;
+	private int peakWaiting;
+	private long samples;
+	private long exhaustedSamples;
+	private long peakHeapUsed;
+	private int peakPlatformThreads;
+
+	/**
+	 * @param monitor 対象のアプリケーションのコネクションプール
+	 */
+	public ResourceSampler(ConnectionPoolMonitor monitor) {
+		this.monitor = monitor;
+	}
+
+	/**
+	 * 記録を開始します.
+	 */
+	public void start() {
+		executor.scheduleAtFixedRate(this::sample, 0, INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+	}
+
+	private synchronized void sample() {
+		peakHeapUsed = Math.max(peakHeapUsed, memory.getHeapMemoryUsage().getUsed());
+		peakPlatformThreads = Math.max(peakPlatformThreads, threads.getThreadCount());
+		PoolStats stats = monitor.getStats();
+		if (stats == null) {
+			return;
+		}
+		maximumPoolSize = stats.getMaximumPoolSize();
+		peakActive = Math.max(peakActive, stats.getActive());
+		peakWaiting = Math.max(peakWaiting, stats.getWaiting());
+		samples++;
+		if (stats.isExhausted()) {
+			exhaustedSamples++;
+		}
+	}
+
+	@Override
+	public void close() {
+		executor.shutdownNow();
+	}
+
+	public synchronized int getMaximumPoolSize() {
+		return maximumPoolSize;
+	}
+
+	public synchronized int getPeakActive() {
+		return peakActive;
+	}
+
+	public synchronized int getPeakWaiting() {
+		return peakWaiting;
+	}
+
+	/**
+	 * プールが枯渇していた割合を返します.
+	 *
+	 * @return 記録した回数のうち枯渇していた割合(0.0～1.0)
+	 */
+	public synchronized double getExhaustedRatio() {
+		return samples == 0 ? 0.0 : (double) exhaustedSamples / samples;
+	}
+
+	/**
+	 * @return ヒープの使用量の最大値(MiB)
+	 */
+	public synchronized double getPeakHeapUsedMiB() {
+		return peakHeapUsed / (1024.0 * 1024.0);
+	}
+
+	/**
+	 * @return プラットフォームスレッド数の最大値
+	 */
+	public synchronized int getPeakPlatformThreads() {
+		return peakPlatformThreads;
+	}
+}
@@ -0,0 +1,72 @@
+package jp.co.sample.emp_management;
+
+import java.util.concurrent.ExecutorService;
+
+import org.apache.coyote.ProtocolHandler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import jp.co.sample.emp_management.common.VirtualThreads;
+
+/**
+ * リクエストを仮想スレッドで処理する設定(employee.virtual-threads.enabled=trueの場合のみ、JDK 21以降が必要).
+ *
+ * Tomcatのスレッドプール(server.tomcat.threads.max)の代わりにリクエストごとに仮想スレッドを作るため、
+ * リポジトリのJDBC呼び出しでブロックしてもOSのスレッドを占有しません.
+ * 同時にDBを使うリクエスト数はスレッド数ではなくHikariCPの最大プールサイズで制限され、
+ * コネクションを待つ間も仮想スレッドが止まるだけです.
+ *
+ * @author naramasato
+ *
+ */
+@Configuration(proxyBeanMethods = false)
+@ConditionalOnProperty(name = "employee.virtual-threads.enabled", havingValue = "true")
+public class VirtualThreadConfig {
+
+	/**
+	 * Tomcatのリクエスト処理に仮想スレッドのExecutorを設定するカスタマイザー.
+	 *
+	 * @return カスタマイザー
+	 * @throws IllegalStateException 仮想スレッドを使えないJDKで実行している場合(起動を中止する)
+	 */
+	@Bean
+	public VirtualThreadProtocolHandlerCustomizer virtualThreadProtocolHandlerCustomizer() {
+		if (!VirtualThreads.isSupported()) {
+			throw new IllegalStateException("employee.virtual-threads.enabled=trueにはJDK 21以降が必要です(実行中のJDK: "
+					+ System.getProperty("java.version") + "). JDKを更新するか、設定をfalseにしてください");
+		}
+		return new VirtualThreadProtocolHandlerCustomizer(VirtualThreads.newThreadPerTaskExecutor("tomcat-virtual-"));
+	}
+
+	/**
+	 * Tomcatに仮想スレッドのExecutorを設定し、アプリケーションの終了時にExecutorを停止するカスタマイザー.
+	 */
+	static class VirtualThreadProtocolHandlerCustomizer
+			implements TomcatProtocolHandlerCustomizer<ProtocolHandler>, DisposableBean {
+
+		private static final Logger LOGGER = LoggerFactory.getLogger(VirtualThreadProtocolHandlerCustomizer.class);
+
+		private final ExecutorService executor;
+
+		VirtualThreadProtocolHandlerCustomizer(ExecutorService executor) {
+			this.executor = executor;
+		}
+
+		@Override
+		public void customize(ProtocolHandler protocolHandler) {
+			protocolHandler.setExecutor(executor);
+			LOGGER.info("リクエストを仮想スレッドで処理します");
+		}
+
+		@Override
+		public void destroy() {
+			// Tomcatは外部から設定したExecutorを停止しないため、ここで停止する
+			executor.shutdown();
+		}
+	}
+}
@@ -0,0 +1,170 @@
+package jp.co.sample.emp_management.cache;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.ToLongFunction;
+
+/**
+ * 保持するデータの推定サイズの合計で上限を決める、メモリ上のLRUキャッシュ.
+ *
+ * 上限を超えた場合は最も長い間参照されていないデータから追い出します.
+ * 有効期間を指定した場合は、登録から有効期間が過ぎたデータはキャッシュにないものとして扱います.
+ *
+ * @author naramasato
+ *
+ * @param <K> キー
+ * @param <V> 値
+ */
+public class BoundedLruCache<K, V> {
+
+	private final long maxWeight;
+
+	private final ToLongFunction<V> weigher;
+
+	/** 有効期間(ナノ秒) 0の場合は期限なし */
+	private final long ttlNanos;
+
+	private final ReentrantLock lock = new ReentrantLock();
+
+	/** 参照順に並べたデータ(先頭が最も古い) */
+	private final LinkedHashMap<K, Entry<V>> map = new LinkedHashMap<>(16, 0.75f, true);
+
+	private long weight;
+
+	private final LongAdder hitCount = new LongAdder();
+	private final LongAdder missCount = new LongAdder();
+	private final LongAdder evictionCount = new LongAdder();
+
+	/**
+	 * @param maxWeight 保持するデータの推定サイズの合計の上限
+	 * @param weigher   データの推定サイズを求める関数
+	 * @param ttlMillis 有効期間(ミリ秒) 0の場合は期限なし
+	 */
+	public BoundedLruCache(long maxWeight, ToLongFunction<V> weigher, long ttlMillis) {
+		this.maxWeight = maxWeight;
+		this.weigher = weigher;
+		this.ttlNanos = ttlMillis * 1_000_000;
+	}
+
+	/**
+	 * キャッシュからデータを取得します.
+	 *
+	 * @param key キー
+	 * @return データ キャッシュにない場合や有効期間が過ぎている場合はnull
+	 */
+	public V get(K key) {
+		lock.lock();
+		try {
+			Entry<V> entry = map.get(key);
+			if (entry != null && isExpired(entry)) {
+				removeEntry(key);
+				entry = null;
+			}
+			if (entry == null) {
+				missCount.increment();
+				return null;
+			}
+			hitCount.increment();
+			return entry.value;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * キャッシュにデータを登録します. 上限を超えた場合は古いデータから追い出します.
+	 *
+	 * @param key   キー
+	 * @param value データ
+	 */
+	public void put(K key, V value) {
+		long entryWeight = weigher.applyAsLong(value);
+		if (entryWeight > maxWeight) {
+			// 上限より大きいデータはキャッシュしない
+			return;
+		}
+		lock.lock();
+		try {
+			removeEntry(key);
+			map.put(key, new Entry<>(value, entryWeight, System.nanoTime()));
+			weight += entryWeight;
+
+			Iterator<Map.Entry<K, Entry<V>>> iterator = map.entrySet().iterator();
+			while (weight > maxWeight && iterator.hasNext()) {
+				Map.Entry<K, Entry<V>> eldest = iterator.next();
+				weight -= eldest.getValue().weight;
+				iterator.remove();
+				evictionCount.increment();
+			}
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * キャッシュからデータを削除します.
+	 *
+	 * @param key キー
+	 */
+	public void invalidate(K key) {
+		lock.lock();
+		try {
+			removeEntry(key);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * キャッシュからすべてのデータを削除します.
+	 */
+	public void invalidateAll() {
+		lock.lock();
+		try {
+			map.clear();
+			weight = 0;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * 統計情報を返します.
+	 *
+	 * @return 統計情報
+	 */
+	public CacheStats stats() {
+		lock.lock();
+		try {
+			return new CacheStats(hitCount.sum(), missCount.sum(), evictionCount.sum(), map.size(), weight);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	private void removeEntry(K key) {
+		Entry<V> removed = map.remove(key);
+		if (removed != null) {
+			weight -= removed.weight;
+		}
+	}
+
+	private boolean isExpired(Entry<V> entry) {
+		return ttlNanos > 0 && System.nanoTime() - entry.createdAt > ttlNanos;
+	}
+
+	private static final class Entry<V> {
+		private final V value;
+		private final long weight;
+		private final long createdAt;
+
+		private Entry(V value, long weight, long createdAt) {
+			this.value = value;
+			this.weight = weight;
+			this.createdAt = createdAt;
+		}
+	}
+}
@@ -0,0 +1,28 @@
+package jp.co.sample.emp_management.cache;
+
+import java.util.function.Consumer;
+
+/**
+ * キャッシュの無効化を他のノード(アプリケーションのインスタンス)に通知する仕組み.
+ * 
+ * 複数台で動かす場合は、Redisのpub/subなどノード間で共有できる仕組みで実装してください.
+ * 
+ * @author naramasato
+ *
+ */
+public interface CacheInvalidationBroker {
+
+	/**
+	 * キャッシュの無効化を全ノードに通知します.
+	 * 
+	 * @param message 無効化するキャッシュとキー
+	 */
+	void publish(InvalidationMessage message);
+
+	/**
+	 * 他のノードからのキャッシュの無効化の通知を受け取る処理を登録します.
+	 * 
+	 * @param listener 通知を受け取る処理
+	 */
+	void subscribe(Consumer<InvalidationMessage> listener);
+}
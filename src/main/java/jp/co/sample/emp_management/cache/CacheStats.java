@@ -0,0 +1,89 @@
+package jp.co.sample.emp_management.cache;
+
+/**
+ * キャッシュの統計情報.
+ * 
+ * @author naramasato
+ *
+ */
+public class CacheStats {
+	/** キャッシュにあった回数 */
+	private final long hitCount;
+	/** キャッシュになかった回数 */
+	private final long missCount;
+	/** 容量を超えたため追い出した件数 */
+	private final long evictionCount;
+	/** 保持している件数 */
+	private final long size;
+	/** 保持しているデータの推定サイズ(バイト) */
+	private final long weight;
+
+	/**
+	 * 初期化用コンストラクタ.
+	 * 
+	 * @param hitCount      キャッシュにあった回数
+	 * @param missCount     キャッシュになかった回数
+	 * @param evictionCount 容量を超えたため追い出した件数
+	 * @param size          保持している件数
+	 * @param weight        保持しているデータの推定サイズ(バイト)
+	 */
+	public CacheStats(long hitCount, long missCount, long evictionCount, long size, long weight) {
+		this.hitCount = hitCount;
+		this.missCount = missCount;
+		this.evictionCount = evictionCount;
+		this.size = size;
+		this.weight = weight;
+	}
+
+	/**
+	 * ヒット率を返します.
+	 * 
+	 * @return ヒット率(0.0～1.0) 一度も参照されていない場合は0.0
+	 */
+	public double getHitRate() {
+		long requests = hitCount + missCount;
+		return requests == 0 ? 0.0 : (double) hitCount / requests;
+	}
+
+	/**
+	 * @return the hitCount
+	 */
+	public long getHitCount() {
+		return hitCount;
+	}
+
+	/**
+	 * @return the missCount
+	 */
+	public long getMissCount() {
+		return missCount;
+	}
+
+	/**
+	 * @return the evictionCount
+	 */
+	public long getEvictionCount() {
+		return evictionCount;
+	}
+
+	/**
+	 * @return the size
+	 */
+	public long getSize() {
+		return size;
+	}
+
+	/**
+	 * @return the weight
+	 */
+	public long getWeight() {
+		return weight;
+	}
+
+	@Override
+	public String toString() {
+		return "CacheStats [hitCount=" + hitCount + ", missCount=" + missCount + ", evictionCount=" + evictionCount
+				+ ", size=" + size + ", weight=" + weight + "]";
+	}
+
+}
@@ -0,0 +1,141 @@
+package jp.co.sample.emp_management.cache;
+
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import javax.annotation.PostConstruct;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import jp.co.sample.emp_management.domain.Administrator;
+
+/**
+ * ログインで使う管理者情報(パスワードのハッシュ値を含む)をメールアドレスごとに保持するキャッシュ.
+ *
+ * 登録されていないメールアドレスも「存在しない」としてキャッシュし、同じメールアドレスでの失敗が続いてもDBを検索しないようにします.
+ * 他のノードでの変更はinvalidateの通知か有効期間(ttl-millis)の経過で反映されます.
+ * {@link LocalEmployeeCache}と同じく、メールアドレスのストライプごとに無効化の世代を数え、読み込み中に無効化された管理者情報は登録しません.
+ *
+ * @author naramasato
+ *
+ */
+@Component
+public class CredentialCache {
+
+	/** 無効化の通知で使うキャッシュの名前 */
+	public static final String CACHE_NAME = "credential";
+
+	/** このノードのID */
+	private final String nodeId = UUID.randomUUID().toString();
+
+	@Autowired
+	private CacheInvalidationBroker broker;
+
+	/** 保持するメールアドレスの数の上限 */
+	@Value("${employee.login.credential-cache.max-entries:10000}")
+	private long maxEntries;
+
+	/** 有効期間(ミリ秒) */
+	@Value("${employee.login.credential-cache.ttl-millis:300000}")
+	private long ttlMillis;
+
+	/** 無効化の世代を数えるストライプの数 */
+	private static final int STRIPES = 64;
+
+	/** メールアドレスのストライプごとの無効化の世代 */
+	private final AtomicLongArray generations = new AtomicLongArray(STRIPES);
+
+	private BoundedLruCache<String, Optional<Administrator>> cache;
+
+	@PostConstruct
+	public void init() {
+		cache = new BoundedLruCache<>(maxEntries, value -> 1, ttlMillis);
+		broker.subscribe(message -> {
+			if (CACHE_NAME.equals(message.getCacheName()) && !nodeId.equals(message.getNodeId())) {
+				if (message.getKey() == null) {
+					for (int i = 0; i < STRIPES; i++) {
+						generations.incrementAndGet(i);
+					}
+					cache.invalidateAll();
+				} else {
+					invalidateLocal((String) message.getKey());
+				}
+			}
+		});
+	}
+
+	/**
+	 * キャッシュから管理者情報を取得します.
+	 *
+	 * @param mailAddress メールアドレス
+	 * @return 管理者情報(登録されていないことがキャッシュされている場合は空) キャッシュにない場合はnull
+	 */
+	public Optional<Administrator> get(String mailAddress) {
+		return cache.get(mailAddress);
+	}
+
+	/**
+	 * キャッシュにない管理者情報をDBから読み込む前に呼び出し、戻り値を{@link #put(String, Administrator, long)}に渡してください.
+	 *
+	 * @param mailAddress メールアドレス
+	 * @return 読み込みを始めた時点の無効化の世代
+	 */
+	public long beginLoad(String mailAddress) {
+		return generations.get(stripe(mailAddress));
+	}
+
+	/**
+	 * キャッシュに管理者情報を登録します.
+	 *
+	 * 読み込みを始めた後に無効化されていた場合は、読み込んだ管理者情報が古い可能性があるため登録しません.
+	 *
+	 * @param mailAddress   メールアドレス
+	 * @param administrator 管理者情報 登録されていない場合はnull
+	 * @param generation    読み込みを始めたときに{@link #beginLoad(String)}が返した値
+	 */
+	public void put(String mailAddress, Administrator administrator, long generation) {
+		int stripe = stripe(mailAddress);
+		if (generations.get(stripe) != generation) {
+			return;
+		}
+		cache.put(mailAddress, Optional.ofNullable(administrator));
+		if (generations.get(stripe) != generation) {
+			// 登録している間に無効化された場合は、無効化より後に登録したものを削除する
+			cache.invalidate(mailAddress);
+		}
+	}
+
+	/**
+	 * キャッシュから管理者情報を削除し、他のノードにも削除を通知します.
+	 *
+	 * @param mailAddress メールアドレス
+	 */
+	public void invalidate(String mailAddress) {
+		invalidateLocal(mailAddress);
+		broker.publish(new InvalidationMessage(nodeId, CACHE_NAME, mailAddress));
+	}
+
+	/**
+	 * 無効化の世代を進めてから削除します(読み込み中の{@link #put(String, Administrator, long)}が登録しないように).
+	 */
+	private void invalidateLocal(String mailAddress) {
+		generations.incrementAndGet(stripe(mailAddress));
+		cache.invalidate(mailAddress);
+	}
+
+	private static int stripe(String mailAddress) {
+		return Math.floorMod(mailAddress.hashCode(), STRIPES);
+	}
+
+	/**
+	 * 統計情報を返します.
+	 *
+	 * @return 統計情報
+	 */
+	public CacheStats stats() {
+		return cache.stats();
+	}
+}
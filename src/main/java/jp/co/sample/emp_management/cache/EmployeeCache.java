@@ -0,0 +1,55 @@
+package jp.co.sample.emp_management.cache;
+
+import jp.co.sample.emp_management.domain.Employee;
+
+/**
+ * 従業員詳細のキャッシュ.
+ * 
+ * 今はJVM内に保持する{@link LocalEmployeeCache}を使います.
+ * ノード間で共有するキャッシュを使う場合は、このインターフェースを実装してください.
+ * 
+ * @author naramasato
+ *
+ */
+public interface EmployeeCache {
+
+	/**
+	 * キャッシュから従業員情報を取得します.
+	 * 
+	 * @param id 従業員ID
+	 * @return 従業員情報 キャッシュにない場合はnull
+	 */
+	Employee get(Integer id);
+
+	/**
+	 * キャッシュにない従業員情報をDBから読み込む前に呼び出し、戻り値を{@link #put(Employee, long)}に渡してください.
+	 * 
+	 * @param id 従業員ID
+	 * @return 読み込みを始めた時点の無効化の世代
+	 */
+	long beginLoad(Integer id);
+
+	/**
+	 * キャッシュに従業員情報を登録します.
+	 * 
+	 * 読み込みを始めた後に無効化されていた場合は、読み込んだ従業員情報が古い可能性があるため登録しません.
+	 * 
+	 * @param employee 従業員情報
+	 * @param generation 読み込みを始めたときに{@link #beginLoad(Integer)}が返した値
+	 */
+	void put(Employee employee, long generation);
+
+	/**
+	 * キャッシュから従業員情報を削除し、他のノードにも削除を通知します.
+	 * 
+	 * @param id 従業員ID
+	 */
+	void invalidate(Integer id);
+
+	/**
+	 * 統計情報を返します.
+	 * 
+	 * @return 統計情報
+	 */
+	CacheStats stats();
+}
@@ -0,0 +1,61 @@
+package jp.co.sample.emp_management.cache;
+
+import java.io.Serializable;
+
+/**
+ * キャッシュの無効化の通知.
+ * 
+ * @author naramasato
+ *
+ */
+public class InvalidationMessage implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	/** 通知したノードのID */
+	private final String nodeId;
+	/** 無効化するキャッシュの名前 */
+	private final String cacheName;
+	/** 無効化するキー nullの場合はすべて */
+	private final Object key;
+
+	/**
+	 * 初期化用コンストラクタ.
+	 * 
+	 * @param nodeId    通知したノードのID
+	 * @param cacheName 無効化するキャッシュの名前
+	 * @param key       無効化するキー nullの場合はすべて
+	 */
+	public InvalidationMessage(String nodeId, String cacheName, Object key) {
+		this.nodeId = nodeId;
+		this.cacheName = cacheName;
+		this.key = key;
+	}
+
+	/**
+	 * @return the nodeId
+	 */
+	public String getNodeId() {
+		return nodeId;
+	}
+
+	/**
+	 * @return the cacheName
+	 */
+	public String getCacheName() {
+		return cacheName;
+	}
+
+	/**
+	 * @return the key
+	 */
+	public Object getKey() {
+		return key;
+	}
+
+	@Override
+	public String toString() {
+		return "InvalidationMessage [nodeId=" + nodeId + ", cacheName=" + cacheName + ", key=" + key + "]";
+	}
+
+}
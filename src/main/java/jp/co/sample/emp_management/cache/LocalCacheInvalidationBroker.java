@@ -0,0 +1,34 @@
+package jp.co.sample.emp_management.cache;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+import org.springframework.stereotype.Component;
+
+/**
+ * 同じJVM内だけで通知する{@link CacheInvalidationBroker}.
+ * 
+ * ノード間で共有する仕組みの代わりに使います. 同じJVM内で複数のキャッシュ(ノードに見立てたもの)が
+ * 登録されている場合は、それぞれに通知が届きます.
+ * 
+ * @author naramasato
+ *
+ */
+@Component
+public class LocalCacheInvalidationBroker implements CacheInvalidationBroker {
+
+	private final List<Consumer<InvalidationMessage>> listeners = new CopyOnWriteArrayList<>();
+
+	@Override
+	public void publish(InvalidationMessage message) {
+		for (Consumer<InvalidationMessage> listener : listeners) {
+			listener.accept(message);
+		}
+	}
+
+	@Override
+	public void subscribe(Consumer<InvalidationMessage> listener) {
+		listeners.add(listener);
+	}
+}
@@ -0,0 +1,133 @@
+package jp.co.sample.emp_management.cache;
+
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import javax.annotation.PostConstruct;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import jp.co.sample.emp_management.domain.Employee;
+
+/**
+ * JVM内に保持する従業員詳細のキャッシュ.
+ *
+ * 従業員情報の推定サイズ(バイト)の合計で上限を決め、上限を超えたら最も長い間参照されていない従業員から追い出します.
+ * 削除は{@link CacheInvalidationBroker}で他のノードにも通知します.
+ * 従業員IDごと(ストライプごと)に無効化の世代を数え、読み込み中に無効化された従業員情報は登録しません.
+ * 通知が届かなかった場合に備え、登録から有効期間が過ぎた従業員情報はDBから読み込み直します.
+ *
+ * @author naramasato
+ *
+ */
+@Component
+public class LocalEmployeeCache implements EmployeeCache {
+
+	/** 無効化の通知で使うキャッシュの名前 */
+	public static final String CACHE_NAME = "employee";
+
+	/** このノードのID */
+	private final String nodeId = UUID.randomUUID().toString();
+
+	@Autowired
+	private CacheInvalidationBroker broker;
+
+	/** キャッシュする従業員情報の推定サイズの合計の上限(バイト) */
+	@Value("${employee.cache.max-bytes:16777216}")
+	private long maxBytes;
+
+	/** 有効期間(ミリ秒) */
+	@Value("${employee.cache.ttl-millis:300000}")
+	private long ttlMillis;
+
+	/** 無効化の世代を数えるストライプの数 */
+	private static final int STRIPES = 64;
+
+	/** 従業員IDのストライプごとの無効化の世代 */
+	private final AtomicLongArray generations = new AtomicLongArray(STRIPES);
+
+	private BoundedLruCache<Integer, Employee> cache;
+
+	@PostConstruct
+	public void init() {
+		cache = new BoundedLruCache<>(maxBytes, LocalEmployeeCache::weigh, ttlMillis);
+		broker.subscribe(message -> {
+			// 自分が通知したものは処理済みなので、他のノードからの通知だけ処理する
+			if (CACHE_NAME.equals(message.getCacheName()) && !nodeId.equals(message.getNodeId())) {
+				if (message.getKey() == null) {
+					for (int i = 0; i < STRIPES; i++) {
+						generations.incrementAndGet(i);
+					}
+					cache.invalidateAll();
+				} else {
+					invalidateLocal((Integer) message.getKey());
+				}
+			}
+		});
+	}
+
+	@Override
+	public Employee get(Integer id) {
+		return cache.get(id);
+	}
+
+	@Override
+	public long beginLoad(Integer id) {
+		return generations.get(stripe(id));
+	}
+
+	@Override
+	public void put(Employee employee, long generation) {
+		int stripe = stripe(employee.getId());
+		if (generations.get(stripe) != generation) {
+			return;
+		}
+		cache.put(employee.getId(), employee);
+		if (generations.get(stripe) != generation) {
+			// 登録している間に無効化された場合は、無効化より後に登録したものを削除する
+			cache.invalidate(employee.getId());
+		}
+	}
+
+	@Override
+	public void invalidate(Integer id) {
+		invalidateLocal(id);
+		broker.publish(new InvalidationMessage(nodeId, CACHE_NAME, id));
+	}
+
+	/**
+	 * 無効化の世代を進めてから削除します(読み込み中の{@link #put(Employee, long)}が登録しないように).
+	 */
+	private void invalidateLocal(Integer id) {
+		generations.incrementAndGet(stripe(id));
+		cache.invalidate(id);
+	}
+
+	private static int stripe(Integer id) {
+		return Math.floorMod(id.hashCode(), STRIPES);
+	}
+
+	@Override
+	public CacheStats stats() {
+		return cache.stats();
+	}
+
+	/**
+	 * 従業員情報のヒープ上の推定サイズを求めます.
+	 *
+	 * 文字列は1文字2バイトとヘッダ分で計算します.
+	 */
+	private static long weigh(Employee employee) {
+		long bytes = 80;
+		String[] values = { employee.getName(), employee.getImage(), employee.getGender(), employee.getMailAddress(),
+				employee.getZipCode(), employee.getAddress(), employee.getTelephone(), employee.getCharacteristics() };
+		for (String value : values) {
+			if (value != null) {
+				bytes += 40 + 2L * value.length();
+			}
+		}
+		return bytes;
+	}
+}
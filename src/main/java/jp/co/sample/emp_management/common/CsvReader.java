@@ -0,0 +1,127 @@
+package jp.co.sample.emp_management.common;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * CSVを1レコードずつ読み込むクラス.
+ *
+ * ファイル全体をメモリに読み込まず、呼び出されるたびに次の1レコードだけを解析します.
+ * ダブルクォートで囲まれた項目(項目内のカンマ・改行・""によるエスケープ)に対応しています.
+ *
+ * @author naramasato
+ *
+ */
+public class CsvReader implements Closeable {
+
+	private static final char BOM = '\uFEFF';
+
+	private final Reader reader;
+
+	/** 次に読み込む文字(先読みしていない場合は-2) */
+	private int peeked = -2;
+
+	/** 直前に読み込んだレコードの開始行番号 */
+	private long lineNumber = 0;
+
+	/** 読み込み中の行番号 */
+	private long currentLine = 1;
+
+	/**
+	 * @param reader 読み込むCSV バッファリングされたReaderを渡してください
+	 */
+	public CsvReader(Reader reader) {
+		this.reader = reader;
+	}
+
+	/**
+	 * 次の1レコードを読み込みます.
+	 *
+	 * @return レコードの項目一覧 最後まで読み込んだ場合はnullを返します
+	 * @throws IOException 読み込みに失敗した場合
+	 */
+	public List<String> readRecord() throws IOException {
+		int c = read();
+		if (lineNumber == 0 && c == BOM) {
+			c = read();
+		}
+		if (c == -1) {
+			return null;
+		}
+		lineNumber = currentLine;
+
+		List<String> record = new ArrayList<>();
+		StringBuilder field = new StringBuilder();
+		boolean quoted = false;
+		while (true) {
+			if (quoted) {
+				if (c == -1) {
+					throw new IOException("ダブルクォートが閉じられていません(" + lineNumber + "行目)");
+				}
+				if (c == '"') {
+					if (peek() == '"') {
+						read();
+						field.append('"');
+					} else {
+						quoted = false;
+					}
+				} else {
+					if (c == '\n') {
+						currentLine++;
+					}
+					field.append((char) c);
+				}
+			} else if (c == '"' && field.length() == 0) {
+				quoted = true;
+			} else if (c == ',') {
+				record.add(field.toString());
+				field.setLength(0);
+			} else if (c == '\r' || c == '\n' || c == -1) {
+				if (c == '\r' && peek() == '\n') {
+					read();
+				}
+				if (c != -1) {
+					currentLine++;
+				}
+				record.add(field.toString());
+				return record;
+			} else {
+				field.append((char) c);
+			}
+			c = read();
+		}
+	}
+
+	/**
+	 * 直前に読み込んだレコードの行番号を返します.
+	 *
+	 * @return 行番号(1始まり)
+	 */
+	public long getLineNumber() {
+		return lineNumber;
+	}
+
+	private int read() throws IOException {
+		if (peeked != -2) {
+			int c = peeked;
+			peeked = -2;
+			return c;
+		}
+		return reader.read();
+	}
+
+	private int peek() throws IOException {
+		if (peeked == -2) {
+			peeked = reader.read();
+		}
+		return peeked;
+	}
+
+	@Override
+	public void close() throws IOException {
+		reader.close();
+	}
+}
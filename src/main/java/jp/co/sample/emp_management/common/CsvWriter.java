@@ -0,0 +1,65 @@
+package jp.co.sample.emp_management.common;
+
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.List;
+
+/**
+ * CSVを1レコードずつ書き込むクラス.
+ *
+ * カンマ・ダブルクォート・改行を含む項目はダブルクォートで囲んで出力します.
+ *
+ * @author naramasato
+ *
+ */
+public class CsvWriter implements Flushable {
+
+	private final Writer writer;
+
+	/**
+	 * @param writer 書き込み先 バッファリングされたWriterを渡してください
+	 */
+	public CsvWriter(Writer writer) {
+		this.writer = writer;
+	}
+
+	/**
+	 * 1レコードを書き込みます.
+	 *
+	 * @param record レコードの項目一覧 nullの項目は空文字として出力します
+	 * @throws IOException 書き込みに失敗した場合
+	 */
+	public void writeRecord(List<?> record) throws IOException {
+		for (int i = 0; i < record.size(); i++) {
+			if (i > 0) {
+				writer.write(',');
+			}
+			Object value = record.get(i);
+			if (value != null) {
+				writeField(value.toString());
+			}
+		}
+		writer.write("\r\n");
+	}
+
+	private void writeField(String value) throws IOException {
+		boolean needsQuote = false;
+		for (int i = 0; i < value.length() && !needsQuote; i++) {
+			char c = value.charAt(i);
+			needsQuote = c == ',' || c == '"' || c == '\r' || c == '\n';
+		}
+		if (!needsQuote) {
+			writer.write(value);
+			return;
+		}
+		writer.write('"');
+		writer.write(value.replace("\"", "\"\""));
+		writer.write('"');
+	}
+
+	@Override
+	public void flush() throws IOException {
+		writer.flush();
+	}
+}
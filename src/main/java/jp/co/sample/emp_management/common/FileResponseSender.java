@@ -0,0 +1,128 @@
+package jp.co.sample.emp_management.common;
+
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.springframework.http.HttpHeaders;
+
+/**
+ * ファイルの内容をレスポンスとして送信します.
+ *
+ * Rangeヘッダ(単一範囲のみ)に対応し、Tomcatのsendfileが使える場合は
+ * ファイルの内容をJVMのヒープにコピーせずにOSから直接送信します.
+ *
+ * @author naramasato
+ *
+ */
+public class FileResponseSender {
+
+	private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+	private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+	private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+	private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+	private FileResponseSender() {
+	}
+
+	/**
+	 * ファイルの内容を送信します.
+	 *
+	 * @param file        送信するファイル
+	 * @param contentType Content-Typeヘッダの値
+	 * @param request     リクエスト
+	 * @param response    レスポンス
+	 * @throws IOException 送信に失敗した場合
+	 */
+	public static void send(Path file, String contentType, HttpServletRequest request, HttpServletResponse response)
+			throws IOException {
+		long length = Files.size(file);
+		long start = 0;
+		long end = length; // 送信範囲の終端(この位置は含まない)
+
+		response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+		String range = request.getHeader(HttpHeaders.RANGE);
+		if (range != null) {
+			long[] parsed = parseRange(range, length);
+			if (parsed == null) {
+				response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + length);
+				response.sendError(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+				return;
+			}
+			if (parsed.length == 2) {
+				start = parsed[0];
+				end = parsed[1];
+				response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+				response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + (end - 1) + "/" + length);
+			}
+		}
+
+		response.setContentType(contentType);
+		response.setContentLengthLong(end - start);
+		if ("HEAD".equals(request.getMethod())) {
+			return;
+		}
+
+		if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+			// コンテナにファイルを渡してOSのsendfileで送信してもらう
+			request.setAttribute(SENDFILE_FILENAME, file.toAbsolutePath().toString());
+			request.setAttribute(SENDFILE_START, start);
+			request.setAttribute(SENDFILE_END, end);
+			return;
+		}
+
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			WritableByteChannel out = Channels.newChannel(response.getOutputStream());
+			long position = start;
+			while (position < end) {
+				position += channel.transferTo(position, end - position, out);
+			}
+		}
+	}
+
+	/**
+	 * Rangeヘッダを解析します.
+	 *
+	 * @param range  Rangeヘッダの値
+	 * @param length ファイルのサイズ
+	 * @return 送信範囲の開始位置と終端(この位置は含まない)
+	 *         複数範囲の指定など対応していない形式の場合は全体を送信するため空の配列を、
+	 *         範囲がファイルの外にある場合はnullを返します
+	 */
+	private static long[] parseRange(String range, long length) {
+		if (!range.startsWith("bytes=") || range.indexOf(',') != -1) {
+			return new long[0];
+		}
+		String spec = range.substring("bytes=".length()).trim();
+		int dash = spec.indexOf('-');
+		if (dash == -1) {
+			return new long[0];
+		}
+		try {
+			long start;
+			long end;
+			if (dash == 0) {
+				// bytes=-500 (末尾から500バイト)
+				long suffix = Long.parseLong(spec.substring(1));
+				start = Math.max(length - suffix, 0);
+				end = length;
+			} else {
+				start = Long.parseLong(spec.substring(0, dash));
+				end = dash == spec.length() - 1 ? length : Math.min(Long.parseLong(spec.substring(dash + 1)) + 1, length);
+			}
+			if (start >= length || start >= end) {
+				return null;
+			}
+			return new long[] { start, end };
+		} catch (NumberFormatException e) {
+			return new long[0];
+		}
+	}
+}
@@ -0,0 +1,26 @@
+package jp.co.sample.emp_management.common;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * アップロードされた画像を受け付けられない場合の例外.
+ *
+ * 対応していない画像形式の場合や、サイズが上限を超えている場合に発生します.
+ * 画面で処理されなかった場合は400 Bad Requestを返します.
+ *
+ * @author naramasato
+ *
+ */
+@ResponseStatus(HttpStatus.BAD_REQUEST)
+public class InvalidImageException extends RuntimeException {
+
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * @param message 画面に表示するメッセージ
+	 */
+	public InvalidImageException(String message) {
+		super(message);
+	}
+}
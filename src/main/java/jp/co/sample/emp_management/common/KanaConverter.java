@@ -0,0 +1,129 @@
+package jp.co.sample.emp_management.common;
+
+import java.text.Normalizer;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * 名前の検索用にかな文字を変換するクラス.
+ *
+ * @author naramasato
+ *
+ */
+public class KanaConverter {
+
+	/** ひらがな1文字または拗音2文字からローマ字(ヘボン式)への変換表 */
+	private static final Map<String, String> ROMAJI = new HashMap<>();
+
+	static {
+		String[][] table = {
+				{ "あ", "a" }, { "い", "i" }, { "う", "u" }, { "え", "e" }, { "お", "o" },
+				{ "か", "ka" }, { "き", "ki" }, { "く", "ku" }, { "け", "ke" }, { "こ", "ko" },
+				{ "さ", "sa" }, { "し", "shi" }, { "す", "su" }, { "せ", "se" }, { "そ", "so" },
+				{ "た", "ta" }, { "ち", "chi" }, { "つ", "tsu" }, { "て", "te" }, { "と", "to" },
+				{ "な", "na" }, { "に", "ni" }, { "ぬ", "nu" }, { "ね", "ne" }, { "の", "no" },
+				{ "は", "ha" }, { "ひ", "hi" }, { "ふ", "fu" }, { "へ", "he" }, { "ほ", "ho" },
+				{ "ま", "ma" }, { "み", "mi" }, { "む", "mu" }, { "め", "me" }, { "も", "mo" },
+				{ "や", "ya" }, { "ゆ", "yu" }, { "よ", "yo" },
+				{ "ら", "ra" }, { "り", "ri" }, { "る", "ru" }, { "れ", "re" }, { "ろ", "ro" },
+				{ "わ", "wa" }, { "ゐ", "i" }, { "ゑ", "e" }, { "を", "o" }, { "ん", "n" },
+				{ "が", "ga" }, { "ぎ", "gi" }, { "ぐ", "gu" }, { "げ", "ge" }, { "ご", "go" },
+				{ "ざ", "za" }, { "じ", "ji" }, { "ず", "zu" }, { "ぜ", "ze" }, { "ぞ", "zo" },
+				{ "だ", "da" }, { "ぢ", "ji" }, { "づ", "zu" }, { "で", "de" }, { "ど", "do" },
+				{ "ば", "ba" }, { "び", "bi" }, { "ぶ", "bu" }, { "べ", "be" }, { "ぼ", "bo" },
+				{ "ぱ", "pa" }, { "ぴ", "pi" }, { "ぷ", "pu" }, { "ぺ", "pe" }, { "ぽ", "po" },
+				{ "ゔ", "vu" },
+				{ "ぁ", "a" }, { "ぃ", "i" }, { "ぅ", "u" }, { "ぇ", "e" }, { "ぉ", "o" },
+				{ "ゃ", "ya" }, { "ゅ", "yu" }, { "ょ", "yo" }, { "ゎ", "wa" },
+				{ "きゃ", "kya" }, { "きゅ", "kyu" }, { "きょ", "kyo" },
+				{ "しゃ", "sha" }, { "しゅ", "shu" }, { "しょ", "sho" },
+				{ "ちゃ", "cha" }, { "ちゅ", "chu" }, { "ちょ", "cho" },
+				{ "にゃ", "nya" }, { "にゅ", "nyu" }, { "にょ", "nyo" },
+				{ "ひゃ", "hya" }, { "ひゅ", "hyu" }, { "ひょ", "hyo" },
+				{ "みゃ", "mya" }, { "みゅ", "myu" }, { "みょ", "myo" },
+				{ "りゃ", "rya" }, { "りゅ", "ryu" }, { "りょ", "ryo" },
+				{ "ぎゃ", "gya" }, { "ぎゅ", "gyu" }, { "ぎょ", "gyo" },
+				{ "じゃ", "ja" }, { "じゅ", "ju" }, { "じょ", "jo" },
+				{ "ぢゃ", "ja" }, { "ぢゅ", "ju" }, { "ぢょ", "jo" },
+				{ "びゃ", "bya" }, { "びゅ", "byu" }, { "びょ", "byo" },
+				{ "ぴゃ", "pya" }, { "ぴゅ", "pyu" }, { "ぴょ", "pyo" },
+				{ "しぇ", "she" }, { "じぇ", "je" }, { "ちぇ", "che" },
+				{ "てぃ", "ti" }, { "でぃ", "di" }, { "とぅ", "tu" }, { "どぅ", "du" },
+				{ "ふぁ", "fa" }, { "ふぃ", "fi" }, { "ふぇ", "fe" }, { "ふぉ", "fo" },
+				{ "うぃ", "wi" }, { "うぇ", "we" }, { "うぉ", "wo" },
+				{ "ゔぁ", "va" }, { "ゔぃ", "vi" }, { "ゔぇ", "ve" }, { "ゔぉ", "vo" } };
+		for (String[] entry : table) {
+			ROMAJI.put(entry[0], entry[1]);
+		}
+	}
+
+	private KanaConverter() {
+	}
+
+	/**
+	 * 検索用に文字列を正規化します.
+	 *
+	 * 全角英数字・半角カナをNFKCで統一し、英字は小文字に、カタカナはひらがなにそろえ、空白を取り除きます.
+	 *
+	 * @param value 正規化する文字列
+	 * @return 正規化した文字列
+	 */
+	public static String normalize(String value) {
+		String normalized = Normalizer.normalize(value, Normalizer.Form.NFKC).toLowerCase(Locale.ROOT);
+		StringBuilder builder = new StringBuilder(normalized.length());
+		for (int i = 0; i < normalized.length(); i++) {
+			char c = normalized.charAt(i);
+			if (Character.isWhitespace(c)) {
+				continue;
+			}
+			if (c >= 'ァ' && c <= 'ヶ') {
+				// カタカナをひらがなにする(ヵ・ヶは対応するひらがながあるため同じく変換する)
+				c = (char) (c - ('ァ' - 'ぁ'));
+			}
+			builder.append(c);
+		}
+		return builder.toString();
+	}
+
+	/**
+	 * 正規化済みのひらがなの文字列をローマ字(ヘボン式)にします.
+	 *
+	 * @param hiragana {@link #normalize(String)}で正規化した文字列
+	 * @return ローマ字 ひらがな以外(漢字など)を含む場合はnullを返します
+	 */
+	public static String toRomaji(String hiragana) {
+		StringBuilder builder = new StringBuilder(hiragana.length() * 3);
+		boolean doubleNext = false;
+		int i = 0;
+		while (i < hiragana.length()) {
+			char c = hiragana.charAt(i);
+			if (c == 'っ') {
+				doubleNext = true;
+				i++;
+				continue;
+			}
+			if (c == 'ー') {
+				// 長音は直前の母音を重ねず読み飛ばす(例: ゆーき → yuki)
+				i++;
+				continue;
+			}
+			String romaji = i + 1 < hiragana.length() ? ROMAJI.get(hiragana.substring(i, i + 2)) : null;
+			int length = 2;
+			if (romaji == null) {
+				romaji = ROMAJI.get(String.valueOf(c));
+				length = 1;
+			}
+			if (romaji == null) {
+				return null;
+			}
+			if (doubleNext) {
+				builder.append(romaji.startsWith("ch") ? 't' : romaji.charAt(0));
+				doubleNext = false;
+			}
+			builder.append(romaji);
+			i += length;
+		}
+		return builder.toString();
+	}
+}
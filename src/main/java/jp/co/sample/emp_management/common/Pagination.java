@@ -0,0 +1,115 @@
+package jp.co.sample.emp_management.common;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.data.domain.Page;
+
+/**
+ * ページングのリンクに表示するページ番号.
+ *
+ * 全ページ分のリンクは作らず、最初のページ・最後のページと、表示中のページの前後数ページ分だけを表示します.
+ * (例)全50ページで12ページ目を表示中、前後2ページの場合 → 1 … 10 11 12 13 14 … 50
+ *
+ * @author naramasato
+ *
+ */
+public class Pagination {
+	/** 表示中のページ番号(1始まり) */
+	private final int current;
+	/** 全ページ数 */
+	private final int totalPages;
+	/** 表示中のページの前後に表示するページ番号 */
+	private final List<Integer> pageNumbers;
+
+	private Pagination(int current, int totalPages, List<Integer> pageNumbers) {
+		this.current = current;
+		this.totalPages = totalPages;
+		this.pageNumbers = pageNumbers;
+	}
+
+	/**
+	 * ページング情報から表示するページ番号を求めます.
+	 *
+	 * 削除や古いブックマークで全ページ数より後のページが指定された場合も、リンクが表示されるよう
+	 * 表示中のページを1～全ページ数の範囲に収めてから求めます.
+	 *
+	 * @param page   ページング情報
+	 * @param radius 表示中のページの前後に表示するページ数
+	 * @return 表示するページ番号
+	 */
+	public static Pagination of(Page<?> page, int radius) {
+		int totalPages = page.getTotalPages();
+		int current = Math.max(Math.min(page.getNumber() + 1, totalPages), 1);
+		int from = Math.max(current - radius, 1);
+		int to = Math.min(current + radius, totalPages);
+		List<Integer> pageNumbers = new ArrayList<>(Math.max(to - from + 1, 0));
+		for (int i = from; i <= to; i++) {
+			pageNumbers.add(i);
+		}
+		return new Pagination(current, totalPages, pageNumbers);
+	}
+
+	/**
+	 * 最初のページへのリンクを別に表示するかどうかを返します.
+	 *
+	 * @return 前後のページ番号に1ページ目が含まれない場合はtrue
+	 */
+	public boolean isShowFirst() {
+		return !pageNumbers.isEmpty() && pageNumbers.get(0) > 1;
+	}
+
+	/**
+	 * 最初のページと前後のページ番号の間に省略記号を表示するかどうかを返します.
+	 *
+	 * @return 間に表示しないページがある場合はtrue
+	 */
+	public boolean isShowLeadingGap() {
+		return !pageNumbers.isEmpty() && pageNumbers.get(0) > 2;
+	}
+
+	/**
+	 * 最後のページへのリンクを別に表示するかどうかを返します.
+	 *
+	 * @return 前後のページ番号に最後のページが含まれない場合はtrue
+	 */
+	public boolean isShowLast() {
+		return !pageNumbers.isEmpty() && pageNumbers.get(pageNumbers.size() - 1) < totalPages;
+	}
+
+	/**
+	 * 前後のページ番号と最後のページの間に省略記号を表示するかどうかを返します.
+	 *
+	 * @return 間に表示しないページがある場合はtrue
+	 */
+	public boolean isShowTrailingGap() {
+		return !pageNumbers.isEmpty() && pageNumbers.get(pageNumbers.size() - 1) < totalPages - 1;
+	}
+
+	/**
+	 * @return the current
+	 */
+	public int getCurrent() {
+		return current;
+	}
+
+	/**
+	 * @return the totalPages
+	 */
+	public int getTotalPages() {
+		return totalPages;
+	}
+
+	/**
+	 * @return the pageNumbers
+	 */
+	public List<Integer> getPageNumbers() {
+		return pageNumbers;
+	}
+
+	@Override
+	public String toString() {
+		return "Pagination [current=" + current + ", totalPages=" + totalPages + ", pageNumbers=" + pageNumbers + "]";
+	}
+
+}
@@ -0,0 +1,42 @@
+package jp.co.sample.emp_management.common;
+
+import java.io.IOException;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.springframework.web.filter.OncePerRequestFilter;
+
+/**
+ * Content-Lengthが上限を超えるリクエストを、本文を受信する前に413 Payload Too Largeで拒否するフィルター.
+ *
+ * multipartの上限(spring.servlet.multipart.max-file-size)はすべてのURLで共通のため、
+ * CSVの一括登録より小さい上限にしたいURL(従業員画像のアップロードなど)に登録して使います.
+ * Content-Lengthを送らないリクエスト(chunked)はここでは判定できないため、受信後に判定してください.
+ *
+ * @author naramasato
+ *
+ */
+public class RequestSizeLimitFilter extends OncePerRequestFilter {
+
+	private final long maxBytes;
+
+	/**
+	 * @param maxBytes リクエストの本文のサイズの上限(バイト)
+	 */
+	public RequestSizeLimitFilter(long maxBytes) {
+		this.maxBytes = maxBytes;
+	}
+
+	@Override
+	protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+			throws ServletException, IOException {
+		if (request.getContentLengthLong() > maxBytes) {
+			response.sendError(HttpServletResponse.SC_REQUEST_ENTITY_TOO_LARGE);
+			return;
+		}
+		filterChain.doFilter(request, response);
+	}
+}
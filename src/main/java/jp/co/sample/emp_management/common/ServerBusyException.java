@@ -0,0 +1,26 @@
+package jp.co.sample.emp_management.common;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * 処理待ちが上限に達していて、リクエストを受け付けられない場合の例外.
+ * 
+ * 503 Service Unavailableを返します.
+ * 
+ * @author naramasato
+ *
+ */
+@ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+public class ServerBusyException extends RuntimeException {
+
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * @param message 詳細メッセージ
+	 * @param cause   原因
+	 */
+	public ServerBusyException(String message, Throwable cause) {
+		super(message, cause);
+	}
+}
@@ -0,0 +1,34 @@
+package jp.co.sample.emp_management.common;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * アップロードを受け付けるURLごとのサイズの上限の設定.
+ *
+ * @author naramasato
+ *
+ */
+@Configuration(proxyBeanMethods = false)
+public class UploadConfig {
+
+	/** 画像以外の入力項目やmultipartの区切りのために画像のサイズの上限に加える分(バイト) */
+	private static final long FORM_OVERHEAD_BYTES = 64 * 1024;
+
+	/**
+	 * 従業員画像のアップロードで、画像のサイズの上限を大きく超えるリクエストを受信する前に拒否するフィルター.
+	 *
+	 * @param maxImageBytes 従業員画像のサイズの上限(バイト)
+	 * @return フィルターの登録
+	 */
+	@Bean
+	public FilterRegistrationBean<RequestSizeLimitFilter> imageUploadSizeLimitFilter(
+			@Value("${employee.image.max-bytes:5242880}") long maxImageBytes) {
+		FilterRegistrationBean<RequestSizeLimitFilter> registration = new FilterRegistrationBean<>(
+				new RequestSizeLimitFilter(maxImageBytes + FORM_OVERHEAD_BYTES));
+		registration.addUrlPatterns("/employee/toInsert");
+		return registration;
+	}
+}
@@ -0,0 +1,59 @@
+package jp.co.sample.emp_management.common;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * 仮想スレッド(JDK 21以降)を使うためのユーティリティ.
+ *
+ * アプリケーションはJava 11向けにコンパイルしているため、仮想スレッドのAPIはリフレクションで呼び出します.
+ * <p>
+ * 仮想スレッドはsynchronizedの中でブロックするとOSのスレッドを占有したままになる(JDK 21の時点)ため、
+ * DBアクセスなどブロックする処理を含む排他にはsynchronizedではなく{@link java.util.concurrent.locks.ReentrantLock}を使ってください.
+ *
+ * @author naramasato
+ *
+ */
+public final class VirtualThreads {
+
+	private VirtualThreads() {
+	}
+
+	/**
+	 * 実行中のJDKで仮想スレッドを使えるかを返します.
+	 *
+	 * @return 使える場合はtrue
+	 */
+	public static boolean isSupported() {
+		try {
+			Thread.class.getMethod("ofVirtual");
+			return true;
+		} catch (NoSuchMethodException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * タスクごとに仮想スレッドを作って実行するExecutorServiceを作成します.
+	 *
+	 * @param namePrefix スレッド名の接頭辞(後ろに連番が付きます)
+	 * @return ExecutorService
+	 * @throws IllegalStateException 仮想スレッドを使えないJDKの場合
+	 */
+	public static ExecutorService newThreadPerTaskExecutor(String namePrefix) {
+		try {
+			// Thread.ofVirtual().name(namePrefix, 0).factory()
+			Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+			Class<?> builderType = Class.forName("java.lang.Thread$Builder");
+			builder = builderType.getMethod("name", String.class, long.class).invoke(builder, namePrefix, 0L);
+			ThreadFactory factory = (ThreadFactory) builderType.getMethod("factory").invoke(builder);
+			Method newExecutor = Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class);
+			return (ExecutorService) newExecutor.invoke(null, factory);
+		} catch (ReflectiveOperationException e) {
+			throw new IllegalStateException("仮想スレッドを使うにはJDK 21以降で実行してください(実行中のJDK: "
+					+ System.getProperty("java.version") + ")", e);
+		}
+	}
+}
@@ -1,9 +1,14 @@
 package jp.co.sample.emp_management.controller;
 
+import java.util.concurrent.CompletableFuture;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
 import javax.servlet.http.HttpSession;
 
 import org.springframework.beans.BeanUtils;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.validation.BindingResult;
@@ -11,9 +16,11 @@ import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.ModelAttribute;
 import org.springframework.web.bind.annotation.RequestMapping;
 
+import io.micrometer.core.instrument.MeterRegistry;
 import jp.co.sample.emp_management.domain.Administrator;
 import jp.co.sample.emp_management.form.InsertAdministratorForm;
 import jp.co.sample.emp_management.form.LoginForm;
+import jp.co.sample.emp_management.security.LoginAttemptLimiter;
 import jp.co.sample.emp_management.service.AdministratorService;
 
 /**
@@ -26,11 +33,20 @@ import jp.co.sample.emp_management.service.AdministratorService;
 @RequestMapping("/")
 public class AdministratorController {
 
+	/** ログインの成功・失敗の回数(resultタグ) */
+	private static final String LOGIN_METRIC = "app.login";
+
 	@Autowired
 	private AdministratorService administratorService;
 	
 	@Autowired
 	private HttpSession session;
+	
+	@Autowired
+	private MeterRegistry meterRegistry;
+
+	@Autowired
+	private LoginAttemptLimiter loginAttemptLimiter;
 
 	/**
 	 * 使用するフォームオブジェクトをリクエストスコープに格納する.
@@ -68,34 +84,35 @@ public class AdministratorController {
 	/**
 	 * 管理者情報を登録します.
 	 * 
+	 * パスワードのハッシュ化は専用のスレッドプールで行い、その間リクエスト処理のスレッドは解放します.
+	 * 
 	 * @param form
 	 *            管理者情報用フォーム
 	 * @return ログイン画面へリダイレクト
 	 */
 	@RequestMapping("/insert")
-	public String insert(@Validated InsertAdministratorForm form,
+	public CompletableFuture<String> insert(@Validated InsertAdministratorForm form,
 			BindingResult result, Model model) {
 		
 		if(result.hasErrors()) {
-			return toInsert();
+			return CompletableFuture.completedFuture(toInsert());
 		}
 		//パスワードと確認パスワードの確認メゾット
 		if(!form.getPassword().equals(form.getCheckPassword())) { //パスワードが一致しなければ戻す
 			model.addAttribute("passwordError", "パスワードが一致しません");
-			return "/administrator/insert";
+			return CompletableFuture.completedFuture("/administrator/insert");
 		}
 		
 		Administrator admin = administratorService.findByMailAddress(form.getMailAddress());
 		
 		if(admin != null) {
 			model.addAttribute("errormassege","このメールアドレスは既に登録されています");
-			return "/administrator/insert";
+			return CompletableFuture.completedFuture("/administrator/insert");
 		} else {
 			Administrator administrator = new Administrator();
 			// フォームからドメインにプロパティ値をコピー
 			BeanUtils.copyProperties(form, administrator);
-			administratorService.insert(administrator);
-			return "redirect:/";
+			return administratorService.insert(administrator).thenApply(done -> "redirect:/");
 		}
 	}
 
@@ -115,6 +132,9 @@ public class AdministratorController {
 	/**
 	 * ログインします.
 	 * 
+	 * パスワードの照合は専用のスレッドプールで行い、その間リクエスト処理のスレッドは解放します.
+	 * 照合が終わった後の処理はリクエスト処理のスレッド以外で動くため、セッションはリクエストから直接取得します.
+	 * 
 	 * @param form
 	 *            管理者情報用フォーム
 	 * @param result
@@ -122,15 +142,45 @@ public class AdministratorController {
 	 * @return ログイン後の従業員一覧画面
 	 */
 	@RequestMapping("/login")
-	public String login(LoginForm form, BindingResult result, Model model) {
-		Administrator administrator = administratorService.login(form.getMailAddress(), form.getPassword());
-		if (administrator == null) {
-			model.addAttribute("errorMessage", "メールアドレスまたはパスワードが不正です。");
-			return toLogin();
+	public CompletableFuture<String> login(LoginForm form, BindingResult result, Model model,
+			HttpServletRequest request, HttpServletResponse response) {
+		// リバースプロキシ経由の場合もクライアントのアドレス(server.forward-headers-strategy=nativeでX-Forwarded-Forから求める)
+		String ipAddress = request.getRemoteAddr();
+		// 失敗が続いているIPアドレス・アカウントはDBの検索やパスワードの照合をせずに拒否する
+		// 照合の前に失敗1回分を予約するため、同時に届いたログインも上限を超えて照合まで進まない
+		if (!loginAttemptLimiter.tryAcquire(ipAddress, form.getMailAddress())) {
+			meterRegistry.counter(LOGIN_METRIC, "result", "blocked").increment();
+			response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+			model.addAttribute("errorMessage", "ログインの失敗が続いたため、しばらくの間ログインできません。");
+			return CompletableFuture.completedFuture(toLogin());
 		}
-		
-		session.setAttribute("name",administrator.getName());
-		return "forward:/employee/showList";
+		CompletableFuture<Administrator> login;
+		try {
+			login = administratorService.login(form.getMailAddress(), form.getPassword());
+		} catch (RuntimeException e) {
+			// 照合の待ち行列が一杯の場合などは失敗として数えない
+			loginAttemptLimiter.release(ipAddress, form.getMailAddress());
+			throw e;
+		}
+		return login.whenComplete((administrator, error) -> {
+			if (error != null) {
+				loginAttemptLimiter.release(ipAddress, form.getMailAddress());
+			}
+		}).thenApply(administrator -> {
+			if (administrator == null) {
+				// 予約した1回分がそのまま失敗回数になる
+				meterRegistry.counter(LOGIN_METRIC, "result", "failure").increment();
+				model.addAttribute("errorMessage", "メールアドレスまたはパスワードが不正です。");
+				return toLogin();
+			}
+			loginAttemptLimiter.recordSuccess(ipAddress, form.getMailAddress());
+			meterRegistry.counter(LOGIN_METRIC, "result", "success").increment();
+			
+			HttpSession loginSession = request.getSession();
+			loginSession.setAttribute("administratorId", String.valueOf(administrator.getId()));
+			loginSession.setAttribute("name",administrator.getName());
+			return "forward:/employee/showList";
+		});
 	}
 	
 	/////////////////////////////////////////////////////
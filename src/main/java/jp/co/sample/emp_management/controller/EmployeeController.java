@@ -1,37 +1,67 @@
 package jp.co.sample.emp_management.controller;
 
 import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
 import java.io.File;
-import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardOpenOption;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
-import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
 import java.util.List;
-import java.util.stream.Stream;import org.hibernate.validator.internal.constraintvalidators.bv.notempty.NotEmptyValidatorForArraysOfLong;
+import java.util.stream.Stream;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpSession;
+
+import org.hibernate.validator.internal.constraintvalidators.bv.notempty.NotEmptyValidatorForArraysOfLong;
 import org.springframework.beans.BeanUtils;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.data.web.SpringDataWebProperties.Pageable;
 import org.springframework.data.domain.Page;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.validation.BindingResult;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.ModelAttribute;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseBody;
+import org.springframework.web.context.request.ServletWebRequest;
 import org.springframework.web.multipart.MultipartFile;
 
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jp.co.sample.emp_management.common.FileResponseSender;
+import jp.co.sample.emp_management.common.InvalidImageException;
+import jp.co.sample.emp_management.common.Pagination;
 import jp.co.sample.emp_management.domain.Employee;
+import jp.co.sample.emp_management.domain.EmployeeSummary;
+import jp.co.sample.emp_management.domain.ImageType;
+import jp.co.sample.emp_management.domain.ImageVariant;
+import jp.co.sample.emp_management.domain.ImportResult;
 import jp.co.sample.emp_management.form.InsertEmployeeForm;
 import jp.co.sample.emp_management.form.SearchByNameForm;
 import jp.co.sample.emp_management.form.UpdateEmployeeForm;
+import jp.co.sample.emp_management.service.EmployeeImportService;
 import jp.co.sample.emp_management.service.EmployeeService;
+import jp.co.sample.emp_management.service.ImageVariantService;
 
 /**
  * 従業員情報を操作するコントローラー.
@@ -46,9 +76,46 @@ public class EmployeeController {
 	@Autowired
 	private EmployeeService employeeService;
 	
+	@Autowired
+	private EmployeeImportService employeeImportService;
+	
+	@Autowired
+	private ImageVariantService imageVariantService;
+	
+	@Autowired
+	private MeterRegistry meterRegistry;
+	
+	@Autowired
+	private EmployeeRowRenderer employeeRowRenderer;
+	
+	@Autowired
+	private EmployeeListStreamer employeeListStreamer;
+	
 	// 1ページに表示する従業員数は10名
 	private static final int VIEW_SIZE = 10;
 	
+	// ページングのリンクは表示中のページの前後2ページ分を表示する
+	private static final int PAGE_LINK_RADIUS = 2;
+	
+	// オートコンプリートで返す従業員名の最大件数
+	private static final int AUTOCOMPLETE_MAX_LIMIT = 50;
+	
+	// 従業員画像は内容が変わらないので1年間キャッシュさせる
+	private static final String IMAGE_CACHE_CONTROL = "public, max-age=31536000, immutable";
+	
+	// 縮小画像の作成中に代わりに返す元の画像のCache-Controlヘッダ
+	private static final String VARIANT_PENDING_CACHE_CONTROL = "public, max-age=60";
+	
+	// 一覧・詳細画面はログインした管理者ごとの画面なので、ブラウザにだけ保存させて毎回ETagで確認させる
+	private static final String PAGE_CACHE_CONTROL = "private, no-cache";
+	
+	// アップロードされたファイルのサイズ(typeタグ: image, csv)
+	private static final String UPLOAD_SIZE_METRIC = "app.upload.size";
+	
+	// 従業員画像のサイズの上限(バイト)
+	@Value("${employee.image.max-bytes:5242880}")
+	private long maxImageBytes;
+	
 	/**
 	 * 使用するフォームオブジェクトをリクエストスコープに格納する.
 	 * 
@@ -75,70 +142,87 @@ public class EmployeeController {
 	/**
 	 * 従業員一覧画面を出力します.
 	 * 
+	 * 「次へ」リンクからの遷移では直前のページの最後の従業員(入社日とID)が渡されるので、
+	 * そこから続きの従業員を取得します.
+	 * 
+	 * 従業員が登録・更新されていなければ(変更番号が同じなら)、DBにアクセスせず画面も作らずに304を返します.
+	 * 
 	 * @param model モデル
 	 * @param page 出力したいページ数
-	 * @param loginAdministrator ログイン情報をコントローラで取得
-	 * @return 従業員一覧画面
+	 * @param lastHireDate 直前のページの最後の従業員の入社日(エポックミリ秒)
+	 * @param lastId 直前のページの最後の従業員のID
+	 * @param request リクエスト
+	 * @param response レスポンス
+	 * @return 従業員一覧画面 変更がない場合はnull(304)
 	 */
 	@RequestMapping("/showList")
-	public String showList(Model model, Integer page) {
+	public String showList(Model model, Integer page, Long lastHireDate, Integer lastId, HttpServletRequest request,
+			HttpServletResponse response) {
 		
-		System.out.println(page);
 		// ページング機能追加
-		if(page == null) {
+		if(page == null || page < 1) {
 			//ページ数の指定がない場合は１ページ目を表示する
 			page = 1;
 		}
 		
-		List<Employee> employeeList = employeeService.showList();
-		// ページング機能追加のためコメントアウト
-		// model.addAttribute("employeeList", employeeList);
-		
-		//表示させたいページ数、ページサイズ、従業員リストを渡し１ページに表示させる従業員リストを絞り込み
-		Page<Employee> employeePage = employeeService.showListPaging(page, VIEW_SIZE, employeeList);
+		response.setHeader(HttpHeaders.CACHE_CONTROL, PAGE_CACHE_CONTROL);
+		String etag = "\"list-" + employeeService.getChangeStamp() + "-" + page + "-" + lastHireDate + "-" + lastId
+				+ "-" + viewerTag(request) + "\"";
+		if(new ServletWebRequest(request, response).checkNotModified(etag)) {
+			return null;
+		}
+		return renderList(model, page, lastHireDate, lastId, request, response);
+	}
+	
+	/**
+	 * 従業員一覧画面を作ります.
+	 */
+	private String renderList(Model model, int page, Long lastHireDate, Integer lastId, HttpServletRequest request,
+			HttpServletResponse response) {
+		//表示させたいページ数、ページサイズ、直前のページの最後の従業員を渡し１ページ分の従業員リストだけを取得する
+		Date lastHireDateValue = lastHireDate == null ? null : new Date(lastHireDate);
+		Page<EmployeeSummary> employeePage = employeeService.showListPaging(page, VIEW_SIZE, lastHireDateValue, lastId);
 		model.addAttribute("employeePage", employeePage);
+		// 表の行は描画済みのHTMLを使う
+		model.addAttribute("employeeRows", employeeRowRenderer.render(employeePage.getContent(), request, response));
 		
-		// ページングのリンクに使うページ数をスコープに格納 (例)28件あり1ページにつき10件表示させる場合→1,2,3がpageNumbersに入る
-		List<Integer> pageNumbers = calcPageNumbers(model, employeePage);
-		model.addAttribute("pageNumbers",pageNumbers);
+		// ページングのリンクに使うページ数をスコープに格納 (例)全50ページで12ページ目を表示する場合→1 … 10 11 12 13 14 … 50
+		model.addAttribute("pagination", Pagination.of(employeePage, PAGE_LINK_RADIUS));
+		
+		// 「次へ」リンク用に表示中のページの最後の従業員をスコープに格納
+		if(employeePage.hasNext() && employeePage.hasContent()) {
+			List<EmployeeSummary> content = employeePage.getContent();
+			model.addAttribute("lastEmployee", content.get(content.size() - 1));
+		}
 		
 		// オートコンプリート用にJavaScriptの配列の中身を文字列で作ってスコープへ格納
 		
 		return "employee/list";
 	}
 	
-	/**
-	 * ページングのリンクに使うページ数をスコープに格納 (例)28件あり1ページにつき10件表示させる場合→1,2,3がpageNumbersに入る
-	 * 
-	 * @param model        モデル
-	 * @param employeePage ページング情報
-	 */
-	private List<Integer> calcPageNumbers(Model model, Page<Employee> employeePage){
-		int totalPages = employeePage.getTotalPages();
-		List<Integer> pageNumbers = null;
-		if(totalPages > 0) {
-			pageNumbers = new ArrayList<Integer>();
-			for(int i = 1; i < totalPages; i++) {
-				pageNumbers.add(i);
-			}
-		}
-		return pageNumbers;
-	}
-
-	
 	/////////////////////////////////////////////////////
 	// ユースケース：従業員詳細を表示する
 	/////////////////////////////////////////////////////
 	/**
 	 * 従業員詳細画面を出力します.
 	 * 
+	 * 従業員が更新されていなければ(バージョンが同じなら)、画面を作らずに304を返します.
+	 * 
 	 * @param id リクエストパラメータで送られてくる従業員ID
 	 * @param model モデル
-	 * @return 従業員詳細画面
+	 * @param request リクエスト
+	 * @param response レスポンス
+	 * @return 従業員詳細画面 変更がない場合はnull(304)
 	 */
 	@RequestMapping("/showDetail")
-	public String showDetail(String id, Model model) {
+	public String showDetail(String id, Model model, HttpServletRequest request, HttpServletResponse response) {
 		Employee employee = employeeService.showDetail(Integer.parseInt(id));
+		
+		response.setHeader(HttpHeaders.CACHE_CONTROL, PAGE_CACHE_CONTROL);
+		String etag = "\"detail-" + employee.getId() + "-" + employee.getVersion() + "-" + viewerTag(request) + "\"";
+		if(new ServletWebRequest(request, response).checkNotModified(etag)) {
+			return null;
+		}
 		model.addAttribute("employee", employee);
 		return "employee/detail";
 	}
@@ -157,7 +241,8 @@ public class EmployeeController {
 	public String update(@Validated UpdateEmployeeForm form, BindingResult result, Model model) {
 		
 		if(result.hasErrors()) {
-			return showDetail(form.getId(), model);
+			model.addAttribute("employee", employeeService.showDetail(form.getIntId()));
+			return "employee/detail";
 		}
 		Employee employee = new Employee();
 		employee.setId(form.getIntId());
@@ -167,23 +252,151 @@ public class EmployeeController {
 	}
 	
 	/**
+	 * 従業員を名前で曖昧検索します.
+	 * 
+	 * 該当するすべての従業員を検索文字列に近い順に表示します. 検索結果は少しずつレスポンスに書き込むため、
+	 * 該当する従業員が多くてもすぐに表示が始まり、メモリ使用量も一定です.
+	 * 検索文字列が空の場合は従業員一覧(1ページ目)を表示します.
+	 * 
 	 * @param form　検索用フォーム
-	 * @param model
-	 * @return　従業員一覧画面
+	 * @param model モデル
+	 * @param request リクエスト
+	 * @param response レスポンス
+	 * @return　従業員一覧画面 検索結果を書き込んだ場合はnull
+	 * @throws IOException 書き込みに失敗した場合
 	 */
 	@RequestMapping("/search")
-	public String findByName(SearchByNameForm form, Model model) {
-		//検索するメゾット
-		List<Employee> employeeList = employeeService.findByName(form.getName());
-		
-		//検索した結果がなければshowListを呼び上書き
-		if(employeeList == null) {
-			employeeList = employeeService.showList();
-			model.addAttribute("notEmployee", "１件もありませんでした");
+	public String findByName(SearchByNameForm form, Model model, HttpServletRequest request,
+			HttpServletResponse response) throws IOException {
+		if(form.getName() == null || form.getName().isEmpty()) {
+			return renderList(model, 1, null, null, request, response);
+		}
+		
+		employeeListStreamer.streamSearchResult(form.getName(), model.asMap(), request, response);
+		return null;
+	}
+	
+	/////////////////////////////////////////////////////
+	// ユースケース：従業員名をオートコンプリートする
+	/////////////////////////////////////////////////////
+	/**
+	 * 入力途中の文字列で始まる従業員名をJSONで返します.
+	 * 
+	 * @param q 入力途中の従業員名
+	 * @param limit 返す最大件数(最大{@value #AUTOCOMPLETE_MAX_LIMIT}件)
+	 * @return 従業員名一覧
+	 */
+	@RequestMapping("/autocomplete")
+	@ResponseBody
+	public List<String> autocomplete(String q, @RequestParam(defaultValue = "10") int limit) {
+		if(q == null || q.isEmpty()) {
+			return Collections.emptyList();
+		}
+		return employeeService.findNamesByPrefix(q, Math.min(Math.max(limit, 1), AUTOCOMPLETE_MAX_LIMIT));
+	}
+	
+	/////////////////////////////////////////////////////
+	// ユースケース：従業員画像を表示する
+	/////////////////////////////////////////////////////
+	/**
+	 * 従業員画像を出力します.
+	 * 
+	 * 画像はハッシュ値で保存されており内容が変わることはないため、ブラウザやプロキシで長期間キャッシュさせます.
+	 * variantを指定した場合は縮小画像(一覧はthumbnail、詳細はmedium)を出力し、ブラウザがWebPを表示できる場合はWebPを優先します.
+	 * 縮小画像がまだ作成されていない場合は元の画像を短い期間だけキャッシュさせて出力します.
+	 * 
+	 * @param hash 画像のハッシュ値
+	 * @param variant 縮小画像の種類(thumbnail, medium) 指定しない場合は元の画像
+	 * @param request リクエスト
+	 * @param response レスポンス
+	 * @throws IOException 画像の送信に失敗した場合
+	 */
+	@RequestMapping("/image/{hash}")
+	public void showImage(@PathVariable String hash, @RequestParam(required = false) String variant,
+			HttpServletRequest request, HttpServletResponse response) throws IOException {
+		Path file = employeeService.findImage(hash);
+		if(file == null) {
+			response.sendError(HttpServletResponse.SC_NOT_FOUND);
+			return;
+		}
+		
+		String cacheControl = IMAGE_CACHE_CONTROL;
+		if(variant != null) {
+			ImageVariant imageVariant = ImageVariant.of(variant);
+			if(imageVariant == null) {
+				response.sendError(HttpServletResponse.SC_NOT_FOUND);
+				return;
+			}
+			String accept = request.getHeader(HttpHeaders.ACCEPT);
+			boolean acceptsWebp = accept != null && accept.contains("image/webp");
+			ImageVariantService.VariantFile variantFile = imageVariantService.findVariant(hash, imageVariant, acceptsWebp);
+			response.setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT);
+			if(variantFile != null) {
+				response.setHeader(HttpHeaders.CACHE_CONTROL, IMAGE_CACHE_CONTROL);
+				if(new ServletWebRequest(request, response).checkNotModified("\"" + hash + "-" + variant + "-" + variantFile.getFormat() + "\"")) {
+					return;
+				}
+				FileResponseSender.send(variantFile.getFile(), variantFile.getContentType(), request, response);
+				return;
+			}
+			// 作成後は縮小画像に切り替わるよう、元の画像は長期間キャッシュさせない
+			cacheControl = VARIANT_PENDING_CACHE_CONTROL;
+		}
+		
+		response.setHeader(HttpHeaders.CACHE_CONTROL, cacheControl);
+		if(new ServletWebRequest(request, response).checkNotModified("\"" + hash + "\"")) {
+			// ブラウザのキャッシュと同じ画像なので304を返す
+			return;
+		}
+		
+		ImageType imageType = employeeService.getImageType(file);
+		String contentType = imageType == null ? MediaType.APPLICATION_OCTET_STREAM_VALUE : imageType.getContentType();
+		FileResponseSender.send(file, contentType, request, response);
+	}
+	
+	/////////////////////////////////////////////////////
+	// ユースケース：従業員を一括登録する
+	/////////////////////////////////////////////////////
+	/**
+	 * CSVから従業員情報を一括登録します.
+	 * 
+	 * CSVの1行目は項目名(name,image,gender,hire_date,mail_address,zip_code,address,telephone,salary,characteristics,dependents_count)です.
+	 * 
+	 * @param file CSVファイル
+	 * @return 登録結果(登録件数、エラー行、1秒あたりの登録件数、処理時間)
+	 * @throws IOException CSVの読み込みに失敗した場合
+	 */
+	@RequestMapping(value = "/import", method = RequestMethod.POST)
+	@ResponseBody
+	public ImportResult importEmployees(@RequestParam("file") MultipartFile file) throws IOException {
+		recordUploadSize("csv", file.getSize());
+		try (InputStream in = file.getInputStream()) {
+			return employeeImportService.importCsv(in);
 		}
+	}
+	
+	/////////////////////////////////////////////////////
+	// ユースケース：従業員一覧をCSVで出力する
+	/////////////////////////////////////////////////////
+	/**
+	 * 従業員一覧をCSVで出力します.
+	 * 
+	 * 名前検索と同じ条件で絞り込めます. 従業員情報は1件ずつレスポンスに書き込むため、件数に関わらずすぐにダウンロードが始まります.
+	 * 
+	 * @param form 検索用フォーム
+	 * @param response レスポンス
+	 * @throws IOException 書き込みに失敗した場合
+	 */
+	@RequestMapping("/export.csv")
+	public void exportCsv(SearchByNameForm form, HttpServletResponse response) throws IOException {
+		response.setContentType("text/csv; charset=UTF-8");
+		response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"employees.csv\"");
 		
-		model.addAttribute("employeeList",employeeList);
-		return "/employee/list";
+		Writer writer = new BufferedWriter(new OutputStreamWriter(response.getOutputStream(), StandardCharsets.UTF_8));
+		// Excelで文字化けしないようBOMを付ける
+		writer.write('\uFEFF');
+		employeeService.exportCsv(form.getName(), writer);
+		writer.flush();
 	}
 	
 	@RequestMapping("insert")
@@ -200,21 +413,23 @@ public class EmployeeController {
 		
 		//模範解答
 		MultipartFile multiFile = form.getImage();
-		String fileExtension = null;
+		recordUploadSize("image", multiFile.getSize());
+		if(multiFile.getSize() > maxImageBytes) {
+			// Content-Lengthのないリクエストはフィルターで拒否できないため、保存する前にここで判定する
+			result.rejectValue("image", "", "画像のサイズは" + (maxImageBytes / 1024) + "KB以下にしてください");
+		}
+		if(result.hasErrors()) {
+			return insert();
+		}
 		
-		//画像ファイル形式チェック
+		//画像ファイル形式・サイズチェック(拡張子ではなくファイルの先頭のバイト列で判定し、保存しながら行う)
 		try {
-			fileExtension = getExtension(multiFile.getOriginalFilename());
-			
-			if(!"jpg".equals(fileExtension) && !"png".equals(fileExtension)) {
-				result.rejectValue("image","", "拡張子は.jpgか.pngのみに対応しています");
-			}
-		} catch (Exception e) {
-			result.rejectValue("image", "", "拡張子は.jpgか.pngのみに対応しています");
+			employeeService.insertEmployee(form);
+		} catch (InvalidImageException e) {
+			result.rejectValue("image", "", e.getMessage());
+			return insert();
 		}
 		
-		employeeService.insertEmployee(form, fileExtension);
-		
 
 		//自分が記載したコード
 //		String fileName = multiFile.getOriginalFilename();
@@ -241,14 +456,26 @@ public class EmployeeController {
 		return "redirect:/employee/showList";
 	}
 	
-	private String getExtension(String originalFileName) throws Exception {
-		if(originalFileName == null) {
-			throw new FileNotFoundException();
-		}
-		int point = originalFileName.lastIndexOf(".");
-		if(point == -1) {
-			throw new FileNotFoundException();
-		}
-		return originalFileName.substring(point + 1);
+	/**
+	 * 画面に表示するログイン中の管理者を表す文字列を返します(ETagに含めるため).
+	 * 
+	 * @param request リクエスト
+	 * @return 管理者名のハッシュ値 ログインしていない場合は"-"
+	 */
+	private static String viewerTag(HttpServletRequest request) {
+		HttpSession session = request.getSession(false);
+		Object name = session == null ? null : session.getAttribute("name");
+		return name == null ? "-" : Integer.toHexString(name.hashCode());
+	}
+	
+	/**
+	 * アップロードされたファイルのサイズを記録します.
+	 * 
+	 * @param type ファイルの種類(image, csv)
+	 * @param size サイズ(バイト)
+	 */
+	private void recordUploadSize(String type, long size) {
+		DistributionSummary.builder(UPLOAD_SIZE_METRIC).baseUnit("bytes").tag("type", type).register(meterRegistry)
+				.record(size);
 	}
 }
@@ -0,0 +1,97 @@
+package jp.co.sample.emp_management.controller;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.UncheckedIOException;
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.thymeleaf.ITemplateEngine;
+import org.thymeleaf.context.WebContext;
+
+import jp.co.sample.emp_management.service.EmployeeService;
+
+/**
+ * 従業員の検索結果を、従業員一覧画面(employee/list.html)の形で少しずつレスポンスに書き込むクラス.
+ *
+ * 画面の表より前の部分をすぐに送信し、検索結果はDBのカーソルから1件ずつ読み込んで行を描画しながら書き込みます.
+ * 検索結果をリストにまとめないため、該当する従業員が何件あってもメモリ使用量は一定で、ブラウザには最初の部分がすぐに届きます.
+ * 書き込みの間はDBのコネクションを使い続けるため、受信の遅いクライアントが多い場合はコネクションプールの使用状況に注意してください.
+ *
+ * @author naramasato
+ *
+ */
+@Component
+public class EmployeeListStreamer {
+
+	private static final String LIST_TEMPLATE = "employee/list";
+
+	/** 画面を表の行の前後に分けるため、行の位置に埋め込む文字列 */
+	private static final String ROWS_MARKER = "<!--EMPLOYEE_ROWS-->";
+
+	/** この行数ごとにレスポンスをフラッシュする */
+	private static final int FLUSH_ROWS = 100;
+
+	@Autowired
+	private ITemplateEngine templateEngine;
+
+	@Autowired
+	private EmployeeService employeeService;
+
+	@Autowired
+	private EmployeeRowRenderer employeeRowRenderer;
+
+	/**
+	 * 名前で曖昧検索した結果を、検索文字列に近い順に書き込みます.
+	 *
+	 * @param name     検索する名前の一部
+	 * @param model    画面に渡す値
+	 * @param request  リクエスト
+	 * @param response レスポンス
+	 * @throws IOException 書き込みに失敗した場合
+	 */
+	public void streamSearchResult(String name, Map<String, Object> model, HttpServletRequest request,
+			HttpServletResponse response) throws IOException {
+		Map<String, Object> variables = new HashMap<>(model);
+		variables.put("employeeRows", ROWS_MARKER);
+		String page = templateEngine.process(LIST_TEMPLATE,
+				new WebContext(request, response, request.getServletContext(), request.getLocale(), variables));
+		int marker = page.indexOf(ROWS_MARKER);
+		if (marker < 0) {
+			throw new IllegalStateException(LIST_TEMPLATE + "に従業員一覧の行(employeeRows)を出力する場所がありません");
+		}
+
+		response.setContentType(MediaType.TEXT_HTML_VALUE + ";charset=UTF-8");
+		PrintWriter writer = response.getWriter();
+		// 表より前の部分を先に送る
+		writer.write(page, 0, marker);
+		writer.flush();
+
+		int[] rows = { 0 };
+		try {
+			employeeService.streamByName(name, employee -> {
+				writer.write(employeeRowRenderer.renderRow(employee, request, response));
+				if (++rows[0] % FLUSH_ROWS == 0) {
+					writer.flush();
+					if (writer.checkError()) {
+						// クライアントが切断した場合は読み込みをやめる
+						throw new UncheckedIOException(new IOException("クライアントに書き込めませんでした"));
+					}
+				}
+			});
+		} catch (UncheckedIOException e) {
+			throw e.getCause();
+		}
+		if (rows[0] == 0) {
+			writer.write(employeeRowRenderer.renderEmptyRow(request, response));
+		}
+		writer.write(page, marker + ROWS_MARKER.length(), page.length() - marker - ROWS_MARKER.length());
+		writer.flush();
+	}
+}
@@ -0,0 +1,170 @@
+package jp.co.sample.emp_management.controller;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.PostConstruct;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.thymeleaf.ITemplateEngine;
+import org.thymeleaf.context.WebContext;
+
+import jp.co.sample.emp_management.cache.BoundedLruCache;
+import jp.co.sample.emp_management.cache.CacheStats;
+import jp.co.sample.emp_management.domain.EmployeeSummary;
+
+/**
+ * 従業員一覧の表の行(employee/row.html)を描画し、描画結果のHTMLをキャッシュするクラス.
+ *
+ * 行は従業員IDとバージョンをキーに、1ページ分の行はページに含まれる従業員のIDとバージョンの並びをキーにキャッシュします.
+ * 従業員が更新されるとバージョンが変わるため、その従業員の行(とその行を含むページ)だけが描画し直されます.
+ * 古いバージョンの行は参照されなくなり、いずれ追い出されます.
+ * 描画結果はどの管理者にも共有するため、行にはログイン中の管理者やセッションに依存する内容を含めないでください.
+ *
+ * @author naramasato
+ *
+ */
+@Component
+public class EmployeeRowRenderer {
+
+	private static final String ROW_TEMPLATE = "employee/row";
+
+	private static final Set<String> ROW_FRAGMENT = Collections.singleton("row");
+
+	private static final Set<String> EMPTY_FRAGMENT = Collections.singleton("empty");
+
+	@Autowired
+	private ITemplateEngine templateEngine;
+
+	/** 描画結果をキャッシュする場合はtrue */
+	@Value("${employee.render-cache.enabled:true}")
+	private boolean enabled;
+
+	/** キャッシュするHTMLの推定サイズの合計の上限(バイト) */
+	@Value("${employee.render-cache.max-bytes:8388608}")
+	private long maxBytes;
+
+	private BoundedLruCache<String, String> rows;
+
+	private BoundedLruCache<String, String> pages;
+
+	@PostConstruct
+	public void init() {
+		// ページのHTMLは行のHTMLの重複なので、上限の1/4までにする
+		rows = new BoundedLruCache<>(maxBytes - maxBytes / 4, EmployeeRowRenderer::weigh, 0);
+		pages = new BoundedLruCache<>(maxBytes / 4, EmployeeRowRenderer::weigh, 0);
+	}
+
+	/**
+	 * 従業員一覧の行をまとめて描画します.
+	 *
+	 * @param employees 従業員一覧
+	 * @param request   リクエスト
+	 * @param response  レスポンス
+	 * @return 行のHTML キャッシュしない設定の場合はnull(テンプレートで1行ずつ描画する)
+	 */
+	public String render(List<EmployeeSummary> employees, HttpServletRequest request, HttpServletResponse response) {
+		if (!enabled) {
+			return null;
+		}
+		StringBuilder pageKey = new StringBuilder(employees.size() * 12);
+		for (EmployeeSummary employee : employees) {
+			pageKey.append(employee.getId()).append(':').append(employee.getVersion()).append(',');
+		}
+		String html = pages.get(pageKey.toString());
+		if (html != null) {
+			return html;
+		}
+		StringBuilder builder = new StringBuilder(employees.size() * 512);
+		for (EmployeeSummary employee : employees) {
+			builder.append(renderRow(employee, request, response));
+		}
+		html = builder.toString();
+		pages.put(pageKey.toString(), html);
+		return html;
+	}
+
+	/**
+	 * 従業員一覧の1行を描画します. キャッシュしない設定の場合も含め、常に描画結果を返します.
+	 *
+	 * @param employee 従業員
+	 * @param request  リクエスト
+	 * @param response レスポンス
+	 * @return 行のHTML
+	 */
+	public String renderRow(EmployeeSummary employee, HttpServletRequest request, HttpServletResponse response) {
+		if (!enabled) {
+			return process(ROW_FRAGMENT, Map.of("employee", employee), request, response);
+		}
+		String rowKey = employee.getId() + ":" + employee.getVersion();
+		String row = rows.get(rowKey);
+		if (row == null) {
+			row = process(ROW_FRAGMENT, Map.of("employee", employee), request, response);
+			rows.put(rowKey, row);
+		}
+		return row;
+	}
+
+	/**
+	 * 従業員が1件もない場合の行を描画します.
+	 *
+	 * @param request  リクエスト
+	 * @param response レスポンス
+	 * @return 行のHTML
+	 */
+	public String renderEmptyRow(HttpServletRequest request, HttpServletResponse response) {
+		return process(EMPTY_FRAGMENT, Map.of(), request, response);
+	}
+
+	/**
+	 * @return 行のキャッシュの統計情報
+	 */
+	public CacheStats getRowCacheStats() {
+		return rows.stats();
+	}
+
+	/**
+	 * @return ページのキャッシュの統計情報
+	 */
+	public CacheStats getPageCacheStats() {
+		return pages.stats();
+	}
+
+	private String process(Set<String> fragment, Map<String, Object> variables, HttpServletRequest request,
+			HttpServletResponse response) {
+		// 共有するHTMLにセッションIDが埋め込まれないよう、URLにセッションIDを付けないレスポンスで描画する
+		WebContext context = new WebContext(request, new NoSessionIdResponse(response), request.getServletContext(),
+				request.getLocale(), variables);
+		return templateEngine.process(ROW_TEMPLATE, fragment, context);
+	}
+
+	private static long weigh(String html) {
+		return 40 + 2L * html.length();
+	}
+
+	/**
+	 * URLにセッションIDを付けないレスポンス.
+	 */
+	private static final class NoSessionIdResponse extends HttpServletResponseWrapper {
+		NoSessionIdResponse(HttpServletResponse response) {
+			super(response);
+		}
+
+		@Override
+		public String encodeURL(String url) {
+			return url;
+		}
+
+		@Override
+		public String encodeRedirectURL(String url) {
+			return url;
+		}
+	}
+}
@@ -0,0 +1,124 @@
+package jp.co.sample.emp_management.controller;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseBody;
+
+import jp.co.sample.emp_management.cache.CacheStats;
+import jp.co.sample.emp_management.metrics.ConnectionPoolMonitor;
+import jp.co.sample.emp_management.metrics.PoolStats;
+import jp.co.sample.emp_management.metrics.RenderTimingInterceptor;
+import jp.co.sample.emp_management.metrics.RenderTimingStats;
+import jp.co.sample.emp_management.metrics.SqlStatistics;
+import jp.co.sample.emp_management.metrics.StatementStats;
+import jp.co.sample.emp_management.service.AdministratorService;
+import jp.co.sample.emp_management.service.EmployeeService;
+
+/**
+ * アプリケーションの動作状況をJSONで出力するコントローラー.
+ * 
+ * @author naramasato
+ *
+ */
+@Controller
+@RequestMapping("/monitoring")
+public class MonitoringController {
+
+	// SQLの実行統計で返す件数の上限
+	private static final int SQL_MAX_LIMIT = 100;
+
+	@Autowired
+	private EmployeeService employeeService;
+
+	@Autowired
+	private AdministratorService administratorService;
+
+	@Autowired
+	private SqlStatistics sqlStatistics;
+
+	@Autowired
+	private ConnectionPoolMonitor connectionPoolMonitor;
+
+	@Autowired
+	private RenderTimingInterceptor renderTimingInterceptor;
+
+	@Autowired
+	private EmployeeRowRenderer employeeRowRenderer;
+
+	/**
+	 * キャッシュの統計情報(ヒット数、ミス数、追い出した件数など)を出力します.
+	 * 
+	 * @return キャッシュの名前ごとの統計情報
+	 */
+	@RequestMapping("/cache")
+	@ResponseBody
+	public Map<String, CacheStats> cache() {
+		Map<String, CacheStats> stats = new LinkedHashMap<>();
+		stats.put("employee", employeeService.getCacheStats());
+		stats.put("credential", administratorService.getCredentialCacheStats());
+		stats.put("employee-row", employeeRowRenderer.getRowCacheStats());
+		stats.put("employee-rows-page", employeeRowRenderer.getPageCacheStats());
+		return stats;
+	}
+
+	/**
+	 * アプリケーション側で計測したSQLの実行統計を、合計実行時間の長い順に出力します.
+	 * 
+	 * @param limit 出力する件数
+	 * @return SQLごとの実行回数、合計/平均/最大実行時間、行数
+	 */
+	@RequestMapping("/sql")
+	@ResponseBody
+	public List<StatementStats> sql(@RequestParam(defaultValue = "20") int limit) {
+		return sqlStatistics.top(Math.max(1, Math.min(limit, SQL_MAX_LIMIT)));
+	}
+
+	/**
+	 * SQLの実行統計を破棄します.
+	 */
+	@RequestMapping(value = "/sql/reset", method = RequestMethod.POST)
+	@ResponseBody
+	public void resetSql() {
+		sqlStatistics.reset();
+	}
+
+	/**
+	 * コネクションプールの状態(使用中・空き・待っているスレッドの数など)を出力します.
+	 * 
+	 * @return プールの状態 プールがまだ開始されていない場合はnull
+	 */
+	@RequestMapping("/pool")
+	@ResponseBody
+	public PoolStats pool() {
+		return connectionPoolMonitor.getStats();
+	}
+
+	/**
+	 * URIのパターンごとに、コントローラーの処理時間(うちSQLの実行時間)と画面の描画時間を出力します.
+	 * 
+	 * employee.render-timing.enabled=trueの場合だけ計測します.
+	 * 
+	 * @return URIのパターンごとの集計(描画時間の合計の長い順)
+	 */
+	@RequestMapping("/render")
+	@ResponseBody
+	public List<RenderTimingStats> render() {
+		return renderTimingInterceptor.summary();
+	}
+
+	/**
+	 * 描画時間の集計を破棄します.
+	 */
+	@RequestMapping(value = "/render/reset", method = RequestMethod.POST)
+	@ResponseBody
+	public void resetRender() {
+		renderTimingInterceptor.reset();
+	}
+}
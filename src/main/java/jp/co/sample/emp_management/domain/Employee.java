@@ -33,6 +33,8 @@ public class Employee {
 	private String characteristics;
 	/** 扶養人数 */
 	private Integer dependentsCount;
+	/** バージョン(更新のたびに加算される) */
+	private Integer version;
 
 	/**
 	 * 引数無しのコンストラクタ.
@@ -253,12 +255,26 @@ public class Employee {
 		this.dependentsCount = dependentsCount;
 	}
 
+	/**
+	 * @return the version
+	 */
+	public Integer getVersion() {
+		return version;
+	}
+
+	/**
+	 * @param version the version to set
+	 */
+	public void setVersion(Integer version) {
+		this.version = version;
+	}
+
 	@Override
 	public String toString() {
 		return "Employee [id=" + id + ", name=" + name + ", image=" + image + ", gender=" + gender + ", hireDate="
 				+ hireDate + ", mailAddress=" + mailAddress + ", zipCode=" + zipCode + ", address=" + address
 				+ ", telephone=" + telephone + ", salary=" + salary + ", characteristics=" + characteristics
-				+ ", dependentsCount=" + dependentsCount + "]";
+				+ ", dependentsCount=" + dependentsCount + ", version=" + version + "]";
 	}
 	
 }
@@ -0,0 +1,143 @@
+package jp.co.sample.emp_management.domain;
+
+import java.util.Date;
+
+/**
+ * 従業員一覧・検索結果の表示に必要な項目だけを持つ従業員情報.
+ * 
+ * 特性などの一覧に表示しない項目は持ちません. 画像は一覧ではサムネイルを表示するためハッシュ値(またはファイル名)のみ持ちます.
+ * すべての項目が必要な場合は{@link Employee}を使用してください.
+ * 
+ * @author naramasato
+ * 
+ */
+public class EmployeeSummary {
+	/** id */
+	private Integer id;
+	/** 従業員名 */
+	private String name;
+	/** 画像 */
+	private String image;
+	/** 入社日 */
+	private Date hireDate;
+	/** 扶養人数 */
+	private Integer dependentsCount;
+	/** バージョン(更新のたびに加算される) */
+	private Integer version;
+
+	/**
+	 * 引数無しのコンストラクタ.
+	 */
+	public EmployeeSummary() {
+	}
+
+	/**
+	 * 初期化用コンストラクタ.
+	 * 
+	 * @param id
+	 *            ID
+	 * @param name
+	 *            従業員名
+	 * @param hireDate
+	 *            入社日
+	 * @param dependentsCount
+	 *            扶養人数
+	 */
+	public EmployeeSummary(Integer id, String name, Date hireDate, Integer dependentsCount) {
+		this.id = id;
+		this.name = name;
+		this.hireDate = hireDate;
+		this.dependentsCount = dependentsCount;
+	}
+
+	/**
+	 * @return the id
+	 */
+	public Integer getId() {
+		return id;
+	}
+
+	/**
+	 * @param id the id to set
+	 */
+	public void setId(Integer id) {
+		this.id = id;
+	}
+
+	/**
+	 * @return the name
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * @param name the name to set
+	 */
+	public void setName(String name) {
+		this.name = name;
+	}
+
+	/**
+	 * @return the image
+	 */
+	public String getImage() {
+		return image;
+	}
+
+	/**
+	 * @param image the image to set
+	 */
+	public void setImage(String image) {
+		this.image = image;
+	}
+
+	/**
+	 * @return the hireDate
+	 */
+	public Date getHireDate() {
+		return hireDate;
+	}
+
+	/**
+	 * @param hireDate the hireDate to set
+	 */
+	public void setHireDate(Date hireDate) {
+		this.hireDate = hireDate;
+	}
+
+	/**
+	 * @return the dependentsCount
+	 */
+	public Integer getDependentsCount() {
+		return dependentsCount;
+	}
+
+	/**
+	 * @param dependentsCount the dependentsCount to set
+	 */
+	public void setDependentsCount(Integer dependentsCount) {
+		this.dependentsCount = dependentsCount;
+	}
+
+	/**
+	 * @return the version
+	 */
+	public Integer getVersion() {
+		return version;
+	}
+
+	/**
+	 * @param version the version to set
+	 */
+	public void setVersion(Integer version) {
+		this.version = version;
+	}
+
+	@Override
+	public String toString() {
+		return "EmployeeSummary [id=" + id + ", name=" + name + ", image=" + image + ", hireDate=" + hireDate + ", dependentsCount="
+				+ dependentsCount + ", version=" + version + "]";
+	}
+
+}
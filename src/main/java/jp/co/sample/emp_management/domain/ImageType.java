@@ -0,0 +1,66 @@
+package jp.co.sample.emp_management.domain;
+
+/**
+ * 従業員画像として扱える画像形式を表す列挙型.
+ * 
+ * ファイル名の拡張子ではなく、ファイル先頭のマジックナンバーで判定します.
+ * 
+ * @author naramasato
+ *
+ */
+public enum ImageType {
+
+	/** JPEG */
+	JPEG("image/jpeg", new byte[] { (byte) 0xFF, (byte) 0xD8, (byte) 0xFF }),
+	/** PNG */
+	PNG("image/png", new byte[] { (byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n' });
+
+	/** 判定に必要な先頭のバイト数 */
+	public static final int HEADER_LENGTH = 8;
+
+	/** Content-Typeヘッダに使用するMIMEタイプ */
+	private final String contentType;
+	/** ファイル先頭のマジックナンバー */
+	private final byte[] magic;
+
+	private ImageType(String contentType, byte[] magic) {
+		this.contentType = contentType;
+		this.magic = magic;
+	}
+
+	/**
+	 * ファイル先頭のバイト列から画像形式を判定します.
+	 * 
+	 * @param header ファイル先頭のバイト列
+	 * @param length headerのうち有効なバイト数
+	 * @return 画像形式 対応していない形式の場合はnullを返します
+	 */
+	public static ImageType detect(byte[] header, int length) {
+		for (ImageType type : values()) {
+			if (type.matches(header, length)) {
+				return type;
+			}
+		}
+		return null;
+	}
+
+	private boolean matches(byte[] header, int length) {
+		if (length < magic.length) {
+			return false;
+		}
+		for (int i = 0; i < magic.length; i++) {
+			if (header[i] != magic[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * @return the contentType
+	 */
+	public String getContentType() {
+		return contentType;
+	}
+
+}
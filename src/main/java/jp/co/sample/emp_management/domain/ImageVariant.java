@@ -0,0 +1,67 @@
+package jp.co.sample.emp_management.domain;
+
+/**
+ * 従業員画像を縮小して作成する画像の種類を表す列挙型.
+ *
+ * 画面ごとに必要な大きさの画像を表示し、アップロードされた元の画像をそのまま送らないようにします.
+ *
+ * @author naramasato
+ *
+ */
+public enum ImageVariant {
+
+	/** 従業員一覧のサムネイル(中央を正方形に切り抜く) */
+	THUMBNAIL("thumbnail", 96, true),
+	/** 従業員詳細の画像(縦横比を保って縮小する) */
+	MEDIUM("medium", 480, false);
+
+	/** URLのvariantパラメータ・ファイル名に使用する名前 */
+	private final String name;
+	/** 幅・高さの上限(ピクセル) */
+	private final int size;
+	/** trueの場合はsize×sizeの正方形に切り抜く */
+	private final boolean crop;
+
+	private ImageVariant(String name, int size, boolean crop) {
+		this.name = name;
+		this.size = size;
+		this.crop = crop;
+	}
+
+	/**
+	 * 名前から画像の種類を取得します.
+	 *
+	 * @param name 名前
+	 * @return 画像の種類 該当するものがない場合はnullを返します
+	 */
+	public static ImageVariant of(String name) {
+		for (ImageVariant variant : values()) {
+			if (variant.name.equals(name)) {
+				return variant;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * @return the name
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * @return the size
+	 */
+	public int getSize() {
+		return size;
+	}
+
+	/**
+	 * @return the crop
+	 */
+	public boolean isCrop() {
+		return crop;
+	}
+
+}
@@ -0,0 +1,115 @@
+package jp.co.sample.emp_management.domain;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 従業員情報一括登録の結果を表すドメイン.
+ * 
+ * @author naramasato
+ * 
+ */
+public class ImportResult {
+	/** 保持するエラー行の上限(これを超えたエラーは件数のみ数える) */
+	public static final int MAX_ERRORS = 1000;
+
+	/** 読み込んだ行数 */
+	private long totalRows;
+	/** 登録した行数 */
+	private long importedRows;
+	/** 登録できなかった行数 */
+	private long errorRows;
+	/** 登録できなかった行(先頭から{@value #MAX_ERRORS}件まで) */
+	private List<ImportRowError> errors = new ArrayList<>();
+	/** 処理時間(ミリ秒) */
+	private long elapsedMillis;
+
+	/**
+	 * 1行読み込んだことを記録します.
+	 */
+	public void countRow() {
+		totalRows++;
+	}
+
+	/**
+	 * 登録した行数を加算します.
+	 * 
+	 * @param rows 登録した行数
+	 */
+	public void addImported(long rows) {
+		importedRows += rows;
+	}
+
+	/**
+	 * 登録できなかった行を記録します.
+	 * 
+	 * @param error 登録できなかった行
+	 */
+	public void addError(ImportRowError error) {
+		errorRows++;
+		if (errors.size() < MAX_ERRORS) {
+			errors.add(error);
+		}
+	}
+
+	/**
+	 * 1秒あたりの登録行数を返します.
+	 * 
+	 * @return 1秒あたりの登録行数
+	 */
+	public double getRowsPerSecond() {
+		if (elapsedMillis == 0) {
+			return importedRows;
+		}
+		return importedRows * 1000.0 / elapsedMillis;
+	}
+
+	/**
+	 * @return the totalRows
+	 */
+	public long getTotalRows() {
+		return totalRows;
+	}
+
+	/**
+	 * @return the importedRows
+	 */
+	public long getImportedRows() {
+		return importedRows;
+	}
+
+	/**
+	 * @return the errorRows
+	 */
+	public long getErrorRows() {
+		return errorRows;
+	}
+
+	/**
+	 * @return the errors
+	 */
+	public List<ImportRowError> getErrors() {
+		return errors;
+	}
+
+	/**
+	 * @return the elapsedMillis
+	 */
+	public long getElapsedMillis() {
+		return elapsedMillis;
+	}
+
+	/**
+	 * @param elapsedMillis the elapsedMillis to set
+	 */
+	public void setElapsedMillis(long elapsedMillis) {
+		this.elapsedMillis = elapsedMillis;
+	}
+
+	@Override
+	public String toString() {
+		return "ImportResult [totalRows=" + totalRows + ", importedRows=" + importedRows + ", errorRows=" + errorRows
+				+ ", elapsedMillis=" + elapsedMillis + "]";
+	}
+
+}
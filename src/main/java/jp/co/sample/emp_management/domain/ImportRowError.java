@@ -0,0 +1,49 @@
+package jp.co.sample.emp_management.domain;
+
+import java.util.List;
+
+/**
+ * 従業員情報一括登録で登録できなかった行を表すドメイン.
+ * 
+ * @author naramasato
+ * 
+ */
+public class ImportRowError {
+	/** CSVの行番号 */
+	private long lineNumber;
+	/** エラーメッセージ */
+	private List<String> messages;
+
+	/**
+	 * 初期化用コンストラクタ.
+	 * 
+	 * @param lineNumber
+	 *            CSVの行番号
+	 * @param messages
+	 *            エラーメッセージ
+	 */
+	public ImportRowError(long lineNumber, List<String> messages) {
+		this.lineNumber = lineNumber;
+		this.messages = messages;
+	}
+
+	/**
+	 * @return the lineNumber
+	 */
+	public long getLineNumber() {
+		return lineNumber;
+	}
+
+	/**
+	 * @return the messages
+	 */
+	public List<String> getMessages() {
+		return messages;
+	}
+
+	@Override
+	public String toString() {
+		return "ImportRowError [lineNumber=" + lineNumber + ", messages=" + messages + "]";
+	}
+
+}
@@ -0,0 +1,249 @@
+package jp.co.sample.emp_management.form;
+
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+
+import javax.validation.constraints.Email;
+import javax.validation.constraints.NotBlank;
+import javax.validation.constraints.Pattern;
+
+/**
+ * 従業員情報一括登録時のCSVの1行分を表すフォーム.
+ *
+ * @author naramasato
+ *
+ */
+public class ImportEmployeeForm {
+	/** 従業員名 */
+	@NotBlank(message = "名前を入力してください")
+	private String name;
+	/** 画像(保存済み画像のハッシュ値) 省略可 */
+	private String image;
+	/** 性別 */
+	@NotBlank(message = "性別を入力してください")
+	private String gender;
+	/** 入社日 */
+	@NotBlank(message = "入社日を入力してください")
+	@Pattern(regexp = "^[0-9]{4}[-/][0-9]{2}[-/][0-9]{2}$", message = "入社日はyyyy-MM-ddの形式で入力してください")
+	private String hireDate;
+	/** メールアドレス */
+	@Email(message = "メールアドレスを正しく入力してください")
+	@NotBlank(message = "メールアドレスを入力してください")
+	private String mailAddress;
+	/** 郵便番号 */
+	@NotBlank(message = "郵便番号を入力してください")
+	@Pattern(regexp = "^[0-9]{3}-[0-9]{4}$", message = "郵便番号はxxx-xxxxの形式で入力してください")
+	private String zipCode;
+	/** 住所 */
+	@NotBlank(message = "住所を入力してください")
+	private String address;
+	/** 電話番号 */
+	@NotBlank(message = "電話番号を入力してください")
+	private String telephone;
+	/** 給料 */
+	@NotBlank(message = "給料を入力してください")
+	@Pattern(regexp = "^[0-9]+$", message = "給料は数値で入力してください")
+	private String salary;
+	/** 特性 */
+	@NotBlank(message = "特性を入力してください")
+	private String characteristics;
+	/** 扶養人数 */
+	@NotBlank(message = "扶養人数を入力してください")
+	@Pattern(regexp = "^[0-9]+$", message = "扶養人数は数値で入力してください")
+	private String dependentsCount;
+
+	/**
+	 * 入社日をDate型として返します.
+	 *
+	 * @return 入社日
+	 */
+	public Date getDateHireDate() {
+		try {
+			return new SimpleDateFormat("yyyy-MM-dd").parse(hireDate.replace('/', '-'));
+		} catch (ParseException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * 給料を数値として返します.
+	 *
+	 * @return 数値の給料
+	 */
+	public Integer getIntSalary() {
+		return Integer.parseInt(salary);
+	}
+
+	/**
+	 * 扶養人数を数値として返します.
+	 *
+	 * @return 数値の扶養人数
+	 */
+	public Integer getIntDependentsCount() {
+		return Integer.parseInt(dependentsCount);
+	}
+
+	/**
+	 * @return the name
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * @param name the name to set
+	 */
+	public void setName(String name) {
+		this.name = name;
+	}
+
+	/**
+	 * @return the image
+	 */
+	public String getImage() {
+		return image;
+	}
+
+	/**
+	 * @param image the image to set
+	 */
+	public void setImage(String image) {
+		this.image = image;
+	}
+
+	/**
+	 * @return the gender
+	 */
+	public String getGender() {
+		return gender;
+	}
+
+	/**
+	 * @param gender the gender to set
+	 */
+	public void setGender(String gender) {
+		this.gender = gender;
+	}
+
+	/**
+	 * @return the hireDate
+	 */
+	public String getHireDate() {
+		return hireDate;
+	}
+
+	/**
+	 * @param hireDate the hireDate to set
+	 */
+	public void setHireDate(String hireDate) {
+		this.hireDate = hireDate;
+	}
+
+	/**
+	 * @return the mailAddress
+	 */
+	public String getMailAddress() {
+		return mailAddress;
+	}
+
+	/**
+	 * @param mailAddress the mailAddress to set
+	 */
+	public void setMailAddress(String mailAddress) {
+		this.mailAddress = mailAddress;
+	}
+
+	/**
+	 * @return the zipCode
+	 */
+	public String getZipCode() {
+		return zipCode;
+	}
+
+	/**
+	 * @param zipCode the zipCode to set
+	 */
+	public void setZipCode(String zipCode) {
+		this.zipCode = zipCode;
+	}
+
+	/**
+	 * @return the address
+	 */
+	public String getAddress() {
+		return address;
+	}
+
+	/**
+	 * @param address the address to set
+	 */
+	public void setAddress(String address) {
+		this.address = address;
+	}
+
+	/**
+	 * @return the telephone
+	 */
+	public String getTelephone() {
+		return telephone;
+	}
+
+	/**
+	 * @param telephone the telephone to set
+	 */
+	public void setTelephone(String telephone) {
+		this.telephone = telephone;
+	}
+
+	/**
+	 * @return the salary
+	 */
+	public String getSalary() {
+		return salary;
+	}
+
+	/**
+	 * @param salary the salary to set
+	 */
+	public void setSalary(String salary) {
+		this.salary = salary;
+	}
+
+	/**
+	 * @return the characteristics
+	 */
+	public String getCharacteristics() {
+		return characteristics;
+	}
+
+	/**
+	 * @param characteristics the characteristics to set
+	 */
+	public void setCharacteristics(String characteristics) {
+		this.characteristics = characteristics;
+	}
+
+	/**
+	 * @return the dependentsCount
+	 */
+	public String getDependentsCount() {
+		return dependentsCount;
+	}
+
+	/**
+	 * @param dependentsCount the dependentsCount to set
+	 */
+	public void setDependentsCount(String dependentsCount) {
+		this.dependentsCount = dependentsCount;
+	}
+
+	@Override
+	public String toString() {
+		return "ImportEmployeeForm [name=" + name + ", image=" + image + ", gender=" + gender + ", hireDate=" + hireDate
+				+ ", mailAddress=" + mailAddress + ", zipCode=" + zipCode + ", address=" + address + ", telephone="
+				+ telephone + ", salary=" + salary + ", characteristics=" + characteristics + ", dependentsCount="
+				+ dependentsCount + "]";
+	}
+
+}
@@ -0,0 +1,70 @@
+package jp.co.sample.emp_management.metrics;
+
+import java.sql.SQLException;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.stereotype.Component;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+
+/**
+ * HikariCPのコネクションプールの状態を取得するクラス.
+ *
+ * /actuator/healthのconnectionPoolにも状態を出力します.
+ * 負荷が一時的に高いだけでロードバランサーから外されないよう、プールが枯渇していてもUPのままexhaustedをtrueにします.
+ * 各値の推移はSpring Boot Actuatorが出力するhikaricp_connections_*のメトリクスで確認してください.
+ *
+ * @author naramasato
+ *
+ */
+@Component("connectionPool")
+public class ConnectionPoolMonitor implements HealthIndicator {
+
+	@Autowired
+	private DataSource dataSource;
+
+	/**
+	 * コネクションプールの現在の状態を返します.
+	 * 
+	 * @return プールの状態 HikariCPを使っていない場合や、プールがまだ開始されていない場合はnull
+	 */
+	public PoolStats getStats() {
+		HikariDataSource hikari = unwrap();
+		if (hikari == null) {
+			return null;
+		}
+		HikariPoolMXBean pool = hikari.getHikariPoolMXBean();
+		if (pool == null) {
+			return null;
+		}
+		return new PoolStats(hikari.getPoolName(), pool.getActiveConnections(), pool.getIdleConnections(),
+				pool.getTotalConnections(), pool.getThreadsAwaitingConnection(), hikari.getMaximumPoolSize(),
+				hikari.getMinimumIdle(), hikari.getConnectionTimeout());
+	}
+
+	@Override
+	public Health health() {
+		PoolStats stats = getStats();
+		if (stats == null) {
+			return Health.unknown().build();
+		}
+		return Health.up().withDetail("active", stats.getActive()).withDetail("idle", stats.getIdle())
+				.withDetail("total", stats.getTotal()).withDetail("waiting", stats.getWaiting())
+				.withDetail("maximumPoolSize", stats.getMaximumPoolSize()).withDetail("exhausted", stats.isExhausted())
+				.build();
+	}
+
+	private HikariDataSource unwrap() {
+		// DataSourceはInstrumentedDataSourceで包まれている
+		try {
+			return dataSource.isWrapperFor(HikariDataSource.class) ? dataSource.unwrap(HikariDataSource.class) : null;
+		} catch (SQLException e) {
+			return null;
+		}
+	}
+}
@@ -0,0 +1,262 @@
+package jp.co.sample.emp_management.metrics;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Date;
+
+import javax.sql.DataSource;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+/**
+ * 実行したSQLと、ResultSetから読み込んだ行数・値の推定サイズを集計するDataSource.
+ *
+ * Connection・Statement・ResultSetをプロキシで包み、SQLの実行時間・行数・バインド変数の数を{@link SqlStatistics}に記録します.
+ * 実行時間はexecuteXxx()の呼び出しにかかった時間で、取得した行数はResultSetを閉じた時点で記録します.
+ * また、リポジトリのメソッドの中({@link QueryContext}がある場合)で読み込んだ行数と値の推定サイズを{@link QueryContext}に加算します.
+ * 値のサイズは文字列は1文字2バイト、バイト配列はその長さ、数値や日時は8バイトとして概算します.
+ *
+ * @author naramasato
+ *
+ */
+public class InstrumentedDataSource extends DelegatingDataSource {
+
+	private final SqlStatistics statistics;
+
+	/**
+	 * @param targetDataSource 実際のDataSource
+	 * @param statistics       SQLの実行統計の記録先
+	 */
+	public InstrumentedDataSource(DataSource targetDataSource, SqlStatistics statistics) {
+		super(targetDataSource);
+		this.statistics = statistics;
+	}
+
+	@Override
+	public Connection getConnection() throws SQLException {
+		return wrapConnection(obtainTargetDataSource().getConnection());
+	}
+
+	@Override
+	public Connection getConnection(String username, String password) throws SQLException {
+		return wrapConnection(obtainTargetDataSource().getConnection(username, password));
+	}
+
+	private Connection wrapConnection(Connection connection) {
+		return (Connection) Proxy.newProxyInstance(InstrumentedDataSource.class.getClassLoader(),
+				new Class<?>[] { Connection.class }, new ConnectionHandler(connection, statistics));
+	}
+
+	/**
+	 * equals, hashCodeはプロキシ自身で判定し、その他のメソッドは実際のオブジェクトに委譲します.
+	 */
+	private abstract static class DelegatingHandler implements InvocationHandler {
+		private final Object target;
+
+		DelegatingHandler(Object target) {
+			this.target = target;
+		}
+
+		@Override
+		public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+			switch (method.getName()) {
+			case "equals":
+				return proxy == args[0];
+			case "hashCode":
+				return System.identityHashCode(proxy);
+			default:
+				return handle(proxy, method, args);
+			}
+		}
+
+		abstract Object handle(Object proxy, Method method, Object[] args) throws Throwable;
+
+		Object delegate(Method method, Object[] args) throws Throwable {
+			try {
+				return method.invoke(target, args);
+			} catch (InvocationTargetException e) {
+				throw e.getTargetException();
+			}
+		}
+	}
+
+	private static final class ConnectionHandler extends DelegatingHandler {
+		private final SqlStatistics statistics;
+
+		ConnectionHandler(Connection connection, SqlStatistics statistics) {
+			super(connection);
+			this.statistics = statistics;
+		}
+
+		@Override
+		Object handle(Object proxy, Method method, Object[] args) throws Throwable {
+			Object result = delegate(method, args);
+			if (result instanceof Statement) {
+				Class<?> type = result instanceof CallableStatement ? CallableStatement.class
+						: result instanceof PreparedStatement ? PreparedStatement.class : Statement.class;
+				// prepareStatement(sql, ...)の場合はここでSQLが決まる
+				String sql = args != null && args.length > 0 && args[0] instanceof String ? (String) args[0] : null;
+				return Proxy.newProxyInstance(InstrumentedDataSource.class.getClassLoader(), new Class<?>[] { type },
+						new StatementHandler((Statement) result, sql, statistics));
+			}
+			return result;
+		}
+	}
+
+	private static final class StatementHandler extends DelegatingHandler {
+		private final String preparedSql;
+		private final SqlStatistics statistics;
+		/** バインド変数の数(setXxxで指定された最大のインデックス) */
+		private int bindCount;
+		/** 行数をまだ記録していないクエリ */
+		private Execution pending;
+
+		StatementHandler(Statement statement, String preparedSql, SqlStatistics statistics) {
+			super(statement);
+			this.preparedSql = preparedSql;
+			this.statistics = statistics;
+		}
+
+		@Override
+		Object handle(Object proxy, Method method, Object[] args) throws Throwable {
+			String name = method.getName();
+			if (name.startsWith("execute")) {
+				return execute(method, args);
+			}
+			if ("close".equals(name)) {
+				finishPending();
+				return delegate(method, args);
+			}
+			Object result = delegate(method, args);
+			if (name.startsWith("set") && args != null && args.length >= 2 && args[0] instanceof Integer) {
+				bindCount = Math.max(bindCount, (Integer) args[0]);
+			} else if (result instanceof ResultSet) {
+				// getResultSet(), getGeneratedKeys()
+				return wrapResultSet((ResultSet) result, null);
+			}
+			return result;
+		}
+
+		private Object execute(Method method, Object[] args) throws Throwable {
+			finishPending();
+			String sql = args != null && args.length > 0 && args[0] instanceof String ? (String) args[0] : preparedSql;
+			long start = System.nanoTime();
+			Object result = delegate(method, args);
+			long elapsed = System.nanoTime() - start;
+			if (result instanceof ResultSet) {
+				pending = new Execution(sql, elapsed, bindCount);
+				return wrapResultSet((ResultSet) result, pending);
+			}
+			statistics.record(sql, elapsed, updatedRows(result), bindCount);
+			return result;
+		}
+
+		private Object wrapResultSet(ResultSet resultSet, Execution execution) {
+			QueryContext context = QueryContext.current();
+			if (context != null) {
+				context.addQuery();
+			}
+			return Proxy.newProxyInstance(InstrumentedDataSource.class.getClassLoader(),
+					new Class<?>[] { ResultSet.class }, new ResultSetHandler(resultSet, context, execution, this));
+		}
+
+		private void finishPending() {
+			if (pending != null) {
+				statistics.record(pending.sql, pending.nanos, pending.rows, pending.bindCount);
+				pending = null;
+			}
+		}
+
+		private static long updatedRows(Object result) {
+			long rows = 0;
+			if (result instanceof Number) {
+				rows = ((Number) result).longValue();
+			} else if (result instanceof int[]) {
+				for (int count : (int[]) result) {
+					rows += Math.max(count, 0);
+				}
+			} else if (result instanceof long[]) {
+				for (long count : (long[]) result) {
+					rows += Math.max(count, 0);
+				}
+			}
+			return Math.max(rows, 0);
+		}
+	}
+
+	/**
+	 * 行数を数えている途中のクエリ.
+	 */
+	private static final class Execution {
+		private final String sql;
+		private final long nanos;
+		private final int bindCount;
+		private long rows;
+
+		private Execution(String sql, long nanos, int bindCount) {
+			this.sql = sql;
+			this.nanos = nanos;
+			this.bindCount = bindCount;
+		}
+	}
+
+	private static final class ResultSetHandler extends DelegatingHandler {
+		private final QueryContext context;
+		private final Execution execution;
+		private final StatementHandler statement;
+
+		ResultSetHandler(ResultSet resultSet, QueryContext context, Execution execution, StatementHandler statement) {
+			super(resultSet);
+			this.context = context;
+			this.execution = execution;
+			this.statement = statement;
+		}
+
+		@Override
+		Object handle(Object proxy, Method method, Object[] args) throws Throwable {
+			Object result = delegate(method, args);
+			String name = method.getName();
+			if ("next".equals(name)) {
+				if (Boolean.TRUE.equals(result)) {
+					if (context != null) {
+						context.addRow();
+					}
+					if (execution != null) {
+						execution.rows++;
+					}
+				}
+			} else if ("close".equals(name)) {
+				if (execution != null && statement.pending == execution) {
+					statement.finishPending();
+				}
+			} else if (context != null && name.startsWith("get") && args != null && args.length >= 1) {
+				context.addBytes(estimateBytes(result));
+			}
+			return result;
+		}
+
+		private static long estimateBytes(Object value) {
+			if (value == null) {
+				return 0;
+			}
+			if (value instanceof String) {
+				return 2L * ((String) value).length();
+			}
+			if (value instanceof byte[]) {
+				return ((byte[]) value).length;
+			}
+			if (value instanceof Number || value instanceof Date || value instanceof Boolean) {
+				return 8;
+			}
+			return 0;
+		}
+	}
+}
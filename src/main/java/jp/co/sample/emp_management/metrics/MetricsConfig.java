@@ -0,0 +1,98 @@
+package jp.co.sample.emp_management.metrics;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.Arrays;
+import java.util.HashSet;
+
+import javax.sql.DataSource;
+
+import org.springframework.aop.Advisor;
+import org.springframework.aop.support.StaticMethodMatcherPointcutAdvisor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Role;
+import org.springframework.stereotype.Repository;
+import org.springframework.stereotype.Service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * メトリクスの計測に関する設定.
+ *
+ * HTTPリクエストの処理時間はSpring Boot Actuatorのhttp.server.requestsで計測されるため、
+ * ここではサービス・リポジトリのメソッドと、DBから読み込んだ行数・サイズを計測する設定を行います.
+ *
+ * @author naramasato
+ *
+ */
+@Configuration(proxyBeanMethods = false)
+public class MetricsConfig {
+
+	/** 計測対象のパッケージ */
+	private static final String BASE_PACKAGE = "jp.co.sample.emp_management.";
+
+	/**
+	 * サービス(@Service)とリポジトリ(@Repository)のpublicメソッドを計測するAdvisor.
+	 *
+	 * トランザクションと同じプロキシに組み込まれるよう、インフラストラクチャのBeanとして登録します.
+	 *
+	 * @param registryProvider メトリクスを登録するMeterRegistry
+	 * @return Advisor
+	 */
+	@Bean
+	@Role(BeanDefinition.ROLE_INFRASTRUCTURE)
+	public static Advisor metricsAdvisor(ObjectProvider<MeterRegistry> registryProvider) {
+		StaticMethodMatcherPointcutAdvisor advisor = new StaticMethodMatcherPointcutAdvisor(
+				new MetricsInterceptor(registryProvider)) {
+			@Override
+			public boolean matches(Method method, Class<?> targetClass) {
+				return targetClass.getName().startsWith(BASE_PACKAGE)
+						&& (targetClass.isAnnotationPresent(Service.class)
+								|| targetClass.isAnnotationPresent(Repository.class))
+						&& method.getDeclaringClass() == targetClass && Modifier.isPublic(method.getModifiers());
+			}
+		};
+		return advisor;
+	}
+
+	/**
+	 * DataSourceを{@link InstrumentedDataSource}で包むBeanPostProcessor.
+	 *
+	 * @param statisticsProvider SQLの実行統計の記録先
+	 * @return BeanPostProcessor
+	 */
+	@Bean
+	public static BeanPostProcessor instrumentedDataSourcePostProcessor(
+			ObjectProvider<SqlStatistics> statisticsProvider) {
+		return new BeanPostProcessor() {
+			@Override
+			public Object postProcessAfterInitialization(Object bean, String beanName) {
+				if (bean instanceof DataSource && !(bean instanceof InstrumentedDataSource)) {
+					return new InstrumentedDataSource((DataSource) bean, statisticsProvider.getObject());
+				}
+				return bean;
+			}
+		};
+	}
+
+	/**
+	 * 動作状況の出力(/monitoring/**)を許可したアドレスからのリクエストだけに制限するフィルター.
+	 *
+	 * @param allowedAddresses リクエストを許可するリモートアドレス
+	 * @return フィルターの登録
+	 */
+	@Bean
+	public FilterRegistrationBean<MonitoringAccessFilter> monitoringAccessFilter(
+			@Value("${employee.monitoring.allowed-addresses:127.0.0.1,0:0:0:0:0:0:0:1}") String[] allowedAddresses) {
+		FilterRegistrationBean<MonitoringAccessFilter> registration = new FilterRegistrationBean<>(
+				new MonitoringAccessFilter(new HashSet<>(Arrays.asList(allowedAddresses))));
+		registration.addUrlPatterns("/monitoring/*");
+		return registration;
+	}
+}
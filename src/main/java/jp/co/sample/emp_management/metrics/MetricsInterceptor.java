@@ -0,0 +1,119 @@
+package jp.co.sample.emp_management.metrics;
+
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Repository;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * サービスとリポジトリのメソッドの処理時間を計測するインターセプター.
+ *
+ * メソッドごとにapp.service / app.repositoryタイマー(class, method, exceptionタグ)に記録します.
+ * リポジトリの場合は、メソッド内で読み込んだ行数と値の推定サイズもapp.repository.rows / app.repository.bytesに記録します.
+ *
+ * @author naramasato
+ *
+ */
+public class MetricsInterceptor implements MethodInterceptor {
+
+	/** サービスのメソッドの処理時間 */
+	public static final String SERVICE_METRIC = "app.service";
+
+	/** リポジトリのメソッドの処理時間 */
+	public static final String REPOSITORY_METRIC = "app.repository";
+
+	/** 例外が発生しなかった場合のexceptionタグの値 */
+	private static final String NO_EXCEPTION = "none";
+
+	/** アプリケーション起動時にMeterRegistryを生成させないよう、最初の呼び出しで取得する */
+	private final ObjectProvider<MeterRegistry> registryProvider;
+
+	private volatile MeterRegistry registry;
+
+	private final Map<Method, MethodMeters> meters = new ConcurrentHashMap<>();
+
+	/**
+	 * @param registryProvider メトリクスを登録するMeterRegistry
+	 */
+	public MetricsInterceptor(ObjectProvider<MeterRegistry> registryProvider) {
+		this.registryProvider = registryProvider;
+	}
+
+	@Override
+	public Object invoke(MethodInvocation invocation) throws Throwable {
+		MethodMeters methodMeters = meters.computeIfAbsent(invocation.getMethod(), this::createMeters);
+		QueryContext context = methodMeters.repository ? QueryContext.begin() : null;
+		long start = System.nanoTime();
+		Throwable failure = null;
+		try {
+			return invocation.proceed();
+		} catch (Throwable e) {
+			failure = e;
+			throw e;
+		} finally {
+			long elapsed = System.nanoTime() - start;
+			if (failure == null) {
+				methodMeters.timer.record(elapsed, TimeUnit.NANOSECONDS);
+			} else {
+				methodMeters.timerBuilder().tag("exception", failure.getClass().getSimpleName()).register(registry)
+						.record(elapsed, TimeUnit.NANOSECONDS);
+			}
+			if (context != null) {
+				context.end();
+				if (context.getQueries() > 0) {
+					methodMeters.rows.record(context.getRows());
+					methodMeters.bytes.record(context.getBytes());
+				}
+			}
+		}
+	}
+
+	private MethodMeters createMeters(Method method) {
+		if (registry == null) {
+			registry = registryProvider.getObject();
+		}
+		return new MethodMeters(method, registry);
+	}
+
+	/**
+	 * 1つのメソッドのメトリクス.
+	 */
+	private static final class MethodMeters {
+		private final boolean repository;
+		private final String className;
+		private final String methodName;
+		private final Timer timer;
+		private final DistributionSummary rows;
+		private final DistributionSummary bytes;
+
+		private MethodMeters(Method method, MeterRegistry registry) {
+			this.repository = method.getDeclaringClass().isAnnotationPresent(Repository.class);
+			this.className = method.getDeclaringClass().getSimpleName();
+			this.methodName = method.getName();
+			this.timer = timerBuilder().tag("exception", NO_EXCEPTION).register(registry);
+			if (repository) {
+				this.rows = DistributionSummary.builder(REPOSITORY_METRIC + ".rows").description("読み込んだ行数")
+						.tag("class", className).tag("method", methodName).register(registry);
+				this.bytes = DistributionSummary.builder(REPOSITORY_METRIC + ".bytes").description("読み込んだ値の推定サイズ")
+						.baseUnit("bytes").tag("class", className).tag("method", methodName).register(registry);
+			} else {
+				this.rows = null;
+				this.bytes = null;
+			}
+		}
+
+		private Timer.Builder timerBuilder() {
+			return Timer.builder(repository ? REPOSITORY_METRIC : SERVICE_METRIC).tag("class", className)
+					.tag("method", methodName);
+		}
+	}
+}
@@ -0,0 +1,36 @@
+package jp.co.sample.emp_management.metrics;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * リクエストごとの計測に使うインターセプターを登録する設定.
+ *
+ * @author naramasato
+ *
+ */
+@Configuration
+public class MetricsWebConfig implements WebMvcConfigurer {
+
+	@Autowired
+	private SqlStatisticsInterceptor sqlStatisticsInterceptor;
+
+	@Autowired
+	private RenderTimingInterceptor renderTimingInterceptor;
+
+	/** コントローラーの処理時間と描画時間を分けて計測する場合はtrue */
+	@Value("${employee.render-timing.enabled:false}")
+	private boolean renderTimingEnabled;
+
+	@Override
+	public void addInterceptors(InterceptorRegistry registry) {
+		if (renderTimingEnabled) {
+			// SQLの集計結果を参照するため、SqlStatisticsInterceptorより後にafterCompletionが呼ばれるよう先に登録する
+			registry.addInterceptor(renderTimingInterceptor).excludePathPatterns("/css/**", "/js/**", "/img/**");
+		}
+		registry.addInterceptor(sqlStatisticsInterceptor).excludePathPatterns("/css/**", "/js/**", "/img/**");
+	}
+}
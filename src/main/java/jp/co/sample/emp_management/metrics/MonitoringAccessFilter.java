@@ -0,0 +1,43 @@
+package jp.co.sample.emp_management.metrics;
+
+import java.io.IOException;
+import java.util.Set;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.springframework.web.filter.OncePerRequestFilter;
+
+/**
+ * 動作状況の出力(/monitoring/**)を、許可したアドレスからのリクエストだけに制限するフィルター.
+ *
+ * SQLの文やコネクションプールの状態を含み、統計情報の破棄もできるため、それ以外のアドレスには404を返して存在も知らせません.
+ * 既定ではアプリケーションと同じサーバー(ループバックアドレス)からのリクエストだけを許可します.
+ * リバースプロキシの後ろで動かす場合、リモートアドレスはプロキシのアドレスになることに注意してください.
+ *
+ * @author naramasato
+ *
+ */
+public class MonitoringAccessFilter extends OncePerRequestFilter {
+
+	private final Set<String> allowedAddresses;
+
+	/**
+	 * @param allowedAddresses リクエストを許可するリモートアドレス
+	 */
+	public MonitoringAccessFilter(Set<String> allowedAddresses) {
+		this.allowedAddresses = allowedAddresses;
+	}
+
+	@Override
+	protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+			throws ServletException, IOException {
+		if (!allowedAddresses.contains(request.getRemoteAddr())) {
+			response.sendError(HttpServletResponse.SC_NOT_FOUND);
+			return;
+		}
+		filterChain.doFilter(request, response);
+	}
+}
@@ -0,0 +1,123 @@
+package jp.co.sample.emp_management.metrics;
+
+/**
+ * コネクションプールの状態.
+ * 
+ * @author naramasato
+ *
+ */
+public class PoolStats {
+	/** プール名 */
+	private final String poolName;
+	/** 使用中のコネクション数 */
+	private final int active;
+	/** 空いているコネクション数 */
+	private final int idle;
+	/** プールにあるコネクションの総数 */
+	private final int total;
+	/** コネクションが空くのを待っているスレッド数 */
+	private final int waiting;
+	/** 最大プールサイズ */
+	private final int maximumPoolSize;
+	/** 最小アイドル数 */
+	private final int minimumIdle;
+	/** コネクション取得のタイムアウト(ミリ秒) */
+	private final long connectionTimeoutMillis;
+
+	/**
+	 * 初期化用コンストラクタ.
+	 * 
+	 * @param poolName                プール名
+	 * @param active                  使用中のコネクション数
+	 * @param idle                    空いているコネクション数
+	 * @param total                   プールにあるコネクションの総数
+	 * @param waiting                 コネクションが空くのを待っているスレッド数
+	 * @param maximumPoolSize         最大プールサイズ
+	 * @param minimumIdle             最小アイドル数
+	 * @param connectionTimeoutMillis コネクション取得のタイムアウト(ミリ秒)
+	 */
+	public PoolStats(String poolName, int active, int idle, int total, int waiting, int maximumPoolSize,
+			int minimumIdle, long connectionTimeoutMillis) {
+		this.poolName = poolName;
+		this.active = active;
+		this.idle = idle;
+		this.total = total;
+		this.waiting = waiting;
+		this.maximumPoolSize = maximumPoolSize;
+		this.minimumIdle = minimumIdle;
+		this.connectionTimeoutMillis = connectionTimeoutMillis;
+	}
+
+	/**
+	 * プールが枯渇しているかを返します.
+	 * 
+	 * @return すべてのコネクションが使用中で、コネクションを待っているスレッドがある場合はtrue
+	 */
+	public boolean isExhausted() {
+		return waiting > 0 && active >= maximumPoolSize;
+	}
+
+	/**
+	 * @return the poolName
+	 */
+	public String getPoolName() {
+		return poolName;
+	}
+
+	/**
+	 * @return the active
+	 */
+	public int getActive() {
+		return active;
+	}
+
+	/**
+	 * @return the idle
+	 */
+	public int getIdle() {
+		return idle;
+	}
+
+	/**
+	 * @return the total
+	 */
+	public int getTotal() {
+		return total;
+	}
+
+	/**
+	 * @return the waiting
+	 */
+	public int getWaiting() {
+		return waiting;
+	}
+
+	/**
+	 * @return the maximumPoolSize
+	 */
+	public int getMaximumPoolSize() {
+		return maximumPoolSize;
+	}
+
+	/**
+	 * @return the minimumIdle
+	 */
+	public int getMinimumIdle() {
+		return minimumIdle;
+	}
+
+	/**
+	 * @return the connectionTimeoutMillis
+	 */
+	public long getConnectionTimeoutMillis() {
+		return connectionTimeoutMillis;
+	}
+
+	@Override
+	public String toString() {
+		return "PoolStats [poolName=" + poolName + ", active=" + active + ", idle=" + idle + ", total=" + total
+				+ ", waiting=" + waiting + ", maximumPoolSize=" + maximumPoolSize + ", minimumIdle=" + minimumIdle
+				+ ", connectionTimeoutMillis=" + connectionTimeoutMillis + "]";
+	}
+
+}
@@ -0,0 +1,86 @@
+package jp.co.sample.emp_management.metrics;
+
+/**
+ * リポジトリのメソッド1回の呼び出しで読み込んだ行数とバイト数を集計するクラス.
+ *
+ * {@link MetricsInterceptor}がリポジトリのメソッドの開始時にスレッドに紐付け、
+ * {@link InstrumentedDataSource}が返したResultSetから読み込むたびに加算します.
+ *
+ * @author naramasato
+ *
+ */
+final class QueryContext {
+
+	private static final ThreadLocal<QueryContext> CURRENT = new ThreadLocal<>();
+
+	/** 呼び出し元のリポジトリのメソッドの集計(リポジトリから別のリポジトリを呼んだ場合) */
+	private final QueryContext previous;
+
+	/** 実行したクエリ(ResultSetを返したもの)の数 */
+	private long queries;
+
+	/** 読み込んだ行数 */
+	private long rows;
+
+	/** 読み込んだ値の推定サイズ(バイト) */
+	private long bytes;
+
+	private QueryContext(QueryContext previous) {
+		this.previous = previous;
+	}
+
+	/**
+	 * 集計を開始し、現在のスレッドに紐付けます.
+	 *
+	 * @return 集計
+	 */
+	static QueryContext begin() {
+		QueryContext context = new QueryContext(CURRENT.get());
+		CURRENT.set(context);
+		return context;
+	}
+
+	/**
+	 * 現在のスレッドの集計を返します.
+	 *
+	 * @return 集計 リポジトリのメソッドの外ではnull
+	 */
+	static QueryContext current() {
+		return CURRENT.get();
+	}
+
+	/**
+	 * 集計を終了し、現在のスレッドから外します.
+	 */
+	void end() {
+		if (previous == null) {
+			CURRENT.remove();
+		} else {
+			CURRENT.set(previous);
+		}
+	}
+
+	void addQuery() {
+		queries++;
+	}
+
+	void addRow() {
+		rows++;
+	}
+
+	void addBytes(long bytes) {
+		this.bytes += bytes;
+	}
+
+	long getQueries() {
+		return queries;
+	}
+
+	long getRows() {
+		return rows;
+	}
+
+	long getBytes() {
+		return bytes;
+	}
+}
@@ -0,0 +1,129 @@
+package jp.co.sample.emp_management.metrics;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+import org.springframework.web.servlet.ModelAndView;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * リクエストごとに、コントローラーの処理時間(データの取得)と画面の描画時間(テンプレートの評価)を分けて計測するインターセプター.
+ *
+ * コントローラーの処理時間はpreHandleからpostHandleまで、描画時間はpostHandleからafterCompletionまでです.
+ * 結果はURIのパターンごとにapp.request.handler.time / app.request.render.timeに記録し、
+ * /monitoring/renderでSQLの実行時間({@link SqlStatisticsInterceptor}の集計)と並べて確認できます.
+ * 計測はemployee.render-timing.enabled=trueの場合だけ行います.
+ *
+ * @author naramasato
+ *
+ */
+@Component
+public class RenderTimingInterceptor implements AsyncHandlerInterceptor {
+
+	private static final String START_ATTRIBUTE = RenderTimingInterceptor.class.getName() + ".START";
+
+	private static final String HANDLED_ATTRIBUTE = RenderTimingInterceptor.class.getName() + ".HANDLED";
+
+	@Autowired
+	private MeterRegistry meterRegistry;
+
+	/** URIのパターンごとの集計 */
+	private final ConcurrentHashMap<String, Accumulator> accumulators = new ConcurrentHashMap<>();
+
+	@Override
+	public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+		request.setAttribute(START_ATTRIBUTE, System.nanoTime());
+		request.removeAttribute(HANDLED_ATTRIBUTE);
+		return true;
+	}
+
+	@Override
+	public void postHandle(HttpServletRequest request, HttpServletResponse response, Object handler,
+			ModelAndView modelAndView) {
+		request.setAttribute(HANDLED_ATTRIBUTE, System.nanoTime());
+	}
+
+	@Override
+	public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler,
+			Exception ex) {
+		long end = System.nanoTime();
+		Object start = request.getAttribute(START_ATTRIBUTE);
+		Object handled = request.getAttribute(HANDLED_ATTRIBUTE);
+		if (!(start instanceof Long) || !(handled instanceof Long)) {
+			// 例外で終わった場合は描画していないので記録しない
+			return;
+		}
+		long handlerNanos = (Long) handled - (Long) start;
+		long renderNanos = end - (Long) handled;
+		Object stats = request.getAttribute(SqlStatisticsInterceptor.STATS_ATTRIBUTE);
+		long sqlNanos = stats instanceof SqlStatistics.RequestStats
+				? ((SqlStatistics.RequestStats) stats).getTotalNanos()
+				: 0;
+
+		Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+		String uri = pattern == null ? "UNKNOWN" : pattern.toString();
+		Timer.builder("app.request.handler.time").description("コントローラーの処理時間(データの取得)").tag("uri", uri)
+				.register(meterRegistry).record(handlerNanos, TimeUnit.NANOSECONDS);
+		Timer.builder("app.request.render.time").description("画面の描画時間(テンプレートの評価)").tag("uri", uri)
+				.register(meterRegistry).record(renderNanos, TimeUnit.NANOSECONDS);
+		accumulators.computeIfAbsent(uri, key -> new Accumulator()).add(handlerNanos, sqlNanos, renderNanos);
+	}
+
+	/**
+	 * 描画時間の合計の長い順に、URIのパターンごとの集計を返します.
+	 *
+	 * @return URIのパターンごとの集計
+	 */
+	public List<RenderTimingStats> summary() {
+		List<RenderTimingStats> list = new ArrayList<>(accumulators.size());
+		accumulators.forEach((uri, accumulator) -> list.add(accumulator.toStats(uri)));
+		list.sort(Comparator.comparingDouble(RenderTimingStats::getRenderTotalMillis).reversed());
+		return list;
+	}
+
+	/**
+	 * 集計をすべて破棄します.
+	 */
+	public void reset() {
+		accumulators.clear();
+	}
+
+	/**
+	 * 1つのURIのパターンの集計.
+	 */
+	private static final class Accumulator {
+		private final LongAdder requests = new LongAdder();
+		private final LongAdder handlerNanos = new LongAdder();
+		private final LongAdder sqlNanos = new LongAdder();
+		private final LongAdder renderNanos = new LongAdder();
+
+		void add(long handler, long sql, long render) {
+			requests.increment();
+			handlerNanos.add(handler);
+			sqlNanos.add(sql);
+			renderNanos.add(render);
+		}
+
+		RenderTimingStats toStats(String uri) {
+			return new RenderTimingStats(uri, requests.sum(), toMillis(handlerNanos.sum()), toMillis(sqlNanos.sum()),
+					toMillis(renderNanos.sum()));
+		}
+
+		private static double toMillis(long nanos) {
+			return nanos / 1_000_000.0;
+		}
+	}
+}
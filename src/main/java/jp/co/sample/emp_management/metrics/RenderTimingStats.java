@@ -0,0 +1,102 @@
+package jp.co.sample.emp_management.metrics;
+
+/**
+ * 1つのURIのパターンの、コントローラーの処理時間と画面の描画時間の集計.
+ *
+ * @author naramasato
+ *
+ */
+public class RenderTimingStats {
+	/** URIのパターン */
+	private final String uri;
+	/** リクエスト数 */
+	private final long requests;
+	/** コントローラーの処理時間の合計(ミリ秒) */
+	private final double handlerTotalMillis;
+	/** コントローラーの処理時間のうちSQLの実行時間の合計(ミリ秒) */
+	private final double sqlTotalMillis;
+	/** 画面の描画時間の合計(ミリ秒) */
+	private final double renderTotalMillis;
+
+	/**
+	 * 初期化用コンストラクタ.
+	 *
+	 * @param uri                URIのパターン
+	 * @param requests           リクエスト数
+	 * @param handlerTotalMillis コントローラーの処理時間の合計(ミリ秒)
+	 * @param sqlTotalMillis     SQLの実行時間の合計(ミリ秒)
+	 * @param renderTotalMillis  画面の描画時間の合計(ミリ秒)
+	 */
+	public RenderTimingStats(String uri, long requests, double handlerTotalMillis, double sqlTotalMillis,
+			double renderTotalMillis) {
+		this.uri = uri;
+		this.requests = requests;
+		this.handlerTotalMillis = handlerTotalMillis;
+		this.sqlTotalMillis = sqlTotalMillis;
+		this.renderTotalMillis = renderTotalMillis;
+	}
+
+	/**
+	 * @return コントローラーの平均処理時間(ミリ秒)
+	 */
+	public double getHandlerMeanMillis() {
+		return requests == 0 ? 0.0 : handlerTotalMillis / requests;
+	}
+
+	/**
+	 * @return SQLの平均実行時間(ミリ秒)
+	 */
+	public double getSqlMeanMillis() {
+		return requests == 0 ? 0.0 : sqlTotalMillis / requests;
+	}
+
+	/**
+	 * @return 画面の平均描画時間(ミリ秒)
+	 */
+	public double getRenderMeanMillis() {
+		return requests == 0 ? 0.0 : renderTotalMillis / requests;
+	}
+
+	/**
+	 * @return 処理時間全体(コントローラー+描画)のうち描画が占める割合(0.0〜1.0)
+	 */
+	public double getRenderRatio() {
+		double total = handlerTotalMillis + renderTotalMillis;
+		return total == 0 ? 0.0 : renderTotalMillis / total;
+	}
+
+	/**
+	 * @return the uri
+	 */
+	public String getUri() {
+		return uri;
+	}
+
+	/**
+	 * @return the requests
+	 */
+	public long getRequests() {
+		return requests;
+	}
+
+	/**
+	 * @return the handlerTotalMillis
+	 */
+	public double getHandlerTotalMillis() {
+		return handlerTotalMillis;
+	}
+
+	/**
+	 * @return the sqlTotalMillis
+	 */
+	public double getSqlTotalMillis() {
+		return sqlTotalMillis;
+	}
+
+	/**
+	 * @return the renderTotalMillis
+	 */
+	public double getRenderTotalMillis() {
+		return renderTotalMillis;
+	}
+}
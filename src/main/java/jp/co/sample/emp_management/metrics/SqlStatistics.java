@@ -0,0 +1,231 @@
+package jp.co.sample.emp_management.metrics;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * アプリケーション側で計測したSQLの実行統計.
+ *
+ * {@link InstrumentedDataSource}が実行したSQLを正規化(リテラルを?に置換、空白をまとめる)し、
+ * SQLごとの実行回数・合計/最大実行時間・行数を集計します(pg_stat_statementsのアプリケーション版).
+ * 実行時間がしきい値を超えたSQLと、1リクエスト内で同じSQLがしきい値以上の回数実行された場合(N+1の疑い)は警告ログを出力します.
+ *
+ * @author naramasato
+ *
+ */
+@Component
+public class SqlStatistics {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(SqlStatistics.class);
+
+	/** 集計するSQLの種類の上限 超えた場合は{@link #OTHER_STATEMENTS}にまとめる */
+	private static final int MAX_STATEMENTS = 1000;
+
+	private static final String OTHER_STATEMENTS = "(その他)";
+
+	private static final Pattern STRING_LITERAL = Pattern.compile("'(?:[^']|'')*'");
+
+	private static final Pattern NUMBER_LITERAL = Pattern.compile("\\b\\d+(?:\\.\\d+)?\\b");
+
+	private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+	/** 処理中のリクエストの集計 */
+	private static final ThreadLocal<RequestStats> CURRENT_REQUEST = new ThreadLocal<>();
+
+	/** 警告ログを出力する実行時間(ミリ秒) */
+	@Value("${employee.sql.slow-threshold-millis:200}")
+	private long slowThresholdMillis;
+
+	/** 1リクエスト内で同じSQLがこの回数実行されたらN+1の疑いとして警告ログを出力する */
+	@Value("${employee.sql.n-plus-one-threshold:10}")
+	private int nPlusOneThreshold;
+
+	/** 実行されたSQLと正規化したSQL */
+	private final Map<String, String> normalizedSqls = new ConcurrentHashMap<>();
+
+	/** 正規化したSQLごとの集計 */
+	private final Map<String, Accumulator> statements = new ConcurrentHashMap<>();
+
+	/**
+	 * SQLの実行を記録します.
+	 *
+	 * @param sql       実行したSQL
+	 * @param nanos     実行時間(ナノ秒)
+	 * @param rows      取得した行数または更新した行数
+	 * @param bindCount バインド変数の数
+	 */
+	public void record(String sql, long nanos, long rows, int bindCount) {
+		String normalized = normalize(sql);
+		Accumulator accumulator = statements.get(normalized);
+		if (accumulator == null) {
+			String key = statements.size() < MAX_STATEMENTS ? normalized : OTHER_STATEMENTS;
+			accumulator = statements.computeIfAbsent(key, k -> new Accumulator());
+		}
+		accumulator.add(nanos, rows);
+
+		RequestStats request = CURRENT_REQUEST.get();
+		if (request != null) {
+			int count = request.add(normalized, nanos, rows);
+			if (count == nPlusOneThreshold) {
+				LOGGER.warn("N+1の可能性があります: 1リクエスト内で同じSQLが{}回実行されました (リクエスト={}, SQL={})", count,
+						request.getDescription(), normalized);
+			}
+		}
+
+		if (nanos >= TimeUnit.MILLISECONDS.toNanos(slowThresholdMillis)) {
+			LOGGER.warn("遅いSQLを検出しました: {}ms (行数={}, バインド変数={}個, リクエスト={}, SQL={})",
+					TimeUnit.NANOSECONDS.toMillis(nanos), rows, bindCount,
+					request == null ? "-" : request.getDescription(), normalized);
+		}
+	}
+
+	/**
+	 * 合計実行時間の長い順にSQLの実行統計を返します.
+	 *
+	 * @param limit 返す件数
+	 * @return SQLの実行統計
+	 */
+	public List<StatementStats> top(int limit) {
+		List<StatementStats> list = new ArrayList<>(statements.size());
+		statements.forEach((sql, accumulator) -> list.add(accumulator.toStats(sql)));
+		list.sort(Comparator.comparingDouble(StatementStats::getTotalMillis).reversed());
+		return list.subList(0, Math.min(limit, list.size()));
+	}
+
+	/**
+	 * 集計をすべて破棄します.
+	 */
+	public void reset() {
+		statements.clear();
+	}
+
+	/**
+	 * 現在のスレッドでリクエストの集計を開始します.
+	 *
+	 * @param description ログに出力するリクエストの説明(メソッドとURIなど)
+	 */
+	public void beginRequest(String description) {
+		CURRENT_REQUEST.set(new RequestStats(description));
+	}
+
+	/**
+	 * 現在のスレッドのリクエストの集計を終了します.
+	 *
+	 * @return リクエストの集計 開始していない場合はnull
+	 */
+	public RequestStats endRequest() {
+		RequestStats request = CURRENT_REQUEST.get();
+		CURRENT_REQUEST.remove();
+		return request;
+	}
+
+	/**
+	 * SQLを正規化します. 文字列・数値のリテラルを?に置き換え、連続する空白を1つにまとめます.
+	 *
+	 * @param sql SQL
+	 * @return 正規化したSQL
+	 */
+	String normalize(String sql) {
+		if (sql == null) {
+			return "";
+		}
+		String normalized = normalizedSqls.get(sql);
+		if (normalized == null) {
+			normalized = STRING_LITERAL.matcher(sql).replaceAll("?");
+			normalized = NUMBER_LITERAL.matcher(normalized).replaceAll("?");
+			normalized = WHITESPACE.matcher(normalized).replaceAll(" ").trim();
+			if (normalizedSqls.size() < MAX_STATEMENTS) {
+				normalizedSqls.put(sql, normalized);
+			}
+		}
+		return normalized;
+	}
+
+	/**
+	 * 1つのSQLの集計.
+	 */
+	private static final class Accumulator {
+		private final LongAdder calls = new LongAdder();
+		private final LongAdder totalNanos = new LongAdder();
+		private final AtomicLong maxNanos = new AtomicLong();
+		private final LongAdder rows = new LongAdder();
+
+		private void add(long nanos, long rowCount) {
+			calls.increment();
+			totalNanos.add(nanos);
+			maxNanos.accumulateAndGet(nanos, Math::max);
+			rows.add(rowCount);
+		}
+
+		private StatementStats toStats(String sql) {
+			return new StatementStats(sql, calls.sum(), totalNanos.sum() / 1_000_000.0, maxNanos.get() / 1_000_000.0,
+					rows.sum());
+		}
+	}
+
+	/**
+	 * 1リクエスト内で実行されたSQLの集計.
+	 */
+	public static final class RequestStats {
+		private final String description;
+		private final Map<String, Integer> counts = new HashMap<>();
+		private int statements;
+		private long totalNanos;
+		private long rows;
+
+		private RequestStats(String description) {
+			this.description = description;
+		}
+
+		/**
+		 * @return 同じSQLの、このリクエスト内での実行回数
+		 */
+		private int add(String sql, long nanos, long rowCount) {
+			statements++;
+			totalNanos += nanos;
+			rows += rowCount;
+			return counts.merge(sql, 1, Integer::sum);
+		}
+
+		/**
+		 * @return リクエストの説明
+		 */
+		public String getDescription() {
+			return description;
+		}
+
+		/**
+		 * @return 実行したSQLの数
+		 */
+		public int getStatements() {
+			return statements;
+		}
+
+		/**
+		 * @return SQLの合計実行時間(ナノ秒)
+		 */
+		public long getTotalNanos() {
+			return totalNanos;
+		}
+
+		/**
+		 * @return 取得した行数または更新した行数の合計
+		 */
+		public long getRows() {
+			return rows;
+		}
+	}
+}
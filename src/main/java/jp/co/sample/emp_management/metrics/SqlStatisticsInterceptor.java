@@ -0,0 +1,76 @@
+package jp.co.sample.emp_management.metrics;
+
+import java.util.concurrent.TimeUnit;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * リクエストごとに実行したSQLの数・合計実行時間・行数を集計するインターセプター.
+ *
+ * 集計結果はURIのパターンごとにapp.request.sql.statements / app.request.sql.time / app.request.sql.rowsに記録し、
+ * DEBUGレベルでログにも出力します.
+ *
+ * @author naramasato
+ *
+ */
+@Component
+public class SqlStatisticsInterceptor implements AsyncHandlerInterceptor {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(SqlStatisticsInterceptor.class);
+
+	/** リクエストの集計結果を保存するリクエスト属性の名前({@link RenderTimingInterceptor}が参照する) */
+	public static final String STATS_ATTRIBUTE = SqlStatisticsInterceptor.class.getName() + ".STATS";
+
+	@Autowired
+	private SqlStatistics sqlStatistics;
+
+	@Autowired
+	private MeterRegistry meterRegistry;
+
+	@Override
+	public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+		sqlStatistics.beginRequest(request.getMethod() + " " + request.getRequestURI());
+		return true;
+	}
+
+	@Override
+	public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response,
+			Object handler) {
+		// 非同期処理は別のスレッドで行われるため、このスレッドの集計は終了する
+		sqlStatistics.endRequest();
+	}
+
+	@Override
+	public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler,
+			Exception ex) {
+		SqlStatistics.RequestStats stats = sqlStatistics.endRequest();
+		if (stats == null) {
+			return;
+		}
+		request.setAttribute(STATS_ATTRIBUTE, stats);
+		Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+		String uri = pattern == null ? "UNKNOWN" : pattern.toString();
+		DistributionSummary.builder("app.request.sql.statements").description("1リクエストで実行したSQLの数")
+				.tag("uri", uri).register(meterRegistry).record(stats.getStatements());
+		DistributionSummary.builder("app.request.sql.rows").description("1リクエストで取得・更新した行数")
+				.tag("uri", uri).register(meterRegistry).record(stats.getRows());
+		Timer.builder("app.request.sql.time").description("1リクエストで実行したSQLの合計実行時間").tag("uri", uri)
+				.register(meterRegistry).record(stats.getTotalNanos(), TimeUnit.NANOSECONDS);
+		if (LOGGER.isDebugEnabled()) {
+			LOGGER.debug("{}: SQL {}件, {}ms, {}行", stats.getDescription(), stats.getStatements(),
+					TimeUnit.NANOSECONDS.toMillis(stats.getTotalNanos()), stats.getRows());
+		}
+	}
+}
@@ -0,0 +1,88 @@
+package jp.co.sample.emp_management.metrics;
+
+/**
+ * 1つのSQL文(正規化したもの)の実行統計.
+ *
+ * @author naramasato
+ *
+ */
+public class StatementStats {
+	/** 正規化したSQL */
+	private final String sql;
+	/** 実行回数 */
+	private final long calls;
+	/** 合計実行時間(ミリ秒) */
+	private final double totalMillis;
+	/** 最大実行時間(ミリ秒) */
+	private final double maxMillis;
+	/** 合計行数(取得した行数または更新した行数) */
+	private final long rows;
+
+	/**
+	 * 初期化用コンストラクタ.
+	 *
+	 * @param sql         正規化したSQL
+	 * @param calls       実行回数
+	 * @param totalMillis 合計実行時間(ミリ秒)
+	 * @param maxMillis   最大実行時間(ミリ秒)
+	 * @param rows        合計行数
+	 */
+	public StatementStats(String sql, long calls, double totalMillis, double maxMillis, long rows) {
+		this.sql = sql;
+		this.calls = calls;
+		this.totalMillis = totalMillis;
+		this.maxMillis = maxMillis;
+		this.rows = rows;
+	}
+
+	/**
+	 * 平均実行時間を返します.
+	 *
+	 * @return 平均実行時間(ミリ秒) 一度も実行されていない場合は0.0
+	 */
+	public double getMeanMillis() {
+		return calls == 0 ? 0.0 : totalMillis / calls;
+	}
+
+	/**
+	 * @return the sql
+	 */
+	public String getSql() {
+		return sql;
+	}
+
+	/**
+	 * @return the calls
+	 */
+	public long getCalls() {
+		return calls;
+	}
+
+	/**
+	 * @return the totalMillis
+	 */
+	public double getTotalMillis() {
+		return totalMillis;
+	}
+
+	/**
+	 * @return the maxMillis
+	 */
+	public double getMaxMillis() {
+		return maxMillis;
+	}
+
+	/**
+	 * @return the rows
+	 */
+	public long getRows() {
+		return rows;
+	}
+
+	@Override
+	public String toString() {
+		return "StatementStats [sql=" + sql + ", calls=" + calls + ", totalMillis=" + totalMillis + ", maxMillis="
+				+ maxMillis + ", rows=" + rows + "]";
+	}
+
+}
@@ -23,8 +23,9 @@ public class AdministratorRepository {
 
 	/**
 	 * Administratorオブジェクトを生成するローマッパー.
+	 * (ベンチマークから参照するためパッケージプライベートにしています)
 	 */
-	private static final RowMapper<Administrator> ADMINISTRATOR_ROW_MAPPER = (rs, i) -> {
+	static final RowMapper<Administrator> ADMINISTRATOR_ROW_MAPPER = (rs, i) -> {
 		Administrator administrator = new Administrator();
 		administrator.setId(rs.getInt("id"));
 		administrator.setName(rs.getString("name"));
@@ -50,23 +51,6 @@ public class AdministratorRepository {
 		return administrator;
 	}
 	
-	/**
-	 * メールアドレスとパスワードから管理者情報を取得します.
-	 * 
-	 * @param mailAddress メールアドレス
-	 * @param password    パスワード
-	 * @return 管理者情報 存在しない場合はnullを返します
-	 */
-	public Administrator findByMailAddressAndPassward(String mailAddress, String password) {
-		String sql = "select id,name,mail_address,password from administrators where mail_address = :mailAddress and password = :password;";
-		SqlParameterSource param = new MapSqlParameterSource().addValue("mailAddress", mailAddress).addValue("password", password);
-		List<Administrator> administratorList = template.query(sql, param, ADMINISTRATOR_ROW_MAPPER);
-		if (administratorList.size() == 0) {
-			return null;
-		}
-		return administratorList.get(0);
-	}
-
 	/**
 	 * 管理者情報を挿入します.
 	 * 
@@ -78,6 +62,18 @@ public class AdministratorRepository {
 		template.update(sql, param);
 	}
 
+	/**
+	 * パスワード(ハッシュ値)を更新します.
+	 * 
+	 * @param id       ID
+	 * @param password パスワードのハッシュ値
+	 */
+	public void updatePassword(Integer id, String password) {
+		String sql = "update administrators set password=:password where id=:id";
+		SqlParameterSource param = new MapSqlParameterSource().addValue("id", id).addValue("password", password);
+		template.update(sql, param);
+	}
+
 	/**
 	 * メールアドレスから管理者情報を取得します.
 	 * 
@@ -0,0 +1,95 @@
+package jp.co.sample.emp_management.repository;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * 従業員IDを採番するクラス.
+ *
+ * employees_id_seqシーケンスから1回でブロックサイズ分のIDの範囲を予約し(hi/lo方式)、
+ * 予約した範囲のIDはDBにアクセスせずロックなしで払い出します.
+ * シーケンスが範囲の重複を防ぐため、アプリケーションを複数台で動かしても同じIDが払い出されることはありません.
+ *
+ * @author naramasato
+ *
+ */
+@Component
+public class EmployeeIdGenerator {
+
+	/**
+	 * 1回に予約するIDの数. employees_id_seqのINCREMENT BYと同じ値にする必要があります.
+	 */
+	@Value("${employee.id.block-size:50}")
+	private int blockSize;
+
+	@Autowired
+	private NamedParameterJdbcTemplate template;
+
+	/** 払い出し中のIDの範囲 */
+	private volatile Block current = new Block(0, 0);
+
+	/**
+	 * 予約を1回だけ行うためのロック.
+	 * (DBアクセスを含むためReentrantLockを使います. {@link jp.co.sample.emp_management.common.VirtualThreads}を参照)
+	 */
+	private final ReentrantLock reserveLock = new ReentrantLock();
+
+	/**
+	 * 新しい従業員IDを払い出します.
+	 *
+	 * @return 従業員ID
+	 */
+	public int nextId() {
+		while (true) {
+			Block block = current;
+			long id = block.next.getAndIncrement();
+			if (id < block.limit) {
+				return Math.toIntExact(id);
+			}
+			// 予約した範囲を使い切ったので次の範囲を予約する
+			reserve(block);
+		}
+	}
+
+	/**
+	 * シーケンスから次のIDの範囲を予約します.
+	 *
+	 * 同時に使い切った場合でも予約は1回だけ行うよう、使い切った範囲がまだ払い出し中の場合のみ予約します.
+	 *
+	 * @param exhausted 使い切ったIDの範囲
+	 */
+	private void reserve(Block exhausted) {
+		reserveLock.lock();
+		try {
+			if (current != exhausted) {
+				return;
+			}
+			String sql = "SELECT nextval('employees_id_seq')";
+			long start = template.queryForObject(sql, new MapSqlParameterSource(), Long.class);
+			current = new Block(start, start + blockSize);
+		} finally {
+			reserveLock.unlock();
+		}
+	}
+
+	/**
+	 * 予約したIDの範囲.
+	 */
+	private static final class Block {
+		/** 次に払い出すID */
+		private final AtomicLong next;
+		/** 範囲の終端(このIDは含まない) */
+		private final long limit;
+
+		private Block(long start, long limit) {
+			this.next = new AtomicLong(start);
+			this.limit = limit;
+		}
+	}
+}
@@ -1,16 +1,25 @@
 package jp.co.sample.emp_management.repository;
 
+import java.sql.Timestamp;
+import java.util.Date;
 import java.util.List;
+import java.util.function.Consumer;
+
+import javax.annotation.PostConstruct;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.jdbc.core.RowMapper;
 import org.springframework.jdbc.core.namedparam.BeanPropertySqlParameterSource;
 import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
 import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.jdbc.core.namedparam.SqlParameterSourceUtils;
 import org.springframework.stereotype.Repository;
 
 import jp.co.sample.emp_management.domain.Employee;
+import jp.co.sample.emp_management.domain.EmployeeSummary;
 
 /**
  * employeesテーブルを操作するリポジトリ.
@@ -23,14 +32,15 @@ public class EmployeeRepository {
 
 	/**
 	 * Employeeオブジェクトを生成するローマッパー.
+	 * (ベンチマークから参照するためパッケージプライベートにしています)
 	 */
-	private static final RowMapper<Employee> EMPLOYEE_ROW_MAPPER = (rs, i) -> {
+	static final RowMapper<Employee> EMPLOYEE_ROW_MAPPER = (rs, i) -> {
 		Employee employee = new Employee();
 		employee.setId(rs.getInt("id"));
 		employee.setName(rs.getString("name"));
 		employee.setImage(rs.getString("image"));
 		employee.setGender(rs.getString("gender"));
-		employee.setHireDate(rs.getDate("hire_date"));
+		employee.setHireDate(rs.getTimestamp("hire_date"));
 		employee.setMailAddress(rs.getString("mail_address"));
 		employee.setZipCode(rs.getString("zip_code"));
 		employee.setAddress(rs.getString("address"));
@@ -38,44 +48,189 @@ public class EmployeeRepository {
 		employee.setSalary(rs.getInt("salary"));
 		employee.setCharacteristics(rs.getString("characteristics"));
 		employee.setDependentsCount(rs.getInt("dependents_count"));
+		employee.setVersion(rs.getInt("version"));
+		return employee;
+	};
+
+	/**
+	 * 一覧表示用のEmployeeSummaryオブジェクトを生成するローマッパー.
+	 */
+	private static final RowMapper<EmployeeSummary> EMPLOYEE_SUMMARY_ROW_MAPPER = (rs, i) -> {
+		EmployeeSummary employee = new EmployeeSummary();
+		employee.setId(rs.getInt("id"));
+		employee.setName(rs.getString("name"));
+		employee.setImage(rs.getString("image"));
+		employee.setHireDate(rs.getTimestamp("hire_date"));
+		employee.setDependentsCount(rs.getInt("dependents_count"));
+		employee.setVersion(rs.getInt("version"));
 		return employee;
 	};
 
+	/**
+	 * 従業員情報を挿入するSQL.
+	 */
+	private static final String INSERT_SQL = "INSERT INTO employees(id, name, image, gender, hire_date, mail_address, zip_code, address, telephone, salary, characteristics, dependents_count) VALUES "
+			+ "(:id, :name, :image, :gender, :hireDate, :mailAddress, :zipCode, :address, :telephone, :salary, :characteristics, :dependentsCount)";
+
+	/**
+	 * 1件ずつ読み込む際に1回のフェッチで取得する件数.
+	 */
+	private static final int STREAM_FETCH_SIZE = 500;
+
 	@Autowired
 	private NamedParameterJdbcTemplate template;
 
+	/** 1件ずつ読み込むためのテンプレート(共有のテンプレートのフェッチサイズを変えないよう、別に作ります) */
+	private NamedParameterJdbcTemplate cursorTemplate;
+	
+	@Autowired
+	private EmployeeIdGenerator idGenerator;
+
+	/**
+	 * 1件ずつ読み込むためのテンプレートを作成します.
+	 */
+	@PostConstruct
+	public void init() {
+		JdbcTemplate jdbcTemplate = new JdbcTemplate(template.getJdbcTemplate().getDataSource());
+		jdbcTemplate.setFetchSize(STREAM_FETCH_SIZE);
+		cursorTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+	}
+
 	/**
-	 * 従業員一覧情報を入社日順で取得します.
+	 * 従業員一覧情報を入社日順で1ページ分取得します.
 	 * 
-	 * @return 全従業員一覧 従業員が存在しない場合はサイズ0件の従業員一覧を返します
+	 * 指定したページへ直接移動する場合に使用します.
+	 * 直前のページの最後の従業員が分かっている場合は{@link #findPageAfter(Date, Integer, int)}を使用してください.
+	 * 
+	 * @param offset 読み飛ばす従業員数
+	 * @param size   1ページに表示する従業員数
+	 * @return 従業員一覧 従業員が存在しない場合はサイズ0件の従業員一覧を返します
 	 */
-	public List<Employee> findAll() {
-		String sql = "SELECT id,name,image,gender,hire_date,mail_address,zip_code,address,telephone,salary,characteristics,dependents_count FROM employees ORDER BY  hire_date DESC";
+	public List<EmployeeSummary> findPage(int offset, int size) {
+		String sql = "SELECT id,name,image,hire_date,dependents_count,version FROM employees ORDER BY hire_date DESC, id DESC LIMIT :size OFFSET :offset";
+		SqlParameterSource param = new MapSqlParameterSource().addValue("size", size).addValue("offset", offset);
+		return template.query(sql, param, EMPLOYEE_SUMMARY_ROW_MAPPER);
+	}
 
-		List<Employee> developmentList = template.query(sql, EMPLOYEE_ROW_MAPPER);
+	/**
+	 * 直前のページの最後の従業員より後ろの従業員一覧情報を入社日順で1ページ分取得します.
+	 * 
+	 * (入社日, ID)をキーにインデックスを辿るため、ページが後ろになっても読み込む行数は1ページ分のみです.
+	 * 
+	 * @param lastHireDate 直前のページの最後の従業員の入社日
+	 * @param lastId       直前のページの最後の従業員のID
+	 * @param size         1ページに表示する従業員数
+	 * @return 従業員一覧 従業員が存在しない場合はサイズ0件の従業員一覧を返します
+	 */
+	public List<EmployeeSummary> findPageAfter(Date lastHireDate, Integer lastId, int size) {
+		String sql = "SELECT id,name,image,hire_date,dependents_count,version FROM employees WHERE (hire_date, id) < (:lastHireDate, :lastId) ORDER BY hire_date DESC, id DESC LIMIT :size";
+		SqlParameterSource param = new MapSqlParameterSource().addValue("lastHireDate", new Timestamp(lastHireDate.getTime()))
+				.addValue("lastId", lastId).addValue("size", size);
+		return template.query(sql, param, EMPLOYEE_SUMMARY_ROW_MAPPER);
+	}
 
-		return developmentList;
+	/**
+	 * 従業員数を取得します.
+	 * 
+	 * @return 従業員数
+	 */
+	public long count() {
+		String sql = "SELECT count(*) FROM employees";
+		return template.queryForObject(sql, new MapSqlParameterSource(), Long.class);
+	}
+	
+	/**
+	 * PostgreSQLの統計情報から従業員数の推定値を取得します.
+	 * 
+	 * テーブルを読まないため件数に関わらずすぐに返りますが、最後にANALYZEされた時点の推定値です.
+	 * 
+	 * @return 従業員数の推定値 一度もANALYZEされていない場合は0
+	 */
+	public long estimateCount() {
+		String sql = "SELECT reltuples::bigint FROM pg_class WHERE oid = 'employees'::regclass";
+		Long estimate = template.queryForObject(sql, new MapSqlParameterSource(), Long.class);
+		return Math.max(estimate, 0);
 	}
 	
 	/**
-	 * 従業員の名前検索を行う
+	 * 指定した文字列で始まる従業員名を取得します(オートコンプリート用).
+	 * 
+	 * 名前の前方一致用インデックス(text_pattern_ops)を辿るため、件数が多くても指定した件数分しか読み込みません.
 	 * 
-	 * @param name　検索する名前の一部
-	 * @return 従業員検索結果を返す
+	 * @param prefix 従業員名の先頭部分
+	 * @param limit 取得する最大件数
+	 * @return 従業員名一覧 存在しない場合はサイズ0件の一覧を返します
 	 */
-	public List<Employee> findByName(String name){
-		
-		String sql = "SELECT * FROM employees WHERE name LIKE :name ORDER BY hire_date DESC;";
-		SqlParameterSource param = new MapSqlParameterSource().addValue("name", "%" + name + "%");
-		List<Employee> emploList = template.query(sql, param, EMPLOYEE_ROW_MAPPER);
-		
-		//もし検索結果が一つもなければnullで返す
-		if(emploList.size() == 0) {
-			return null;
+	public List<String> findNamesByPrefix(String prefix, int limit) {
+		String sql = "SELECT DISTINCT name FROM (SELECT name FROM employees WHERE name LIKE :pattern ORDER BY name USING ~<~ LIMIT :scanLimit) AS names ORDER BY name LIMIT :limit";
+		SqlParameterSource param = new MapSqlParameterSource().addValue("pattern", escapeLike(prefix) + "%")
+				.addValue("scanLimit", limit * 4).addValue("limit", limit);
+		return template.queryForList(sql, param, String.class);
+	}
+	
+	/**
+	 * LIKEのパターンとして特別な意味を持つ文字をエスケープします.
+	 * 
+	 * @param value エスケープする文字列
+	 * @return エスケープした文字列
+	 */
+	private static String escapeLike(String value) {
+		if (value == null) {
+			return "";
 		}
-		return emploList;
+		return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
 	}
 
+	/**
+	 * 名前に指定した文字列を含む従業員情報を入社日順に1件ずつ読み込み、consumerに渡します.
+	 * 
+	 * 結果をリストにまとめず、カーソルでフェッチサイズ分ずつ読み込むため件数が多くてもメモリ使用量は一定です.
+	 * PostgreSQLでカーソルを使うため、トランザクション内で呼び出してください.
+	 * 
+	 * @param name 検索する名前の一部 nullまたは空文字の場合は全件
+	 * @param consumer 読み込んだ従業員情報を受け取る処理
+	 */
+	public void streamByName(String name, Consumer<Employee> consumer) {
+		String sql = "SELECT id,name,image,gender,hire_date,mail_address,zip_code,address,telephone,salary,characteristics,dependents_count,version FROM employees WHERE name LIKE :name ORDER BY hire_date DESC, id DESC";
+		SqlParameterSource param = new MapSqlParameterSource().addValue("name", "%" + escapeLike(name) + "%");
+		
+		cursorTemplate.query(sql, param,
+				(RowCallbackHandler) rs -> consumer.accept(EMPLOYEE_ROW_MAPPER.mapRow(rs, rs.getRow())));
+	}
+	
+	/**
+	 * 名前に指定した文字列を含む従業員の一覧表示用の情報を、検索文字列に近い順に1件ずつ読み込み、consumerに渡します.
+	 * 
+	 * 名前のトライグラムインデックス(pg_trgm)を使って絞り込み、検索文字列に近い順(類似度が同じ場合は入社日の新しい順、IDの大きい順)に並べます.
+	 * カーソルで読み込むため、件数が多くてもメモリ使用量は一定です.
+	 * トランザクション内で呼び出してください.
+	 * 
+	 * @param name 検索する名前の一部
+	 * @param consumer 読み込んだ従業員情報を受け取る処理
+	 */
+	public void streamSummariesByName(String name, Consumer<EmployeeSummary> consumer) {
+		String sql = "SELECT id,name,image,hire_date,dependents_count,version FROM employees WHERE name LIKE :pattern "
+				+ "ORDER BY similarity(name, :name) DESC, hire_date DESC, id DESC";
+		SqlParameterSource param = new MapSqlParameterSource().addValue("pattern", "%" + escapeLike(name) + "%")
+				.addValue("name", name);
+		cursorTemplate.query(sql, param,
+				(RowCallbackHandler) rs -> consumer.accept(EMPLOYEE_SUMMARY_ROW_MAPPER.mapRow(rs, rs.getRow())));
+	}
+	
+	/**
+	 * 全従業員の一覧表示用の情報を1件ずつ読み込み、consumerに渡します.
+	 * 
+	 * {@link #streamByName(String, Consumer)}と同様にカーソルで読み込むため、件数が多くてもメモリ使用量は一定です.
+	 * トランザクション内で呼び出してください.
+	 * 
+	 * @param consumer 読み込んだ従業員情報を受け取る処理
+	 */
+	public void streamSummaries(Consumer<EmployeeSummary> consumer) {
+		String sql = "SELECT id,name,image,hire_date,dependents_count,version FROM employees";
+		cursorTemplate.query(sql, new MapSqlParameterSource(),
+				(RowCallbackHandler) rs -> consumer.accept(EMPLOYEE_SUMMARY_ROW_MAPPER.mapRow(rs, rs.getRow())));
+	}
+	
 	/**
 	 * 主キーから従業員情報を取得します.
 	 * 
@@ -84,7 +239,7 @@ public class EmployeeRepository {
 	 * @exception org.springframework.dao.DataAccessException 従業員が存在しない場合は例外を発生します
 	 */
 	public Employee load(Integer id) {
-		String sql = "SELECT id,name,image,gender,hire_date,mail_address,zip_code,address,telephone,salary,characteristics,dependents_count FROM employees WHERE id=:id";
+		String sql = "SELECT id,name,image,gender,hire_date,mail_address,zip_code,address,telephone,salary,characteristics,dependents_count,version FROM employees WHERE id=:id";
 
 		SqlParameterSource param = new MapSqlParameterSource().addValue("id", id);
 
@@ -93,22 +248,72 @@ public class EmployeeRepository {
 		return development;
 	}
 	
+	/**
+	 * 従業員情報を挿入します.
+	 * 
+	 * IDは{@link EmployeeIdGenerator}で採番し、引数の従業員情報にセットします.
+	 * 
+	 * @param employee 従業員情報
+	 */
 	public void insertEmployee(Employee employee) {
+		employee.setId(idGenerator.nextId());
 		SqlParameterSource param = new BeanPropertySqlParameterSource(employee);
 		
-		String insertSql = "INSERT INTO employees(id, name, image, gender, hire_date, mail_address, zip_code, address, telephone, salary, characteristics, dependents_count) SELECT "
-				+ "MAX(id) +1, :name, :image, :gender, :hireDate, :mailAddress, :zipCode, :address, :telephone, :salary, :characteristics, :dependentsCount FROM employees;";
+		template.update(INSERT_SQL, param);
+	}
+	
+	/**
+	 * 複数の従業員情報をまとめて挿入します.
+	 * 
+	 * 1回のバッチ更新で送信するため、件数分のSQLを1件ずつ実行するよりも往復回数が少なくなります.
+	 * IDは{@link EmployeeIdGenerator}で採番し、引数の従業員情報にセットします.
+	 * 
+	 * @param employeeList 従業員情報一覧
+	 */
+	public void insertEmployees(List<Employee> employeeList) {
+		for (Employee employee : employeeList) {
+			employee.setId(idGenerator.nextId());
+		}
+		SqlParameterSource[] params = SqlParameterSourceUtils.createBatch(employeeList);
 		
-		template.update(insertSql, param);
+		template.batchUpdate(INSERT_SQL, params);
 	}
 
 	/**
 	 * 従業員情報を変更します.
+	 * 
+	 * 従業員のバージョンを1つ進めます.
 	 */
 	public void update(Employee employee) {
 		SqlParameterSource param = new BeanPropertySqlParameterSource(employee);
 
-		String updateSql = "UPDATE employees SET dependents_count=:dependentsCount WHERE id=:id";
+		String updateSql = "UPDATE employees SET dependents_count=:dependentsCount, version=version+1 WHERE id=:id";
 		template.update(updateSql, param);
 	}
+	
+	/**
+	 * 従業員情報の変更番号を1つ進めて返します.
+	 * 
+	 * 変更番号の行はコミットされるまで他のトランザクションからは古い値が見えます.
+	 * 行ロックはコミットまで保持されるため、トランザクションの最後(コミットの直前)に呼び出してください.
+	 * 
+	 * @return 新しい変更番号
+	 */
+	public long nextChangeStamp() {
+		String updateSql = "UPDATE employees_change SET stamp=stamp+1 WHERE id=1";
+		template.update(updateSql, new MapSqlParameterSource());
+		return currentChangeStamp();
+	}
+	
+	/**
+	 * 従業員情報の現在の変更番号を取得します.
+	 * 
+	 * コミットされていない変更番号は含みません(呼び出したトランザクション自身が進めたものを除く).
+	 * 
+	 * @return 変更番号
+	 */
+	public long currentChangeStamp() {
+		String sql = "SELECT stamp FROM employees_change WHERE id=1";
+		return template.queryForObject(sql, new MapSqlParameterSource(), Long.class);
+	}
 }
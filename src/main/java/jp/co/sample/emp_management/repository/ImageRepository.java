@@ -0,0 +1,366 @@
+package jp.co.sample.emp_management.repository;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import javax.annotation.PostConstruct;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Repository;
+
+import jp.co.sample.emp_management.common.InvalidImageException;
+import jp.co.sample.emp_management.common.ServerBusyException;
+import jp.co.sample.emp_management.domain.ImageType;
+import jp.co.sample.emp_management.domain.ImageVariant;
+
+/**
+ * 従業員画像をファイルシステムに保存するリポジトリ.
+ *
+ * 画像は内容のSHA-256ハッシュ値をキーに保存するため、同じ画像が何度アップロードされても実体は1つだけです.
+ * employeesテーブルにはハッシュ値のみを保存します.
+ * 書き込みには事前に確保したダイレクトバッファを使い回すため、画像のサイズに関わらず1件あたりのメモリ使用量はバッファ1つ分です.
+ * バッファの数が同時に保存できる画像の数の上限になります.
+ * 縮小画像は元の画像と同じディレクトリに「ハッシュ値.種類.拡張子」の名前で保存します.
+ *
+ * @author naramasato
+ *
+ */
+@Repository
+public class ImageRepository {
+
+	/** ハッシュ値の形式(SHA-256の16進表記) */
+	private static final Pattern HASH_PATTERN = Pattern.compile("^[0-9a-f]{64}$");
+
+	private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+	/** 画像を保存するディレクトリ */
+	@Value("${employee.image.dir:image-store}")
+	private String imageDir;
+
+	/** 画像のサイズの上限(バイト) */
+	@Value("${employee.image.max-bytes:5242880}")
+	private long maxBytes;
+
+	/** 書き込み時に使用するバッファのサイズ(バイト) */
+	@Value("${employee.image.buffer-bytes:65536}")
+	private int bufferBytes;
+
+	/** 同時に保存できる画像の数の上限 */
+	@Value("${employee.image.max-concurrent-uploads:8}")
+	private int maxConcurrentUploads;
+
+	/** バッファが空くのを待つ時間(ミリ秒) 超えた場合は503を返す */
+	@Value("${employee.image.upload-wait-millis:1000}")
+	private long uploadWaitMillis;
+
+	private Path root;
+
+	private Path tmpDir;
+
+	/** 縮小画像の作成待ちを表すファイルを置くディレクトリ */
+	private Path pendingDir;
+
+	/** 書き込みに使い回すダイレクトバッファ */
+	private BlockingQueue<ByteBuffer> buffers;
+
+	@PostConstruct
+	public void init() throws IOException {
+		root = Paths.get(imageDir).toAbsolutePath().normalize();
+		tmpDir = root.resolve("tmp");
+		Files.createDirectories(tmpDir);
+		pendingDir = root.resolve("pending");
+		Files.createDirectories(pendingDir);
+		buffers = new ArrayBlockingQueue<>(maxConcurrentUploads);
+		for (int i = 0; i < maxConcurrentUploads; i++) {
+			buffers.add(ByteBuffer.allocateDirect(bufferBytes));
+		}
+	}
+
+	/**
+	 * 画像を保存します.
+	 *
+	 * 一時ファイルに書き込みながらハッシュ値を計算し、書き込み終わったらハッシュ値のパスへ移動します.
+	 * 既に同じ画像が保存されている場合は一時ファイルを削除します.
+	 * 画像形式は最初に読み込んだ部分の先頭のバイト列で判定し、対応していない形式やサイズが上限を超えた場合は
+	 * その時点で読み込みをやめます.
+	 *
+	 * @param in 画像の内容
+	 * @return 画像のハッシュ値
+	 * @throws IOException 書き込みに失敗した場合
+	 * @throws InvalidImageException 対応していない画像形式の場合、またはサイズが上限を超えている場合
+	 * @throws ServerBusyException 同時に保存している画像の数が上限に達していて、待っても空かなかった場合
+	 */
+	public String store(InputStream in) throws IOException {
+		ByteBuffer buffer = acquireBuffer();
+		try {
+			return store(in, buffer);
+		} finally {
+			buffer.clear();
+			buffers.add(buffer);
+		}
+	}
+
+	private String store(InputStream in, ByteBuffer buffer) throws IOException {
+		MessageDigest digest = newDigest();
+		Path tmp = Files.createTempFile(tmpDir, "upload", ".tmp");
+		try {
+			try (ReadableByteChannel src = Channels.newChannel(in);
+					FileChannel dest = FileChannel.open(tmp, StandardOpenOption.WRITE)) {
+				ImageType type = null;
+				long total = 0;
+				boolean eof = false;
+				while (!eof) {
+					eof = src.read(buffer) == -1;
+					if (type == null && !eof && buffer.position() < ImageType.HEADER_LENGTH) {
+						// 画像形式を判定できるだけの長さを読み込むまで続ける
+						continue;
+					}
+					buffer.flip();
+					if (type == null) {
+						type = detect(buffer);
+					}
+					total += buffer.remaining();
+					if (total > maxBytes) {
+						throw new InvalidImageException("画像のサイズは" + (maxBytes / 1024) + "KB以下にしてください");
+					}
+					digest.update(buffer);
+					buffer.rewind();
+					while (buffer.hasRemaining()) {
+						dest.write(buffer);
+					}
+					buffer.clear();
+				}
+			}
+
+			String hash = toHex(digest.digest());
+			Path target = pathOf(hash);
+			if (!Files.exists(target)) {
+				Files.createDirectories(target.getParent());
+				try {
+					Files.move(tmp, target, StandardCopyOption.ATOMIC_MOVE);
+				} catch (FileAlreadyExistsException e) {
+					// 同じ画像が同時にアップロードされた場合は先に保存された方を使う
+				}
+			}
+			return hash;
+		} finally {
+			Files.deleteIfExists(tmp);
+		}
+	}
+
+	/**
+	 * バッファの先頭のバイト列から画像形式を判定します.
+	 */
+	private static ImageType detect(ByteBuffer buffer) {
+		byte[] header = new byte[ImageType.HEADER_LENGTH];
+		int length = Math.min(buffer.remaining(), header.length);
+		buffer.duplicate().get(header, 0, length);
+		ImageType type = ImageType.detect(header, length);
+		if (type == null) {
+			throw new InvalidImageException("画像はJPEGかPNGのみに対応しています");
+		}
+		return type;
+	}
+
+	private ByteBuffer acquireBuffer() {
+		try {
+			ByteBuffer buffer = buffers.poll(uploadWaitMillis, TimeUnit.MILLISECONDS);
+			if (buffer == null) {
+				throw new ServerBusyException("画像の同時アップロード数が上限に達しました", null);
+			}
+			return buffer;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new ServerBusyException("画像のアップロードの待機中に割り込まれました", e);
+		}
+	}
+
+	/**
+	 * ハッシュ値から保存されている画像ファイルを取得します.
+	 *
+	 * @param hash 画像のハッシュ値
+	 * @return 画像ファイルのパス 存在しない場合やハッシュ値の形式が不正な場合はnullを返します
+	 */
+	public Path load(String hash) {
+		if (hash == null || !HASH_PATTERN.matcher(hash).matches()) {
+			return null;
+		}
+		Path file = pathOf(hash);
+		if (!Files.isRegularFile(file)) {
+			return null;
+		}
+		return file;
+	}
+
+	/**
+	 * 保存されている画像ファイルの画像形式を取得します.
+	 *
+	 * @param file 画像ファイルのパス
+	 * @return 画像形式 判定できない場合はnullを返します
+	 * @throws IOException 読み込みに失敗した場合
+	 */
+	public ImageType typeOf(Path file) throws IOException {
+		byte[] header = new byte[ImageType.HEADER_LENGTH];
+		int length = 0;
+		try (InputStream in = Files.newInputStream(file)) {
+			int read;
+			while (length < header.length && (read = in.read(header, length, header.length - length)) != -1) {
+				length += read;
+			}
+		}
+		return ImageType.detect(header, length);
+	}
+
+	/**
+	 * 縮小画像を保存します.
+	 *
+	 * 一時ファイルに書き込んでから移動するため、書き込み途中のファイルが読まれることはありません.
+	 * 既に保存されている場合は上書きします(同じ画像からは同じ縮小画像が作成されます).
+	 *
+	 * @param hash      元の画像のハッシュ値
+	 * @param variant   縮小画像の種類
+	 * @param extension 縮小画像の拡張子
+	 * @param writer    一時ファイルに縮小画像を書き込む処理
+	 * @throws IOException 書き込みに失敗した場合
+	 */
+	public void storeVariant(String hash, ImageVariant variant, String extension, FileWriter writer)
+			throws IOException {
+		checkHash(hash);
+		Path tmp = Files.createTempFile(tmpDir, "variant", ".tmp");
+		try {
+			writer.write(tmp);
+			Path target = variantPathOf(hash, variant, extension);
+			Files.createDirectories(target.getParent());
+			Files.move(tmp, target, StandardCopyOption.ATOMIC_MOVE);
+		} finally {
+			Files.deleteIfExists(tmp);
+		}
+	}
+
+	/**
+	 * 保存されている縮小画像を取得します.
+	 *
+	 * @param hash      元の画像のハッシュ値
+	 * @param variant   縮小画像の種類
+	 * @param extension 縮小画像の拡張子
+	 * @return 縮小画像のパス まだ作成されていない場合やハッシュ値の形式が不正な場合はnullを返します
+	 */
+	public Path loadVariant(String hash, ImageVariant variant, String extension) {
+		if (hash == null || !HASH_PATTERN.matcher(hash).matches()) {
+			return null;
+		}
+		Path file = variantPathOf(hash, variant, extension);
+		if (!Files.isRegularFile(file)) {
+			return null;
+		}
+		return file;
+	}
+
+	/**
+	 * 縮小画像の作成待ちとして記録します. 記録はファイルとして残るため、再起動した後も作成を再開できます.
+	 *
+	 * @param hash 元の画像のハッシュ値
+	 * @throws IOException 記録に失敗した場合
+	 */
+	public void markPending(String hash) throws IOException {
+		checkHash(hash);
+		try {
+			Files.createFile(pendingDir.resolve(hash));
+		} catch (FileAlreadyExistsException e) {
+			// 既に作成待ち
+		}
+	}
+
+	/**
+	 * 縮小画像の作成待ちの記録を削除します.
+	 *
+	 * @param hash 元の画像のハッシュ値
+	 * @throws IOException 削除に失敗した場合
+	 */
+	public void clearPending(String hash) throws IOException {
+		checkHash(hash);
+		Files.deleteIfExists(pendingDir.resolve(hash));
+	}
+
+	/**
+	 * 縮小画像の作成待ちの画像を取得します.
+	 *
+	 * @return 元の画像のハッシュ値の一覧
+	 * @throws IOException 読み込みに失敗した場合
+	 */
+	public List<String> findPending() throws IOException {
+		try (Stream<Path> files = Files.list(pendingDir)) {
+			return files.map(file -> file.getFileName().toString()).filter(name -> HASH_PATTERN.matcher(name).matches())
+					.collect(Collectors.toList());
+		}
+	}
+
+	/**
+	 * ハッシュ値から保存先のパスを求めます. 1ディレクトリのファイル数が増えすぎないよう先頭4文字で2階層に分けます.
+	 */
+	private Path pathOf(String hash) {
+		return root.resolve(hash.substring(0, 2)).resolve(hash.substring(2, 4)).resolve(hash);
+	}
+
+	/**
+	 * 縮小画像の保存先のパスを求めます.
+	 */
+	private Path variantPathOf(String hash, ImageVariant variant, String extension) {
+		return pathOf(hash).resolveSibling(hash + "." + variant.getName() + "." + extension);
+	}
+
+	private static void checkHash(String hash) {
+		if (hash == null || !HASH_PATTERN.matcher(hash).matches()) {
+			throw new IllegalArgumentException("画像のハッシュ値の形式が不正です: " + hash);
+		}
+	}
+
+	private static MessageDigest newDigest() {
+		try {
+			return MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private static String toHex(byte[] bytes) {
+		char[] chars = new char[bytes.length * 2];
+		for (int i = 0; i < bytes.length; i++) {
+			chars[i * 2] = HEX[(bytes[i] >> 4) & 0x0F];
+			chars[i * 2 + 1] = HEX[bytes[i] & 0x0F];
+		}
+		return new String(chars);
+	}
+
+	/**
+	 * 一時ファイルに内容を書き込む処理.
+	 */
+	@FunctionalInterface
+	public interface FileWriter {
+
+		/**
+		 * @param file 書き込み先の一時ファイル
+		 * @throws IOException 書き込みに失敗した場合
+		 */
+		void write(Path file) throws IOException;
+	}
+}
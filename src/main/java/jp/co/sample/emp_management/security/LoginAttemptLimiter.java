@@ -0,0 +1,231 @@
+package jp.co.sample.emp_management.security;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+import javax.annotation.PostConstruct;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * ログインに失敗した回数をIPアドレスごと・アカウント(メールアドレス)ごとに数え、上限を超えたログインを拒否するクラス.
+ *
+ * 失敗回数は一定時間(attempt-window)ごとにリセットします.
+ * 照合を始める前に{@link #tryAcquire(String, String)}で失敗1回分を予約するため、同時に届いたログインが上限を超えてbcryptまで進むことはありません.
+ * 照合に成功した場合や照合できなかった場合は予約を取り消します.
+ * 拒否したログインはDBの検索もbcryptの照合も行わないため、大量の不正なログインでDBやCPUが埋まることを防げます.
+ * 失敗回数はキーのハッシュ値で分けた複数のロック(ストライプ)ごとに保持し、ログインの処理同士が同じロックで待たないようにしています.
+ * 保持するキーの数には上限があり、超えた場合は期限切れのものから削除します.
+ * IPアドレスはリバースプロキシ経由の場合もクライアントのアドレスになるよう、server.forward-headers-strategyを設定してください.
+ *
+ * @author naramasato
+ *
+ */
+@Component
+public class LoginAttemptLimiter {
+
+	/** ロックを分ける数(2のべき乗) */
+	private static final int STRIPES = 64;
+
+	/** IPアドレスごとの失敗回数の上限 0の場合はIPアドレスごとには制限しない */
+	@Value("${employee.login.max-failures-per-ip:50}")
+	private int maxFailuresPerIp;
+
+	/** アカウントごとの失敗回数の上限 */
+	@Value("${employee.login.max-failures-per-account:5}")
+	private int maxFailuresPerAccount;
+
+	/** 失敗回数をリセットするまでの時間(ミリ秒) */
+	@Value("${employee.login.attempt-window-millis:300000}")
+	private long attemptWindowMillis;
+
+	/** 保持するキーの数の上限(IPアドレス・アカウントそれぞれ) */
+	@Value("${employee.login.max-tracked-keys:100000}")
+	private int maxTrackedKeys;
+
+	private StripedCounter ipCounter;
+
+	private StripedCounter accountCounter;
+
+	@PostConstruct
+	public void init() {
+		long windowNanos = attemptWindowMillis * 1_000_000;
+		ipCounter = new StripedCounter(maxFailuresPerIp, windowNanos, maxTrackedKeys / STRIPES + 1);
+		accountCounter = new StripedCounter(maxFailuresPerAccount, windowNanos, maxTrackedKeys / STRIPES + 1);
+	}
+
+	/**
+	 * 照合を始める前に失敗1回分を予約します.
+	 *
+	 * 上限に達しているかの判定と予約を同じロックの中で行うため、同時に呼び出しても上限を超えて予約されることはありません.
+	 * 照合に失敗した場合は予約がそのまま失敗回数になります.
+	 * 成功した場合は{@link #recordSuccess(String, String)}、照合できなかった場合は{@link #release(String, String)}を呼び出してください.
+	 *
+	 * @param ipAddress   ログインしようとしているクライアントのIPアドレス
+	 * @param mailAddress ログインしようとしているメールアドレス
+	 * @return 予約できた場合はtrue IPアドレスかアカウントの失敗回数が上限に達している場合はfalse
+	 */
+	public boolean tryAcquire(String ipAddress, String mailAddress) {
+		if (!ipCounter.tryIncrement(ipAddress)) {
+			return false;
+		}
+		if (!accountCounter.tryIncrement(normalize(mailAddress))) {
+			ipCounter.decrement(ipAddress);
+			return false;
+		}
+		return true;
+	}
+
+	/**
+	 * 照合できなかった(待ち行列が一杯だったなど)ログインの予約を取り消します.
+	 *
+	 * @param ipAddress   クライアントのIPアドレス
+	 * @param mailAddress メールアドレス
+	 */
+	public void release(String ipAddress, String mailAddress) {
+		ipCounter.decrement(ipAddress);
+		accountCounter.decrement(normalize(mailAddress));
+	}
+
+	/**
+	 * ログインの成功を記録し、IPアドレスの予約を取り消してアカウントの失敗回数をリセットします.
+	 *
+	 * IPアドレスは複数の利用者で共有されることがあるため、それまでの失敗回数はリセットしません.
+	 *
+	 * @param ipAddress   クライアントのIPアドレス
+	 * @param mailAddress メールアドレス
+	 */
+	public void recordSuccess(String ipAddress, String mailAddress) {
+		ipCounter.decrement(ipAddress);
+		accountCounter.reset(normalize(mailAddress));
+	}
+
+	private static String normalize(String mailAddress) {
+		return mailAddress == null ? "" : mailAddress.trim().toLowerCase();
+	}
+
+	/**
+	 * キーごとの失敗回数をロックのストライプに分けて保持するクラス.
+	 */
+	private static final class StripedCounter {
+		private final int maxFailures;
+		private final long windowNanos;
+		private final int maxKeysPerStripe;
+		private final ReentrantLock[] locks = new ReentrantLock[STRIPES];
+		private final Map<String, Window>[] stripes;
+
+		@SuppressWarnings("unchecked")
+		StripedCounter(int maxFailures, long windowNanos, int maxKeysPerStripe) {
+			this.maxFailures = maxFailures;
+			this.windowNanos = windowNanos;
+			this.maxKeysPerStripe = maxKeysPerStripe;
+			this.stripes = new Map[STRIPES];
+			for (int i = 0; i < STRIPES; i++) {
+				locks[i] = new ReentrantLock();
+				stripes[i] = new HashMap<>();
+			}
+		}
+
+		/**
+		 * 上限に達していなければ失敗回数を1増やします.
+		 *
+		 * @return 増やした場合はtrue 上限に達している場合はfalse
+		 */
+		boolean tryIncrement(String key) {
+			if (maxFailures <= 0) {
+				return true;
+			}
+			int index = indexOf(key);
+			long now = System.nanoTime();
+			locks[index].lock();
+			try {
+				Map<String, Window> stripe = stripes[index];
+				Window window = stripe.get(key);
+				if (window == null || window.isExpired(now, windowNanos)) {
+					if (window == null && stripe.size() >= maxKeysPerStripe) {
+						evict(stripe, now);
+					}
+					window = new Window(now);
+					stripe.put(key, window);
+				} else if (window.failures >= maxFailures) {
+					return false;
+				}
+				window.failures++;
+				return true;
+			} finally {
+				locks[index].unlock();
+			}
+		}
+
+		/**
+		 * 予約した失敗回数を1減らします. 予約した後に期限切れになっていた場合は新しい期間の回数から減らします.
+		 */
+		void decrement(String key) {
+			if (maxFailures <= 0) {
+				return;
+			}
+			int index = indexOf(key);
+			locks[index].lock();
+			try {
+				Window window = stripes[index].get(key);
+				if (window != null && window.failures > 0) {
+					window.failures--;
+				}
+			} finally {
+				locks[index].unlock();
+			}
+		}
+
+		void reset(String key) {
+			int index = indexOf(key);
+			locks[index].lock();
+			try {
+				stripes[index].remove(key);
+			} finally {
+				locks[index].unlock();
+			}
+		}
+
+		/**
+		 * 期限切れのキーを削除します. それでも上限を超えている場合は失敗回数の少ないキーを1件削除します.
+		 */
+		private void evict(Map<String, Window> stripe, long now) {
+			stripe.values().removeIf(window -> window.isExpired(now, windowNanos));
+			if (stripe.size() < maxKeysPerStripe) {
+				return;
+			}
+			String fewest = null;
+			int fewestFailures = Integer.MAX_VALUE;
+			for (Map.Entry<String, Window> entry : stripe.entrySet()) {
+				if (entry.getValue().failures < fewestFailures) {
+					fewest = entry.getKey();
+					fewestFailures = entry.getValue().failures;
+				}
+			}
+			stripe.remove(fewest);
+		}
+
+		private static int indexOf(String key) {
+			int hash = key.hashCode();
+			return (hash ^ (hash >>> 16)) & (STRIPES - 1);
+		}
+	}
+
+	/**
+	 * キーごとの失敗回数と数え始めた時刻.
+	 */
+	private static final class Window {
+		private final long startNanos;
+		private int failures;
+
+		private Window(long startNanos) {
+			this.startNanos = startNanos;
+		}
+
+		private boolean isExpired(long now, long windowNanos) {
+			return now - startNanos >= windowNanos;
+		}
+	}
+}
@@ -0,0 +1,28 @@
+package jp.co.sample.emp_management.security;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+/**
+ * 管理者のパスワードのハッシュ化に関する設定.
+ *
+ * @author naramasato
+ *
+ */
+@Configuration
+public class PasswordEncoderConfig {
+
+	/**
+	 * bcryptでパスワードをハッシュ化するPasswordEncoder.
+	 *
+	 * @param strength bcryptのコスト(4～31). 1増やすとハッシュ化・照合にかかる時間が2倍になる
+	 * @return PasswordEncoder
+	 */
+	@Bean
+	public PasswordEncoder passwordEncoder(@Value("${employee.login.bcrypt-strength:10}") int strength) {
+		return new BCryptPasswordEncoder(strength);
+	}
+}
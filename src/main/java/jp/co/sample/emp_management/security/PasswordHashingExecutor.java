@@ -0,0 +1,93 @@
+package jp.co.sample.emp_management.security;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import jp.co.sample.emp_management.common.ServerBusyException;
+
+/**
+ * パスワードのハッシュ化・照合(bcrypt)を実行する専用のスレッドプール.
+ *
+ * bcryptはCPUを数十～数百ミリ秒使うため、Tomcatのリクエスト処理のスレッドではなくここで実行し、
+ * ログインが集中しても一覧・詳細画面のリクエストを処理するスレッドが埋まらないようにします.
+ * スレッド数はCPUのコア数に合わせ、待ち行列が上限に達したら{@link ServerBusyException}(503)で拒否します.
+ * スレッド数はCPUのコア数しかないため、DBへのアクセスなど待ち時間のある処理はここで実行しないでください.
+ * 状態はexecutor.*{name=password.hashing}のメトリクスで確認できます.
+ *
+ * @author naramasato
+ *
+ */
+@Component
+public class PasswordHashingExecutor {
+
+	/** メトリクスの名前 */
+	private static final String EXECUTOR_NAME = "password.hashing";
+
+	@Autowired
+	private MeterRegistry meterRegistry;
+
+	/** スレッド数(0の場合はCPUのコア数) */
+	@Value("${employee.login.hash-threads:0}")
+	private int threads;
+
+	/** 実行を待てる件数の上限 */
+	@Value("${employee.login.hash-queue-capacity:64}")
+	private int queueCapacity;
+
+	private ThreadPoolExecutor executor;
+
+	private Counter rejectedCounter;
+
+	@PostConstruct
+	public void init() {
+		int size = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+		AtomicInteger sequence = new AtomicInteger();
+		executor = new ThreadPoolExecutor(size, size, 0, TimeUnit.MILLISECONDS,
+				new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+					Thread thread = new Thread(runnable, "password-hashing-" + sequence.incrementAndGet());
+					thread.setDaemon(true);
+					return thread;
+				}, new ThreadPoolExecutor.AbortPolicy());
+		new ExecutorServiceMetrics(executor, EXECUTOR_NAME, Tags.empty()).bindTo(meterRegistry);
+		rejectedCounter = Counter.builder("app.password.hashing.rejected").description("待ち行列が上限に達して拒否した件数")
+				.register(meterRegistry);
+	}
+
+	@PreDestroy
+	public void destroy() {
+		executor.shutdown();
+	}
+
+	/**
+	 * 処理をスレッドプールで実行します.
+	 *
+	 * @param <T>  処理結果の型
+	 * @param task パスワードのハッシュ化・照合を含む処理
+	 * @return 処理結果
+	 * @throws ServerBusyException 待ち行列が上限に達している場合
+	 */
+	public <T> CompletableFuture<T> submit(Supplier<T> task) {
+		try {
+			return CompletableFuture.supplyAsync(task, executor);
+		} catch (RejectedExecutionException e) {
+			rejectedCounter.increment();
+			throw new ServerBusyException("パスワードの照合の待ち行列が上限に達しました", e);
+		}
+	}
+}
@@ -1,11 +1,29 @@
 package jp.co.sample.emp_management.service;
 
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+import javax.annotation.PostConstruct;
+
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import jp.co.sample.emp_management.cache.CacheStats;
+import jp.co.sample.emp_management.cache.CredentialCache;
 import jp.co.sample.emp_management.domain.Administrator;
 import jp.co.sample.emp_management.repository.AdministratorRepository;
+import jp.co.sample.emp_management.security.PasswordHashingExecutor;
 
 /**
  * 管理者情報を操作するサービス.
@@ -20,28 +38,193 @@ public class AdministratorService {
 	@Autowired
 	private AdministratorRepository administratorRepository;
 
+	@Autowired
+	private CredentialCache credentialCache;
+
+	@Autowired
+	private PasswordEncoder passwordEncoder;
+
+	@Autowired
+	private PasswordHashingExecutor passwordHashingExecutor;
+
+	/** ハッシュ化・照合が終わった後のDBの更新を行うスレッドプール(bcryptのスレッドをJDBCの待ち時間で占有しないため) */
+	@Autowired
+	private TaskExecutor taskExecutor;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	private TransactionTemplate transactionTemplate;
+
+	/** 存在しないメールアドレスでのログインで照合に使うハッシュ値 */
+	private String dummyHash;
+
+	@PostConstruct
+	public void init() {
+		dummyHash = passwordEncoder.encode(UUID.randomUUID().toString());
+		transactionTemplate = new TransactionTemplate(transactionManager);
+	}
+
 	/**
-	 * 管理者情報を登録します.
+	 * 管理者情報を登録します. パスワードは{@link PasswordHashingExecutor}でハッシュ化してから保存します.
+	 * 
+	 * ハッシュ化の間DBのコネクションを使わないよう、トランザクションは開始しません.
+	 * 保存はハッシュ化が終わった後に、アプリケーションのスレッドプール({@link TaskExecutor})のトランザクション内で行います.
 	 * 
 	 * @param administrator 管理者情報
+	 * @return 登録の完了
+	 * @throws jp.co.sample.emp_management.common.ServerBusyException ハッシュ化の待ち行列が上限に達している場合
 	 */
-	public void insert(Administrator administrator) {
-		administratorRepository.insert(administrator);
+	@Transactional(propagation = Propagation.SUPPORTS)
+	public CompletableFuture<Void> insert(Administrator administrator) {
+		String password = administrator.getPassword();
+		return passwordHashingExecutor.submit(() -> passwordEncoder.encode(password)).thenAcceptAsync(hash -> {
+			administrator.setPassword(hash);
+			transactionTemplate.executeWithoutResult(status -> {
+				administratorRepository.insert(administrator);
+				invalidateCredential(administrator.getMailAddress());
+			});
+		}, taskExecutor);
 	}
 	
 	/**
 	 * ログインをします.
+	 * 
+	 * 管理者情報はメールアドレスでキャッシュから取得し、パスワードは{@link PasswordHashingExecutor}でbcryptのハッシュ値と照合します.
+	 * 照合に時間がかかるため、トランザクションは開始せずDBのコネクションを使わずに照合します.
+	 * ハッシュ化し直したパスワードの保存は、照合が終わった後にアプリケーションのスレッドプールのトランザクション内で行います.
+	 * 
 	 * @param mailAddress メールアドレス
 	 * @param password パスワード
-	 * @return 管理者情報　存在しない場合はnullが返ります
+	 * @return 管理者情報(パスワードは含みません)　存在しない場合やパスワードが一致しない場合はnullが返ります
+	 * @throws jp.co.sample.emp_management.common.ServerBusyException 照合の待ち行列が上限に達している場合
 	 */
-	public Administrator login(String mailAddress, String password) {
-		Administrator administrator = administratorRepository.findByMailAddressAndPassward(mailAddress, password);
-		return administrator;
+	@Transactional(propagation = Propagation.SUPPORTS)
+	public CompletableFuture<Administrator> login(String mailAddress, String password) {
+		if (password == null) {
+			return CompletableFuture.completedFuture(null);
+		}
+		Administrator administrator = findCredential(mailAddress);
+		return passwordHashingExecutor.submit(() -> verify(administrator, password)).thenApplyAsync(verification -> {
+			if (verification.rehashedPassword != null) {
+				transactionTemplate.executeWithoutResult(status -> {
+					administratorRepository.updatePassword(administrator.getId(), verification.rehashedPassword);
+					invalidateCredential(administrator.getMailAddress());
+				});
+			}
+			return verification.administrator;
+		}, taskExecutor);
 	}
 	
 	public Administrator findByMailAddress(String mailAddress) {
 		Administrator administrator = administratorRepository.findByMailAddress(mailAddress);
 		return administrator;
 	}
+
+	/**
+	 * ログイン情報のキャッシュの統計情報を返します.
+	 * 
+	 * @return 統計情報
+	 */
+	public CacheStats getCredentialCacheStats() {
+		return credentialCache.stats();
+	}
+
+	/**
+	 * メールアドレスから管理者情報をキャッシュ経由で取得します. 存在しないこともキャッシュします.
+	 */
+	private Administrator findCredential(String mailAddress) {
+		if (mailAddress == null || mailAddress.isEmpty()) {
+			return null;
+		}
+		Optional<Administrator> cached = credentialCache.get(mailAddress);
+		if (cached != null) {
+			return cached.orElse(null);
+		}
+		long generation = credentialCache.beginLoad(mailAddress);
+		Administrator administrator = administratorRepository.findByMailAddress(mailAddress);
+		credentialCache.put(mailAddress, administrator, generation);
+		return administrator;
+	}
+
+	/**
+	 * パスワードを照合します. ハッシュ化・照合のスレッドプールで呼び出すため、DBにはアクセスしません.
+	 * 
+	 * @param administrator 管理者情報 存在しない場合はnull
+	 * @param password      入力されたパスワード
+	 * @return 照合結果
+	 */
+	private Verification verify(Administrator administrator, String password) {
+		if (administrator == null) {
+			// 応答時間からメールアドレスが登録されているかが分からないよう、登録されている場合と同じだけ時間をかける
+			passwordEncoder.matches(password, dummyHash);
+			return Verification.FAILED;
+		}
+		String storedPassword = administrator.getPassword();
+		String rehashedPassword = null;
+		if (isHashed(storedPassword)) {
+			if (!passwordEncoder.matches(password, storedPassword)) {
+				return Verification.FAILED;
+			}
+			if (passwordEncoder.upgradeEncoding(storedPassword)) {
+				// コストを変更した場合は、ログインに成功したときに新しいコストでハッシュ化し直す
+				rehashedPassword = passwordEncoder.encode(password);
+			}
+		} else {
+			// ハッシュ化する前に登録された管理者は平文と比較し、ログインに成功したときにハッシュ化する
+			boolean matched = MessageDigest.isEqual(storedPassword.getBytes(StandardCharsets.UTF_8),
+					password.getBytes(StandardCharsets.UTF_8));
+			if (!matched) {
+				// 平文の比較はすぐ終わるため、ハッシュ化済みの管理者や存在しないメールアドレスと同じだけ時間をかける
+				passwordEncoder.matches(password, dummyHash);
+				return Verification.FAILED;
+			}
+			rehashedPassword = passwordEncoder.encode(password);
+		}
+		return new Verification(new Administrator(administrator.getId(), administrator.getName(),
+				administrator.getMailAddress(), null), rehashedPassword);
+	}
+
+	/**
+	 * ログイン情報のキャッシュを破棄します.
+	 * 
+	 * コミット前に他のリクエストが古い管理者情報をキャッシュし直すことがあるため、コミット後にもう一度破棄します.
+	 * 
+	 * @param mailAddress メールアドレス
+	 */
+	private void invalidateCredential(String mailAddress) {
+		credentialCache.invalidate(mailAddress);
+		if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+				@Override
+				public void afterCommit() {
+					credentialCache.invalidate(mailAddress);
+				}
+			});
+		}
+	}
+
+	private static boolean isHashed(String password) {
+		return password.startsWith("$2a$") || password.startsWith("$2b$") || password.startsWith("$2y$");
+	}
+
+	/**
+	 * パスワードの照合結果.
+	 */
+	private static final class Verification {
+
+		/** 一致しなかった場合の照合結果 */
+		private static final Verification FAILED = new Verification(null, null);
+
+		/** 管理者情報(パスワードは含みません) 一致しなかった場合はnull */
+		private final Administrator administrator;
+
+		/** 保存し直すハッシュ値 ハッシュ化し直す必要がない場合はnull */
+		private final String rehashedPassword;
+
+		private Verification(Administrator administrator, String rehashedPassword) {
+			this.administrator = administrator;
+			this.rehashedPassword = rehashedPassword;
+		}
+	}
 }
@@ -0,0 +1,154 @@
+package jp.co.sample.emp_management.service;
+
+import java.util.UUID;
+import java.util.concurrent.locks.ReentrantLock;
+
+import javax.annotation.PostConstruct;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import jp.co.sample.emp_management.cache.CacheInvalidationBroker;
+import jp.co.sample.emp_management.cache.InvalidationMessage;
+import jp.co.sample.emp_management.repository.EmployeeRepository;
+
+/**
+ * 従業員情報全体の変更番号を管理するサービス.
+ *
+ * 従業員の登録・更新のたびに、同じトランザクション内でDBの変更番号(employees_change)を進め、コミット後に
+ * {@link CacheInvalidationBroker}で他のノードにも通知します. 全ノードが同じ番号を持つため、従業員一覧のETagはどのノードでも同じになります.
+ * 変更番号はコミットされた従業員情報と一緒にしか見えないため、取得し直した番号がまだ見えない変更の分だけ先に進むことはありません.
+ * 変更番号はメモリ上に保持するため、従業員一覧が変わっていないかはDBにアクセスせずに判定できます.
+ * 通知が届かなかった場合に備え、一定時間ごとにDBから取得し直します.
+ *
+ * @author naramasato
+ *
+ */
+@Service
+public class EmployeeChangeStamp {
+
+	/** 通知で使う名前 */
+	public static final String CACHE_NAME = "employee-change-stamp";
+
+	/** このノードのID */
+	private final String nodeId = UUID.randomUUID().toString();
+
+	@Autowired
+	private EmployeeRepository employeeRepository;
+
+	@Autowired
+	private CacheInvalidationBroker broker;
+
+	/** DBから取得し直す間隔(ミリ秒) */
+	@Value("${employee.change-stamp.refresh-interval:5000}")
+	private long refreshInterval;
+
+	/** 変更番号とその取得日時 */
+	private volatile Snapshot snapshot;
+
+	private final ReentrantLock lock = new ReentrantLock();
+
+	@PostConstruct
+	public void init() {
+		broker.subscribe(message -> {
+			if (CACHE_NAME.equals(message.getCacheName()) && !nodeId.equals(message.getNodeId())) {
+				advance((Long) message.getKey());
+			}
+		});
+	}
+
+	/**
+	 * 現在の変更番号を返します.
+	 *
+	 * @return 変更番号
+	 */
+	public long current() {
+		Snapshot current = snapshot;
+		if (current == null || System.currentTimeMillis() - current.loadedAt > refreshInterval) {
+			current = load();
+		}
+		return current.stamp;
+	}
+
+	/**
+	 * 従業員情報が変更されたことを記録します.
+	 *
+	 * トランザクション内で呼ばれた場合は、コミットの直前に変更番号を進め(行ロックを持つ時間を短くするため)、
+	 * コミットされてから新しい変更番号を反映します.
+	 */
+	public void changed() {
+		if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+			publish(employeeRepository.nextChangeStamp());
+			return;
+		}
+		TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+			private long stamp;
+
+			@Override
+			public void beforeCommit(boolean readOnly) {
+				stamp = employeeRepository.nextChangeStamp();
+			}
+
+			@Override
+			public void afterCommit() {
+				publish(stamp);
+			}
+		});
+	}
+
+	private void publish(long stamp) {
+		advance(stamp);
+		broker.publish(new InvalidationMessage(nodeId, CACHE_NAME, stamp));
+	}
+
+	/**
+	 * 変更番号を進めます. 通知の順序が前後しても戻らないよう、大きい番号の場合だけ反映します.
+	 */
+	private void advance(long stamp) {
+		lock.lock();
+		try {
+			Snapshot current = snapshot;
+			if (current != null && stamp > current.stamp) {
+				snapshot = new Snapshot(stamp, current.loadedAt);
+			}
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	private Snapshot load() {
+		lock.lock();
+		try {
+			Snapshot current = snapshot;
+			if (current != null && System.currentTimeMillis() - current.loadedAt <= refreshInterval) {
+				// 他のスレッドが取得し直した
+				return current;
+			}
+			long stamp = employeeRepository.currentChangeStamp();
+			if (current != null) {
+				stamp = Math.max(stamp, current.stamp);
+			}
+			current = new Snapshot(stamp, System.currentTimeMillis());
+			snapshot = current;
+			return current;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * ある時点の変更番号.
+	 */
+	private static final class Snapshot {
+		private final long stamp;
+		private final long loadedAt;
+
+		private Snapshot(long stamp, long loadedAt) {
+			this.stamp = stamp;
+			this.loadedAt = loadedAt;
+		}
+	}
+}
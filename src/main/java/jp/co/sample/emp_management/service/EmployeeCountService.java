@@ -0,0 +1,185 @@
+package jp.co.sample.emp_management.service;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import jp.co.sample.emp_management.repository.EmployeeRepository;
+
+/**
+ * 従業員数を管理するサービス.
+ *
+ * 従業員数はリクエストのたびにcount(*)せず、メモリ上に保持して登録のたびに加算します.
+ * 他のノードでの登録も反映されるよう、一定時間ごとにDBから取得し直します.
+ * 従業員が非常に多い場合は、count(*)の代わりにPostgreSQLの統計情報(pg_class.reltuples)の推定値を使います.
+ * 取得し直している間にコミットされた登録は、取得した件数に含まれているか分からないため、
+ * その間にコミットがなかった場合だけ取得した件数に置き換えます(二重に加算したり、加算が失われたりしないように).
+ *
+ * @author naramasato
+ *
+ */
+@Service
+public class EmployeeCountService {
+
+	@Autowired
+	private EmployeeRepository employeeRepository;
+
+	/** 推定値がこの件数以上の場合は、count(*)せずに推定値を使う */
+	@Value("${employee.count.estimate-threshold:1000000}")
+	private long estimateThreshold;
+
+	/** DBから取得し直す間隔(ミリ秒) */
+	@Value("${employee.count.refresh-interval:60000}")
+	private long refreshInterval;
+
+	/** 取得し直している間にコミットがあった場合に、取得し直す回数の上限 */
+	private static final int MAX_LOAD_ATTEMPTS = 3;
+
+	/** 従業員数とその取得日時 */
+	private volatile Snapshot snapshot;
+
+	/** 従業員数の加算と置き換えを排他するロック */
+	private final ReentrantLock lock = new ReentrantLock();
+
+	/**
+	 * 取得し直しを1スレッドだけで行うためのロック.
+	 * (DBアクセスを含むためReentrantLockを使います. {@link jp.co.sample.emp_management.common.VirtualThreads}を参照)
+	 */
+	private final ReentrantLock loadLock = new ReentrantLock();
+
+	/** コミット中(beforeCommitからafterCompletionまで)の登録の数 */
+	private final AtomicInteger committing = new AtomicInteger();
+
+	/** 加算した回数(lockの中で更新する) */
+	private long addSequence;
+
+	/**
+	 * 従業員数を返します.
+	 *
+	 * @return 従業員数(従業員が非常に多い場合は推定値)
+	 */
+	public long count() {
+		Snapshot current = snapshot;
+		if (current == null || System.currentTimeMillis() - current.loadedAt > refreshInterval) {
+			current = load();
+		}
+		return current.count;
+	}
+
+	/**
+	 * 従業員が登録されたことを記録します.
+	 *
+	 * トランザクション内で呼ばれた場合は、コミットされてから加算します.
+	 * コミットしている間は取得し直した件数に含まれているか分からないため、コミット中として数えます.
+	 *
+	 * @param rows 登録した従業員数
+	 */
+	public void added(long rows) {
+		if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+				private boolean counted;
+
+				@Override
+				public void beforeCommit(boolean readOnly) {
+					committing.incrementAndGet();
+					counted = true;
+				}
+
+				@Override
+				public void afterCommit() {
+					add(rows);
+				}
+
+				@Override
+				public void afterCompletion(int status) {
+					if (counted) {
+						committing.decrementAndGet();
+					}
+				}
+			});
+		} else {
+			add(rows);
+		}
+	}
+
+	private void add(long rows) {
+		lock.lock();
+		try {
+			addSequence++;
+			Snapshot current = snapshot;
+			if (current != null) {
+				snapshot = new Snapshot(current.count + rows, current.loadedAt);
+			}
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * DBから従業員数を取得し直します.
+	 *
+	 * 取得している間にコミットがあった場合や、置き換える時点でコミット中の登録がある場合は、
+	 * 取得した件数にその登録が含まれているか分からないため取得し直します.
+	 * 上限の回数まで取得し直してもコミットが続く場合は、これまで加算してきた件数を使い続けます.
+	 */
+	private Snapshot load() {
+		loadLock.lock();
+		try {
+			Snapshot current = snapshot;
+			if (current != null && System.currentTimeMillis() - current.loadedAt <= refreshInterval) {
+				// 他のスレッドが取得し直した
+				return current;
+			}
+			for (int attempt = 1;; attempt++) {
+				long sequence = addSequence();
+				long count = employeeRepository.estimateCount();
+				if (count < estimateThreshold) {
+					count = employeeRepository.count();
+				}
+				lock.lock();
+				try {
+					boolean settled = addSequence == sequence && committing.get() == 0;
+					if (settled || snapshot == null && attempt >= MAX_LOAD_ATTEMPTS) {
+						snapshot = new Snapshot(count, System.currentTimeMillis());
+						return snapshot;
+					}
+					if (attempt >= MAX_LOAD_ATTEMPTS) {
+						snapshot = new Snapshot(snapshot.count, System.currentTimeMillis());
+						return snapshot;
+					}
+				} finally {
+					lock.unlock();
+				}
+			}
+		} finally {
+			loadLock.unlock();
+		}
+	}
+
+	private long addSequence() {
+		lock.lock();
+		try {
+			return addSequence;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * ある時点の従業員数.
+	 */
+	private static final class Snapshot {
+		private final long count;
+		private final long loadedAt;
+
+		private Snapshot(long count, long loadedAt) {
+			this.count = count;
+			this.loadedAt = loadedAt;
+		}
+	}
+}
@@ -0,0 +1,206 @@
+package jp.co.sample.emp_management.service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
+
+import org.springframework.beans.BeanUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import jp.co.sample.emp_management.common.CsvReader;
+import jp.co.sample.emp_management.domain.Employee;
+import jp.co.sample.emp_management.domain.ImportResult;
+import jp.co.sample.emp_management.domain.ImportRowError;
+import jp.co.sample.emp_management.form.ImportEmployeeForm;
+import jp.co.sample.emp_management.repository.EmployeeRepository;
+
+/**
+ * 従業員情報をCSVから一括登録するサービス.
+ *
+ * CSVは1行ずつ読み込み、設定された件数ごとにバッチ更新で登録します.
+ * 1回のバッチ更新を1トランザクションとするため、途中でエラーになった場合もそれまでに登録した行は残ります.
+ *
+ * @author naramasato
+ *
+ */
+@Service
+public class EmployeeImportService {
+
+	/**
+	 * CSVの1行目に記載する項目名(employeesテーブルの列名).
+	 */
+	private static final List<String> COLUMNS = List.of("name", "image", "gender", "hire_date", "mail_address",
+			"zip_code", "address", "telephone", "salary", "characteristics", "dependents_count");
+
+	@Autowired
+	private EmployeeRepository employeeRepository;
+
+	@Autowired
+	private EmployeeCountService employeeCountService;
+
+	@Autowired
+	private EmployeeNameIndex employeeNameIndex;
+
+	@Autowired
+	private EmployeeChangeStamp employeeChangeStamp;
+
+	@Autowired
+	private Validator validator;
+
+	@Autowired
+	private TransactionTemplate transactionTemplate;
+
+	/** 1回のバッチ更新で登録する件数 */
+	@Value("${employee.import.batch-size:500}")
+	private int batchSize;
+
+	/**
+	 * CSVから従業員情報を一括登録します.
+	 *
+	 * 1行目は項目名として扱います. 入力値エラーの行は登録せず、行番号とエラーメッセージを結果に記録します.
+	 *
+	 * @param in CSV(UTF-8)
+	 * @return 登録結果
+	 * @throws IOException CSVの読み込みに失敗した場合
+	 */
+	public ImportResult importCsv(InputStream in) throws IOException {
+		long start = System.nanoTime();
+		ImportResult result = new ImportResult();
+
+		try (CsvReader reader = new CsvReader(
+				new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8)))) {
+			List<String> header = reader.readRecord();
+			if (header == null) {
+				return result;
+			}
+			int[] columnIndexes = toColumnIndexes(header);
+
+			List<Employee> chunk = new ArrayList<>(batchSize);
+			List<Long> chunkLines = new ArrayList<>(batchSize);
+			List<String> record;
+			while ((record = reader.readRecord()) != null) {
+				if (record.size() == 1 && record.get(0).isEmpty()) {
+					// 空行は読み飛ばす
+					continue;
+				}
+				result.countRow();
+
+				ImportEmployeeForm form = toForm(record, columnIndexes);
+				Set<ConstraintViolation<ImportEmployeeForm>> violations = validator.validate(form);
+				if (!violations.isEmpty()) {
+					List<String> messages = violations.stream().map(ConstraintViolation::getMessage).sorted()
+							.collect(Collectors.toList());
+					result.addError(new ImportRowError(reader.getLineNumber(), messages));
+					continue;
+				}
+
+				chunk.add(toEmployee(form));
+				chunkLines.add(reader.getLineNumber());
+				if (chunk.size() >= batchSize) {
+					insertChunk(chunk, chunkLines, result);
+					chunk.clear();
+					chunkLines.clear();
+				}
+			}
+			if (!chunk.isEmpty()) {
+				insertChunk(chunk, chunkLines, result);
+			}
+		} finally {
+			result.setElapsedMillis((System.nanoTime() - start) / 1_000_000);
+		}
+		return result;
+	}
+
+	/**
+	 * まとめて登録します. 一意制約違反などで失敗した場合は、どの行が原因か分かるよう1行ずつ登録し直します.
+	 */
+	private void insertChunk(List<Employee> chunk, List<Long> chunkLines, ImportResult result) {
+		try {
+			transactionTemplate.executeWithoutResult(status -> {
+				employeeRepository.insertEmployees(chunk);
+				// 索引にはコミットされてから登録する(失敗して1行ずつ登録し直す場合、この分は登録されない)
+				employeeNameIndex.putAll(chunk);
+				employeeCountService.added(chunk.size());
+				employeeChangeStamp.changed();
+			});
+			result.addImported(chunk.size());
+			return;
+		} catch (DataAccessException e) {
+			// 1行ずつ登録し直す
+		}
+		for (int i = 0; i < chunk.size(); i++) {
+			Employee employee = chunk.get(i);
+			try {
+				transactionTemplate.executeWithoutResult(status -> {
+					employeeRepository.insertEmployee(employee);
+					employeeNameIndex.put(employee.getId(), employee.getName());
+					employeeCountService.added(1);
+					employeeChangeStamp.changed();
+				});
+				result.addImported(1);
+			} catch (DataAccessException e) {
+				result.addError(new ImportRowError(chunkLines.get(i),
+						Collections.singletonList("登録できませんでした(" + e.getMostSpecificCause().getMessage() + ")")));
+			}
+		}
+	}
+
+	/**
+	 * 1行目の項目名から、各項目がレコードの何番目にあるかを求めます.
+	 *
+	 * @return {@link #COLUMNS}の順に並べたレコード内の位置 存在しない項目は-1
+	 */
+	private int[] toColumnIndexes(List<String> header) {
+		int[] indexes = new int[COLUMNS.size()];
+		for (int i = 0; i < indexes.length; i++) {
+			indexes[i] = header.indexOf(COLUMNS.get(i));
+		}
+		return indexes;
+	}
+
+	private ImportEmployeeForm toForm(List<String> record, int[] columnIndexes) {
+		String[] values = new String[COLUMNS.size()];
+		for (int i = 0; i < values.length; i++) {
+			int index = columnIndexes[i];
+			values[i] = index >= 0 && index < record.size() ? record.get(index).trim() : null;
+		}
+		ImportEmployeeForm form = new ImportEmployeeForm();
+		form.setName(values[0]);
+		form.setImage(values[1]);
+		form.setGender(values[2]);
+		form.setHireDate(values[3]);
+		form.setMailAddress(values[4]);
+		form.setZipCode(values[5]);
+		form.setAddress(values[6]);
+		form.setTelephone(values[7]);
+		form.setSalary(values[8]);
+		form.setCharacteristics(values[9]);
+		form.setDependentsCount(values[10]);
+		return form;
+	}
+
+	private Employee toEmployee(ImportEmployeeForm form) {
+		Employee employee = new Employee();
+		BeanUtils.copyProperties(form, employee);
+		// 画像は省略可能
+		employee.setImage(form.getImage() == null ? "" : form.getImage());
+		employee.setHireDate(form.getDateHireDate());
+		employee.setSalary(form.getIntSalary());
+		employee.setDependentsCount(form.getIntDependentsCount());
+		return employee;
+	}
+}
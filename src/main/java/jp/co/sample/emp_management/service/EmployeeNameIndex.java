@@ -0,0 +1,190 @@
+package jp.co.sample.emp_management.service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import jp.co.sample.emp_management.common.KanaConverter;
+import jp.co.sample.emp_management.domain.Employee;
+import jp.co.sample.emp_management.repository.EmployeeRepository;
+
+/**
+ * 従業員名のオートコンプリート用にメモリ上に保持する索引.
+ *
+ * 正規化した名前(カタカナはひらがな、英字は小文字にそろえる)と、かなの名前はローマ字読みもキーにして
+ * 並べて保持し、前方一致する名前をDBにアクセスせずに取得します.
+ * 起動時に全従業員から作成し、以降は従業員の登録・更新のたびにその従業員の分だけ更新します.
+ *
+ * @author naramasato
+ *
+ */
+@Component
+public class EmployeeNameIndex {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(EmployeeNameIndex.class);
+
+	/** キーの中で正規化した名前とIDを区切る文字(どの文字よりも前に並ぶ) */
+	private static final char SEPARATOR = '\u0000';
+
+	@Autowired
+	private EmployeeRepository employeeRepository;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	/** 検索用のキー(正規化した名前 + 区切り文字 + ID)から従業員名 */
+	private final ConcurrentSkipListMap<String, String> entries = new ConcurrentSkipListMap<>();
+
+	/** IDから索引に登録済みの従業員名 */
+	private final Map<Integer, String> names = new ConcurrentHashMap<>();
+
+	/** 起動時の作成が終わったかどうか */
+	private volatile boolean ready;
+
+	/**
+	 * 起動時に全従業員から索引を作成します.
+	 *
+	 * 件数が多いと時間がかかるため別スレッドで作成し、作成中は{@link #search(String, int)}がnullを返します.
+	 */
+	@EventListener(ApplicationReadyEvent.class)
+	public void build() {
+		Thread thread = new Thread(() -> {
+			long start = System.currentTimeMillis();
+			try {
+				TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+				transactionTemplate.setReadOnly(true);
+				transactionTemplate.executeWithoutResult(
+						status -> employeeRepository.streamSummaries(employee -> doPut(employee.getId(), employee.getName())));
+				ready = true;
+				LOGGER.info("従業員名の索引を作成しました(" + names.size() + "名, " + (System.currentTimeMillis() - start) + "ms)");
+			} catch (RuntimeException e) {
+				LOGGER.error("従業員名の索引の作成に失敗しました", e);
+			}
+		}, "employee-name-index");
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	/**
+	 * 指定した文字列で始まる従業員名を取得します.
+	 *
+	 * @param query 従業員名の先頭部分(かな・カナ・ローマ字・漢字)
+	 * @param limit 取得する最大件数
+	 * @return 従業員名一覧 索引を作成中の場合はnullを返します
+	 */
+	public List<String> search(String query, int limit) {
+		if (!ready) {
+			return null;
+		}
+		String prefix = KanaConverter.normalize(query);
+		if (prefix.isEmpty()) {
+			return Collections.emptyList();
+		}
+		Set<String> result = new LinkedHashSet<>();
+		for (Map.Entry<String, String> entry : entries.tailMap(prefix).entrySet()) {
+			if (!entry.getKey().startsWith(prefix) || result.size() >= limit) {
+				break;
+			}
+			result.add(entry.getValue());
+		}
+		return new ArrayList<>(result);
+	}
+
+	/**
+	 * 従業員名を索引に登録します. 既に登録されている従業員の場合は名前を置き換えます.
+	 *
+	 * トランザクション内で呼ばれた場合は、コミットされてから登録します.
+	 *
+	 * @param id 従業員ID
+	 * @param name 従業員名 nullの場合は何もしません
+	 */
+	public void put(Integer id, String name) {
+		if (id == null || name == null) {
+			return;
+		}
+		if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+				@Override
+				public void afterCommit() {
+					doPut(id, name);
+				}
+			});
+		} else {
+			doPut(id, name);
+		}
+	}
+
+	/**
+	 * 複数の従業員名を索引に登録します(一括登録用).
+	 *
+	 * トランザクション内で呼ばれた場合は、コミットされてからまとめて登録します.
+	 * ロールバックされた場合は登録しないため、登録されなかった従業員の名前が候補に出ることはありません.
+	 *
+	 * @param employees 従業員情報 IDまたは名前がnullの従業員は登録しません
+	 */
+	public void putAll(List<Employee> employees) {
+		// 呼び出し元がリストを使い回しても影響しないよう、コミットまでに必要な値だけ写しておく
+		Map<Integer, String> copy = new LinkedHashMap<>();
+		for (Employee employee : employees) {
+			if (employee.getId() != null && employee.getName() != null) {
+				copy.put(employee.getId(), employee.getName());
+			}
+		}
+		if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+				@Override
+				public void afterCommit() {
+					copy.forEach(EmployeeNameIndex.this::doPut);
+				}
+			});
+		} else {
+			copy.forEach(this::doPut);
+		}
+	}
+
+	private void doPut(Integer id, String name) {
+		String old = names.put(id, name);
+		if (name.equals(old)) {
+			return;
+		}
+		if (old != null) {
+			for (String key : keysOf(old)) {
+				entries.remove(key + SEPARATOR + id);
+			}
+		}
+		for (String key : keysOf(name)) {
+			entries.put(key + SEPARATOR + id, name);
+		}
+	}
+
+	/**
+	 * 名前の検索用キーを作ります. かなだけの名前はローマ字読みもキーにします.
+	 */
+	private static List<String> keysOf(String name) {
+		List<String> keys = new ArrayList<>(2);
+		String normalized = KanaConverter.normalize(name);
+		keys.add(normalized);
+		String romaji = KanaConverter.toRomaji(normalized);
+		if (romaji != null && !romaji.equals(normalized)) {
+			keys.add(romaji);
+		}
+		return keys;
+	}
+}
@@ -1,9 +1,15 @@
 package jp.co.sample.emp_management.service;
 
 import java.io.IOException;
-import java.util.Base64;
-import java.util.Collections;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.file.Path;
+import java.text.SimpleDateFormat;
+import java.util.Arrays;
+import java.util.Date;
 import java.util.List;
+import java.util.function.Consumer;
 
 import org.springframework.beans.BeanUtils;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -11,11 +17,22 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import jp.co.sample.emp_management.cache.CacheStats;
+import jp.co.sample.emp_management.cache.EmployeeCache;
+import jp.co.sample.emp_management.common.CsvWriter;
+import jp.co.sample.emp_management.common.InvalidImageException;
 import jp.co.sample.emp_management.domain.Employee;
+import jp.co.sample.emp_management.domain.EmployeeSummary;
+import jp.co.sample.emp_management.domain.ImageType;
 import jp.co.sample.emp_management.form.InsertEmployeeForm;
 import jp.co.sample.emp_management.repository.EmployeeRepository;
+import jp.co.sample.emp_management.repository.ImageRepository;
 
 /**
  * 従業員情報を操作するサービス.
@@ -27,28 +44,54 @@ import jp.co.sample.emp_management.repository.EmployeeRepository;
 @Transactional
 public class EmployeeService {
 
+	/** CSV出力する項目名(一括登録のCSVと同じ) */
+	private static final List<String> EXPORT_COLUMNS = Arrays.asList("id", "name", "image", "gender", "hire_date",
+			"mail_address", "zip_code", "address", "telephone", "salary", "characteristics", "dependents_count");
+	
 	@Autowired
 	private EmployeeRepository employeeRepository;
 	
-	/**
-	 * 従業員情報を全件取得します.
-	 * 
-	 * @return　従業員情報一覧
-	 */
-	public List<Employee> showList() {
-		List<Employee> employeeList = employeeRepository.findAll();
-		return employeeList;
-	}
+	@Autowired
+	private ImageRepository imageRepository;
+	
+	@Autowired
+	private ImageVariantService imageVariantService;
+	
+	@Autowired
+	private TransactionTemplate transactionTemplate;
+	
+	@Autowired
+	private EmployeeNameIndex employeeNameIndex;
+	
+	@Autowired
+	private EmployeeCache employeeCache;
+	
+	@Autowired
+	private EmployeeCountService employeeCountService;
+	
+	@Autowired
+	private EmployeeChangeStamp employeeChangeStamp;
+
 	
 	/**
 	 * 従業員情報を取得します.
 	 * 
+	 * 一度取得した従業員情報はキャッシュし、更新されるまではキャッシュから返します.
+	 * キャッシュにある場合はコネクションを取得しないよう、トランザクションは開始しません.
+	 * 
 	 * @param id ID
 	 * @return 従業員情報
 	 * @throws org.springframework.dao.DataAccessException 検索されない場合は例外が発生します
 	 */
+	@Transactional(propagation = Propagation.SUPPORTS)
 	public Employee showDetail(Integer id) {
-		Employee employee = employeeRepository.load(id);
+		// 従業員情報はめったに変わらないため、キャッシュにあればDBにアクセスしない
+		Employee employee = employeeCache.get(id);
+		if (employee == null) {
+			long generation = employeeCache.beginLoad(id);
+			employee = employeeRepository.load(id);
+			employeeCache.put(employee, generation);
+		}
 		return employee;
 	}
 	
@@ -59,32 +102,64 @@ public class EmployeeService {
 	 */
 	public void update(Employee employee) {
 		employeeRepository.update(employee);
+		invalidateCache(employee.getId());
+		employeeChangeStamp.changed();
+	}
+	
+	/**
+	 * 従業員を名前で曖昧検索し、検索文字列に近い順に1件ずつconsumerに渡します.
+	 * 
+	 * 結果をリストにまとめないため、該当する従業員が多くてもメモリ使用量は一定です.
+	 * consumerの処理中もトランザクション(DBのコネクション)は開いたままです.
+	 * 
+	 * @param name 検索する名前の一部
+	 * @param consumer 従業員情報を受け取る処理
+	 */
+	@Transactional(readOnly = true)
+	public void streamByName(String name, Consumer<EmployeeSummary> consumer) {
+		employeeRepository.streamSummariesByName(name, consumer);
 	}
 	
-	public List<Employee> findByName(String name){
-		//引数が空文字ならfindAll()を呼んで返す
-		if(name == null) {
-			List<Employee> employeeList = employeeRepository.findAll();
-			return employeeList;
+	/**
+	 * 指定した文字列で始まる従業員名を取得します(オートコンプリート用).
+	 * 
+	 * かな・カナ・ローマ字のどれで入力しても前方一致します.
+	 * 
+	 * @param prefix 従業員名の先頭部分
+	 * @param limit 取得する最大件数
+	 * @return 従業員名一覧
+	 */
+	public List<String> findNamesByPrefix(String prefix, int limit) {
+		// 索引の作成が終わっていればDBにアクセスせずに索引から取得する
+		List<String> names = employeeNameIndex.search(prefix, limit);
+		if (names != null) {
+			return names;
 		}
-		
-		return employeeRepository.findByName(name);
+		return employeeRepository.findNamesByPrefix(prefix, limit);
 	}
 	
-	public void insertEmployee(InsertEmployeeForm form, String fileExtension) throws IOException {
+	/**
+	 * 従業員情報を登録します.
+	 * 
+	 * 画像はファイルとして保存し、従業員情報には画像のハッシュ値のみをセットします.
+	 * 一覧・詳細画面に表示する縮小画像は、コミット後に{@link ImageVariantService}が作成します.
+	 * 画像の保存中(アップロードの受信やバッファの空き待ちを含む)にDBのコネクションを使わないよう、
+	 * トランザクションは画像を保存した後の登録の部分だけで開始します.
+	 * 
+	 * @param form 従業員登録用フォーム
+	 * @throws IOException 画像の保存に失敗した場合
+	 * @throws InvalidImageException 対応していない画像形式の場合、またはサイズが上限を超えている場合
+	 */
+	@Transactional(propagation = Propagation.SUPPORTS)
+	public void insertEmployee(InsertEmployeeForm form) throws IOException {
 		
 		Employee employee = new Employee();
 		BeanUtils.copyProperties(form, employee);
 		
-		//画像ファイルをBase64形式にエンコード
-		String base64File = Base64.getEncoder().encodeToString(form.getImage().getBytes());
-		if("jpg".equals(fileExtension)) {
-			base64File = "data:image/jpag;base64," + base64File;
-		} else if("png".equals(fileExtension)) {
-			base64File = "data:image/png;base64";
+		//画像ファイルを保存し、ハッシュ値をimageにセット
+		try (InputStream in = form.getImage().getInputStream()) {
+			employee.setImage(imageRepository.store(in));
 		}
-		//imageにセット
-		employee.setImage(base64File);
 		//入社日をセット
 		employee.setHireDate(form.getDateHireDate());
 		//給料をint型にキャストしてセット
@@ -94,28 +169,140 @@ public class EmployeeService {
 		//住所（県名・番地を）address一つに変換してセット
 		employee.setAddress(form.getAddress());
 		
-		employeeRepository.insertEmployee(employee);
+		transactionTemplate.executeWithoutResult(status -> {
+			employeeRepository.insertEmployee(employee);
+			employeeNameIndex.put(employee.getId(), employee.getName());
+			invalidateCache(employee.getId());
+			employeeCountService.added(1);
+			employeeChangeStamp.changed();
+			imageVariantService.requestVariants(employee.getImage());
+		});
+	}
+	
+	/**
+	 * 名前に指定した文字列を含む従業員情報をCSVとして書き込みます.
+	 * 
+	 * 従業員情報は1件ずつ読み込んで書き込むため、件数が多くてもメモリ使用量は一定です.
+	 * 出力する項目は一括登録のCSVと同じです.
+	 * 
+	 * @param name 検索する名前の一部 nullまたは空文字の場合は全件
+	 * @param writer 書き込み先
+	 * @throws IOException 書き込みに失敗した場合
+	 */
+	@Transactional(readOnly = true)
+	public void exportCsv(String name, Writer writer) throws IOException {
+		CsvWriter csvWriter = new CsvWriter(writer);
+		csvWriter.writeRecord(EXPORT_COLUMNS);
+		// 件数が多くてもすぐにダウンロードが始まるよう、項目名だけ先に送る
+		csvWriter.flush();
+		
+		SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd");
+		try {
+			employeeRepository.streamByName(name, employee -> {
+				try {
+					csvWriter.writeRecord(Arrays.asList(employee.getId(), employee.getName(), employee.getImage(),
+							employee.getGender(), dateFormat.format(employee.getHireDate()), employee.getMailAddress(),
+							employee.getZipCode(), employee.getAddress(), employee.getTelephone(), employee.getSalary(),
+							employee.getCharacteristics(), employee.getDependentsCount()));
+				} catch (IOException e) {
+					throw new UncheckedIOException(e);
+				}
+			});
+		} catch (UncheckedIOException e) {
+			throw e.getCause();
+		}
+		csvWriter.flush();
 	}
 	
-	public Page<Employee> showListPaging(int page, int size, List<Employee> employeeList){
+	/**
+	 * ハッシュ値から従業員画像のファイルを取得します.
+	 * 
+	 * @param hash 画像のハッシュ値
+	 * @return 画像ファイルのパス 存在しない場合はnullを返します
+	 */
+	public Path findImage(String hash) {
+		return imageRepository.load(hash);
+	}
+	
+	/**
+	 * 従業員画像の画像形式を取得します.
+	 * 
+	 * @param file 画像ファイルのパス
+	 * @return 画像形式 判定できない場合はnullを返します
+	 * @throws IOException 読み込みに失敗した場合
+	 */
+	public ImageType getImageType(Path file) throws IOException {
+		return imageRepository.typeOf(file);
+	}
+	
+	/**
+	 * 従業員一覧を1ページ分取得し、ページングできる形に変換して返します.
+	 * 
+	 * 直前のページの最後の従業員(入社日とID)が渡された場合はそこから続きを取得し、
+	 * 渡されなかった場合は表示させたいページ数から位置を計算して取得します.
+	 * 
+	 * @param page         表示させたいページ数(1始まり)
+	 * @param size         1ページに表示する従業員数
+	 * @param lastHireDate 直前のページの最後の従業員の入社日 指定しない場合はnull
+	 * @param lastId       直前のページの最後の従業員のID 指定しない場合はnull
+	 * @return 該当ページの従業員一覧
+	 */
+	public Page<EmployeeSummary> showListPaging(int page, int size, Date lastHireDate, Integer lastId) {
 		// 表示させたいページ数を-1しなければうまく動かない
-		page--;
-		// どの従業員から表示させるかと言うカウント値
-		int startItemCount = page * size;
-		// 絞り込んだ後の従業員リストが入る変数
-		List<Employee> list;
+		PageRequest pageRequest = PageRequest.of(Math.max(page - 1, 0), size);
 		
-		if (employeeList.size() < startItemCount) {
-			// (ありえないが)もし表示させたい従業員カウントがサイズよりも大きい場合は空のリストを返す
-			list = Collections.emptyList();
+		List<EmployeeSummary> list;
+		if (lastHireDate != null && lastId != null) {
+			// 直前のページの続きから取得
+			list = employeeRepository.findPageAfter(lastHireDate, lastId, size);
 		} else {
-			// 該当ページに表示させる従業員一覧を作成
-			int toIndex = Math.min(startItemCount + size, employeeList.size());
-			list = employeeList.subList(startItemCount, toIndex);
+			// どの従業員から表示させるかをページ数から計算して取得
+			list = employeeRepository.findPage((int) pageRequest.getOffset(), size);
 		}
 		
-		 // 上記で作成した該当ページに表示させる従業員一覧をページングできる形に変換して返す
-		Page<Employee> emplPage = new PageImpl<Employee>(list, PageRequest.of(page, size), employeeList.size());
+		// 上記で作成した該当ページに表示させる従業員一覧をページングできる形に変換して返す
+		Page<EmployeeSummary> emplPage = new PageImpl<EmployeeSummary>(list, pageRequest, employeeCountService.count());
 		return emplPage;
 	}
+	
+	/**
+	 * 従業員情報全体の変更番号を返します.
+	 * 
+	 * 従業員が登録・更新されるたびに大きくなります. DBにはアクセスしません(一定時間ごとの取得し直しを除く).
+	 * 
+	 * @return 変更番号
+	 */
+	@Transactional(propagation = Propagation.SUPPORTS)
+	public long getChangeStamp() {
+		return employeeChangeStamp.current();
+	}
+	
+	/**
+	 * 従業員詳細のキャッシュを破棄します.
+	 * 
+	 * コミット前に他のリクエストが古い従業員情報をキャッシュし直すことがあるため、コミット後にもう一度破棄します.
+	 * コミット前に読み込みを始めたリクエストは、コミット後の破棄より後に登録しようとしても{@link EmployeeCache}が登録しません.
+	 * 
+	 * @param id 従業員ID
+	 */
+	private void invalidateCache(Integer id) {
+		employeeCache.invalidate(id);
+		if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+				@Override
+				public void afterCommit() {
+					employeeCache.invalidate(id);
+				}
+			});
+		}
+	}
+	
+	/**
+	 * 従業員詳細のキャッシュの統計情報を返します.
+	 * 
+	 * @return 統計情報
+	 */
+	public CacheStats getCacheStats() {
+		return employeeCache.stats();
+	}
 }
@@ -0,0 +1,422 @@
+package jp.co.sample.emp_management.service;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import jp.co.sample.emp_management.domain.ImageVariant;
+import jp.co.sample.emp_management.repository.ImageRepository;
+
+/**
+ * 従業員画像から縮小画像({@link ImageVariant})を作成するサービス.
+ *
+ * 縮小画像は従業員の登録後に専用のスレッドプールで作成し、登録のリクエストを待たせません.
+ * 作成待ちの画像はファイルで記録するため、作成中に再起動しても起動後に作成を再開します.
+ * 作成済みの縮小画像は作り直さないため、同じ画像を何度作成待ちにしても結果は同じです.
+ * JPEGの他に、WebPを書き込めるImageIOのプラグインがクラスパスにある場合はWebPも作成します.
+ * 待ち行列が上限に達した場合は作成待ちの記録だけを残し、次回の起動時か画像が表示されたときに作成します.
+ * 状態はexecutor.*{name=image.variants}とapp.image.variantsのメトリクスで確認できます.
+ *
+ * @author naramasato
+ *
+ */
+@Service
+public class ImageVariantService {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(ImageVariantService.class);
+
+	/** メトリクスの名前 */
+	private static final String EXECUTOR_NAME = "image.variants";
+
+	/** JPEGの拡張子 */
+	private static final String JPEG = "jpg";
+
+	/** WebPの拡張子 */
+	private static final String WEBP = "webp";
+
+	/** 待ち行列が上限に達した後、画像の表示時に作成を依頼し直さない時間(ミリ秒) */
+	private static final long RETRY_AFTER_REJECTED_MILLIS = 10_000;
+
+	@Autowired
+	private ImageRepository imageRepository;
+
+	@Autowired
+	private MeterRegistry meterRegistry;
+
+	/** 縮小画像を作成するスレッド数 */
+	@Value("${employee.image.variant-threads:2}")
+	private int threads;
+
+	/** 作成を待てる件数の上限 */
+	@Value("${employee.image.variant-queue-capacity:1000}")
+	private int queueCapacity;
+
+	/** 縮小画像を作成できる元の画像の画素数の上限 */
+	@Value("${employee.image.max-pixels:50000000}")
+	private long maxPixels;
+
+	/** JPEG・WebPの画質(0.0～1.0) */
+	@Value("${employee.image.variant-quality:0.85}")
+	private float quality;
+
+	private ThreadPoolExecutor executor;
+
+	/** 作成する縮小画像の形式(拡張子) */
+	private List<String> formats;
+
+	/** 作成待ち・作成中の画像(同じ画像を重複して待ち行列に入れないため) */
+	private final Set<String> inFlight = ConcurrentHashMap.newKeySet();
+
+	/** 作成に失敗した画像(画像が表示されるたびに作成し直さないため. 再起動後は作成し直す) */
+	private final Set<String> failed = ConcurrentHashMap.newKeySet();
+
+	/** 最後に待ち行列が上限に達して作成を依頼できなかった日時 */
+	private volatile long lastRejectedAt;
+
+	private Counter generatedCounter;
+
+	private Counter failedCounter;
+
+	private Counter rejectedCounter;
+
+	@PostConstruct
+	public void init() {
+		AtomicInteger sequence = new AtomicInteger();
+		executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+				new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+					Thread thread = new Thread(runnable, "image-variants-" + sequence.incrementAndGet());
+					thread.setDaemon(true);
+					// リクエストを処理するスレッドよりCPUを譲る
+					thread.setPriority(Thread.MIN_PRIORITY);
+					return thread;
+				}, new ThreadPoolExecutor.AbortPolicy());
+		new ExecutorServiceMetrics(executor, EXECUTOR_NAME, Tags.empty()).bindTo(meterRegistry);
+		generatedCounter = counter("generated");
+		failedCounter = counter("failed");
+		rejectedCounter = counter("rejected");
+
+		if (ImageIO.getImageWritersByFormatName(WEBP).hasNext()) {
+			// 表示できるブラウザにはサイズの小さいWebPを優先して返す
+			formats = Arrays.asList(WEBP, JPEG);
+		} else {
+			formats = Collections.singletonList(JPEG);
+			LOGGER.info("WebPを書き込めるImageIOのプラグインがないため、縮小画像はJPEGのみ作成します");
+		}
+	}
+
+	private Counter counter(String result) {
+		return Counter.builder("app.image.variants").description("縮小画像の作成を依頼された画像の数(結果別)")
+				.tag("result", result).register(meterRegistry);
+	}
+
+	@PreDestroy
+	public void destroy() {
+		// 作成中・作成待ちの画像は記録が残っているため、次回の起動時に作成し直す
+		executor.shutdownNow();
+	}
+
+	/**
+	 * 前回の起動時に作成が終わらなかった縮小画像の作成を再開します.
+	 */
+	@EventListener(ApplicationReadyEvent.class)
+	public void resume() {
+		try {
+			List<String> pending = imageRepository.findPending();
+			if (!pending.isEmpty()) {
+				LOGGER.info("縮小画像の作成を再開します(" + pending.size() + "件)");
+			}
+			pending.forEach(this::submit);
+		} catch (IOException e) {
+			LOGGER.error("縮小画像の作成待ちの画像を取得できませんでした", e);
+		}
+	}
+
+	/**
+	 * 画像の縮小画像の作成を依頼します.
+	 *
+	 * トランザクション内で呼ばれた場合は、コミットされてから作成を始めます.
+	 *
+	 * @param hash 画像のハッシュ値
+	 */
+	public void requestVariants(String hash) {
+		if (imageRepository.load(hash) == null) {
+			return;
+		}
+		try {
+			imageRepository.markPending(hash);
+		} catch (IOException e) {
+			// 記録できなくても作成は行う(再起動した場合は画像が表示されたときに作成する)
+			LOGGER.warn("縮小画像の作成待ちを記録できませんでした: " + hash, e);
+		}
+		if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+				@Override
+				public void afterCommit() {
+					submit(hash);
+				}
+			});
+		} else {
+			submit(hash);
+		}
+	}
+
+	/**
+	 * 縮小画像を取得します.
+	 *
+	 * まだ作成されていない場合は作成を依頼し、nullを返します.
+	 * 画像の表示のたびに呼ばれるため、作成待ちの記録(登録時に残したもの)は書き込まず、待ち行列に入れるだけにします.
+	 * 待ち行列が上限に達した直後は依頼し直しません.
+	 *
+	 * @param hash        元の画像のハッシュ値
+	 * @param variant     縮小画像の種類
+	 * @param acceptsWebp ブラウザがWebPを表示できる場合はtrue
+	 * @return 縮小画像 まだ作成されていない場合はnullを返します
+	 */
+	public VariantFile findVariant(String hash, ImageVariant variant, boolean acceptsWebp) {
+		for (String format : formats) {
+			if (WEBP.equals(format) && !acceptsWebp) {
+				continue;
+			}
+			Path file = imageRepository.loadVariant(hash, variant, format);
+			if (file != null) {
+				return new VariantFile(file, format);
+			}
+		}
+		if (!failed.contains(hash) && !inFlight.contains(hash)
+				&& System.currentTimeMillis() - lastRejectedAt > RETRY_AFTER_REJECTED_MILLIS) {
+			submit(hash);
+		}
+		return null;
+	}
+
+	private void submit(String hash) {
+		if (!inFlight.add(hash)) {
+			return;
+		}
+		try {
+			executor.execute(() -> {
+				try {
+					generate(hash);
+				} finally {
+					inFlight.remove(hash);
+				}
+			});
+		} catch (RejectedExecutionException e) {
+			inFlight.remove(hash);
+			lastRejectedAt = System.currentTimeMillis();
+			rejectedCounter.increment();
+			LOGGER.warn("縮小画像の作成の待ち行列が上限に達しました. 次回の起動時か画像が表示されたときに作成します: " + hash);
+		}
+	}
+
+	/**
+	 * 作成されていない縮小画像を作成し、作成待ちの記録を削除します.
+	 */
+	private void generate(String hash) {
+		try {
+			Path source = imageRepository.load(hash);
+			if (source != null && !isGenerated(hash)) {
+				BufferedImage image = read(source);
+				for (ImageVariant variant : ImageVariant.values()) {
+					BufferedImage scaled = null;
+					for (String format : formats) {
+						if (imageRepository.loadVariant(hash, variant, format) != null) {
+							continue;
+						}
+						if (scaled == null) {
+							scaled = scale(image, variant);
+						}
+						BufferedImage output = scaled;
+						imageRepository.storeVariant(hash, variant, format, file -> write(output, format, file));
+					}
+				}
+				generatedCounter.increment();
+			}
+			imageRepository.clearPending(hash);
+		} catch (IOException | RuntimeException e) {
+			failed.add(hash);
+			failedCounter.increment();
+			LOGGER.error("縮小画像の作成に失敗しました: " + hash, e);
+		}
+	}
+
+	private boolean isGenerated(String hash) {
+		for (ImageVariant variant : ImageVariant.values()) {
+			for (String format : formats) {
+				if (imageRepository.loadVariant(hash, variant, format) == null) {
+					return false;
+				}
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * 画像を読み込みます.
+	 *
+	 * 元の大きさのままメモリに展開しないよう、一番大きい縮小画像の2倍程度の大きさまで画素を間引いて読み込みます.
+	 */
+	private BufferedImage read(Path source) throws IOException {
+		try (ImageInputStream in = ImageIO.createImageInputStream(source.toFile())) {
+			Iterator<ImageReader> readers = ImageIO.getImageReaders(in);
+			if (!readers.hasNext()) {
+				throw new IOException("画像形式を判定できません");
+			}
+			ImageReader reader = readers.next();
+			try {
+				reader.setInput(in, true, true);
+				int width = reader.getWidth(0);
+				int height = reader.getHeight(0);
+				if ((long) width * height > maxPixels) {
+					throw new IOException("画像の画素数が上限を超えています(" + width + "x" + height + ")");
+				}
+				int step = Integer.MAX_VALUE;
+				for (ImageVariant variant : ImageVariant.values()) {
+					int side = variant.isCrop() ? Math.min(width, height) : Math.max(width, height);
+					step = Math.min(step, side / (variant.getSize() * 2));
+				}
+				ImageReadParam param = reader.getDefaultReadParam();
+				param.setSourceSubsampling(Math.max(step, 1), Math.max(step, 1), 0, 0);
+				return reader.read(0, param);
+			} finally {
+				reader.dispose();
+			}
+		}
+	}
+
+	/**
+	 * 縮小画像の大きさに縮小します.
+	 */
+	private static BufferedImage scale(BufferedImage image, ImageVariant variant) {
+		int width = image.getWidth();
+		int height = image.getHeight();
+		int sourceX = 0;
+		int sourceY = 0;
+		int sourceWidth = width;
+		int sourceHeight = height;
+		int targetWidth;
+		int targetHeight;
+		if (variant.isCrop()) {
+			int side = Math.min(width, height);
+			sourceX = (width - side) / 2;
+			sourceY = (height - side) / 2;
+			sourceWidth = side;
+			sourceHeight = side;
+			targetWidth = variant.getSize();
+			targetHeight = variant.getSize();
+		} else {
+			// 元の画像より大きくはしない
+			double scale = Math.min(1.0, (double) variant.getSize() / Math.max(width, height));
+			targetWidth = Math.max(1, (int) Math.round(width * scale));
+			targetHeight = Math.max(1, (int) Math.round(height * scale));
+		}
+
+		BufferedImage scaled = new BufferedImage(targetWidth, targetHeight, BufferedImage.TYPE_INT_RGB);
+		Graphics2D graphics = scaled.createGraphics();
+		try {
+			graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+			graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+			// JPEGは透過を扱えないため、PNGの透過部分は白にする
+			graphics.setColor(Color.WHITE);
+			graphics.fillRect(0, 0, targetWidth, targetHeight);
+			graphics.drawImage(image, 0, 0, targetWidth, targetHeight, sourceX, sourceY, sourceX + sourceWidth,
+					sourceY + sourceHeight, null);
+		} finally {
+			graphics.dispose();
+		}
+		return scaled;
+	}
+
+	private void write(BufferedImage image, String format, Path file) throws IOException {
+		ImageWriter writer = ImageIO.getImageWritersByFormatName(format).next();
+		try (ImageOutputStream out = ImageIO.createImageOutputStream(file.toFile())) {
+			writer.setOutput(out);
+			ImageWriteParam param = writer.getDefaultWriteParam();
+			if (param.canWriteCompressed()) {
+				param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+				String[] types = param.getCompressionTypes();
+				if (types != null && param.getCompressionType() == null) {
+					// WebPのプラグインは非可逆圧縮(先頭の種類)を選んでから画質を指定する
+					param.setCompressionType(types[0]);
+				}
+				param.setCompressionQuality(quality);
+			}
+			writer.write(null, new IIOImage(image, null, null), param);
+		} finally {
+			writer.dispose();
+		}
+	}
+
+	/**
+	 * 作成済みの縮小画像.
+	 */
+	public static final class VariantFile {
+		private final Path file;
+		private final String format;
+
+		private VariantFile(Path file, String format) {
+			this.file = file;
+			this.format = format;
+		}
+
+		/**
+		 * @return 縮小画像のパス
+		 */
+		public Path getFile() {
+			return file;
+		}
+
+		/**
+		 * @return 形式(拡張子)
+		 */
+		public String getFormat() {
+			return format;
+		}
+
+		/**
+		 * @return Content-Typeヘッダに使用するMIMEタイプ
+		 */
+		public String getContentType() {
+			return WEBP.equals(format) ? "image/webp" : "image/jpeg";
+		}
+	}
+}
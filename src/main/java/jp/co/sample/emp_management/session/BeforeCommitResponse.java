@@ -0,0 +1,102 @@
+package jp.co.sample.emp_management.session;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.function.Consumer;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+
+/**
+ * レスポンスを書き出し始める直前(getWriter、sendRedirectなど)に1回だけ処理を行うレスポンス.
+ *
+ * セッションのCookieのように、ヘッダーとして書き出す必要がありレスポンスを確定する前でなければ設定できないものに使います.
+ *
+ * @author naramasato
+ *
+ */
+class BeforeCommitResponse extends HttpServletResponseWrapper {
+
+	private final Consumer<BeforeCommitResponse> beforeCommit;
+
+	private boolean done;
+
+	/**
+	 * @param response     レスポンス
+	 * @param beforeCommit レスポンスを書き出し始める直前に行う処理(このレスポンスを受け取る)
+	 */
+	BeforeCommitResponse(HttpServletResponse response, Consumer<BeforeCommitResponse> beforeCommit) {
+		super(response);
+		this.beforeCommit = beforeCommit;
+	}
+
+	/**
+	 * まだ行っていなければ処理を行います. リクエストの処理の最後にも呼び出してください.
+	 */
+	void runBeforeCommit() {
+		if (done || isCommitted()) {
+			return;
+		}
+		done = true;
+		beforeCommit.accept(this);
+	}
+
+	/**
+	 * Set-Cookieヘッダーを追加します.
+	 *
+	 * @param name   Cookieの名前
+	 * @param value  Cookieの値
+	 * @param path   パス
+	 * @param maxAge 有効期間(秒) 負の場合はブラウザを閉じるまで
+	 * @param secure HTTPSの場合だけ送信させる場合はtrue
+	 */
+	void addSessionCookie(String name, String value, String path, int maxAge, boolean secure) {
+		StringBuilder header = new StringBuilder(name).append('=').append(value).append("; Path=")
+				.append(path.isEmpty() ? "/" : path);
+		if (maxAge >= 0) {
+			header.append("; Max-Age=").append(maxAge);
+		}
+		header.append("; HttpOnly; SameSite=Lax");
+		if (secure) {
+			header.append("; Secure");
+		}
+		addHeader("Set-Cookie", header.toString());
+	}
+
+	@Override
+	public PrintWriter getWriter() throws IOException {
+		runBeforeCommit();
+		return super.getWriter();
+	}
+
+	@Override
+	public ServletOutputStream getOutputStream() throws IOException {
+		runBeforeCommit();
+		return super.getOutputStream();
+	}
+
+	@Override
+	public void sendRedirect(String location) throws IOException {
+		runBeforeCommit();
+		super.sendRedirect(location);
+	}
+
+	@Override
+	public void sendError(int sc) throws IOException {
+		runBeforeCommit();
+		super.sendError(sc);
+	}
+
+	@Override
+	public void sendError(int sc, String msg) throws IOException {
+		runBeforeCommit();
+		super.sendError(sc, msg);
+	}
+
+	@Override
+	public void flushBuffer() throws IOException {
+		runBeforeCommit();
+		super.flushBuffer();
+	}
+}
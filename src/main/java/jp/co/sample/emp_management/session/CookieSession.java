@@ -0,0 +1,222 @@
+package jp.co.sample.emp_management.session;
+
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+
+import javax.servlet.ServletContext;
+import javax.servlet.http.HttpSession;
+import javax.servlet.http.HttpSessionContext;
+
+/**
+ * 署名付きCookieに保存するセッション.
+ *
+ * サーバーには状態を持たず、属性はレスポンスのCookieに書き出します({@link SignedCookieSessionFilter}).
+ * Cookieのサイズを抑えるため、属性の値は文字列だけを保存できます.
+ *
+ * @author naramasato
+ *
+ */
+public class CookieSession implements HttpSession {
+
+	/** セッションIDを保持する属性の名前 */
+	static final String ID_ATTRIBUTE = "_sid";
+
+	private final ServletContext servletContext;
+
+	private final Map<String, String> attributes;
+
+	private final long creationTime;
+
+	private final boolean isNew;
+
+	private int maxInactiveInterval;
+
+	/** 属性が変更されたか */
+	private boolean dirty;
+
+	private boolean invalidated;
+
+	/**
+	 * @param servletContext      ServletContext
+	 * @param attributes          Cookieから読み込んだ属性 新しいセッションの場合はnull
+	 * @param creationTime        作成日時(エポックミリ秒)
+	 * @param maxInactiveInterval 有効期間(秒)
+	 */
+	CookieSession(ServletContext servletContext, Map<String, String> attributes, long creationTime,
+			int maxInactiveInterval) {
+		this.servletContext = servletContext;
+		this.attributes = attributes == null ? new LinkedHashMap<>() : new LinkedHashMap<>(attributes);
+		this.isNew = attributes == null;
+		this.creationTime = creationTime;
+		this.maxInactiveInterval = maxInactiveInterval;
+		if (!this.attributes.containsKey(ID_ATTRIBUTE)) {
+			this.attributes.put(ID_ATTRIBUTE, UUID.randomUUID().toString().replace("-", ""));
+		}
+	}
+
+	/**
+	 * Cookieに書き出す属性を返します.
+	 *
+	 * @return 属性(セッションIDを含む)
+	 */
+	Map<String, String> getAttributesForCookie() {
+		return attributes;
+	}
+
+	/**
+	 * セッションIDを新しくします(ログイン時のセッション固定攻撃対策).
+	 *
+	 * @return 新しいセッションID
+	 */
+	String changeId() {
+		checkValid();
+		String id = UUID.randomUUID().toString().replace("-", "");
+		attributes.put(ID_ATTRIBUTE, id);
+		dirty = true;
+		return id;
+	}
+
+	/**
+	 * @return 属性が変更された場合はtrue
+	 */
+	boolean isDirty() {
+		return dirty;
+	}
+
+	/**
+	 * @return 無効にされた場合はtrue
+	 */
+	boolean isInvalidated() {
+		return invalidated;
+	}
+
+	/**
+	 * @return セッションIDの他に属性がない場合はtrue
+	 */
+	boolean isEmpty() {
+		return attributes.size() <= 1;
+	}
+
+	@Override
+	public long getCreationTime() {
+		return creationTime;
+	}
+
+	@Override
+	public String getId() {
+		return attributes.get(ID_ATTRIBUTE);
+	}
+
+	@Override
+	public long getLastAccessedTime() {
+		return creationTime;
+	}
+
+	@Override
+	public ServletContext getServletContext() {
+		return servletContext;
+	}
+
+	@Override
+	public void setMaxInactiveInterval(int interval) {
+		this.maxInactiveInterval = interval;
+	}
+
+	@Override
+	public int getMaxInactiveInterval() {
+		return maxInactiveInterval;
+	}
+
+	@Override
+	@Deprecated
+	public HttpSessionContext getSessionContext() {
+		return null;
+	}
+
+	@Override
+	public Object getAttribute(String name) {
+		checkValid();
+		return ID_ATTRIBUTE.equals(name) ? null : attributes.get(name);
+	}
+
+	@Override
+	@Deprecated
+	public Object getValue(String name) {
+		return getAttribute(name);
+	}
+
+	@Override
+	public Enumeration<String> getAttributeNames() {
+		checkValid();
+		Map<String, String> copy = new LinkedHashMap<>(attributes);
+		copy.remove(ID_ATTRIBUTE);
+		return Collections.enumeration(copy.keySet());
+	}
+
+	@Override
+	@Deprecated
+	public String[] getValueNames() {
+		return Collections.list(getAttributeNames()).toArray(new String[0]);
+	}
+
+	/**
+	 * @throws IllegalArgumentException 値が文字列でない場合
+	 */
+	@Override
+	public void setAttribute(String name, Object value) {
+		checkValid();
+		if (value == null) {
+			removeAttribute(name);
+			return;
+		}
+		if (!(value instanceof String)) {
+			throw new IllegalArgumentException("Cookieのセッションには文字列だけを保存できます: " + name);
+		}
+		if (ID_ATTRIBUTE.equals(name)) {
+			throw new IllegalArgumentException(name + "は予約されている属性名です");
+		}
+		if (!value.equals(attributes.put(name, (String) value))) {
+			dirty = true;
+		}
+	}
+
+	@Override
+	@Deprecated
+	public void putValue(String name, Object value) {
+		setAttribute(name, value);
+	}
+
+	@Override
+	public void removeAttribute(String name) {
+		checkValid();
+		if (!ID_ATTRIBUTE.equals(name) && attributes.remove(name) != null) {
+			dirty = true;
+		}
+	}
+
+	@Override
+	@Deprecated
+	public void removeValue(String name) {
+		removeAttribute(name);
+	}
+
+	@Override
+	public void invalidate() {
+		checkValid();
+		invalidated = true;
+	}
+
+	@Override
+	public boolean isNew() {
+		return isNew;
+	}
+
+	private void checkValid() {
+		if (invalidated) {
+			throw new IllegalStateException("セッションは無効になっています");
+		}
+	}
+}
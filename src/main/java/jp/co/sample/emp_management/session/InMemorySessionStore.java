@@ -0,0 +1,94 @@
+package jp.co.sample.emp_management.session;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JVM内に保持するセッションのストア.
+ *
+ * 有効期間が過ぎたセッションは読み込み時と、一定間隔で行う掃除で削除します.
+ * 1台で動かす場合や、{@link KeyValueSessionStore}の代わりに開発・試験で使うことを想定しています.
+ *
+ * @author naramasato
+ *
+ */
+public class InMemorySessionStore implements SessionStore, AutoCloseable {
+
+	private final Map<String, Entry> sessions = new ConcurrentHashMap<>();
+
+	private final ScheduledExecutorService sweeper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+		Thread thread = new Thread(runnable, "session-store-sweeper");
+		thread.setDaemon(true);
+		return thread;
+	});
+
+	/**
+	 * @param sweepIntervalSeconds 有効期間が過ぎたセッションを削除する間隔(秒)
+	 */
+	public InMemorySessionStore(long sweepIntervalSeconds) {
+		sweeper.scheduleWithFixedDelay(this::sweep, sweepIntervalSeconds, sweepIntervalSeconds, TimeUnit.SECONDS);
+	}
+
+	@Override
+	public Map<String, Object> load(String id) {
+		Entry entry = sessions.get(id);
+		if (entry == null) {
+			return null;
+		}
+		if (entry.isExpired(System.currentTimeMillis())) {
+			sessions.remove(id, entry);
+			return null;
+		}
+		return new HashMap<>(entry.attributes);
+	}
+
+	@Override
+	public void save(String id, Map<String, Object> changed, Set<String> removed, int maxInactiveSeconds) {
+		long expiresAt = System.currentTimeMillis() + maxInactiveSeconds * 1000L;
+		sessions.compute(id, (key, entry) -> {
+			if (entry == null || entry.isExpired(System.currentTimeMillis())) {
+				entry = new Entry();
+			}
+			entry.attributes.putAll(changed);
+			entry.attributes.keySet().removeAll(removed);
+			entry.expiresAt = expiresAt;
+			return entry;
+		});
+	}
+
+	@Override
+	public void delete(String id) {
+		sessions.remove(id);
+	}
+
+	/**
+	 * @return 保持しているセッション数(有効期間が過ぎたものを含む)
+	 */
+	public int size() {
+		return sessions.size();
+	}
+
+	@Override
+	public void close() {
+		sweeper.shutdownNow();
+	}
+
+	private void sweep() {
+		long now = System.currentTimeMillis();
+		sessions.values().removeIf(entry -> entry.isExpired(now));
+	}
+
+	private static final class Entry {
+		private final Map<String, Object> attributes = new ConcurrentHashMap<>();
+		private volatile long expiresAt;
+
+		private boolean isExpired(long now) {
+			return now >= expiresAt;
+		}
+	}
+}
@@ -0,0 +1,87 @@
+package jp.co.sample.emp_management.session;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import org.springframework.util.SerializationUtils;
+
+/**
+ * ノード間で共有するキー・バリュー型のストア(Redisなど)にセッションを保存するアダプター.
+ *
+ * セッションはキー「接頭辞 + セッションID」のハッシュとして保存し、属性ごとにJavaのシリアライズでバイト列にします.
+ * ストアとの通信は{@link Client}に実装してください(Redisの場合はHGETALL、HSET/HDEL/EXPIREをMULTIでまとめる、DEL).
+ *
+ * @author naramasato
+ *
+ */
+public class KeyValueSessionStore implements SessionStore {
+
+	/**
+	 * キー・バリュー型のストアのクライアント.
+	 */
+	public interface Client {
+
+		/**
+		 * ハッシュのすべてのフィールドを読み込みます.
+		 *
+		 * @param key キー
+		 * @return フィールドと値 キーがない場合は空またはnull
+		 */
+		Map<String, byte[]> getAll(String key);
+
+		/**
+		 * ハッシュのフィールドを追加・削除し、キーの有効期間を設定します. 1回の通信で行ってください.
+		 *
+		 * @param key        キー
+		 * @param put        追加・変更するフィールドと値
+		 * @param remove     削除するフィールド
+		 * @param ttlSeconds 有効期間(秒)
+		 */
+		void update(String key, Map<String, byte[]> put, Set<String> remove, int ttlSeconds);
+
+		/**
+		 * キーを削除します.
+		 *
+		 * @param key キー
+		 */
+		void delete(String key);
+	}
+
+	private final Client client;
+
+	private final String keyPrefix;
+
+	/**
+	 * @param client    ストアのクライアント
+	 * @param keyPrefix キーの接頭辞(例: emp:session:)
+	 */
+	public KeyValueSessionStore(Client client, String keyPrefix) {
+		this.client = client;
+		this.keyPrefix = keyPrefix;
+	}
+
+	@Override
+	public Map<String, Object> load(String id) {
+		Map<String, byte[]> fields = client.getAll(keyPrefix + id);
+		if (fields == null || fields.isEmpty()) {
+			return null;
+		}
+		Map<String, Object> attributes = new HashMap<>();
+		fields.forEach((name, value) -> attributes.put(name, SerializationUtils.deserialize(value)));
+		return attributes;
+	}
+
+	@Override
+	public void save(String id, Map<String, Object> changed, Set<String> removed, int maxInactiveSeconds) {
+		Map<String, byte[]> put = new LinkedHashMap<>();
+		changed.forEach((name, value) -> put.put(name, SerializationUtils.serialize(value)));
+		client.update(keyPrefix + id, put, removed, maxInactiveSeconds);
+	}
+
+	@Override
+	public void delete(String id) {
+		client.delete(keyPrefix + id);
+	}
+}
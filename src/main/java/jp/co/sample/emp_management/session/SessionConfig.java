@@ -0,0 +1,97 @@
+package jp.co.sample.emp_management.session;
+
+import javax.servlet.DispatcherType;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+
+/**
+ * セッションの保存先に関する設定.
+ *
+ * employee.session.modeで保存先を切り替えます.
+ * <ul>
+ * <li>servlet: 従来どおりHttpSession(サーバーのメモリ)に保存する</li>
+ * <li>cookie: 署名付きCookieに保存し、サーバーには状態を持たない</li>
+ * <li>store: {@link SessionStore}に保存する(ノード間で共有するストアを使えばスティッキーセッションが不要になる)</li>
+ * </ul>
+ *
+ * @author naramasato
+ *
+ */
+@Configuration(proxyBeanMethods = false)
+public class SessionConfig {
+
+	/** セッションのフィルターの順序(RequestContextFilterやコントローラーより前にリクエストを包む) */
+	static final int FILTER_ORDER = Ordered.HIGHEST_PRECEDENCE + 50;
+
+	/**
+	 * 署名付きCookieにセッションを保存するフィルター.
+	 *
+	 * @param keys          署名に使う鍵(「鍵ID:鍵(Base64)」のカンマ区切り、先頭の鍵で署名)
+	 * @param cookieName    Cookieの名前
+	 * @param maxAgeSeconds 有効期間(秒)
+	 * @param secure        HTTPSの場合だけCookieを送信させる場合はtrue
+	 * @return フィルターの登録
+	 */
+	@Bean
+	@ConditionalOnProperty(name = "employee.session.mode", havingValue = "cookie")
+	public FilterRegistrationBean<SignedCookieSessionFilter> signedCookieSessionFilter(
+			@Value("${employee.session.cookie.keys:}") String keys,
+			@Value("${employee.session.cookie.name:EMP_SESSION}") String cookieName,
+			@Value("${employee.session.cookie.max-age-seconds:1800}") int maxAgeSeconds,
+			@Value("${employee.session.cookie.secure:false}") boolean secure) {
+		SignedCookieSessionFilter filter = new SignedCookieSessionFilter(new SignedCookieCodec(keys), cookieName,
+				maxAgeSeconds, secure);
+		FilterRegistrationBean<SignedCookieSessionFilter> registration = new FilterRegistrationBean<>(filter);
+		registration.setOrder(FILTER_ORDER);
+		// 非同期のログインの続きで書き込んだセッションを、結果を返すディスパッチの最後に書き出す
+		registration.setDispatcherTypes(DispatcherType.REQUEST, DispatcherType.ASYNC);
+		return registration;
+	}
+
+	/**
+	 * セッションのストアにセッションを保存するフィルター.
+	 *
+	 * @param store                セッションのストア
+	 * @param cookieName           セッションIDを保存するCookieの名前
+	 * @param maxInactiveSeconds   有効期間(秒)
+	 * @param touchIntervalSeconds 変更がない場合に有効期間を延長する間隔(秒)
+	 * @param secure               HTTPSの場合だけCookieを送信させる場合はtrue
+	 * @return フィルターの登録
+	 */
+	@Bean
+	@ConditionalOnProperty(name = "employee.session.mode", havingValue = "store")
+	public FilterRegistrationBean<StoreSessionFilter> storeSessionFilter(SessionStore store,
+			@Value("${employee.session.cookie.name:EMP_SESSION}") String cookieName,
+			@Value("${employee.session.store.max-inactive-seconds:1800}") int maxInactiveSeconds,
+			@Value("${employee.session.store.touch-interval-seconds:60}") int touchIntervalSeconds,
+			@Value("${employee.session.cookie.secure:false}") boolean secure) {
+		StoreSessionFilter filter = new StoreSessionFilter(store, cookieName, maxInactiveSeconds, touchIntervalSeconds,
+				secure);
+		FilterRegistrationBean<StoreSessionFilter> registration = new FilterRegistrationBean<>(filter);
+		registration.setOrder(FILTER_ORDER);
+		registration.setDispatcherTypes(DispatcherType.REQUEST, DispatcherType.ASYNC);
+		return registration;
+	}
+
+	/**
+	 * セッションのストア. 共有するストアを使う場合は{@link KeyValueSessionStore}などのBeanを定義してください.
+	 *
+	 * 既定では1台で動かすためのメモリ上のストアを使います.
+	 *
+	 * @param sweepIntervalSeconds 期限切れのセッションを削除する間隔(秒)
+	 * @return セッションのストア
+	 */
+	@Bean(destroyMethod = "close")
+	@ConditionalOnProperty(name = "employee.session.mode", havingValue = "store")
+	@ConditionalOnMissingBean(SessionStore.class)
+	public InMemorySessionStore inMemorySessionStore(
+			@Value("${employee.session.store.sweep-interval-seconds:60}") int sweepIntervalSeconds) {
+		return new InMemorySessionStore(sweepIntervalSeconds);
+	}
+}
@@ -0,0 +1,44 @@
+package jp.co.sample.emp_management.session;
+
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * セッションの属性を保存する場所.
+ *
+ * 今はJVM内に保持する{@link InMemorySessionStore}を使います.
+ * 複数台で動かす場合は{@link KeyValueSessionStore}にRedisなどノード間で共有できるストアのクライアントを組み合わせて使ってください.
+ * {@link StoreSessionFilter}は1リクエストにつき最大1回だけsaveを呼び出します.
+ *
+ * @author naramasato
+ *
+ */
+public interface SessionStore {
+
+	/**
+	 * セッションの属性を読み込みます.
+	 *
+	 * @param id セッションID
+	 * @return 属性 セッションがない場合や有効期間が過ぎている場合はnull
+	 */
+	Map<String, Object> load(String id);
+
+	/**
+	 * 変更された属性を保存し、有効期間を延長します. セッションがない場合は作成します.
+	 *
+	 * 他のリクエストが同時に別の属性を変更しても上書きしないよう、変更された属性だけを保存します.
+	 *
+	 * @param id                 セッションID
+	 * @param changed            追加・変更された属性(変更がない場合は空)
+	 * @param removed            削除された属性の名前
+	 * @param maxInactiveSeconds 有効期間(秒)
+	 */
+	void save(String id, Map<String, Object> changed, Set<String> removed, int maxInactiveSeconds);
+
+	/**
+	 * セッションを削除します.
+	 *
+	 * @param id セッションID
+	 */
+	void delete(String id);
+}
@@ -0,0 +1,193 @@
+package jp.co.sample.emp_management.session;
+
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * セッションの属性をHMAC-SHA256で署名したCookieの値に変換するクラス.
+ *
+ * Cookieの値は「鍵ID.属性(Base64URL).署名(Base64URL)」の形式で、属性は「名前=値」を&でつないだものです.
+ * 鍵は「鍵ID:鍵(Base64)」をカンマで区切って指定し、先頭の鍵で署名します.
+ * 2番目以降の鍵は検証だけに使うため、先頭に新しい鍵を追加すれば発行済みのCookieを無効にせずに鍵を切り替えられます.
+ *
+ * @author naramasato
+ *
+ */
+public class SignedCookieCodec {
+
+	private static final String ALGORITHM = "HmacSHA256";
+
+	/** 発行日時(エポック秒)を保持する属性の名前 */
+	private static final String ISSUED_AT = "_iat";
+
+	private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+
+	private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+	/** 鍵IDごとのMac(署名ごとにcloneして使う) */
+	private final Map<String, Mac> macs = new LinkedHashMap<>();
+
+	private final String currentKeyId;
+
+	/**
+	 * @param keys 「鍵ID:鍵(Base64)」をカンマで区切った文字列. 先頭の鍵で署名します
+	 * @throws IllegalArgumentException 鍵が指定されていない場合や、形式が正しくない場合
+	 */
+	public SignedCookieCodec(String keys) {
+		String firstKeyId = null;
+		for (String entry : keys.split(",")) {
+			String trimmed = entry.trim();
+			if (trimmed.isEmpty()) {
+				continue;
+			}
+			int separator = trimmed.indexOf(':');
+			if (separator <= 0 || trimmed.indexOf('.') >= 0) {
+				throw new IllegalArgumentException("鍵は「鍵ID:鍵(Base64)」の形式で指定してください");
+			}
+			String keyId = trimmed.substring(0, separator);
+			byte[] secret = Base64.getDecoder().decode(trimmed.substring(separator + 1));
+			if (secret.length < 32) {
+				throw new IllegalArgumentException("鍵" + keyId + "は32バイト以上にしてください");
+			}
+			try {
+				Mac mac = Mac.getInstance(ALGORITHM);
+				mac.init(new SecretKeySpec(secret, ALGORITHM));
+				macs.put(keyId, mac);
+			} catch (GeneralSecurityException e) {
+				throw new IllegalStateException(e);
+			}
+			if (firstKeyId == null) {
+				firstKeyId = keyId;
+			}
+		}
+		if (firstKeyId == null) {
+			throw new IllegalArgumentException("セッションのCookieに署名する鍵が指定されていません");
+		}
+		this.currentKeyId = firstKeyId;
+	}
+
+	/**
+	 * 属性を署名付きのCookieの値に変換します.
+	 *
+	 * @param attributes 属性
+	 * @param issuedAt   発行日時(エポック秒)
+	 * @return Cookieの値
+	 */
+	public String encode(Map<String, String> attributes, long issuedAt) {
+		StringBuilder payload = new StringBuilder(ISSUED_AT).append('=').append(issuedAt);
+		attributes.forEach((name, value) -> payload.append('&').append(urlEncode(name)).append('=')
+				.append(urlEncode(value)));
+		String body = currentKeyId + "." + ENCODER.encodeToString(payload.toString().getBytes(StandardCharsets.UTF_8));
+		return body + "." + ENCODER.encodeToString(sign(currentKeyId, body));
+	}
+
+	/**
+	 * Cookieの値の署名を検証し、属性に戻します.
+	 *
+	 * @param value Cookieの値
+	 * @return 属性と発行日時 署名が正しくない場合や形式が正しくない場合はnull
+	 */
+	public Decoded decode(String value) {
+		int signatureStart = value.lastIndexOf('.');
+		int keyIdEnd = value.indexOf('.');
+		if (keyIdEnd <= 0 || signatureStart <= keyIdEnd) {
+			return null;
+		}
+		String keyId = value.substring(0, keyIdEnd);
+		String body = value.substring(0, signatureStart);
+		try {
+			byte[] signature = DECODER.decode(value.substring(signatureStart + 1));
+			if (!macs.containsKey(keyId) || !MessageDigest.isEqual(signature, sign(keyId, body))) {
+				return null;
+			}
+			String payload = new String(DECODER.decode(value.substring(keyIdEnd + 1, signatureStart)),
+					StandardCharsets.UTF_8);
+			Map<String, String> attributes = new LinkedHashMap<>();
+			long issuedAt = -1;
+			for (String pair : payload.split("&")) {
+				int separator = pair.indexOf('=');
+				if (separator < 0) {
+					return null;
+				}
+				String name = urlDecode(pair.substring(0, separator));
+				String attributeValue = urlDecode(pair.substring(separator + 1));
+				if (ISSUED_AT.equals(name)) {
+					issuedAt = Long.parseLong(attributeValue);
+				} else {
+					attributes.put(name, attributeValue);
+				}
+			}
+			if (issuedAt < 0) {
+				return null;
+			}
+			return new Decoded(attributes, issuedAt, currentKeyId.equals(keyId));
+		} catch (IllegalArgumentException e) {
+			// Base64や数値の形式が正しくない
+			return null;
+		}
+	}
+
+	private byte[] sign(String keyId, String body) {
+		try {
+			// Macはスレッドセーフではないため、初期化済みのものを複製して使う
+			Mac mac = (Mac) macs.get(keyId).clone();
+			return mac.doFinal(body.getBytes(StandardCharsets.US_ASCII));
+		} catch (CloneNotSupportedException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private static String urlEncode(String value) {
+		return URLEncoder.encode(value, StandardCharsets.UTF_8);
+	}
+
+	private static String urlDecode(String value) {
+		return URLDecoder.decode(value, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * 検証したCookieの内容.
+	 */
+	public static final class Decoded {
+		private final Map<String, String> attributes;
+		private final long issuedAt;
+		private final boolean currentKey;
+
+		private Decoded(Map<String, String> attributes, long issuedAt, boolean currentKey) {
+			this.attributes = Collections.unmodifiableMap(attributes);
+			this.issuedAt = issuedAt;
+			this.currentKey = currentKey;
+		}
+
+		/**
+		 * @return 属性
+		 */
+		public Map<String, String> getAttributes() {
+			return attributes;
+		}
+
+		/**
+		 * @return 発行日時(エポック秒)
+		 */
+		public long getIssuedAt() {
+			return issuedAt;
+		}
+
+		/**
+		 * @return 現在の鍵で署名されている場合はtrue(古い鍵の場合は新しい鍵で署名し直す)
+		 */
+		public boolean isCurrentKey() {
+			return currentKey;
+		}
+	}
+}
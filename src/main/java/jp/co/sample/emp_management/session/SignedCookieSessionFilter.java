@@ -0,0 +1,188 @@
+package jp.co.sample.emp_management.session;
+
+import java.io.IOException;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.Cookie;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletRequestWrapper;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpSession;
+
+import org.springframework.web.filter.OncePerRequestFilter;
+
+/**
+ * HttpSessionの代わりに署名付きCookieにセッションの属性を保存するフィルター.
+ *
+ * request.getSession()が{@link CookieSession}を返すようにするため、コントローラーやテンプレート(${session.name})は変更せずに使えます.
+ * サーバーにはセッションの状態を持たないため、複数のノードで動かしてもスティッキーセッションやセッションの複製は不要です.
+ * Cookieはレスポンスを書き出し始める前(getWriter、sendRedirectなど)か、リクエストの処理が終わった時点で1回だけ書き出します.
+ * 非同期処理(ログインなど)の場合は、結果を返すディスパッチが終わった時点で書き出すため、ASYNCのディスパッチにも登録してください.
+ * 有効期間の半分を過ぎたセッションや古い鍵で署名されたセッションは、現在の鍵で署名し直して有効期間を延長します.
+ * サーバー側で無効にできないため、ログアウトはCookieの削除で行います.
+ *
+ * @author naramasato
+ *
+ */
+public class SignedCookieSessionFilter extends OncePerRequestFilter {
+
+	/** 非同期処理の結果を返すリクエストに、最初のリクエストで包んだリクエストを引き継ぐための属性名 */
+	private static final String REQUEST_ATTRIBUTE = SignedCookieSessionFilter.class.getName() + ".REQUEST";
+
+	private final SignedCookieCodec codec;
+
+	private final String cookieName;
+
+	/** 有効期間(秒) */
+	private final int maxAgeSeconds;
+
+	private final boolean secure;
+
+	/**
+	 * @param codec         Cookieの値の署名・検証
+	 * @param cookieName    Cookieの名前
+	 * @param maxAgeSeconds 有効期間(秒)
+	 * @param secure        HTTPSの場合だけCookieを送信させる場合はtrue
+	 */
+	public SignedCookieSessionFilter(SignedCookieCodec codec, String cookieName, int maxAgeSeconds, boolean secure) {
+		this.codec = codec;
+		this.cookieName = cookieName;
+		this.maxAgeSeconds = maxAgeSeconds;
+		this.secure = secure;
+	}
+
+	@Override
+	protected boolean shouldNotFilterAsyncDispatch() {
+		// 非同期処理の結果を返した後にCookieを書き出すため、非同期のディスパッチでも呼び出す
+		return false;
+	}
+
+	@Override
+	protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+			throws ServletException, IOException {
+		SessionRequest sessionRequest = (SessionRequest) request.getAttribute(REQUEST_ATTRIBUTE);
+		if (sessionRequest != null) {
+			// 非同期処理の結果を返すディスパッチ(リクエスト・レスポンスは最初のリクエストで包んだもの)
+			try {
+				chain.doFilter(request, response);
+			} finally {
+				if (!request.isAsyncStarted()) {
+					sessionRequest.response.runBeforeCommit();
+				}
+			}
+			return;
+		}
+		sessionRequest = new SessionRequest(request);
+		SessionRequest current = sessionRequest;
+		sessionRequest.response = new BeforeCommitResponse(response, committing -> writeCookie(current, committing));
+		request.setAttribute(REQUEST_ATTRIBUTE, sessionRequest);
+		try {
+			chain.doFilter(sessionRequest, sessionRequest.response);
+		} finally {
+			// 非同期処理の場合は、結果を返すディスパッチの最後か、結果を書き出すときにCookieを書き出す
+			if (!sessionRequest.isAsyncStarted()) {
+				sessionRequest.response.runBeforeCommit();
+			}
+		}
+	}
+
+	/**
+	 * セッションが変更されていればCookieを書き出します.
+	 */
+	private void writeCookie(SessionRequest request, BeforeCommitResponse response) {
+		if (!request.resolved) {
+			// セッションを使わなかった
+			return;
+		}
+		CookieSession session = request.session;
+		if (session != null && !session.isInvalidated() && !session.isEmpty()) {
+			if (session.isDirty() || session.isNew() || request.refresh) {
+				long now = System.currentTimeMillis() / 1000;
+				response.addSessionCookie(cookieName, codec.encode(session.getAttributesForCookie(), now),
+						request.getContextPath(), maxAgeSeconds, secure);
+			}
+		} else if (request.hadCookie) {
+			// ログアウトした、または不正・期限切れのCookieを削除する
+			response.addSessionCookie(cookieName, "", request.getContextPath(), 0, secure);
+		}
+	}
+
+	/**
+	 * getSession()でCookieのセッションを返すリクエスト.
+	 */
+	private final class SessionRequest extends HttpServletRequestWrapper {
+		/** Cookieを読み込んだか */
+		private boolean resolved;
+		/** リクエストにセッションのCookieがあったか */
+		private boolean hadCookie;
+		/** 現在の鍵で署名し直す必要があるか */
+		private boolean refresh;
+		private CookieSession session;
+		private BeforeCommitResponse response;
+
+		SessionRequest(HttpServletRequest request) {
+			super(request);
+		}
+
+		@Override
+		public HttpSession getSession() {
+			return getSession(true);
+		}
+
+		@Override
+		public HttpSession getSession(boolean create) {
+			resolve();
+			if (session != null && !session.isInvalidated()) {
+				return session;
+			}
+			if (!create) {
+				return null;
+			}
+			session = new CookieSession(getServletContext(), null, System.currentTimeMillis(), maxAgeSeconds);
+			return session;
+		}
+
+		@Override
+		public String changeSessionId() {
+			HttpSession current = getSession(false);
+			if (current == null) {
+				throw new IllegalStateException("セッションがありません");
+			}
+			return ((CookieSession) current).changeId();
+		}
+
+		@Override
+		public boolean isRequestedSessionIdValid() {
+			resolve();
+			return session != null && !session.isNew();
+		}
+
+		private void resolve() {
+			if (resolved) {
+				return;
+			}
+			resolved = true;
+			Cookie[] cookies = getCookies();
+			if (cookies == null) {
+				return;
+			}
+			for (Cookie cookie : cookies) {
+				if (!cookieName.equals(cookie.getName())) {
+					continue;
+				}
+				hadCookie = true;
+				SignedCookieCodec.Decoded decoded = codec.decode(cookie.getValue());
+				long now = System.currentTimeMillis() / 1000;
+				if (decoded == null || now - decoded.getIssuedAt() >= maxAgeSeconds) {
+					// 改ざんされているか期限切れ
+					continue;
+				}
+				session = new CookieSession(getServletContext(), decoded.getAttributes(),
+						decoded.getIssuedAt() * 1000, maxAgeSeconds);
+				refresh = !decoded.isCurrentKey() || now - decoded.getIssuedAt() > maxAgeSeconds / 2;
+				return;
+			}
+		}
+	}
+}
@@ -0,0 +1,242 @@
+package jp.co.sample.emp_management.session;
+
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import javax.servlet.ServletContext;
+import javax.servlet.http.HttpSession;
+import javax.servlet.http.HttpSessionContext;
+
+/**
+ * {@link SessionStore}に保存するセッション.
+ *
+ * リクエストの間は読み込んだ属性をこのオブジェクトに保持し、変更・削除された属性を記録しておきます.
+ * 記録した変更は{@link StoreSessionFilter}がリクエストの最後にまとめて保存します.
+ * getAttributeで取得したオブジェクトの中身を変更しただけでは保存されないため、変更した場合はsetAttributeし直してください.
+ *
+ * @author naramasato
+ *
+ */
+public class StoreSession implements HttpSession {
+
+	/** 作成日時を保持する属性の名前 */
+	static final String CREATION_TIME_ATTRIBUTE = "_created";
+
+	/** 最後にストアの有効期間を延長した日時を保持する属性の名前 */
+	static final String TOUCHED_AT_ATTRIBUTE = "_touched";
+
+	private final ServletContext servletContext;
+
+	private final Map<String, Object> attributes;
+
+	private final boolean isNew;
+
+	private final long lastAccessedTime = System.currentTimeMillis();
+
+	private String id;
+
+	/** このリクエストで変更前に使っていたセッションID(IDを変更した場合) */
+	private String previousId;
+
+	private int maxInactiveInterval;
+
+	private final Map<String, Object> changed = new LinkedHashMap<>();
+
+	private final Set<String> removed = new HashSet<>();
+
+	private boolean invalidated;
+
+	/**
+	 * @param servletContext      ServletContext
+	 * @param id                  セッションID
+	 * @param attributes          ストアから読み込んだ属性 新しいセッションの場合はnull
+	 * @param maxInactiveInterval 有効期間(秒)
+	 */
+	StoreSession(ServletContext servletContext, String id, Map<String, Object> attributes, int maxInactiveInterval) {
+		this.servletContext = servletContext;
+		this.id = id;
+		this.isNew = attributes == null;
+		this.attributes = attributes == null ? new HashMap<>() : new HashMap<>(attributes);
+		this.maxInactiveInterval = maxInactiveInterval;
+		if (isNew) {
+			Long now = System.currentTimeMillis();
+			this.attributes.put(CREATION_TIME_ATTRIBUTE, now);
+			changed.put(CREATION_TIME_ATTRIBUTE, now);
+		}
+	}
+
+	/**
+	 * セッションIDを変更します. 保存時に古いIDのセッションは削除し、すべての属性を新しいIDで保存します.
+	 *
+	 * @param newId 新しいセッションID
+	 */
+	void changeId(String newId) {
+		checkValid();
+		if (previousId == null) {
+			previousId = id;
+		}
+		id = newId;
+		changed.putAll(attributes);
+	}
+
+	String getPreviousId() {
+		return previousId;
+	}
+
+	Map<String, Object> getChanged() {
+		return changed;
+	}
+
+	Set<String> getRemoved() {
+		return removed;
+	}
+
+	/**
+	 * @return 最後にストアの有効期間を延長した日時 記録がない場合は0
+	 */
+	long getTouchedAt() {
+		Object touchedAt = attributes.get(TOUCHED_AT_ATTRIBUTE);
+		return touchedAt instanceof Long ? (Long) touchedAt : 0;
+	}
+
+	/**
+	 * 有効期間を延長した日時を記録し、保存の対象にします.
+	 *
+	 * @param now 現在日時
+	 */
+	void touch(long now) {
+		Long touchedAt = now;
+		attributes.put(TOUCHED_AT_ATTRIBUTE, touchedAt);
+		changed.put(TOUCHED_AT_ATTRIBUTE, touchedAt);
+	}
+
+	boolean isInvalidated() {
+		return invalidated;
+	}
+
+	@Override
+	public long getCreationTime() {
+		Object created = attributes.get(CREATION_TIME_ATTRIBUTE);
+		return created instanceof Long ? (Long) created : lastAccessedTime;
+	}
+
+	@Override
+	public String getId() {
+		return id;
+	}
+
+	@Override
+	public long getLastAccessedTime() {
+		return lastAccessedTime;
+	}
+
+	@Override
+	public ServletContext getServletContext() {
+		return servletContext;
+	}
+
+	@Override
+	public void setMaxInactiveInterval(int interval) {
+		this.maxInactiveInterval = interval;
+	}
+
+	@Override
+	public int getMaxInactiveInterval() {
+		return maxInactiveInterval;
+	}
+
+	@Override
+	@Deprecated
+	public HttpSessionContext getSessionContext() {
+		return null;
+	}
+
+	@Override
+	public Object getAttribute(String name) {
+		checkValid();
+		return isReserved(name) ? null : attributes.get(name);
+	}
+
+	@Override
+	@Deprecated
+	public Object getValue(String name) {
+		return getAttribute(name);
+	}
+
+	@Override
+	public Enumeration<String> getAttributeNames() {
+		checkValid();
+		Set<String> names = new HashSet<>(attributes.keySet());
+		names.remove(CREATION_TIME_ATTRIBUTE);
+		names.remove(TOUCHED_AT_ATTRIBUTE);
+		return Collections.enumeration(names);
+	}
+
+	@Override
+	@Deprecated
+	public String[] getValueNames() {
+		return Collections.list(getAttributeNames()).toArray(new String[0]);
+	}
+
+	@Override
+	public void setAttribute(String name, Object value) {
+		checkValid();
+		if (value == null) {
+			removeAttribute(name);
+			return;
+		}
+		if (isReserved(name)) {
+			throw new IllegalArgumentException(name + "は予約されている属性名です");
+		}
+		attributes.put(name, value);
+		changed.put(name, value);
+		removed.remove(name);
+	}
+
+	@Override
+	@Deprecated
+	public void putValue(String name, Object value) {
+		setAttribute(name, value);
+	}
+
+	@Override
+	public void removeAttribute(String name) {
+		checkValid();
+		if (!isReserved(name) && attributes.remove(name) != null) {
+			changed.remove(name);
+			removed.add(name);
+		}
+	}
+
+	@Override
+	@Deprecated
+	public void removeValue(String name) {
+		removeAttribute(name);
+	}
+
+	@Override
+	public void invalidate() {
+		checkValid();
+		invalidated = true;
+	}
+
+	@Override
+	public boolean isNew() {
+		return isNew;
+	}
+
+	private static boolean isReserved(String name) {
+		return CREATION_TIME_ATTRIBUTE.equals(name) || TOUCHED_AT_ATTRIBUTE.equals(name);
+	}
+
+	private void checkValid() {
+		if (invalidated) {
+			throw new IllegalStateException("セッションは無効になっています");
+		}
+	}
+}
@@ -0,0 +1,233 @@
+package jp.co.sample.emp_management.session;
+
+import java.io.IOException;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.Map;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.Cookie;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletRequestWrapper;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpSession;
+
+import org.springframework.web.filter.OncePerRequestFilter;
+
+/**
+ * HttpSessionの代わりに{@link SessionStore}にセッションの属性を保存するフィルター.
+ *
+ * request.getSession()が{@link StoreSession}を返すようにするため、コントローラーやテンプレートは変更せずに使えます.
+ * ストアをノード間で共有すれば、スティッキーセッションなしのロードバランサーの後ろで複数台動かせます.
+ * CookieにはランダムなセッションIDだけを保存し、サーバー側で削除(ログアウト)できます.
+ * ストアへの書き込みはリクエストの最後に1回だけ、変更があった場合か、前回の書き込みから一定時間経った場合(有効期間の延長)に行います.
+ *
+ * @author naramasato
+ *
+ */
+public class StoreSessionFilter extends OncePerRequestFilter {
+
+	/** 非同期処理の結果を返すリクエストに、最初のリクエストで作ったセッションを引き継ぐための属性名 */
+	private static final String REQUEST_ATTRIBUTE = StoreSessionFilter.class.getName() + ".REQUEST";
+
+	private static final Base64.Encoder ID_ENCODER = Base64.getUrlEncoder().withoutPadding();
+
+	private final SecureRandom random = new SecureRandom();
+
+	private final SessionStore store;
+
+	private final String cookieName;
+
+	/** 有効期間(秒) */
+	private final int maxInactiveSeconds;
+
+	/** 変更がない場合に有効期間を延長する間隔(ミリ秒) */
+	private final long touchIntervalMillis;
+
+	private final boolean secure;
+
+	/**
+	 * @param store                セッションのストア
+	 * @param cookieName           セッションIDを保存するCookieの名前
+	 * @param maxInactiveSeconds   有効期間(秒)
+	 * @param touchIntervalSeconds 変更がない場合に有効期間を延長する間隔(秒)
+	 * @param secure               HTTPSの場合だけCookieを送信させる場合はtrue
+	 */
+	public StoreSessionFilter(SessionStore store, String cookieName, int maxInactiveSeconds, int touchIntervalSeconds,
+			boolean secure) {
+		this.store = store;
+		this.cookieName = cookieName;
+		this.maxInactiveSeconds = maxInactiveSeconds;
+		this.touchIntervalMillis = touchIntervalSeconds * 1000L;
+		this.secure = secure;
+	}
+
+	@Override
+	protected boolean shouldNotFilterAsyncDispatch() {
+		// 非同期処理の結果を返した後にセッションを保存するため、非同期のディスパッチでも呼び出す
+		return false;
+	}
+
+	@Override
+	protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+			throws ServletException, IOException {
+		SessionRequest sessionRequest = (SessionRequest) request.getAttribute(REQUEST_ATTRIBUTE);
+		if (sessionRequest != null) {
+			// 非同期処理の結果を返すディスパッチ(リクエスト・レスポンスは最初のリクエストで包んだもの)
+			try {
+				chain.doFilter(request, response);
+			} finally {
+				if (!request.isAsyncStarted()) {
+					sessionRequest.response.runBeforeCommit();
+					sessionRequest.save();
+				}
+			}
+			return;
+		}
+		sessionRequest = new SessionRequest(request);
+		SessionRequest current = sessionRequest;
+		sessionRequest.response = new BeforeCommitResponse(response, committing -> writeCookie(current, committing));
+		request.setAttribute(REQUEST_ATTRIBUTE, sessionRequest);
+		try {
+			chain.doFilter(sessionRequest, sessionRequest.response);
+		} finally {
+			if (!sessionRequest.isAsyncStarted()) {
+				sessionRequest.response.runBeforeCommit();
+				sessionRequest.save();
+			}
+		}
+	}
+
+	/**
+	 * セッションIDが新しくなった場合や、セッションが無効になった場合にCookieを書き出します.
+	 */
+	private void writeCookie(SessionRequest request, BeforeCommitResponse response) {
+		if (!request.resolved) {
+			// セッションを使わなかった
+			return;
+		}
+		// getSession()の後に無効にしたセッションをinvalidatedSessionに移す
+		request.getSession(false);
+		StoreSession session = request.session;
+		if (session != null && !session.isInvalidated()) {
+			if (session.isNew() || session.getPreviousId() != null) {
+				response.addSessionCookie(cookieName, session.getId(), request.getContextPath(), -1, secure);
+			}
+		} else if (request.invalidatedSession != null || request.staleCookie) {
+			response.addSessionCookie(cookieName, "", request.getContextPath(), 0, secure);
+		}
+	}
+
+	private String newSessionId() {
+		byte[] bytes = new byte[24];
+		random.nextBytes(bytes);
+		return ID_ENCODER.encodeToString(bytes);
+	}
+
+	/**
+	 * getSession()でストアのセッションを返すリクエスト.
+	 */
+	private final class SessionRequest extends HttpServletRequestWrapper {
+		private boolean resolved;
+		/** リクエストのCookieのセッションがストアになかった */
+		private boolean staleCookie;
+		private StoreSession session;
+		/** このリクエストで無効にしたセッション */
+		private StoreSession invalidatedSession;
+		private boolean saved;
+		private BeforeCommitResponse response;
+
+		SessionRequest(HttpServletRequest request) {
+			super(request);
+		}
+
+		@Override
+		public HttpSession getSession() {
+			return getSession(true);
+		}
+
+		@Override
+		public HttpSession getSession(boolean create) {
+			resolve();
+			if (session != null && session.isInvalidated()) {
+				invalidatedSession = session;
+				session = null;
+			}
+			if (session == null && create) {
+				session = new StoreSession(getServletContext(), newSessionId(), null, maxInactiveSeconds);
+			}
+			return session;
+		}
+
+		@Override
+		public String changeSessionId() {
+			HttpSession current = getSession(false);
+			if (current == null) {
+				throw new IllegalStateException("セッションがありません");
+			}
+			String id = newSessionId();
+			((StoreSession) current).changeId(id);
+			return id;
+		}
+
+		@Override
+		public boolean isRequestedSessionIdValid() {
+			resolve();
+			return session != null && !session.isNew();
+		}
+
+		private void resolve() {
+			if (resolved) {
+				return;
+			}
+			resolved = true;
+			Cookie[] cookies = getCookies();
+			if (cookies == null) {
+				return;
+			}
+			for (Cookie cookie : cookies) {
+				if (!cookieName.equals(cookie.getName()) || cookie.getValue().isEmpty()) {
+					continue;
+				}
+				Map<String, Object> attributes = store.load(cookie.getValue());
+				if (attributes == null) {
+					staleCookie = true;
+					continue;
+				}
+				session = new StoreSession(getServletContext(), cookie.getValue(), attributes, maxInactiveSeconds);
+				return;
+			}
+		}
+
+		/**
+		 * セッションの変更をストアに保存します. 2回目以降は何もしません.
+		 */
+		void save() {
+			if (saved || !resolved) {
+				return;
+			}
+			saved = true;
+			getSession(false);
+			if (invalidatedSession != null) {
+				store.delete(invalidatedSession.getPreviousId() != null ? invalidatedSession.getPreviousId()
+						: invalidatedSession.getId());
+			}
+			if (session == null) {
+				return;
+			}
+			if (session.getPreviousId() != null) {
+				store.delete(session.getPreviousId());
+			}
+			long now = System.currentTimeMillis();
+			boolean touch = now - session.getTouchedAt() >= touchIntervalMillis;
+			if (session.getChanged().isEmpty() && session.getRemoved().isEmpty() && !touch) {
+				return;
+			}
+			if (touch) {
+				session.touch(now);
+			}
+			store.save(session.getId(), session.getChanged(), session.getRemoved(), session.getMaxInactiveInterval());
+		}
+	}
+}
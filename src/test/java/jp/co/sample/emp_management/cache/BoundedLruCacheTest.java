@@ -0,0 +1,96 @@
+package jp.co.sample.emp_management.cache;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * {@link BoundedLruCache}のテスト.
+ *
+ * @author naramasato
+ *
+ */
+class BoundedLruCacheTest {
+
+	@Test
+	void evictsLeastRecentlyUsedWhenOverWeight() {
+		BoundedLruCache<String, String> cache = new BoundedLruCache<>(3, String::length, 0);
+		cache.put("a", "x");
+		cache.put("b", "x");
+		cache.put("c", "x");
+		// aを参照したため、最も長い間参照されていないのはbになる
+		cache.get("a");
+
+		cache.put("d", "x");
+
+		assertThat(cache.get("b")).isNull();
+		assertThat(cache.get("a")).isEqualTo("x");
+		assertThat(cache.get("c")).isEqualTo("x");
+		assertThat(cache.get("d")).isEqualTo("x");
+		assertThat(cache.stats().getEvictionCount()).isEqualTo(1);
+	}
+
+	@Test
+	void evictsByTotalWeight() {
+		BoundedLruCache<String, String> cache = new BoundedLruCache<>(10, String::length, 0);
+		cache.put("a", "xxxx");
+		cache.put("b", "xxxx");
+
+		cache.put("c", "xxxxxx");
+
+		assertThat(cache.get("a")).isNull();
+		assertThat(cache.get("b")).isEqualTo("xxxx");
+		assertThat(cache.stats().getWeight()).isEqualTo(10);
+	}
+
+	@Test
+	void replacingKeyKeepsWeightConsistent() {
+		BoundedLruCache<String, String> cache = new BoundedLruCache<>(10, String::length, 0);
+		cache.put("a", "xxxx");
+
+		cache.put("a", "xx");
+		cache.invalidate("missing");
+
+		assertThat(cache.stats().getWeight()).isEqualTo(2);
+		assertThat(cache.stats().getSize()).isEqualTo(1);
+		cache.invalidate("a");
+		assertThat(cache.stats().getWeight()).isZero();
+	}
+
+	@Test
+	void skipsValueHeavierThanLimit() {
+		BoundedLruCache<String, String> cache = new BoundedLruCache<>(3, String::length, 0);
+		cache.put("a", "x");
+
+		cache.put("b", "xxxx");
+
+		assertThat(cache.get("b")).isNull();
+		// 大きすぎるデータのために他のデータを追い出さない
+		assertThat(cache.get("a")).isEqualTo("x");
+	}
+
+	@Test
+	void expiresEntriesAfterTtl() throws InterruptedException {
+		BoundedLruCache<String, String> cache = new BoundedLruCache<>(10, String::length, 50);
+		cache.put("a", "x");
+		assertThat(cache.get("a")).isEqualTo("x");
+
+		Thread.sleep(100);
+
+		assertThat(cache.get("a")).isNull();
+		assertThat(cache.stats().getWeight()).isZero();
+	}
+
+	@Test
+	void countsHitsAndMisses() {
+		BoundedLruCache<String, String> cache = new BoundedLruCache<>(10, String::length, 0);
+		cache.put("a", "x");
+
+		cache.get("a");
+		cache.get("a");
+		cache.get("b");
+
+		assertThat(cache.stats().getHitCount()).isEqualTo(2);
+		assertThat(cache.stats().getMissCount()).isEqualTo(1);
+	}
+}
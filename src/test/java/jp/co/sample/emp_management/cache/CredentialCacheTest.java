@@ -0,0 +1,97 @@
+package jp.co.sample.emp_management.cache;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Optional;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import jp.co.sample.emp_management.domain.Administrator;
+
+/**
+ * {@link CredentialCache}のテスト.
+ *
+ * @author naramasato
+ *
+ */
+class CredentialCacheTest {
+
+	private static final String MAIL = "admin@example.com";
+
+	private final LocalCacheInvalidationBroker broker = new LocalCacheInvalidationBroker();
+
+	@Test
+	void cachesLoadedCredential() {
+		CredentialCache cache = cache();
+
+		long generation = cache.beginLoad(MAIL);
+		cache.put(MAIL, administrator("$2a$10$old"), generation);
+
+		assertThat(cache.get(MAIL)).hasValueSatisfying(a -> assertThat(a.getPassword()).isEqualTo("$2a$10$old"));
+	}
+
+	@Test
+	void cachesAbsentCredential() {
+		CredentialCache cache = cache();
+
+		cache.put(MAIL, null, cache.beginLoad(MAIL));
+
+		assertThat(cache.get(MAIL)).isEqualTo(Optional.empty());
+	}
+
+	@Test
+	void dropsCredentialReadBeforeCommittedChange() {
+		CredentialCache cache = cache();
+
+		// ログインのリクエストがキャッシュにない管理者情報を読み込み始める
+		long generation = cache.beginLoad(MAIL);
+		Administrator staleRow = administrator("$2a$10$old");
+		// 別のリクエストがパスワードをハッシュ化し直してコミットし、コミット後にキャッシュを破棄する
+		cache.invalidate(MAIL);
+		// 読み込みを始めたリクエストがコミット前の行を登録しようとする
+		cache.put(MAIL, staleRow, generation);
+
+		assertThat(cache.get(MAIL)).isNull();
+		long next = cache.beginLoad(MAIL);
+		cache.put(MAIL, administrator("$2a$12$new"), next);
+		assertThat(cache.get(MAIL)).hasValueSatisfying(a -> assertThat(a.getPassword()).isEqualTo("$2a$12$new"));
+	}
+
+	@Test
+	void dropsAbsentReadBeforeCommittedInsert() {
+		CredentialCache cache = cache();
+
+		long generation = cache.beginLoad(MAIL);
+		// 読み込んでいる間に管理者が登録された
+		cache.invalidate(MAIL);
+		cache.put(MAIL, null, generation);
+
+		assertThat(cache.get(MAIL)).isNull();
+	}
+
+	@Test
+	void dropsCredentialInvalidatedByOtherNodeDuringLoad() {
+		CredentialCache cache = cache();
+		CredentialCache otherNode = cache();
+
+		long generation = cache.beginLoad(MAIL);
+		otherNode.invalidate(MAIL);
+		cache.put(MAIL, administrator("$2a$10$old"), generation);
+
+		assertThat(cache.get(MAIL)).isNull();
+	}
+
+	private CredentialCache cache() {
+		CredentialCache cache = new CredentialCache();
+		ReflectionTestUtils.setField(cache, "broker", broker);
+		ReflectionTestUtils.setField(cache, "maxEntries", 100L);
+		ReflectionTestUtils.setField(cache, "ttlMillis", 300_000L);
+		cache.init();
+		return cache;
+	}
+
+	private static Administrator administrator(String password) {
+		return new Administrator(1, "管理者", MAIL, password);
+	}
+}
@@ -0,0 +1,147 @@
+package jp.co.sample.emp_management.cache;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import jp.co.sample.emp_management.domain.Employee;
+
+/**
+ * {@link LocalEmployeeCache}のテスト.
+ *
+ * @author naramasato
+ *
+ */
+class LocalEmployeeCacheTest {
+
+	private final LocalCacheInvalidationBroker broker = new LocalCacheInvalidationBroker();
+
+	@Test
+	void cachesLoadedEmployee() {
+		LocalEmployeeCache cache = cache(300_000);
+
+		long generation = cache.beginLoad(1);
+		cache.put(employee(1, 1), generation);
+
+		assertThat(cache.get(1).getVersion()).isEqualTo(1);
+	}
+
+	@Test
+	void dropsEmployeeInvalidatedDuringLoad() {
+		LocalEmployeeCache cache = cache(300_000);
+
+		long generation = cache.beginLoad(1);
+		Employee staleRow = employee(1, 1);
+		// 読み込んでいる間に別のリクエストが更新してコミットした
+		cache.invalidate(1);
+		cache.put(staleRow, generation);
+
+		assertThat(cache.get(1)).isNull();
+		cache.put(employee(1, 2), cache.beginLoad(1));
+		assertThat(cache.get(1).getVersion()).isEqualTo(2);
+	}
+
+	@Test
+	void dropsEmployeeInvalidatedByOtherNodeDuringLoad() {
+		LocalEmployeeCache cache = cache(300_000);
+		LocalEmployeeCache otherNode = cache(300_000);
+
+		long generation = cache.beginLoad(1);
+		otherNode.invalidate(1);
+		cache.put(employee(1, 1), generation);
+
+		assertThat(cache.get(1)).isNull();
+	}
+
+	@Test
+	void invalidateAllFromOtherNodeDropsEveryLoadInProgress() {
+		LocalEmployeeCache cache = cache(300_000);
+		cache.put(employee(2, 1), cache.beginLoad(2));
+
+		long generation = cache.beginLoad(1);
+		broker.publish(new InvalidationMessage("other-node", LocalEmployeeCache.CACHE_NAME, null));
+		cache.put(employee(1, 1), generation);
+
+		assertThat(cache.get(1)).isNull();
+		assertThat(cache.get(2)).isNull();
+	}
+
+	@Test
+	void expiresEmployeeAfterTtl() throws InterruptedException {
+		LocalEmployeeCache cache = cache(50);
+		cache.put(employee(1, 1), cache.beginLoad(1));
+
+		Thread.sleep(100);
+
+		assertThat(cache.get(1)).isNull();
+	}
+
+	@Test
+	void neverKeepsStaleEmployeeUnderConcurrentInvalidation() throws Exception {
+		LocalEmployeeCache cache = cache(300_000);
+		// DBの従業員情報のversion
+		AtomicInteger committedVersion = new AtomicInteger();
+		AtomicBoolean writing = new AtomicBoolean(true);
+		ExecutorService executor = Executors.newFixedThreadPool(5);
+		try {
+			List<Future<?>> readers = new ArrayList<>();
+			for (int i = 0; i < 4; i++) {
+				readers.add(executor.submit(() -> {
+					while (writing.get()) {
+						if (cache.get(1) == null) {
+							long generation = cache.beginLoad(1);
+							Employee loaded = employee(1, committedVersion.get());
+							cache.put(loaded, generation);
+						}
+					}
+				}));
+			}
+			Future<?> writer = executor.submit(() -> {
+				for (int version = 1; version <= 10_000; version++) {
+					committedVersion.set(version);
+					// コミット後の無効化
+					cache.invalidate(1);
+				}
+				writing.set(false);
+			});
+			writer.get(30, TimeUnit.SECONDS);
+			for (Future<?> reader : readers) {
+				reader.get(30, TimeUnit.SECONDS);
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+
+		Employee cached = cache.get(1);
+		if (cached != null) {
+			assertThat(cached.getVersion()).isEqualTo(10_000);
+		}
+	}
+
+	private LocalEmployeeCache cache(long ttlMillis) {
+		LocalEmployeeCache cache = new LocalEmployeeCache();
+		ReflectionTestUtils.setField(cache, "broker", broker);
+		ReflectionTestUtils.setField(cache, "maxBytes", 1_000_000L);
+		ReflectionTestUtils.setField(cache, "ttlMillis", ttlMillis);
+		cache.init();
+		return cache;
+	}
+
+	private static Employee employee(int id, int version) {
+		Employee employee = new Employee();
+		employee.setId(id);
+		employee.setName("山田 太郎");
+		employee.setVersion(version);
+		return employee;
+	}
+}
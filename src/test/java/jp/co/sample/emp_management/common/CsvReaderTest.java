@@ -0,0 +1,124 @@
+package jp.co.sample.emp_management.common;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * {@link CsvReader}のテスト.
+ *
+ * @author naramasato
+ *
+ */
+class CsvReaderTest {
+
+	@Test
+	void readsSimpleRecords() throws IOException {
+		List<List<String>> records = readAll("a,b,c\n1,2,3\n");
+
+		assertThat(records).containsExactly(List.of("a", "b", "c"), List.of("1", "2", "3"));
+	}
+
+	@Test
+	void readsLastRecordWithoutLineBreak() throws IOException {
+		List<List<String>> records = readAll("a,b\n1,2");
+
+		assertThat(records).containsExactly(List.of("a", "b"), List.of("1", "2"));
+	}
+
+	@Test
+	void keepsEmptyFields() throws IOException {
+		List<List<String>> records = readAll(",x,\n\n");
+
+		assertThat(records).containsExactly(List.of("", "x", ""), List.of(""));
+	}
+
+	@Test
+	void readsCommaInQuotedField() throws IOException {
+		List<List<String>> records = readAll("\"東京都,港区\",1\n");
+
+		assertThat(records).containsExactly(List.of("東京都,港区", "1"));
+	}
+
+	@Test
+	void unescapesDoubledQuotes() throws IOException {
+		List<List<String>> records = readAll("\"彼は\"\"明るい\"\"性格\",\"\"\"\"\n");
+
+		assertThat(records).containsExactly(List.of("彼は\"明るい\"性格", "\""));
+	}
+
+	@Test
+	void treatsCrLfAsOneLineBreak() throws IOException {
+		try (CsvReader reader = new CsvReader(new StringReader("a,b\r\n1,2\r\n3,4"))) {
+			assertThat(reader.readRecord()).containsExactly("a", "b");
+			assertThat(reader.getLineNumber()).isEqualTo(1);
+			assertThat(reader.readRecord()).containsExactly("1", "2");
+			assertThat(reader.getLineNumber()).isEqualTo(2);
+			assertThat(reader.readRecord()).containsExactly("3", "4");
+			assertThat(reader.getLineNumber()).isEqualTo(3);
+			assertThat(reader.readRecord()).isNull();
+		}
+	}
+
+	@Test
+	void skipsBomAtStart() throws IOException {
+		List<List<String>> records = readAll("\uFEFFname,image\n");
+
+		assertThat(records).containsExactly(List.of("name", "image"));
+	}
+
+	@Test
+	void keepsBomAfterFirstRecord() throws IOException {
+		List<List<String>> records = readAll("a\n\uFEFFb\n");
+
+		assertThat(records).containsExactly(List.of("a"), List.of("\uFEFFb"));
+	}
+
+	@Test
+	void readsLineBreaksInQuotedFieldAndCountsLines() throws IOException {
+		try (CsvReader reader = new CsvReader(new StringReader("h1,h2\n\"1行目\n2行目\r\n3行目\",x\nnext,y\n"))) {
+			assertThat(reader.readRecord()).containsExactly("h1", "h2");
+			assertThat(reader.getLineNumber()).isEqualTo(1);
+
+			assertThat(reader.readRecord()).containsExactly("1行目\n2行目\r\n3行目", "x");
+			// レコードの行番号は開始行
+			assertThat(reader.getLineNumber()).isEqualTo(2);
+
+			assertThat(reader.readRecord()).containsExactly("next", "y");
+			assertThat(reader.getLineNumber()).isEqualTo(5);
+		}
+	}
+
+	@Test
+	void returnsNullForEmptyInput() throws IOException {
+		try (CsvReader reader = new CsvReader(new StringReader(""))) {
+			assertThat(reader.readRecord()).isNull();
+		}
+	}
+
+	@Test
+	void failsOnUnterminatedQuote() throws IOException {
+		try (CsvReader reader = new CsvReader(new StringReader("a,b\n\"閉じていない,1\n2\n"))) {
+			reader.readRecord();
+
+			assertThatThrownBy(reader::readRecord).isInstanceOf(IOException.class).hasMessageContaining("2行目");
+		}
+	}
+
+	private static List<List<String>> readAll(String csv) throws IOException {
+		List<List<String>> records = new ArrayList<>();
+		try (CsvReader reader = new CsvReader(new StringReader(csv))) {
+			List<String> record;
+			while ((record = reader.readRecord()) != null) {
+				records.add(record);
+			}
+		}
+		return records;
+	}
+}
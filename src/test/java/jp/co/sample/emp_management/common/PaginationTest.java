@@ -0,0 +1,57 @@
+package jp.co.sample.emp_management.common;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+
+/**
+ * {@link Pagination}のテスト.
+ *
+ * @author naramasato
+ *
+ */
+class PaginationTest {
+
+	private static final int PAGE_SIZE = 10;
+
+	@Test
+	void showsPagesAroundCurrent() {
+		Pagination pagination = Pagination.of(page(12, 500), 2);
+
+		assertThat(pagination.getCurrent()).isEqualTo(12);
+		assertThat(pagination.getPageNumbers()).containsExactly(10, 11, 12, 13, 14);
+		assertThat(pagination.isShowFirst()).isTrue();
+		assertThat(pagination.isShowLeadingGap()).isTrue();
+		assertThat(pagination.isShowLast()).isTrue();
+		assertThat(pagination.isShowTrailingGap()).isTrue();
+	}
+
+	@Test
+	void clampsPageBeyondLastPage() {
+		// 全50ページのところに60ページ目が指定された
+		Pagination pagination = Pagination.of(page(60, 500), 2);
+
+		assertThat(pagination.getCurrent()).isEqualTo(50);
+		assertThat(pagination.getPageNumbers()).containsExactly(48, 49, 50);
+		assertThat(pagination.isShowFirst()).isTrue();
+		assertThat(pagination.isShowLast()).isFalse();
+	}
+
+	@Test
+	void showsNoPagesWhenEmpty() {
+		Pagination pagination = Pagination.of(page(3, 0), 2);
+
+		assertThat(pagination.getTotalPages()).isZero();
+		assertThat(pagination.getPageNumbers()).isEmpty();
+		assertThat(pagination.isShowFirst()).isFalse();
+		assertThat(pagination.isShowLast()).isFalse();
+	}
+
+	private static PageImpl<Object> page(int pageNumber, long total) {
+		return new PageImpl<>(List.of(), PageRequest.of(pageNumber - 1, PAGE_SIZE), total);
+	}
+}
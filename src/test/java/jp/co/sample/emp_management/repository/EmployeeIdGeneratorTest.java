@@ -0,0 +1,114 @@
+package jp.co.sample.emp_management.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.test.util.ReflectionTestUtils;
+
+/**
+ * {@link EmployeeIdGenerator}のテスト.
+ *
+ * @author naramasato
+ *
+ */
+class EmployeeIdGeneratorTest {
+
+	private static final int BLOCK_SIZE = 50;
+
+	@Test
+	void handsOutIdsFromReservedBlocks() {
+		SequenceTemplate sequence = new SequenceTemplate();
+		EmployeeIdGenerator generator = generator(sequence);
+
+		List<Integer> ids = IntStream.range(0, 120).mapToObj(i -> generator.nextId()).collect(Collectors.toList());
+
+		assertThat(ids).isEqualTo(IntStream.rangeClosed(1, 120).boxed().collect(Collectors.toList()));
+		assertThat(sequence.calls.get()).isEqualTo(3);
+	}
+
+	@Test
+	void refillsEachBlockOnceUnderContention() throws Exception {
+		SequenceTemplate sequence = new SequenceTemplate();
+		EmployeeIdGenerator generator = generator(sequence);
+		int threads = 16;
+		int idsPerThread = 1000;
+		Set<Integer> ids = ConcurrentHashMap.newKeySet();
+		AtomicInteger duplicates = new AtomicInteger();
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		CountDownLatch start = new CountDownLatch(1);
+		try {
+			List<Future<?>> futures = new ArrayList<>();
+			for (int i = 0; i < threads; i++) {
+				futures.add(executor.submit(() -> {
+					start.await();
+					for (int j = 0; j < idsPerThread; j++) {
+						if (!ids.add(generator.nextId())) {
+							duplicates.incrementAndGet();
+						}
+					}
+					return null;
+				}));
+			}
+			start.countDown();
+			for (Future<?> future : futures) {
+				future.get(30, TimeUnit.SECONDS);
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+
+		int total = threads * idsPerThread;
+		assertThat(duplicates.get()).isZero();
+		// 同時に使い切っても範囲は1回ずつしか予約せず、予約した範囲のIDを飛ばさない
+		assertThat(ids).hasSize(total).allMatch(id -> id >= 1 && id <= total);
+		assertThat(sequence.calls.get()).isEqualTo(total / BLOCK_SIZE);
+	}
+
+	private static EmployeeIdGenerator generator(SequenceTemplate sequence) {
+		EmployeeIdGenerator generator = new EmployeeIdGenerator();
+		ReflectionTestUtils.setField(generator, "blockSize", BLOCK_SIZE);
+		ReflectionTestUtils.setField(generator, "template", sequence);
+		return generator;
+	}
+
+	/**
+	 * INCREMENT BY 50のemployees_id_seqの代わりに、呼び出された回数を数えるテンプレート.
+	 */
+	private static final class SequenceTemplate extends NamedParameterJdbcTemplate {
+		private final AtomicLong nextValue = new AtomicLong(1);
+		private final AtomicInteger calls = new AtomicInteger();
+
+		SequenceTemplate() {
+			super(new JdbcTemplate());
+		}
+
+		@Override
+		public <T> T queryForObject(String sql, SqlParameterSource paramSource, Class<T> requiredType) {
+			calls.incrementAndGet();
+			try {
+				// DBアクセスの間に他のスレッドが使い切るよう少し待つ
+				Thread.sleep(1);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			return requiredType.cast(nextValue.getAndAdd(BLOCK_SIZE));
+		}
+	}
+}
@@ -0,0 +1,288 @@
+package jp.co.sample.emp_management.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import jp.co.sample.emp_management.common.InvalidImageException;
+import jp.co.sample.emp_management.common.ServerBusyException;
+import jp.co.sample.emp_management.domain.ImageType;
+
+/**
+ * {@link ImageRepository}のテスト.
+ *
+ * @author naramasato
+ *
+ */
+class ImageRepositoryTest {
+
+	private static final byte[] PNG_MAGIC = { (byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n' };
+
+	private static final byte[] JPEG_MAGIC = { (byte) 0xFF, (byte) 0xD8, (byte) 0xFF };
+
+	@TempDir
+	Path dir;
+
+	@Test
+	void storesImageUnderItsHash() throws Exception {
+		ImageRepository repository = repository(1024, 8);
+		byte[] png = image(PNG_MAGIC, 3000);
+
+		String hash = repository.store(new ByteArrayInputStream(png));
+
+		assertThat(hash).isEqualTo(sha256(png));
+		Path file = repository.load(hash);
+		assertThat(file).isNotNull();
+		assertThat(Files.readAllBytes(file)).isEqualTo(png);
+		assertThat(repository.typeOf(file)).isEqualTo(ImageType.PNG);
+		assertThat(temporaryFiles()).isEmpty();
+	}
+
+	@Test
+	void detectsTypeWhenHeaderArrivesInSmallReads() throws Exception {
+		ImageRepository repository = repository(1024, 8);
+		byte[] jpeg = image(JPEG_MAGIC, 100);
+
+		String hash = repository.store(new OneByteInputStream(jpeg));
+
+		assertThat(Files.readAllBytes(repository.load(hash))).isEqualTo(jpeg);
+	}
+
+	@Test
+	void rejectsUnsupportedFormat() throws Exception {
+		ImageRepository repository = repository(1024, 8);
+		byte[] gif = image("GIF89a".getBytes(), 100);
+
+		assertThatThrownBy(() -> repository.store(new ByteArrayInputStream(gif)))
+				.isInstanceOf(InvalidImageException.class);
+		assertThat(storedFiles()).isEmpty();
+		assertThat(temporaryFiles()).isEmpty();
+	}
+
+	@Test
+	void rejectsEmptyInput() throws Exception {
+		ImageRepository repository = repository(1024, 8);
+
+		assertThatThrownBy(() -> repository.store(new ByteArrayInputStream(new byte[0])))
+				.isInstanceOf(InvalidImageException.class);
+		assertThat(temporaryFiles()).isEmpty();
+	}
+
+	@Test
+	void acceptsImageOfExactlyMaxBytes() throws Exception {
+		ImageRepository repository = repository(1024, 8);
+		byte[] png = image(PNG_MAGIC, 4096);
+
+		String hash = repository.store(new ByteArrayInputStream(png));
+
+		assertThat(repository.load(hash)).isNotNull();
+	}
+
+	@Test
+	void stopsReadingWhenOverMaxBytes() throws Exception {
+		ImageRepository repository = repository(1024, 8);
+		byte[] png = image(PNG_MAGIC, 4097);
+		CountingInputStream in = new CountingInputStream(new ByteArrayInputStream(image(PNG_MAGIC, 1_000_000)));
+
+		assertThatThrownBy(() -> repository.store(new ByteArrayInputStream(png)))
+				.isInstanceOf(InvalidImageException.class);
+		assertThatThrownBy(() -> repository.store(in)).isInstanceOf(InvalidImageException.class);
+
+		// 上限を超えた時点で読み込みをやめる(バッファ1つ分を超えて読まない)
+		assertThat(in.count).isLessThanOrEqualTo(4096 + 1024);
+		assertThat(storedFiles()).isEmpty();
+		assertThat(temporaryFiles()).isEmpty();
+	}
+
+	@Test
+	void storesSameImageOnce() throws Exception {
+		ImageRepository repository = repository(1024, 8);
+		byte[] png = image(PNG_MAGIC, 2000);
+
+		String first = repository.store(new ByteArrayInputStream(png));
+		String second = repository.store(new ByteArrayInputStream(png));
+
+		assertThat(second).isEqualTo(first);
+		assertThat(storedFiles()).hasSize(1);
+		assertThat(temporaryFiles()).isEmpty();
+	}
+
+	@Test
+	void concurrentUploadsOfSameImageLeaveOneCompleteFile() throws Exception {
+		ImageRepository repository = repository(1024, 8);
+		byte[] png = image(PNG_MAGIC, 4000);
+		ExecutorService executor = Executors.newFixedThreadPool(8);
+		CountDownLatch start = new CountDownLatch(1);
+		try {
+			List<Future<String>> futures = new ArrayList<>();
+			for (int i = 0; i < 8; i++) {
+				futures.add(executor.submit(() -> {
+					start.await();
+					return repository.store(new ByteArrayInputStream(png));
+				}));
+			}
+			start.countDown();
+			for (Future<String> future : futures) {
+				assertThat(future.get(10, TimeUnit.SECONDS)).isEqualTo(sha256(png));
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+
+		assertThat(storedFiles()).hasSize(1);
+		assertThat(Files.readAllBytes(repository.load(sha256(png)))).isEqualTo(png);
+		assertThat(temporaryFiles()).isEmpty();
+	}
+
+	@Test
+	void rejectsUploadWhenAllBuffersAreInUse() throws Exception {
+		ImageRepository repository = repository(1024, 1);
+		CountDownLatch reading = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		InputStream slow = new InputStream() {
+			private final InputStream in = new ByteArrayInputStream(image(PNG_MAGIC, 100));
+
+			@Override
+			public int read() throws IOException {
+				reading.countDown();
+				try {
+					release.await();
+				} catch (InterruptedException e) {
+					throw new IOException(e);
+				}
+				return in.read();
+			}
+		};
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		try {
+			Future<String> holding = executor.submit(() -> repository.store(slow));
+			assertThat(reading.await(10, TimeUnit.SECONDS)).isTrue();
+
+			assertThatThrownBy(() -> repository.store(new ByteArrayInputStream(image(PNG_MAGIC, 100))))
+					.isInstanceOf(ServerBusyException.class);
+
+			release.countDown();
+			holding.get(10, TimeUnit.SECONDS);
+			// バッファが返却された後は保存できる
+			assertThat(repository.store(new ByteArrayInputStream(image(JPEG_MAGIC, 100)))).isNotNull();
+		} finally {
+			release.countDown();
+			executor.shutdownNow();
+		}
+	}
+
+	private ImageRepository repository(int bufferBytes, int maxConcurrentUploads) throws IOException {
+		ImageRepository repository = new ImageRepository();
+		ReflectionTestUtils.setField(repository, "imageDir", dir.toString());
+		ReflectionTestUtils.setField(repository, "maxBytes", 4096L);
+		ReflectionTestUtils.setField(repository, "bufferBytes", bufferBytes);
+		ReflectionTestUtils.setField(repository, "maxConcurrentUploads", maxConcurrentUploads);
+		ReflectionTestUtils.setField(repository, "uploadWaitMillis", 50L);
+		repository.init();
+		return repository;
+	}
+
+	/**
+	 * 先頭がmagicで、全体がlengthバイトの画像(中身は判定に関係しないため適当なバイト列)を作成します.
+	 */
+	private static byte[] image(byte[] magic, int length) {
+		byte[] bytes = new byte[length];
+		for (int i = 0; i < length; i++) {
+			bytes[i] = (byte) (i * 31);
+		}
+		System.arraycopy(magic, 0, bytes, 0, magic.length);
+		return bytes;
+	}
+
+	private List<Path> storedFiles() throws IOException {
+		try (Stream<Path> files = Files.walk(dir)) {
+			return files.filter(Files::isRegularFile)
+					.filter(file -> !file.startsWith(dir.resolve("tmp")) && !file.startsWith(dir.resolve("pending")))
+					.collect(Collectors.toList());
+		}
+	}
+
+	private List<Path> temporaryFiles() throws IOException {
+		try (Stream<Path> files = Files.list(dir.resolve("tmp"))) {
+			return files.collect(Collectors.toList());
+		}
+	}
+
+	private static String sha256(byte[] bytes) throws Exception {
+		StringBuilder hex = new StringBuilder();
+		for (byte b : MessageDigest.getInstance("SHA-256").digest(bytes)) {
+			hex.append(String.format("%02x", b));
+		}
+		return hex.toString();
+	}
+
+	/**
+	 * 1回の読み込みで1バイトだけ返すストリーム.
+	 */
+	private static final class OneByteInputStream extends InputStream {
+		private final InputStream in;
+
+		OneByteInputStream(byte[] bytes) {
+			this.in = new ByteArrayInputStream(bytes);
+		}
+
+		@Override
+		public int read() {
+			return in.read();
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) {
+			return len == 0 ? 0 : in.read(b, off, 1);
+		}
+	}
+
+	/**
+	 * 読み込んだバイト数を数えるストリーム.
+	 */
+	private static final class CountingInputStream extends InputStream {
+		private final InputStream in;
+		private long count;
+
+		CountingInputStream(InputStream in) {
+			this.in = in;
+		}
+
+		@Override
+		public int read() throws IOException {
+			int b = in.read();
+			if (b != -1) {
+				count++;
+			}
+			return b;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			int read = in.read(b, off, len);
+			if (read > 0) {
+				count += read;
+			}
+			return read;
+		}
+	}
+}
@@ -0,0 +1,233 @@
+package jp.co.sample.emp_management.security;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+/**
+ * {@link LoginAttemptLimiter}のテスト.
+ *
+ * @author naramasato
+ *
+ */
+class LoginAttemptLimiterTest {
+
+	private static final String IP = "192.0.2.1";
+
+	private static final String MAIL = "user@example.com";
+
+	@Test
+	void blocksAccountAfterMaxFailures() {
+		LoginAttemptLimiter limiter = limiter(300_000, 100_000);
+
+		for (int i = 0; i < 5; i++) {
+			assertThat(limiter.tryAcquire(IP, MAIL)).isTrue();
+		}
+
+		assertThat(limiter.tryAcquire(IP, MAIL)).isFalse();
+		// 大文字・前後の空白が違っても同じアカウントとして扱う
+		assertThat(limiter.tryAcquire("192.0.2.2", " USER@example.com ")).isFalse();
+		assertThat(limiter.tryAcquire("192.0.2.2", "other@example.com")).isTrue();
+	}
+
+	@Test
+	void blocksIpAfterMaxFailures() {
+		LoginAttemptLimiter limiter = limiter(300_000, 100_000);
+
+		for (int i = 0; i < 10; i++) {
+			assertThat(limiter.tryAcquire(IP, "user" + i + "@example.com")).isTrue();
+		}
+
+		assertThat(limiter.tryAcquire(IP, "new@example.com")).isFalse();
+		assertThat(limiter.tryAcquire("192.0.2.2", "new@example.com")).isTrue();
+	}
+
+	@Test
+	void ipLimitCanBeDisabled() {
+		LoginAttemptLimiter limiter = limiter(300_000, 100_000);
+		ReflectionTestUtils.setField(limiter, "maxFailuresPerIp", 0);
+		limiter.init();
+
+		// プロキシのアドレスしか分からない環境では、IPアドレスではなくアカウントごとにだけ制限する
+		for (int i = 0; i < 100; i++) {
+			assertThat(limiter.tryAcquire(IP, "user" + i + "@example.com")).isTrue();
+		}
+		for (int i = 0; i < 5; i++) {
+			limiter.tryAcquire(IP, MAIL);
+		}
+		assertThat(limiter.tryAcquire(IP, MAIL)).isFalse();
+	}
+
+	@Test
+	void rejectedAttemptDoesNotCount() {
+		LoginAttemptLimiter limiter = limiter(300_000, 100_000);
+		for (int i = 0; i < 5; i++) {
+			limiter.tryAcquire(IP, MAIL);
+		}
+
+		// アカウントの上限で拒否された分はIPアドレスの失敗回数に残さない
+		for (int i = 0; i < 20; i++) {
+			assertThat(limiter.tryAcquire(IP, MAIL)).isFalse();
+		}
+
+		for (int i = 0; i < 5; i++) {
+			assertThat(limiter.tryAcquire(IP, "user" + i + "@example.com")).isTrue();
+		}
+	}
+
+	@Test
+	void successResetsAccountButNotIp() {
+		LoginAttemptLimiter limiter = limiter(300_000, 100_000);
+		for (int i = 0; i < 4; i++) {
+			limiter.tryAcquire(IP, MAIL);
+		}
+		limiter.tryAcquire(IP, MAIL);
+
+		limiter.recordSuccess(IP, MAIL);
+
+		// 成功した1回はIPアドレスの失敗回数から除き、それまでの4回は残す
+		for (int i = 0; i < 5; i++) {
+			assertThat(limiter.tryAcquire("192.0.2.2", MAIL)).isTrue();
+		}
+		for (int i = 0; i < 6; i++) {
+			assertThat(limiter.tryAcquire(IP, "user" + i + "@example.com")).isTrue();
+		}
+		assertThat(limiter.tryAcquire(IP, "new@example.com")).isFalse();
+	}
+
+	@Test
+	void releaseCancelsReservation() {
+		LoginAttemptLimiter limiter = limiter(300_000, 100_000);
+		for (int i = 0; i < 5; i++) {
+			limiter.tryAcquire(IP, MAIL);
+		}
+
+		limiter.release(IP, MAIL);
+
+		assertThat(limiter.tryAcquire(IP, MAIL)).isTrue();
+		assertThat(limiter.tryAcquire(IP, MAIL)).isFalse();
+	}
+
+	@Test
+	void concurrentAttemptsReserveAtMostMaxFailures() throws Exception {
+		LoginAttemptLimiter limiter = limiter(300_000, 100_000);
+		int threads = 32;
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		CountDownLatch start = new CountDownLatch(1);
+		AtomicInteger acquired = new AtomicInteger();
+		try {
+			List<Future<?>> futures = new ArrayList<>();
+			for (int i = 0; i < threads; i++) {
+				String ipAddress = "192.0.2." + (i + 1);
+				futures.add(executor.submit(() -> {
+					start.await();
+					for (int j = 0; j < 10; j++) {
+						if (limiter.tryAcquire(ipAddress, MAIL)) {
+							acquired.incrementAndGet();
+						}
+					}
+					return null;
+				}));
+			}
+			start.countDown();
+			for (Future<?> future : futures) {
+				future.get(10, TimeUnit.SECONDS);
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+
+		// 同時に届いても照合まで進めるのはアカウントの上限の5回だけ
+		assertThat(acquired.get()).isEqualTo(5);
+	}
+
+	@Test
+	void unblocksAfterWindowExpires() throws InterruptedException {
+		LoginAttemptLimiter limiter = limiter(100, 100_000);
+		for (int i = 0; i < 5; i++) {
+			limiter.tryAcquire(IP, MAIL);
+		}
+		assertThat(limiter.tryAcquire(IP, MAIL)).isFalse();
+
+		Thread.sleep(150);
+
+		// 期限切れ後は1回目から数え直す
+		for (int i = 0; i < 5; i++) {
+			assertThat(limiter.tryAcquire(IP, MAIL)).isTrue();
+		}
+		assertThat(limiter.tryAcquire(IP, MAIL)).isFalse();
+	}
+
+	@Test
+	void boundsTrackedKeysPerStripe() {
+		// 64ストライプ×2件まで
+		LoginAttemptLimiter limiter = limiter(300_000, 64);
+
+		for (int i = 0; i < 10_000; i++) {
+			limiter.tryAcquire("10.0." + (i / 256) + "." + (i % 256), "user" + i + "@example.com");
+		}
+
+		assertThat(trackedKeys(limiter, "ipCounter")).isLessThanOrEqualTo(128);
+		assertThat(trackedKeys(limiter, "accountCounter")).isLessThanOrEqualTo(128);
+	}
+
+	@Test
+	void evictsKeyWithFewestFailuresFirst() {
+		// 64ストライプ×2件まで
+		LoginAttemptLimiter limiter = limiter(300_000, 64);
+		String[] sameStripe = mailAddressesInSameStripe(3);
+		for (int i = 0; i < 5; i++) {
+			limiter.tryAcquire(IP, sameStripe[0]);
+		}
+		limiter.tryAcquire(IP, sameStripe[1]);
+
+		limiter.tryAcquire(IP, sameStripe[2]);
+
+		// 上限に達したアカウントは、失敗回数の少ないキーより先に削除されない
+		assertThat(limiter.tryAcquire("192.0.2.2", sameStripe[0])).isFalse();
+	}
+
+	private static LoginAttemptLimiter limiter(long windowMillis, int maxTrackedKeys) {
+		LoginAttemptLimiter limiter = new LoginAttemptLimiter();
+		ReflectionTestUtils.setField(limiter, "maxFailuresPerIp", 10);
+		ReflectionTestUtils.setField(limiter, "maxFailuresPerAccount", 5);
+		ReflectionTestUtils.setField(limiter, "attemptWindowMillis", windowMillis);
+		ReflectionTestUtils.setField(limiter, "maxTrackedKeys", maxTrackedKeys);
+		limiter.init();
+		return limiter;
+	}
+
+	private static int trackedKeys(LoginAttemptLimiter limiter, String counterName) {
+		Object counter = ReflectionTestUtils.getField(limiter, counterName);
+		Map<?, ?>[] stripes = (Map<?, ?>[]) ReflectionTestUtils.getField(counter, "stripes");
+		return Arrays.stream(stripes).mapToInt(Map::size).sum();
+	}
+
+	/**
+	 * LoginAttemptLimiterと同じ計算で同じストライプに入るメールアドレスを探します.
+	 */
+	private static String[] mailAddressesInSameStripe(int count) {
+		String[] found = new String[count];
+		int n = 0;
+		for (int i = 0; n < count; i++) {
+			String mailAddress = "user" + i + "@example.com";
+			int hash = mailAddress.hashCode();
+			if (((hash ^ (hash >>> 16)) & 63) == 0) {
+				found[n++] = mailAddress;
+			}
+		}
+		return found;
+	}
+}
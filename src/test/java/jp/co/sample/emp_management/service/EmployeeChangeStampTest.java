@@ -0,0 +1,119 @@
+package jp.co.sample.emp_management.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import jp.co.sample.emp_management.cache.LocalCacheInvalidationBroker;
+import jp.co.sample.emp_management.repository.EmployeeRepository;
+
+/**
+ * {@link EmployeeChangeStamp}のテスト.
+ *
+ * 書き込み中のトランザクションがある間に別のスレッド(別のコネクション)から変更番号を取得し直し、
+ * コミットされていない変更番号を使わないことを確認します.
+ *
+ * @author naramasato
+ *
+ */
+class EmployeeChangeStampTest {
+
+	private NamedParameterJdbcTemplate template;
+
+	private TransactionTemplate transactionTemplate;
+
+	private EmployeeChangeStamp changeStamp;
+
+	private ExecutorService otherThread;
+
+	@BeforeEach
+	void setUp() {
+		DriverManagerDataSource dataSource = new DriverManagerDataSource(
+				"jdbc:h2:mem:change-stamp-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1", "sa", "");
+		template = new NamedParameterJdbcTemplate(dataSource);
+		template.getJdbcTemplate().execute(
+				"CREATE TABLE employees_change (id INTEGER PRIMARY KEY CHECK (id = 1), stamp BIGINT NOT NULL)");
+		template.getJdbcTemplate().execute("INSERT INTO employees_change(id, stamp) VALUES(1, 0)");
+
+		EmployeeRepository employeeRepository = new EmployeeRepository();
+		ReflectionTestUtils.setField(employeeRepository, "template", template);
+		employeeRepository.init();
+		changeStamp = new EmployeeChangeStamp();
+		ReflectionTestUtils.setField(changeStamp, "employeeRepository", employeeRepository);
+		ReflectionTestUtils.setField(changeStamp, "broker", new LocalCacheInvalidationBroker());
+		// 呼び出すたびにDBから取得し直す
+		ReflectionTestUtils.setField(changeStamp, "refreshInterval", -1L);
+		changeStamp.init();
+
+		transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+		otherThread = Executors.newSingleThreadExecutor();
+	}
+
+	@AfterEach
+	void tearDown() {
+		otherThread.shutdownNow();
+		template.getJdbcTemplate().execute("SHUTDOWN");
+	}
+
+	@Test
+	void refreshDuringWriteTransactionDoesNotSeeUncommittedStamp() {
+		assertThat(changeStamp.current()).isEqualTo(0L);
+
+		transactionTemplate.executeWithoutResult(status -> {
+			changeStamp.changed();
+			// changed()がコミットの直前に変更番号を進めた後、コミットされる前に取得し直す
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+				@Override
+				public void beforeCommit(boolean readOnly) {
+					assertThat(currentOnOtherThread()).isEqualTo(0L);
+				}
+			});
+			assertThat(currentOnOtherThread()).isEqualTo(0L);
+		});
+
+		assertThat(currentOnOtherThread()).isEqualTo(1L);
+		assertThat(changeStamp.current()).isEqualTo(1L);
+	}
+
+	@Test
+	void rolledBackWriteDoesNotAdvanceStamp() {
+		transactionTemplate.executeWithoutResult(status -> {
+			changeStamp.changed();
+			status.setRollbackOnly();
+		});
+
+		assertThat(changeStamp.current()).isEqualTo(0L);
+	}
+
+	@Test
+	void changeOutsideTransactionAdvancesImmediately() {
+		changeStamp.changed();
+
+		assertThat(currentOnOtherThread()).isEqualTo(1L);
+	}
+
+	/**
+	 * 別のスレッド(トランザクションに参加しないコネクション)で変更番号を取得し直します.
+	 */
+	private long currentOnOtherThread() {
+		try {
+			return otherThread.submit(changeStamp::current).get(5, TimeUnit.SECONDS);
+		} catch (Exception e) {
+			throw new IllegalStateException(e);
+		}
+	}
+}
@@ -0,0 +1,155 @@
+package jp.co.sample.emp_management.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import jp.co.sample.emp_management.repository.EmployeeRepository;
+
+/**
+ * {@link EmployeeCountService}のテスト.
+ *
+ * 登録のトランザクションは、TransactionSynchronizationを順に呼び出して再現します.
+ *
+ * @author naramasato
+ *
+ */
+class EmployeeCountServiceTest {
+
+	private static final long REFRESH_INTERVAL = 200;
+
+	private final StubRepository repository = new StubRepository();
+
+	private final EmployeeCountService service = new EmployeeCountService();
+
+	{
+		ReflectionTestUtils.setField(service, "employeeRepository", repository);
+		ReflectionTestUtils.setField(service, "estimateThreshold", 1_000_000L);
+		ReflectionTestUtils.setField(service, "refreshInterval", REFRESH_INTERVAL);
+	}
+
+	@AfterEach
+	void clear() {
+		if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			TransactionSynchronizationManager.clearSynchronization();
+		}
+	}
+
+	@Test
+	void addsCommittedRowsToLoadedCount() {
+		repository.rows = 10;
+		assertThat(service.count()).isEqualTo(10);
+
+		List<TransactionSynchronization> insert = beginInsert();
+		repository.rows++;
+		commit(insert);
+
+		assertThat(service.count()).isEqualTo(11);
+		assertThat(repository.queries).isEqualTo(1);
+	}
+
+	@Test
+	void rolledBackInsertIsNotAdded() {
+		repository.rows = 10;
+		service.count();
+
+		List<TransactionSynchronization> insert = beginInsert();
+		insert.forEach(sync -> sync.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+
+		assertThat(service.count()).isEqualTo(10);
+	}
+
+	@Test
+	void doesNotCountInsertTwiceWhenCommittedDuringReload() throws InterruptedException {
+		repository.rows = 10;
+		service.count();
+		Thread.sleep(REFRESH_INTERVAL + 50);
+
+		// count(*)の直前にコミットされ(結果に含まれる)、加算は取得し直した後に行われる登録
+		List<TransactionSynchronization> insert = beginInsert();
+		repository.beforeQuery = () -> {
+			insert.forEach(sync -> sync.beforeCommit(false));
+			repository.rows++;
+			repository.beforeQuery = null;
+		};
+		service.count();
+		insert.forEach(TransactionSynchronization::afterCommit);
+		insert.forEach(sync -> sync.afterCompletion(TransactionSynchronization.STATUS_COMMITTED));
+
+		assertThat(service.count()).isEqualTo(11);
+	}
+
+	@Test
+	void doesNotLoseInsertAddedDuringReload() throws InterruptedException {
+		repository.rows = 10;
+		service.count();
+		Thread.sleep(REFRESH_INTERVAL + 50);
+
+		// count(*)の結果に含まれず、加算は取得し直している間に行われる登録
+		repository.beforeQuery = () -> {
+			repository.beforeQuery = null;
+			List<TransactionSynchronization> insert = beginInsert();
+			repository.afterQuery = () -> {
+				repository.afterQuery = null;
+				repository.rows++;
+				commit(insert);
+			};
+		};
+		service.count();
+
+		assertThat(service.count()).isEqualTo(11);
+	}
+
+	/**
+	 * トランザクション内で従業員を登録し、コミットする前の状態にします.
+	 */
+	private List<TransactionSynchronization> beginInsert() {
+		TransactionSynchronizationManager.initSynchronization();
+		try {
+			service.added(1);
+			return TransactionSynchronizationManager.getSynchronizations();
+		} finally {
+			TransactionSynchronizationManager.clearSynchronization();
+		}
+	}
+
+	private static void commit(List<TransactionSynchronization> synchronizations) {
+		synchronizations.forEach(sync -> sync.beforeCommit(false));
+		synchronizations.forEach(TransactionSynchronization::afterCommit);
+		synchronizations.forEach(sync -> sync.afterCompletion(TransactionSynchronization.STATUS_COMMITTED));
+	}
+
+	/**
+	 * DBの代わりに件数を返すリポジトリ.
+	 */
+	private static final class StubRepository extends EmployeeRepository {
+		private long rows;
+		private int queries;
+		private Runnable beforeQuery;
+		private Runnable afterQuery;
+
+		@Override
+		public long estimateCount() {
+			return rows;
+		}
+
+		@Override
+		public long count() {
+			queries++;
+			if (beforeQuery != null) {
+				beforeQuery.run();
+			}
+			long count = rows;
+			if (afterQuery != null) {
+				afterQuery.run();
+			}
+			return count;
+		}
+	}
+}
@@ -0,0 +1,81 @@
+package jp.co.sample.emp_management.session;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * {@link InMemorySessionStore}のテスト.
+ *
+ * @author naramasato
+ *
+ */
+class InMemorySessionStoreTest {
+
+	private final InMemorySessionStore store = new InMemorySessionStore(1);
+
+	@AfterEach
+	void close() {
+		store.close();
+	}
+
+	@Test
+	void savesOnlyChangedAttributes() {
+		store.save("s1", Map.of("a", "1", "b", "2"), Set.of(), 1800);
+
+		// 別のリクエストがそれぞれ別の属性を変更しても上書きしない
+		store.save("s1", Map.of("a", "10"), Set.of(), 1800);
+		store.save("s1", Map.of("c", "3"), Set.of("b"), 1800);
+
+		assertThat(store.load("s1")).containsOnly(Map.entry("a", "10"), Map.entry("c", "3"));
+	}
+
+	@Test
+	void loadReturnsCopy() {
+		store.save("s1", Map.of("a", "1"), Set.of(), 1800);
+
+		store.load("s1").put("a", "changed");
+
+		assertThat(store.load("s1")).containsEntry("a", "1");
+	}
+
+	@Test
+	void expiredSessionIsNotLoadedAndIsReplacedOnSave() {
+		store.save("s1", Map.of("a", "1"), Set.of(), 0);
+
+		assertThat(store.load("s1")).isNull();
+		assertThat(store.size()).isZero();
+
+		store.save("s1", Map.of("b", "2"), Set.of(), 0);
+		store.save("s1", Map.of("c", "3"), Set.of(), 1800);
+		// 期限切れのセッションの属性は引き継がない
+		assertThat(store.load("s1")).containsOnly(Map.entry("c", "3"));
+	}
+
+	@Test
+	void sweepRemovesExpiredSessions() throws InterruptedException {
+		store.save("expired", Map.of("a", "1"), Set.of(), 0);
+		store.save("alive", Map.of("a", "1"), Set.of(), 1800);
+
+		long deadline = System.currentTimeMillis() + 5000;
+		while (store.size() > 1 && System.currentTimeMillis() < deadline) {
+			Thread.sleep(50);
+		}
+
+		assertThat(store.size()).isEqualTo(1);
+		assertThat(store.load("alive")).containsEntry("a", "1");
+	}
+
+	@Test
+	void deleteRemovesSession() {
+		store.save("s1", Map.of("a", "1"), Set.of(), 1800);
+
+		store.delete("s1");
+
+		assertThat(store.load("s1")).isNull();
+	}
+}
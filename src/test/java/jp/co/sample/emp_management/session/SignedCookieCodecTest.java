@@ -0,0 +1,150 @@
+package jp.co.sample.emp_management.session;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.servlet.http.Cookie;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpSession;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+/**
+ * {@link SignedCookieCodec}のテスト.
+ *
+ * 期限切れの判定は{@link SignedCookieSessionFilter}で行うため、期限切れのCookieはフィルターを通して確認します.
+ *
+ * @author naramasato
+ *
+ */
+class SignedCookieCodecTest {
+
+	private static final String OLD_KEY = key("old", 1);
+
+	private static final String NEW_KEY = key("new", 2);
+
+	private static final long ISSUED_AT = 1_700_000_000L;
+
+	@Test
+	void roundTrip() {
+		SignedCookieCodec codec = new SignedCookieCodec(NEW_KEY);
+		Map<String, String> attributes = new LinkedHashMap<>();
+		attributes.put("administratorName", "山田 太郎");
+		attributes.put("special", "a=b&c.d%e");
+
+		SignedCookieCodec.Decoded decoded = codec.decode(codec.encode(attributes, ISSUED_AT));
+
+		assertThat(decoded).isNotNull();
+		assertThat(decoded.getAttributes()).containsExactlyEntriesOf(attributes);
+		assertThat(decoded.getIssuedAt()).isEqualTo(ISSUED_AT);
+		assertThat(decoded.isCurrentKey()).isTrue();
+	}
+
+	@Test
+	void rejectsTamperedPayload() {
+		SignedCookieCodec codec = new SignedCookieCodec(NEW_KEY);
+		String[] parts = codec.encode(Map.of("administratorName", "user"), ISSUED_AT).split("\\.");
+		String forged = Base64.getUrlEncoder().withoutPadding()
+				.encodeToString(("_iat=" + ISSUED_AT + "&administratorName=admin").getBytes(StandardCharsets.UTF_8));
+
+		assertThat(codec.decode(parts[0] + "." + forged + "." + parts[2])).isNull();
+	}
+
+	@Test
+	void rejectsTamperedSignature() {
+		SignedCookieCodec codec = new SignedCookieCodec(NEW_KEY);
+		String value = codec.encode(Map.of("administratorName", "user"), ISSUED_AT);
+		int signatureStart = value.lastIndexOf('.') + 1;
+		// 末尾の文字は使われないビットを含むため、署名の先頭の文字を書き換える
+		char replaced = value.charAt(signatureStart) == 'A' ? 'B' : 'A';
+		String tampered = value.substring(0, signatureStart) + replaced + value.substring(signatureStart + 1);
+
+		assertThat(codec.decode(tampered)).isNull();
+	}
+
+	@Test
+	void rejectsSignatureFromUnknownKey() {
+		SignedCookieCodec codec = new SignedCookieCodec(NEW_KEY);
+		String value = new SignedCookieCodec(key("new", 3)).encode(Map.of("administratorName", "user"), ISSUED_AT);
+
+		assertThat(codec.decode(value)).isNull();
+	}
+
+	@Test
+	void rejectsTruncatedValue() {
+		SignedCookieCodec codec = new SignedCookieCodec(NEW_KEY);
+		String value = codec.encode(Map.of("administratorName", "user"), ISSUED_AT);
+
+		for (int length = 0; length < value.length(); length++) {
+			assertThat(codec.decode(value.substring(0, length))).as("length %d", length).isNull();
+		}
+	}
+
+	@Test
+	void verifiesValueSignedWithPreviousKey() {
+		String value = new SignedCookieCodec(OLD_KEY).encode(Map.of("administratorName", "user"), ISSUED_AT);
+		SignedCookieCodec rotated = new SignedCookieCodec(NEW_KEY + "," + OLD_KEY);
+
+		SignedCookieCodec.Decoded decoded = rotated.decode(value);
+
+		assertThat(decoded).isNotNull();
+		assertThat(decoded.getAttributes()).containsEntry("administratorName", "user");
+		assertThat(decoded.isCurrentKey()).isFalse();
+		// 署名し直した値は新しい鍵で検証でき、古い鍵を外しても読める
+		String resigned = rotated.encode(decoded.getAttributes(), ISSUED_AT);
+		assertThat(rotated.decode(resigned).isCurrentKey()).isTrue();
+		assertThat(new SignedCookieCodec(NEW_KEY).decode(resigned)).isNotNull();
+		assertThat(new SignedCookieCodec(NEW_KEY).decode(value)).isNull();
+	}
+
+	@Test
+	void rejectsShortOrMalformedKeys() {
+		assertThatThrownBy(() -> new SignedCookieCodec("")).isInstanceOf(IllegalArgumentException.class);
+		assertThatThrownBy(() -> new SignedCookieCodec("nokeyid")).isInstanceOf(IllegalArgumentException.class);
+		assertThatThrownBy(() -> new SignedCookieCodec("k:" + Base64.getEncoder().encodeToString(new byte[16])))
+				.isInstanceOf(IllegalArgumentException.class);
+	}
+
+	@Test
+	void filterIgnoresExpiredValue() throws Exception {
+		SignedCookieCodec codec = new SignedCookieCodec(NEW_KEY);
+		SignedCookieSessionFilter filter = new SignedCookieSessionFilter(codec, "SESSION", 1800, false);
+		long now = System.currentTimeMillis() / 1000;
+
+		MockHttpServletRequest valid = new MockHttpServletRequest();
+		valid.setCookies(new Cookie("SESSION", codec.encode(Map.of("administratorName", "user"), now - 60)));
+		assertThat(sessionSeenBy(filter, valid, new MockHttpServletResponse())).isNotNull()
+				.extracting(session -> session.getAttribute("administratorName")).isEqualTo("user");
+
+		MockHttpServletRequest expired = new MockHttpServletRequest();
+		expired.setCookies(new Cookie("SESSION", codec.encode(Map.of("administratorName", "user"), now - 1800)));
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		assertThat(sessionSeenBy(filter, expired, response)).isNull();
+		// 期限切れのCookieは削除する
+		assertThat(response.getHeaders("Set-Cookie")).hasSize(1);
+		assertThat(response.getHeader("Set-Cookie")).startsWith("SESSION=;").contains("Max-Age=0");
+	}
+
+	private static HttpSession sessionSeenBy(SignedCookieSessionFilter filter, MockHttpServletRequest request,
+			MockHttpServletResponse response) throws Exception {
+		AtomicReference<HttpSession> session = new AtomicReference<>();
+		filter.doFilter(request, response,
+				(req, res) -> session.set(((HttpServletRequest) req).getSession(false)));
+		return session.get();
+	}
+
+	private static String key(String keyId, int fill) {
+		byte[] secret = new byte[32];
+		Arrays.fill(secret, (byte) fill);
+		return keyId + ":" + Base64.getEncoder().encodeToString(secret);
+	}
+}
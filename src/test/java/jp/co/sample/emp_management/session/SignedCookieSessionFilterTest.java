@@ -0,0 +1,88 @@
+package jp.co.sample.emp_management.session;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.servlet.DispatcherType;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpSession;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+/**
+ * {@link SignedCookieSessionFilter}のテスト.
+ *
+ * @author naramasato
+ *
+ */
+class SignedCookieSessionFilterTest {
+
+	private static final String COOKIE_NAME = "EMP_SESSION";
+
+	private final SignedCookieCodec codec = new SignedCookieCodec(key());
+
+	private final SignedCookieSessionFilter filter = new SignedCookieSessionFilter(codec, COOKIE_NAME, 1800, false);
+
+	@Test
+	void writesCookieAtEndOfRequest() throws Exception {
+		MockHttpServletResponse response = new MockHttpServletResponse();
+
+		filter.doFilter(new MockHttpServletRequest(), response,
+				(req, res) -> ((HttpServletRequest) req).getSession().setAttribute("name", "山田"));
+
+		assertThat(decode(response).getAttributes()).containsEntry("name", "山田");
+	}
+
+	@Test
+	void writesSessionFromAsyncLoginContinuation() throws Exception {
+		MockHttpServletRequest request = new MockHttpServletRequest();
+		request.setAsyncSupported(true);
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		AtomicReference<HttpServletRequest> wrapped = new AtomicReference<>();
+
+		// ログインのリクエスト: パスワードの照合を別のスレッドで行い、リクエストのスレッドは解放する
+		filter.doFilter(request, response, (req, res) -> {
+			wrapped.set((HttpServletRequest) req);
+			req.startAsync();
+		});
+		assertThat(response.getHeader("Set-Cookie")).isNull();
+
+		// 照合が終わった後の続き(AdministratorController#loginのthenApply)でセッションに書き込む
+		CompletableFuture.runAsync(() -> {
+			HttpSession session = wrapped.get().getSession();
+			session.setAttribute("administratorId", "1");
+			session.setAttribute("name", "山田 太郎");
+		}).get(10, TimeUnit.SECONDS);
+
+		// 結果を返すディスパッチ. 本文を書き出さずに終わってもCookieを書き出す
+		request.setAsyncStarted(false);
+		request.setDispatcherType(DispatcherType.ASYNC);
+		filter.doFilter(request, response, (req, res) -> {
+		});
+
+		assertThat(response.getHeaders("Set-Cookie")).hasSize(1);
+		assertThat(decode(response).getAttributes()).containsEntry("administratorId", "1").containsEntry("name",
+				"山田 太郎");
+	}
+
+	private SignedCookieCodec.Decoded decode(MockHttpServletResponse response) {
+		String header = response.getHeader("Set-Cookie");
+		assertThat(header).startsWith(COOKIE_NAME + "=");
+		SignedCookieCodec.Decoded decoded = codec.decode(header.substring(COOKIE_NAME.length() + 1, header.indexOf(';')));
+		assertThat(decoded).isNotNull();
+		return decoded;
+	}
+
+	private static String key() {
+		byte[] secret = new byte[32];
+		Arrays.fill(secret, (byte) 7);
+		return "k1:" + Base64.getEncoder().encodeToString(secret);
+	}
+}
@@ -0,0 +1,190 @@
+package jp.co.sample.emp_management.session;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.servlet.DispatcherType;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.Cookie;
+import javax.servlet.http.HttpServletRequest;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+/**
+ * {@link StoreSessionFilter}のテスト.
+ *
+ * @author naramasato
+ *
+ */
+class StoreSessionFilterTest {
+
+	private static final String COOKIE_NAME = "EMP_SESSION";
+
+	private final InMemorySessionStore memory = new InMemorySessionStore(3600);
+
+	private final CountingStore store = new CountingStore(memory);
+
+	private final StoreSessionFilter filter = new StoreSessionFilter(store, COOKIE_NAME, 1800, 60, false);
+
+	@AfterEach
+	void close() {
+		memory.close();
+	}
+
+	@Test
+	void savesNewSessionOnceAndSetsCookie() throws Exception {
+		MockHttpServletResponse response = perform(null, (req, res) -> {
+			HttpServletRequest request = (HttpServletRequest) req;
+			request.getSession().setAttribute("administratorId", "1");
+			request.getSession().setAttribute("name", "山田");
+			// レスポンスを書き出し始めてもセッションの保存はリクエストの最後の1回だけ
+			res.getWriter().write("ok");
+			res.flushBuffer();
+			request.getSession().setAttribute("name", "山田 太郎");
+		});
+
+		String id = sessionIdOf(response);
+		assertThat(id).isNotEmpty();
+		assertThat(store.saves.get()).isEqualTo(1);
+		assertThat(memory.load(id)).containsEntry("administratorId", "1").containsEntry("name", "山田 太郎");
+	}
+
+	@Test
+	void requestWithoutSessionDoesNotSave() throws Exception {
+		MockHttpServletResponse response = perform(null, (req, res) -> ((HttpServletRequest) req).getSession(false));
+
+		assertThat(store.saves.get()).isZero();
+		assertThat(response.getHeader("Set-Cookie")).isNull();
+	}
+
+	@Test
+	void unchangedSessionWithinTouchIntervalDoesNotSave() throws Exception {
+		String id = sessionIdOf(perform(null,
+				(req, res) -> ((HttpServletRequest) req).getSession().setAttribute("name", "山田")));
+		store.saves.set(0);
+
+		AtomicReference<Object> name = new AtomicReference<>();
+		MockHttpServletResponse response = perform(id,
+				(req, res) -> name.set(((HttpServletRequest) req).getSession().getAttribute("name")));
+
+		assertThat(name.get()).isEqualTo("山田");
+		assertThat(store.saves.get()).isZero();
+		assertThat(response.getHeader("Set-Cookie")).isNull();
+	}
+
+	@Test
+	void savesAsyncRequestOnceAfterAsyncDispatch() throws Exception {
+		MockHttpServletRequest request = new MockHttpServletRequest();
+		request.setAsyncSupported(true);
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		AtomicReference<HttpServletRequest> wrapped = new AtomicReference<>();
+
+		filter.doFilter(request, response, (req, res) -> {
+			wrapped.set((HttpServletRequest) req);
+			req.startAsync();
+		});
+		// 非同期処理の途中では保存しない
+		assertThat(store.saves.get()).isZero();
+
+		// 非同期処理の結果を返すディスパッチ(ログインの続きでセッションに書き込む)
+		request.setAsyncStarted(false);
+		request.setDispatcherType(DispatcherType.ASYNC);
+		filter.doFilter(request, response,
+				(req, res) -> wrapped.get().getSession().setAttribute("administratorId", "1"));
+
+		String id = sessionIdOf(response);
+		assertThat(store.saves.get()).isEqualTo(1);
+		assertThat(memory.load(id)).containsEntry("administratorId", "1");
+	}
+
+	@Test
+	void changeSessionIdMovesAttributesAndDeletesOldId() throws Exception {
+		String oldId = sessionIdOf(perform(null,
+				(req, res) -> ((HttpServletRequest) req).getSession().setAttribute("name", "山田")));
+
+		MockHttpServletResponse response = perform(oldId, (req, res) -> ((HttpServletRequest) req).changeSessionId());
+
+		String newId = sessionIdOf(response);
+		assertThat(newId).isNotEqualTo(oldId);
+		assertThat(memory.load(oldId)).isNull();
+		assertThat(memory.load(newId)).containsEntry("name", "山田");
+	}
+
+	@Test
+	void invalidateDeletesSessionAndClearsCookie() throws Exception {
+		String id = sessionIdOf(perform(null,
+				(req, res) -> ((HttpServletRequest) req).getSession().setAttribute("name", "山田")));
+
+		MockHttpServletResponse response = perform(id, (req, res) -> ((HttpServletRequest) req).getSession().invalidate());
+
+		assertThat(memory.load(id)).isNull();
+		assertThat(response.getHeader("Set-Cookie")).startsWith(COOKIE_NAME + "=;").contains("Max-Age=0");
+	}
+
+	@Test
+	void expiredSessionIsNotRestored() throws Exception {
+		memory.save("expired", Map.of("name", "山田"), Set.of(), 0);
+
+		AtomicReference<Object> session = new AtomicReference<>();
+		MockHttpServletResponse response = perform("expired",
+				(req, res) -> session.set(((HttpServletRequest) req).getSession(false)));
+
+		assertThat(session.get()).isNull();
+		// ストアにないセッションのCookieは削除する
+		assertThat(response.getHeader("Set-Cookie")).startsWith(COOKIE_NAME + "=;").contains("Max-Age=0");
+	}
+
+	private MockHttpServletResponse perform(String sessionId, FilterChain chain)
+			throws IOException, ServletException {
+		MockHttpServletRequest request = new MockHttpServletRequest();
+		if (sessionId != null) {
+			request.setCookies(new Cookie(COOKIE_NAME, sessionId));
+		}
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		filter.doFilter(request, response, chain);
+		return response;
+	}
+
+	private static String sessionIdOf(MockHttpServletResponse response) {
+		String header = response.getHeader("Set-Cookie");
+		assertThat(header).startsWith(COOKIE_NAME + "=");
+		return header.substring(COOKIE_NAME.length() + 1, header.indexOf(';'));
+	}
+
+	/**
+	 * 保存の回数を数えるストア.
+	 */
+	private static final class CountingStore implements SessionStore {
+		private final SessionStore delegate;
+		private final AtomicInteger saves = new AtomicInteger();
+
+		CountingStore(SessionStore delegate) {
+			this.delegate = delegate;
+		}
+
+		@Override
+		public Map<String, Object> load(String id) {
+			return delegate.load(id);
+		}
+
+		@Override
+		public void save(String id, Map<String, Object> changed, Set<String> removed, int maxInactiveSeconds) {
+			saves.incrementAndGet();
+			delegate.save(id, changed, removed, maxInactiveSeconds);
+		}
+
+		@Override
+		public void delete(String id) {
+			delegate.delete(id);
+		}
+	}
+}